@@ -0,0 +1,178 @@
+package com.example.calculator.logic;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+
+// Exact rational number backed by BigInteger. Used where the long-based Fraction
+// would overflow (polynomial division, GCDs, exact root isolation).
+// Instances are immutable and always kept in lowest terms with a positive denominator.
+public final class BigFraction implements Comparable<BigFraction> {
+    public static final BigFraction ZERO = new BigFraction(BigInteger.ZERO, BigInteger.ONE, false);
+    public static final BigFraction ONE = new BigFraction(BigInteger.ONE, BigInteger.ONE, false);
+
+    private final BigInteger numerator;
+    private final BigInteger denominator;
+
+    public BigFraction(BigInteger numerator, BigInteger denominator) {
+        if (denominator.signum() == 0) {
+            throw new IllegalArgumentException("Denominator cannot be zero.");
+        }
+        if (denominator.signum() < 0) {
+            numerator = numerator.negate();
+            denominator = denominator.negate();
+        }
+        BigInteger g = numerator.gcd(denominator);
+        if (numerator.signum() == 0) {
+            denominator = BigInteger.ONE;
+        } else if (!g.equals(BigInteger.ONE)) {
+            numerator = numerator.divide(g);
+            denominator = denominator.divide(g);
+        }
+        this.numerator = numerator;
+        this.denominator = denominator;
+    }
+
+    // Trusted constructor for values already in lowest terms
+    private BigFraction(BigInteger numerator, BigInteger denominator, boolean unused) {
+        this.numerator = numerator;
+        this.denominator = denominator;
+    }
+
+    public BigFraction(BigInteger wholeNumber) {
+        this(wholeNumber, BigInteger.ONE, false);
+    }
+
+    public static BigFraction valueOf(long numerator, long denominator) {
+        return new BigFraction(BigInteger.valueOf(numerator), BigInteger.valueOf(denominator));
+    }
+
+    public static BigFraction valueOf(long wholeNumber) {
+        return new BigFraction(BigInteger.valueOf(wholeNumber), BigInteger.ONE, false);
+    }
+
+    public static BigFraction valueOf(Fraction f) {
+        return new BigFraction(BigInteger.valueOf(f.getNumerator()), BigInteger.valueOf(f.getDenominator()), false);
+    }
+
+    // Uses the shortest decimal representation of d, so parsed inputs like 0.1 become 1/10
+    // rather than the binary expansion of the double.
+    public static BigFraction valueOf(double d) {
+        if (Double.isNaN(d) || Double.isInfinite(d)) {
+            throw new IllegalArgumentException("Cannot convert NaN or Infinity to BigFraction.");
+        }
+        return valueOf(BigDecimal.valueOf(d));
+    }
+
+    // The exact value of a decimal literal such as "2.50" or "1e-3"
+    public static BigFraction parse(String decimal) {
+        return valueOf(new BigDecimal(decimal));
+    }
+
+    private static BigFraction valueOf(BigDecimal bd) {
+        if (bd.scale() <= 0) {
+            return new BigFraction(bd.toBigIntegerExact());
+        }
+        return new BigFraction(bd.unscaledValue(), BigInteger.TEN.pow(bd.scale()));
+    }
+
+    public BigInteger getNumerator() {
+        return numerator;
+    }
+
+    public BigInteger getDenominator() {
+        return denominator;
+    }
+
+    public int signum() {
+        return numerator.signum();
+    }
+
+    public boolean isZero() {
+        return numerator.signum() == 0;
+    }
+
+    public boolean isInteger() {
+        return denominator.equals(BigInteger.ONE);
+    }
+
+    public BigFraction add(BigFraction other) {
+        if (isZero()) return other;
+        if (other.isZero()) return this;
+        if (denominator.equals(other.denominator)) {
+            return new BigFraction(numerator.add(other.numerator), denominator);
+        }
+        return new BigFraction(numerator.multiply(other.denominator).add(other.numerator.multiply(denominator)),
+                               denominator.multiply(other.denominator));
+    }
+
+    public BigFraction subtract(BigFraction other) {
+        return add(other.negate());
+    }
+
+    public BigFraction multiply(BigFraction other) {
+        if (isZero() || other.isZero()) return ZERO;
+        return new BigFraction(numerator.multiply(other.numerator), denominator.multiply(other.denominator));
+    }
+
+    public BigFraction multiply(BigInteger factor) {
+        return new BigFraction(numerator.multiply(factor), denominator);
+    }
+
+    public BigFraction divide(BigFraction other) {
+        if (other.isZero()) {
+            throw new ArithmeticException("Cannot divide by zero fraction.");
+        }
+        return new BigFraction(numerator.multiply(other.denominator), denominator.multiply(other.numerator));
+    }
+
+    public BigFraction negate() {
+        return new BigFraction(numerator.negate(), denominator, false);
+    }
+
+    public BigFraction abs() {
+        return signum() < 0 ? negate() : this;
+    }
+
+    public BigFraction reciprocal() {
+        return ONE.divide(this);
+    }
+
+    public double toDouble() {
+        if (isInteger()) return numerator.doubleValue();
+        return new BigDecimal(numerator).divide(new BigDecimal(denominator), MathContext.DECIMAL64).doubleValue();
+    }
+
+    // Narrows back to the long-based Fraction; throws if either part does not fit in a long.
+    public Fraction toFraction() {
+        if (numerator.bitLength() >= 64 || denominator.bitLength() >= 64) {
+            throw new ArithmeticException("Fraction too large for long: " + this);
+        }
+        return new Fraction(numerator.longValue(), denominator.longValue());
+    }
+
+    @Override
+    public int compareTo(BigFraction other) {
+        if (denominator.equals(other.denominator)) return numerator.compareTo(other.numerator);
+        return numerator.multiply(other.denominator).compareTo(other.numerator.multiply(denominator));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        BigFraction that = (BigFraction) o;
+        return numerator.equals(that.numerator) && denominator.equals(that.denominator);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * numerator.hashCode() + denominator.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        if (isInteger()) return numerator.toString();
+        return numerator + "/" + denominator;
+    }
+}
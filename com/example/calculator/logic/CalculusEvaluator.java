@@ -1,10 +1,18 @@
 package com.example.calculator.logic;
 
-// This class does not use trigonometric functions directly,
-// so it does not need to be aware of angle unit settings for its
-// current differentiation/integration of polynomials.
-// If you were to add calculus operations for trig functions,
-// then it would need to handle angle units similarly to ExpressionEvaluator.
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+// Symbolic differentiation treats trigonometric functions in radians (d/dx sin(x) =
+// cos(x)), independent of the angle unit setting. Numeric operations that evaluate
+// trig functions would need to handle angle units similarly to ExpressionEvaluator.
 
 public class CalculusEvaluator {
 
@@ -12,31 +20,168 @@ public class CalculusEvaluator {
         // Constructor
     }
 
+    // Differentiates with respect to the only variable present, or x when there are several
     public String differentiate(String expression) {
+        return differentiate(expression, 1);
+    }
+
+    // n-th derivative, e.g. order 2 of sin(x^2) gives 2cos(x^2) - 4x^2*sin(x^2)
+    public String differentiate(String expression, int order) {
         if (expression == null || expression.trim().isEmpty()) return "0";
         try {
-            Polynomial poly = Polynomial.parse(expression);
-            Polynomial derivative = new Polynomial();
-            for (Term term : poly.getTerms()) {
-                if (term.variable.isEmpty() || term.exponent == 0) { /* Derivative of constant is 0 */ }
-                else {
-                    double newCoefficient = term.coefficient * term.exponent;
-                    int newExponent = term.exponent - 1;
-                    if (newCoefficient != 0) {
-                        derivative.addTerm(new Term(newCoefficient, term.variable, newExponent));
-                    }
-                }
+            ExpressionTree tree = ExpressionParser.parse(expression);
+            return derivative(tree, defaultVariable(tree), order);
+        } catch (IllegalArgumentException | ArithmeticException e) { return "Error (Diff): " + e.getMessage();
+        } catch (Exception e) { return "Error: Could not differentiate."; }
+    }
+
+    // Partial derivative, e.g. d/dy (x^2y + y^3) = x^2 + 3y^2 or d/dy sin(x*y) = x*cos(x*y)
+    public String partialDerivative(String expression, String variable) {
+        if (expression == null || expression.trim().isEmpty()) return "0";
+        try {
+            return derivative(ExpressionParser.parse(expression), variable, 1);
+        } catch (IllegalArgumentException | ArithmeticException e) { return "Error (Diff): " + e.getMessage();
+        } catch (Exception e) { return "Error: Could not differentiate."; }
+    }
+
+    // Polynomials are differentiated exactly term by term; anything else symbolically on
+    // a hash-consed DAG, where shared subterms are differentiated once
+    private String derivative(ExpressionTree tree, String variable, int order) {
+        if (order < 0) throw new IllegalArgumentException("Derivative order must be non-negative");
+        MultiPolynomial poly;
+        try {
+            poly = MultiPolynomial.fromTree(tree, tree.root(), new VariableTable());
+        } catch (IllegalArgumentException notPolynomial) {
+            ExpressionDag dag = new ExpressionDag();
+            int result = new Differentiator(dag, variable).derivative(dag.fromTree(tree, tree.root()), order);
+            return dag.toString(result);
+        }
+        for (int k = 0; k < order; k++) poly = poly.partialDerivative(variable);
+        return formatPolynomial(poly);
+    }
+
+    // Taylor polynomial of the given order around point from truncated power series
+    // arithmetic, e.g. ("e^sin(x)", 4, 0) gives "1 + x + 0.5x^2 - 0.125x^4 + O(x^5)".
+    // Around a non-zero point the powers are of (x - a).
+    public String taylor(String expression, int order, double point) {
+        if (expression == null || expression.trim().isEmpty()) return "0";
+        try {
+            ExpressionTree tree = ExpressionParser.parse(expression);
+            String variable = defaultVariable(tree);
+            PowerSeries series = PowerSeries.expand(tree, variable, point, order);
+            String power = point == 0 ? variable : "(" + variable + (point < 0 ? " + " : " - ") + formatNumber(Math.abs(point)) + ")";
+            StringBuilder sb = new StringBuilder();
+            for (int k = 0; k <= order; k++) {
+                double c = series.getCoefficient(k);
+                if (c == 0) continue;
+                if (sb.length() > 0) sb.append(c < 0 ? " - " : " + ");
+                else if (c < 0) sb.append("-");
+                double abs = Math.abs(c);
+                if (abs != 1 || k == 0) sb.append(formatNumber(abs));
+                if (k > 0) sb.append(power);
+                if (k > 1) sb.append("^").append(k);
             }
-            return derivative.toString();
+            if (sb.length() == 0) sb.append("0");
+            return sb.append(" + O(").append(power).append("^").append(order + 1).append(")").toString();
+        } catch (IllegalArgumentException | ArithmeticException e) { return "Error (Taylor): " + e.getMessage();
+        } catch (Exception e) { return "Error: Could not expand."; }
+    }
+
+    // Value and exact derivative at a point by forward-mode automatic differentiation,
+    // e.g. ("sin(x^2)", 1) gives "f(1) = 0.8415, f'(1) = 1.0806"
+    public String derivativeAt(String expression, double point) {
+        if (expression == null || expression.trim().isEmpty()) return "Error: Empty expression";
+        try {
+            ExpressionTree tree = ExpressionParser.parse(expression);
+            String variable = defaultVariable(tree);
+            CompiledExpression f = CompiledExpression.compile(tree, SettingsManager.ANGLE_UNIT_RADIANS, variable);
+            double[] x = {point};
+            double value = f.evaluate(x);
+            double slope = f.derivative(x, 0);
+            if (Double.isNaN(value) || Double.isNaN(slope)) return "Error: Undefined at " + variable + " = " + formatNumber(point);
+            String at = "(" + formatNumber(point) + ")";
+            return "f" + at + " = " + formatNumber(value) + ", f'" + at + " = " + formatNumber(slope);
         } catch (IllegalArgumentException e) { return "Error (Diff): " + e.getMessage();
         } catch (Exception e) { return "Error: Could not differentiate."; }
     }
 
+    // Value and gradient at a point by reverse-mode automatic differentiation. The point
+    // is a list of assignments, e.g. ("x^2*y", "x = 1, y = 2") gives "f = 2, ∇f = (4, 1)",
+    // with one gradient entry per assigned variable in the order given.
+    public String gradientAt(String expression, String point) {
+        if (expression == null || expression.trim().isEmpty()) return "Error: Empty expression";
+        try {
+            String[] assignments = splitTopLevel(point, ",;");
+            String[] names = new String[assignments.length];
+            double[] values = new double[assignments.length];
+            ExpressionEvaluator numeric = new ExpressionEvaluator();
+            for (int i = 0; i < assignments.length; i++) {
+                ExpressionTree assignment = ExpressionParser.parse(assignments[i]);
+                int root = assignment.root();
+                if (assignment.kind(root) != ExpressionTree.EQUATION || assignment.kind(assignment.left(root)) != ExpressionTree.IDENTIFIER) {
+                    throw new IllegalArgumentException("Expected name = value, found '" + assignments[i].trim() + "'");
+                }
+                names[i] = assignment.name(assignment.left(root));
+                String valueText = assignment.getSource().substring(assignment.start(assignment.right(root)), assignment.end(assignment.right(root)));
+                values[i] = numeric.evaluateNumber(valueText, SettingsManager.ANGLE_UNIT_RADIANS);
+            }
+            CompiledExpression f = CompiledExpression.compile(ExpressionParser.parse(expression), SettingsManager.ANGLE_UNIT_RADIANS, names);
+            double[] gradient = new double[names.length];
+            double value = f.gradient(values, gradient);
+            StringBuilder sb = new StringBuilder("f = ").append(formatNumber(value)).append(", ∇f = (");
+            for (int i = 0; i < gradient.length; i++) {
+                if (Double.isNaN(gradient[i])) return "Error: Gradient undefined at this point";
+                if (i > 0) sb.append(", ");
+                sb.append(formatNumber(gradient[i]));
+            }
+            return sb.append(")").toString();
+        } catch (IllegalArgumentException | ArithmeticException e) { return "Error (Gradient): " + e.getMessage();
+        } catch (Exception e) { return "Error: Could not compute gradient."; }
+    }
+
+    private static String formatNumber(double value) {
+        return formatNumber(value, 6);
+    }
+
+    // As many significant digits as the error estimate supports, between 6 and 15
+    private static String formatNumber(double value, double error) {
+        if (!(error > 0) || value == 0) return formatNumber(value, error == 0 ? 15 : 6);
+        double digits = Math.ceil(-Math.log10(error / Math.abs(value)));
+        return formatNumber(value, (int) Math.max(6, Math.min(15, digits)));
+    }
+
+    private static String formatNumber(double value, int digits) {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) return String.valueOf((long) value);
+        // Trailing zeros are trimmed from the mantissa only, so 1.50000e-10 becomes 1.5e-10
+        String text = String.format("%." + digits + "g", value);
+        int exponent = text.indexOf('e');
+        String mantissa = exponent < 0 ? text : text.substring(0, exponent);
+        if (mantissa.indexOf('.') >= 0) mantissa = mantissa.replaceAll("\\.?0+$", "");
+        return exponent < 0 ? mantissa : mantissa + text.substring(exponent);
+    }
+
+    // The only variable in the expression (pi and e are constants), or x
+    private static String defaultVariable(ExpressionTree tree) {
+        String found = null;
+        for (int node = 0; node < tree.size(); node++) {
+            if (tree.kind(node) != ExpressionTree.IDENTIFIER) continue;
+            String name = tree.name(node);
+            if (name.equalsIgnoreCase("pi") || name.equals("π") || name.equalsIgnoreCase("e")) continue;
+            if (found != null && !found.equals(name)) return "x";
+            found = name;
+        }
+        return found == null ? "x" : found;
+    }
+
+    private String formatPolynomial(MultiPolynomial poly) {
+        return poly.getUsedVariables().length <= 1 ? poly.toPolynomial().toString() : poly.toString();
+    }
+
     public String integrate(String expression) {
         if (expression == null || expression.trim().isEmpty()) return "C";
         try {
             Polynomial poly = Polynomial.parse(expression);
-            Polynomial integral = new Polynomial();
+            List<Term> integralTerms = new ArrayList<>();
             for (Term term : poly.getTerms()) {
                 double newCoefficient;
                 int newExponent = term.exponent + 1;
@@ -49,13 +194,351 @@ public class CalculusEvaluator {
                     newCoefficient = term.coefficient / newExponent;
                 }
                 if (Math.abs(newCoefficient) > 1e-9) {
-                    integral.addTerm(new Term(newCoefficient, term.variable, newExponent));
+                    integralTerms.add(new Term(newCoefficient, term.variable, newExponent));
                 }
             }
-            String integralStr = integral.toString();
+            String integralStr = new Polynomial(integralTerms).toString();
             if (integralStr.equals("0")) return "C"; // Integral of 0 is C
             return integralStr + " + C";
         } catch (IllegalArgumentException e) { return "Error (Integ): " + e.getMessage();
         } catch (Exception e) { return "Error: Could not integrate.";}
     }
+
+    // Numerical definite integral over [lower, upper] by adaptive quadrature, e.g.
+    // ("sin(x^2)", 0, 10) gives "∫ = 0.583671 (± 6.2e-12, Gauss-Kronrod (32 intervals))"
+    public String definiteIntegral(String expression, double lower, double upper) {
+        if (expression == null || expression.trim().isEmpty()) return "Error: Empty expression";
+        try {
+            ExpressionTree tree = ExpressionParser.parse(expression);
+            CompiledExpression f = CompiledExpression.compile(tree, SettingsManager.ANGLE_UNIT_RADIANS, defaultVariable(tree));
+            NumericalIntegrator.Result result = new NumericalIntegrator().integrate(f, lower, upper, NumericalIntegrator.DEFAULT_TOLERANCE);
+            if (Double.isNaN(result.getValue()) || Double.isInfinite(result.getValue())) return "Error: Integral does not converge";
+            String text = "∫ = " + formatNumber(result.getValue())
+                + " (± " + String.format("%.2g", result.getErrorEstimate()) + ", " + result.getMethod() + ")";
+            return result.isConverged() ? text : text + " [tolerance not reached]";
+        } catch (IllegalArgumentException | ArithmeticException e) { return "Error (Integ): " + e.getMessage();
+        } catch (Exception e) { return "Error: Could not integrate."; }
+    }
+
+    // x -> point, optionally one-sided: "0", "0+", "pi/2-", "inf", "-∞"
+    private static final Pattern LIMIT_POINT = Pattern.compile("\\s*(.*?)\\s*([+-]?)\\s*");
+
+    // Limit by Richardson extrapolation, e.g. ("sin(x)/x", "0") gives
+    // "lim = 1 (± 2.3e-14, Richardson extrapolation)"
+    public String limit(String expression, String point) {
+        if (expression == null || expression.trim().isEmpty()) return "Error: Empty expression";
+        try {
+            ExpressionTree tree = ExpressionParser.parse(expression);
+            CompiledExpression f = CompiledExpression.compile(tree, SettingsManager.ANGLE_UNIT_RADIANS, defaultVariable(tree));
+            Matcher m = LIMIT_POINT.matcher(point == null ? "" : point);
+            if (!m.matches() || m.group(1).isEmpty()) throw new IllegalArgumentException("Expected a limit point, e.g. 0, 0+ or inf");
+            double at = parseLimitPoint(m.group(1));
+            int direction = m.group(2).isEmpty() ? 0 : (m.group(2).equals("+") ? 1 : -1);
+            Extrapolator.Result result = new Extrapolator().limit(f, at, direction);
+            double value = result.getValue();
+            if (Double.isInfinite(value)) return "lim = " + (value > 0 ? "∞" : "-∞");
+            if (!result.isConverged() && !(result.getErrorEstimate() <= 1e-6 * Math.max(1, Math.abs(value)))) {
+                return "Error: No limit found (the expression may diverge or oscillate)";
+            }
+            String text = "lim = " + formatNumber(value, result.getErrorEstimate())
+                + " (± " + String.format("%.2g", result.getErrorEstimate()) + ", " + result.getMethod() + ")";
+            return result.isConverged() ? text : text + " [tolerance not reached]";
+        } catch (IllegalArgumentException | ArithmeticException e) { return "Error (Limit): " + e.getMessage();
+        } catch (Exception e) { return "Error: Could not evaluate the limit."; }
+    }
+
+    private static double parseLimitPoint(String text) {
+        String t = text.replace(" ", "").toLowerCase();
+        boolean negative = t.startsWith("-");
+        if (negative || t.startsWith("+")) t = t.substring(1);
+        if (t.equals("inf") || t.equals("infinity") || t.equals("∞")) return negative ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+        return new ExpressionEvaluator().evaluateNumber(text, SettingsManager.ANGLE_UNIT_RADIANS);
+    }
+
+    // Sum of an infinite series from the given index on, e.g. ("1/k^2", 1) gives
+    // "Σ = 1.64493406684823 (± 3.1e-14, Richardson on partial sums, 4096 terms)"
+    public String seriesSum(String term, long start) {
+        if (term == null || term.trim().isEmpty()) return "Error: Empty expression";
+        try {
+            ExpressionTree tree = ExpressionParser.parse(term);
+            CompiledExpression f = CompiledExpression.compile(tree, SettingsManager.ANGLE_UNIT_RADIANS, defaultVariable(tree));
+            Extrapolator.Result result = new Extrapolator().sumSeries(f, start);
+            double value = result.getValue();
+            if (!result.isConverged() && !(result.getErrorEstimate() <= 1e-6 * Math.max(1, Math.abs(value)))) {
+                return "Error: The series does not appear to converge";
+            }
+            String text = "Σ = " + formatNumber(value, result.getErrorEstimate())
+                + " (± " + String.format("%.2g", result.getErrorEstimate()) + ", " + result.getMethod()
+                + ", " + result.getEvaluations() + " terms)";
+            return result.isConverged() ? text : text + " [tolerance not reached]";
+        } catch (IllegalArgumentException | ArithmeticException e) { return "Error (Series): " + e.getMessage();
+        } catch (Exception e) { return "Error: Could not sum the series."; }
+    }
+
+    // y' = f or dy/dt = f; a bare expression is the right-hand side for y
+    private static final Pattern PRIME_EQUATION = Pattern.compile("\\s*([A-Za-z][A-Za-z0-9_]*)\\s*['′]\\s*=(.*)");
+    private static final Pattern LEIBNIZ_EQUATION = Pattern.compile("\\s*d([A-Za-z][A-Za-z0-9_]*)\\s*/\\s*d([A-Za-z][A-Za-z0-9_]*)\\s*=(.*)");
+
+    // Solves an initial value problem and tabulates it. The system is one equation or
+    // several separated by ';' ("y' = z; z' = -y" or "dy/dt = -2y"), and the conditions
+    // are "x0, y0[, z0, ...], x1" in the order the equations were given. The first line of
+    // the result gives the final values, then a table of rows + 1 evenly spaced points
+    // read from the solver's dense output follows.
+    public String solveOde(String system, String conditions, int rows) {
+        if (system == null || system.trim().isEmpty()) return "Error: Empty expression";
+        try {
+            String[] equations = system.split(";");
+            int n = equations.length;
+            String[] states = new String[n];
+            ExpressionTree[] rhs = new ExpressionTree[n];
+            String independent = null;
+            for (int i = 0; i < n; i++) {
+                Matcher prime = PRIME_EQUATION.matcher(equations[i]);
+                Matcher leibniz = LEIBNIZ_EQUATION.matcher(equations[i]);
+                if (leibniz.matches()) {
+                    states[i] = leibniz.group(1);
+                    if (independent != null && !independent.equals(leibniz.group(2))) {
+                        throw new IllegalArgumentException("Mixed independent variables " + independent + " and " + leibniz.group(2));
+                    }
+                    independent = leibniz.group(2);
+                    rhs[i] = ExpressionParser.parse(leibniz.group(3));
+                } else if (prime.matches()) {
+                    states[i] = prime.group(1);
+                    rhs[i] = ExpressionParser.parse(prime.group(2));
+                } else if (n == 1) {
+                    states[i] = "y";
+                    rhs[i] = ExpressionParser.parse(equations[i]);
+                } else {
+                    throw new IllegalArgumentException("Expected y' = ... in '" + equations[i].trim() + "'");
+                }
+            }
+            if (independent == null) independent = usesOnly(rhs, "t", "x") ? "t" : "x";
+
+            String[] values = splitTopLevel(conditions, ",");
+            if (values.length != n + 2) {
+                throw new IllegalArgumentException("Expected " + (n + 2) + " values: start, " + n + " initial value(s), end");
+            }
+            ExpressionEvaluator numeric = new ExpressionEvaluator();
+            double[] numbers = new double[values.length];
+            for (int i = 0; i < values.length; i++) numbers[i] = numeric.evaluateNumber(values[i], SettingsManager.ANGLE_UNIT_RADIANS);
+            double x0 = numbers[0], x1 = numbers[n + 1];
+            double[] y0 = Arrays.copyOfRange(numbers, 1, n + 1);
+
+            OdeSolver solver = OdeSolver.compile(independent, states, rhs, SettingsManager.ANGLE_UNIT_RADIANS);
+            OdeSolver.Solution solution = solver.solve(x0, y0, x1, OdeSolver.DEFAULT_TOLERANCE);
+
+            StringBuilder sb = new StringBuilder();
+            double[] last = solution.getFinalValues();
+            for (int i = 0; i < n; i++) {
+                if (i > 0) sb.append(", ");
+                sb.append(states[i]).append('(').append(formatNumber(x1)).append(") = ").append(formatNumber(last[i]));
+            }
+            sb.append("  [").append(solution.getMethod()).append(", ").append(solution.getStepCount()).append(" steps]\n\n");
+            sb.append(String.format("%12s", independent));
+            for (String state : states) sb.append(String.format("%14s", state));
+            sb.append('\n');
+            for (int row = 0; row <= rows; row++) {
+                double x = row == rows ? x1 : x0 + (x1 - x0) * row / rows;
+                sb.append(String.format("%12s", formatNumber(x)));
+                for (int i = 0; i < n; i++) sb.append(String.format("%14s", formatNumber(solution.valueAt(x, i))));
+                sb.append('\n');
+            }
+            return sb.toString();
+        } catch (IllegalArgumentException | ArithmeticException e) { return "Error (ODE): " + e.getMessage();
+        } catch (Exception e) { return "Error: Could not solve the differential equation."; }
+    }
+
+    // True if some tree mentions the identifier wanted and none mentions the other one
+    private static boolean usesOnly(ExpressionTree[] trees, String wanted, String other) {
+        boolean found = false;
+        for (ExpressionTree tree : trees) {
+            for (int node = 0; node < tree.size(); node++) {
+                if (tree.kind(node) != ExpressionTree.IDENTIFIER) continue;
+                if (tree.name(node).equals(other)) return false;
+                if (tree.name(node).equals(wanted)) found = true;
+            }
+        }
+        return found;
+    }
+
+    // name = lower..upper, either end may be left out
+    private static final Pattern BOUND = Pattern.compile("\\s*([A-Za-z][A-Za-z0-9_]*)\\s*=\\s*(.*?)\\s*\\.\\.\\s*(.*?)\\s*");
+
+    // Splits a list such as "x = 0..nCr(4, 2), y = 1.." at the separators outside brackets,
+    // so the commas between a function's arguments stay inside their entry. As with
+    // String.split, trailing empty entries are dropped.
+    private static String[] splitTopLevel(String text, String separators) {
+        List<String> parts = new ArrayList<>();
+        int depth = 0, start = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '(' || c == '[') depth++;
+            else if (c == ')' || c == ']') depth--;
+            else if (depth == 0 && separators.indexOf(c) >= 0) {
+                parts.add(text.substring(start, i));
+                start = i + 1;
+            }
+        }
+        parts.add(text.substring(start));
+        while (!parts.isEmpty() && parts.get(parts.size() - 1).isEmpty()) parts.remove(parts.size() - 1);
+        return parts.toArray(new String[0]);
+    }
+
+    // Lower and upper bounds for each of names from a list like "x = 0..pi, y = 1..", in
+    // the order of names. A missing end or variable is unbounded on that side unless finite
+    // is set, which requires both ends of every variable; reversed ends are swapped.
+    private static double[][] parseBounds(String bounds, List<String> names, boolean finite, String angleUnit) {
+        double[] lower = new double[names.size()];
+        double[] upper = new double[names.size()];
+        Arrays.fill(lower, Double.NEGATIVE_INFINITY);
+        Arrays.fill(upper, Double.POSITIVE_INFINITY);
+        ExpressionEvaluator numeric = new ExpressionEvaluator();
+        for (String entry : bounds == null ? new String[0] : splitTopLevel(bounds, ",;")) {
+            if (entry.trim().isEmpty()) continue;
+            Matcher m = BOUND.matcher(entry);
+            if (!m.matches()) throw new IllegalArgumentException("Expected name = lower..upper, found '" + entry.trim() + "'");
+            int index = names.indexOf(m.group(1));
+            if (index < 0) throw new IllegalArgumentException("Unknown variable in bounds: " + m.group(1));
+            double a = m.group(2).isEmpty() ? Double.NEGATIVE_INFINITY : numeric.evaluateNumber(m.group(2), angleUnit);
+            double b = m.group(3).isEmpty() ? Double.POSITIVE_INFINITY : numeric.evaluateNumber(m.group(3), angleUnit);
+            if (Double.isNaN(a) || Double.isNaN(b)) throw new IllegalArgumentException("Invalid bounds for " + m.group(1));
+            lower[index] = Math.min(a, b);
+            upper[index] = Math.max(a, b);
+        }
+        for (int i = 0; finite && i < names.size(); i++) {
+            if (lower[i] == Double.NEGATIVE_INFINITY && upper[i] == Double.POSITIVE_INFINITY) {
+                throw new IllegalArgumentException("No bounds for " + names.get(i));
+            }
+            if (Double.isInfinite(lower[i]) || Double.isInfinite(upper[i])) {
+                throw new IllegalArgumentException("Bounds of " + names.get(i) + " must be finite");
+            }
+        }
+        return new double[][]{lower, upper};
+    }
+
+    // Minimum (or maximum) of an expression in any number of variables, searched from
+    // several starting points in parallel. Bounds are optional, e.g. "x = 0..pi, y = 0..".
+    // The first line gives the optimum, the second the method and its statistics.
+    public String optimize(String expression, String bounds, boolean maximize, String angleUnit) {
+        if (expression == null || expression.trim().isEmpty()) return "Error: Empty expression";
+        try {
+            ExpressionTree tree = ExpressionParser.parse(expression);
+            String[] variables = CompiledExpression.compile(tree, angleUnit).getVariables();
+            Arrays.sort(variables); // report x before y whatever the order in the expression
+            CompiledExpression f = CompiledExpression.compile(tree, angleUnit, variables);
+            double[][] box = parseBounds(bounds, Arrays.asList(variables), false, angleUnit);
+            double[] lower = box[0], upper = box[1];
+            int starts = Math.max(8, 2 * Runtime.getRuntime().availableProcessors());
+            Optimizer.Result result = new Optimizer().minimize(f, lower, upper, starts, maximize);
+            String kind = maximize ? "max" : "min";
+            if (Double.isInfinite(result.getValue())) return "Error: Unbounded " + (maximize ? "above" : "below") + "; add bounds";
+            if (result.isDiverged()) {
+                return "Error: Unbounded " + (maximize ? "above" : "below") + " or not attained (the search ran off to infinity); add bounds";
+            }
+            if (Double.isNaN(result.getValue())) return "Error: Undefined everywhere searched";
+
+            StringBuilder sb = new StringBuilder(kind).append(" = ").append(formatNumber(result.getValue()));
+            double[] point = result.getPoint();
+            if (variables.length > 0) {
+                sb.append(" at ");
+                for (int i = 0; i < variables.length; i++) {
+                    if (i > 0) sb.append(", ");
+                    sb.append(variables[i]).append(" = ").append(formatNumber(point[i]));
+                }
+            }
+            sb.append('\n').append(result.getMethod()).append(", ").append(result.getStarts()).append(" starts, ")
+              .append(result.getIterations()).append(" iterations, ").append(result.getEvaluations()).append(" evaluations");
+            if (!result.isConverged()) sb.append(" (tolerance not reached)");
+            return sb.toString();
+        } catch (IllegalArgumentException | ArithmeticException e) { return "Error (Optimize): " + e.getMessage();
+        } catch (Exception e) { return "Error: Could not optimize."; }
+    }
+
+    private static final int RANGE_BOXES = 4096;
+
+    // Guaranteed bounds on the values of an expression over a box, e.g. ("x - x^2",
+    // "x = 0..1") gives "f ∈ [-0.0002441406251, 0.2502441407]" and a line with the
+    // method. The box is split evenly into about RANGE_BOXES pieces, each bounded by
+    // interval arithmetic in parallel; the hull of the pieces is rounded outward for
+    // display. Without variables it bounds the rounding error of a plain calculation.
+    public String range(String expression, String bounds, String angleUnit) {
+        if (expression == null || expression.trim().isEmpty()) return "Error: Empty expression";
+        try {
+            ExpressionTree tree = ExpressionParser.parse(expression);
+            String[] variables = CompiledExpression.compile(tree, angleUnit).getVariables();
+            Arrays.sort(variables);
+            IntervalExpression f = IntervalExpression.compile(tree, angleUnit, variables);
+            double[][] region = parseBounds(bounds, Arrays.asList(variables), true, angleUnit);
+            double[] lower = region[0], upper = region[1];
+            for (int i = 0; i < variables.length; i++) {
+                // Fractional bounds may themselves be rounded (pi, 0.1), so widen them by an ulp
+                if (lower[i] != Math.rint(lower[i])) lower[i] = Math.nextDown(lower[i]);
+                if (upper[i] != Math.rint(upper[i])) upper[i] = Math.nextUp(upper[i]);
+            }
+
+            int d = variables.length;
+            int splits = d == 0 ? 1 : Math.max(1, (int) Math.floor(Math.pow(RANGE_BOXES, 1.0 / d) + 1e-9));
+            int boxes = (int) Math.round(Math.pow(splits, d));
+            double[] los = new double[boxes];
+            double[] his = new double[boxes];
+            ThreadLocal<IntervalExpression> tapes = ThreadLocal.withInitial(f::copy);
+            IntStream.range(0, boxes).parallel().forEach(box -> {
+                double[] boxLower = new double[d], boxUpper = new double[d], out = new double[2];
+                for (int i = 0, rest = box; i < d; i++, rest /= splits) {
+                    int piece = rest % splits;
+                    double width = (upper[i] - lower[i]) / splits;
+                    boxLower[i] = piece == 0 ? lower[i] : Math.nextDown(lower[i] + piece * width);
+                    boxUpper[i] = piece == splits - 1 ? upper[i] : Math.nextUp(lower[i] + (piece + 1) * width);
+                }
+                tapes.get().range(boxLower, boxUpper, out);
+                los[box] = out[0];
+                his[box] = out[1];
+            });
+            double lo = Double.NaN, hi = Double.NaN;
+            for (int box = 0; box < boxes; box++) {
+                if (Double.isNaN(los[box])) continue; // undefined throughout that piece
+                lo = Double.isNaN(lo) ? los[box] : Math.min(lo, los[box]);
+                hi = Double.isNaN(hi) ? his[box] : Math.max(hi, his[box]);
+            }
+            if (Double.isNaN(lo)) return "Error: Undefined everywhere in the region";
+            return "f ∈ [" + formatBound(lo, RoundingMode.FLOOR) + ", " + formatBound(hi, RoundingMode.CEILING) + "]"
+                + "\ninterval arithmetic, " + boxes + (boxes == 1 ? " box" : " boxes") + ", rounded outward";
+        } catch (IllegalArgumentException | ArithmeticException e) { return "Error (Range): " + e.getMessage();
+        } catch (Exception e) { return "Error: Could not bound the expression."; }
+    }
+
+    // A bound rounded to 10 significant digits in the given direction, so it stays a bound
+    private static String formatBound(double value, RoundingMode direction) {
+        if (Double.isInfinite(value)) return value > 0 ? "∞" : "-∞";
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) return String.valueOf((long) value);
+        BigDecimal rounded = new BigDecimal(value).round(new MathContext(10, direction)).stripTrailingZeros();
+        int exponent = rounded.precision() - rounded.scale() - 1;
+        return exponent < -6 || exponent > 14 ? rounded.toString() : rounded.toPlainString();
+    }
+
+    // Integral over a box by sampling, e.g. ("x*y*z", "x = 0..1, y = 0..1, z = 0..1") gives
+    // "∫ ≈ 0.125 ± 2.1e-08" and a line with the method, the sample count and the
+    // throughput. Every variable needs finite bounds.
+    // Sobol points are used when quasi is set and there are few enough dimensions; the seed
+    // fixes the result on any number of cores.
+    public String monteCarloIntegral(String expression, String bounds, long samples, long seed, boolean quasi, String angleUnit) {
+        if (expression == null || expression.trim().isEmpty()) return "Error: Empty expression";
+        try {
+            ExpressionTree tree = ExpressionParser.parse(expression);
+            String[] variables = CompiledExpression.compile(tree, angleUnit).getVariables();
+            Arrays.sort(variables);
+            CompiledExpression f = CompiledExpression.compile(tree, angleUnit, variables);
+            double[][] region = parseBounds(bounds, Arrays.asList(variables), true, angleUnit);
+            double[] lower = region[0], upper = region[1];
+            boolean sobol = quasi && variables.length <= MonteCarloIntegrator.SOBOL_MAX_DIMENSION;
+            MonteCarloIntegrator.Result result = new MonteCarloIntegrator().integrate(f, lower, upper, samples, seed, sobol);
+            if (Double.isNaN(result.getEstimate()) || Double.isInfinite(result.getEstimate())) {
+                return "Error: Integrand is undefined or infinite somewhere in the region";
+            }
+            return "∫ ≈ " + formatNumber(result.getEstimate()) + " ± " + String.format("%.2g", result.getStandardError())
+                + "\n" + result.getMethod() + ", " + result.getSamples() + " samples, "
+                + String.format("%.3g", result.getSamplesPerSecond()) + " samples/s";
+        } catch (IllegalArgumentException | ArithmeticException e) { return "Error (Integ): " + e.getMessage();
+        } catch (Exception e) { return "Error: Could not integrate."; }
+    }
 }
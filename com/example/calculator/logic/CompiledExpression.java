@@ -0,0 +1,414 @@
+package com.example.calculator.logic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+// An expression compiled once from an ExpressionTree into a straight-line program over
+// primitive arrays, for evaluating the same formula at many points. Instruction i writes
+// slot i of the tape, so the tape doubles as the storage for both automatic
+// differentiation modes:
+//   - forward mode carries a tangent next to every value (dual numbers) and gives the
+//     derivative along one variable in a single pass;
+//   - reverse mode runs the program, then sweeps the tape backwards accumulating adjoints
+//     and gives the whole gradient in one extra pass, whatever the number of variables.
+// Derivatives are exact up to rounding (no step size), and the tape arrays are allocated
+// once, so evaluation allocates nothing. An instance is therefore not thread-safe; use
+// copy() to get an independent tape for another thread.
+//
+// Unlike ExpressionEvaluator, domain errors do not throw: sqrt(-1), ln(0) or 1/0 give
+// NaN or Infinity as in IEEE arithmetic, which is cheaper at millions of points. x! is
+// Γ(x + 1) in doubles, exact at the integers up to 170! and Infinity past them.
+//
+// rand() and randn() draw from a generator owned by the tape. It is seeded randomly, and
+// setRandom() makes a run reproducible, e.g. one split generator per parallel task.
+public final class CompiledExpression {
+    static final int CONST = 0;
+    static final int VAR = 1;
+    static final int ADD = 2;
+    static final int SUB = 3;
+    static final int MUL = 4;
+    static final int DIV = 5;
+    static final int POW = 6;   // variable exponent
+    static final int POWC = 7;  // exponent independent of the variables: u^c
+    static final int NEG = 8;
+    static final int SIN = 9;
+    static final int COS = 10;
+    static final int TAN = 11;
+    static final int LN = 12;
+    static final int LOG = 13;
+    static final int SQRT = 14;
+    static final int RAND = 15;
+    static final int RANDN = 16;
+    static final int SIND = 17; // degree-argument trigonometry, see DegreeTrig
+    static final int COSD = 18;
+    static final int TAND = 19;
+    static final int FACT = 20; // x! = Γ(x + 1)
+
+    // The program, shared by copies and read directly by ComplexExpression
+    final String[] variables;
+    final int[] ops;
+    final int[] left;       // operand slots, or the variable index for VAR
+    final int[] right;
+    final double[] constants;
+    final int length;
+
+    // Tape, reused by every evaluation
+    private final double[] values;
+    private final double[] tangents;
+    private final double[] adjoints;
+    private final double[] scalarPoint; // point array for the one-variable methods
+    private SplittableRandom random = new SplittableRandom();
+    private double spareGaussian = Double.NaN; // the polar method makes normals in pairs
+
+    private CompiledExpression(String[] variables, int[] ops, int[] left, int[] right, double[] constants, int length) {
+        this.variables = variables;
+        this.ops = ops;
+        this.left = left;
+        this.right = right;
+        this.constants = constants;
+        this.length = length;
+        this.values = new double[length];
+        this.tangents = new double[length];
+        this.adjoints = new double[length];
+        this.scalarPoint = new double[Math.max(1, variables.length)];
+    }
+
+    // Same program, separate tape
+    public CompiledExpression copy() {
+        return new CompiledExpression(variables, ops, left, right, constants, length);
+    }
+
+    public static CompiledExpression compile(String expression) {
+        return compile(ExpressionParser.parse(expression), SettingsManager.ANGLE_UNIT_RADIANS);
+    }
+
+    // Variables are numbered in order of first appearance; pi and e are constants
+    public static CompiledExpression compile(ExpressionTree tree, String angleUnit) {
+        List<String> names = new ArrayList<>();
+        for (int node = 0; node < tree.size(); node++) {
+            if (tree.kind(node) != ExpressionTree.IDENTIFIER || isNamedConstant(tree.name(node))) continue;
+            if (!names.contains(tree.name(node))) names.add(tree.name(node));
+        }
+        return compile(tree, angleUnit, names.toArray(new String[0]));
+    }
+
+    // Compiles with a fixed variable order, e.g. ("x", "y") so point[0] is x. When angleUnit
+    // is degrees, sin, cos and tan compile to the exact degree kernels of DegreeTrig.
+    public static CompiledExpression compile(ExpressionTree tree, String angleUnit, String... variables) {
+        return compile(tree, tree.root(), angleUnit, variables);
+    }
+
+    // Compiles the subtree at node only, e.g. the body of a sum
+    static CompiledExpression compile(ExpressionTree tree, int node, String angleUnit, String... variables) {
+        Compiler compiler = new Compiler(tree, SettingsManager.ANGLE_UNIT_DEGREES.equals(angleUnit), variables);
+        compiler.emit(node);
+        return compiler.finish();
+    }
+
+    static boolean isNamedConstant(String name) {
+        return name.equalsIgnoreCase("pi") || name.equals("π") || name.equalsIgnoreCase("e");
+    }
+
+    // Generator for rand() and randn() in this tape
+    public void setRandom(SplittableRandom random) {
+        this.random = random;
+        this.spareGaussian = Double.NaN;
+    }
+
+    public String[] getVariables() {
+        return variables.clone();
+    }
+
+    public int getVariableCount() {
+        return variables.length;
+    }
+
+    // Index of a variable in point arrays, or -1
+    public int indexOf(String variable) {
+        for (int i = 0; i < variables.length; i++) if (variables[i].equals(variable)) return i;
+        return -1;
+    }
+
+    public double evaluate(double[] point) {
+        run(point);
+        return values[length - 1];
+    }
+
+    // Value of a one-variable expression (other variables, if any, are 0)
+    public double evaluate(double x) {
+        scalarPoint[0] = x;
+        return evaluate(scalarPoint);
+    }
+
+    // Forward mode: d/dvariables[variable] at point
+    public double derivative(double[] point, int variable) {
+        runForward(point, variable);
+        return tangents[length - 1];
+    }
+
+    // Forward mode over a batch of points for a one-variable expression. Fills values and
+    // derivatives (either may be null) without allocating.
+    public void derivatives(double[] xs, double[] valuesOut, double[] derivativesOut) {
+        for (int k = 0; k < xs.length; k++) {
+            scalarPoint[0] = xs[k];
+            runForward(scalarPoint, 0);
+            if (valuesOut != null) valuesOut[k] = values[length - 1];
+            if (derivativesOut != null) derivativesOut[k] = tangents[length - 1];
+        }
+    }
+
+    // Reverse mode: fills gradient[i] with d/dvariables[i] and returns the value
+    public double gradient(double[] point, double[] gradient) {
+        run(point);
+        Arrays.fill(adjoints, 0, length, 0.0);
+        Arrays.fill(gradient, 0, variables.length, 0.0);
+        adjoints[length - 1] = 1.0;
+        for (int i = length - 1; i >= 0; i--) {
+            double g = adjoints[i];
+            if (g == 0) continue;
+            int a = left[i], b = right[i];
+            switch (ops[i]) {
+                case VAR: gradient[a] += g; break;
+                case ADD: adjoints[a] += g; adjoints[b] += g; break;
+                case SUB: adjoints[a] += g; adjoints[b] -= g; break;
+                case MUL: adjoints[a] += g * values[b]; adjoints[b] += g * values[a]; break;
+                case DIV: adjoints[a] += g / values[b]; adjoints[b] -= g * values[i] / values[b]; break;
+                case POWC: adjoints[a] += g * values[b] * Math.pow(values[a], values[b] - 1); break;
+                case POW:
+                    adjoints[a] += g * values[b] * Math.pow(values[a], values[b] - 1);
+                    adjoints[b] += g * values[i] * Math.log(values[a]);
+                    break;
+                case NEG: adjoints[a] -= g; break;
+                case SIN: adjoints[a] += g * Math.cos(values[a]); break;
+                case COS: adjoints[a] -= g * Math.sin(values[a]); break;
+                case TAN: { double c = Math.cos(values[a]); adjoints[a] += g / (c * c); break; }
+                case SIND: adjoints[a] += g * DegreeTrig.cosd(values[a]) * DegreeTrig.RADIANS_PER_DEGREE; break;
+                case COSD: adjoints[a] -= g * DegreeTrig.sind(values[a]) * DegreeTrig.RADIANS_PER_DEGREE; break;
+                case TAND: { double c = DegreeTrig.cosd(values[a]); adjoints[a] += g * DegreeTrig.RADIANS_PER_DEGREE / (c * c); break; }
+                case LN: adjoints[a] += g / values[a]; break;
+                case LOG: adjoints[a] += g / (values[a] * Math.log(10)); break;
+                case SQRT: adjoints[a] += g * 0.5 / values[i]; break;
+                case FACT: adjoints[a] += g * values[i] * Factorials.digamma(values[a] + 1); break;
+                default: break; // CONST, RAND, RANDN
+            }
+        }
+        return values[length - 1];
+    }
+
+    private void run(double[] point) {
+        double[] v = values;
+        for (int i = 0; i < length; i++) {
+            int a = left[i], b = right[i];
+            switch (ops[i]) {
+                case CONST: v[i] = constants[i]; break;
+                case VAR: v[i] = point[a]; break;
+                case ADD: v[i] = v[a] + v[b]; break;
+                case SUB: v[i] = v[a] - v[b]; break;
+                case MUL: v[i] = v[a] * v[b]; break;
+                case DIV: v[i] = v[a] / v[b]; break;
+                case POW: case POWC: v[i] = Math.pow(v[a], v[b]); break;
+                case NEG: v[i] = -v[a]; break;
+                case SIN: v[i] = Math.sin(v[a]); break;
+                case COS: v[i] = Math.cos(v[a]); break;
+                case TAN: v[i] = Math.tan(v[a]); break;
+                case SIND: v[i] = DegreeTrig.sind(v[a]); break;
+                case COSD: v[i] = DegreeTrig.cosd(v[a]); break;
+                case TAND: v[i] = DegreeTrig.tand(v[a]); break;
+                case LN: v[i] = Math.log(v[a]); break;
+                case LOG: v[i] = Math.log10(v[a]); break;
+                case RAND: v[i] = random.nextDouble(); break;
+                case RANDN: v[i] = nextGaussian(); break;
+                case FACT: v[i] = Factorials.realFactorial(v[a]); break;
+                default: v[i] = Math.sqrt(v[a]); break;
+            }
+        }
+    }
+
+    private void runForward(double[] point, int variable) {
+        double[] v = values, t = tangents;
+        for (int i = 0; i < length; i++) {
+            int a = left[i], b = right[i];
+            switch (ops[i]) {
+                case CONST: v[i] = constants[i]; t[i] = 0; break;
+                case VAR: v[i] = point[a]; t[i] = a == variable ? 1 : 0; break;
+                case ADD: v[i] = v[a] + v[b]; t[i] = t[a] + t[b]; break;
+                case SUB: v[i] = v[a] - v[b]; t[i] = t[a] - t[b]; break;
+                case MUL: v[i] = v[a] * v[b]; t[i] = t[a] * v[b] + v[a] * t[b]; break;
+                case DIV: v[i] = v[a] / v[b]; t[i] = (t[a] - v[i] * t[b]) / v[b]; break;
+                case POWC:
+                    v[i] = Math.pow(v[a], v[b]);
+                    t[i] = t[a] == 0 ? 0 : v[b] * Math.pow(v[a], v[b] - 1) * t[a];
+                    break;
+                case POW:
+                    v[i] = Math.pow(v[a], v[b]);
+                    t[i] = (t[a] == 0 ? 0 : v[b] * Math.pow(v[a], v[b] - 1) * t[a])
+                         + (t[b] == 0 ? 0 : v[i] * Math.log(v[a]) * t[b]);
+                    break;
+                case NEG: v[i] = -v[a]; t[i] = -t[a]; break;
+                case SIN: v[i] = Math.sin(v[a]); t[i] = Math.cos(v[a]) * t[a]; break;
+                case COS: v[i] = Math.cos(v[a]); t[i] = -Math.sin(v[a]) * t[a]; break;
+                case TAN: { v[i] = Math.tan(v[a]); double c = Math.cos(v[a]); t[i] = t[a] / (c * c); break; }
+                case SIND: v[i] = DegreeTrig.sind(v[a]); t[i] = DegreeTrig.cosd(v[a]) * DegreeTrig.RADIANS_PER_DEGREE * t[a]; break;
+                case COSD: v[i] = DegreeTrig.cosd(v[a]); t[i] = -DegreeTrig.sind(v[a]) * DegreeTrig.RADIANS_PER_DEGREE * t[a]; break;
+                case TAND: {
+                    v[i] = DegreeTrig.tand(v[a]);
+                    double c = DegreeTrig.cosd(v[a]);
+                    t[i] = DegreeTrig.RADIANS_PER_DEGREE * t[a] / (c * c);
+                    break;
+                }
+                case LN: v[i] = Math.log(v[a]); t[i] = t[a] / v[a]; break;
+                case LOG: v[i] = Math.log10(v[a]); t[i] = t[a] / (v[a] * Math.log(10)); break;
+                case RAND: v[i] = random.nextDouble(); t[i] = 0; break;
+                case RANDN: v[i] = nextGaussian(); t[i] = 0; break;
+                case FACT: v[i] = Factorials.realFactorial(v[a]); t[i] = t[a] == 0 ? 0 : v[i] * Factorials.digamma(v[a] + 1) * t[a]; break;
+                default: v[i] = Math.sqrt(v[a]); t[i] = 0.5 * t[a] / v[i]; break;
+            }
+        }
+    }
+
+    // Next value of a RAND or RANDN instruction
+    double draw(int op) {
+        return op == RAND ? random.nextDouble() : nextGaussian();
+    }
+
+    // Marsaglia's polar method
+    private double nextGaussian() {
+        if (!Double.isNaN(spareGaussian)) {
+            double g = spareGaussian;
+            spareGaussian = Double.NaN;
+            return g;
+        }
+        double u, w, s;
+        do {
+            u = 2 * random.nextDouble() - 1;
+            w = 2 * random.nextDouble() - 1;
+            s = u * u + w * w;
+        } while (s >= 1 || s == 0);
+        double scale = Math.sqrt(-2 * Math.log(s) / s);
+        spareGaussian = w * scale;
+        return u * scale;
+    }
+
+    // Emits instructions in post-order, so every operand slot precedes its use
+    private static final class Compiler {
+        private final ExpressionTree tree;
+        private final boolean degrees;
+        private final String[] variables;
+        private int[] ops = new int[16];
+        private int[] left = new int[16];
+        private int[] right = new int[16];
+        private double[] constants = new double[16];
+        private boolean[] varying = new boolean[16]; // depends on some variable or on rand()
+        private int length;
+
+        Compiler(ExpressionTree tree, boolean degrees, String[] variables) {
+            this.tree = tree;
+            this.degrees = degrees;
+            this.variables = variables.clone();
+        }
+
+        CompiledExpression finish() {
+            return new CompiledExpression(variables, Arrays.copyOf(ops, length), Arrays.copyOf(left, length),
+                                          Arrays.copyOf(right, length), Arrays.copyOf(constants, length), length);
+        }
+
+        private int add(int op, int a, int b, double constant) {
+            if (length == ops.length) {
+                int capacity = length * 2;
+                ops = Arrays.copyOf(ops, capacity);
+                left = Arrays.copyOf(left, capacity);
+                right = Arrays.copyOf(right, capacity);
+                constants = Arrays.copyOf(constants, capacity);
+                varying = Arrays.copyOf(varying, capacity);
+            }
+            ops[length] = op;
+            left[length] = a;
+            right[length] = b;
+            constants[length] = constant;
+            varying[length] = op == VAR || op == RAND || op == RANDN || (op != CONST && (varying[a] || (isBinary(op) && varying[b])));
+            return length++;
+        }
+
+        private static boolean isBinary(int op) {
+            return op >= ADD && op <= POWC;
+        }
+
+        int emit(int node) {
+            switch (tree.kind(node)) {
+                case ExpressionTree.NUMBER:
+                    return add(CONST, 0, 0, tree.number(node));
+                case ExpressionTree.IDENTIFIER: {
+                    String name = tree.name(node);
+                    for (int i = 0; i < variables.length; i++) {
+                        if (variables[i].equals(name)) return add(VAR, i, 0, 0);
+                    }
+                    if (name.equalsIgnoreCase("pi") || name.equals("π")) return add(CONST, 0, 0, Math.PI);
+                    if (name.equalsIgnoreCase("e")) return add(CONST, 0, 0, Math.E);
+                    throw tree.error(node, "Unknown variable '" + name + "'");
+                }
+                case ExpressionTree.NEGATE:
+                    return add(NEG, emit(tree.firstChild(node)), 0, 0);
+                case ExpressionTree.ADD:
+                case ExpressionTree.SUBTRACT:
+                case ExpressionTree.MULTIPLY:
+                case ExpressionTree.DIVIDE:
+                case ExpressionTree.POWER: {
+                    int a = emit(tree.left(node));
+                    int b = emit(tree.right(node));
+                    return add(binaryOp(tree.kind(node), b), a, b, 0);
+                }
+                case ExpressionTree.CALL: {
+                    String name = tree.name(node);
+                    if (!ExpressionEvaluator.isFunction(name)) throw tree.error(node, "Unknown function: " + name);
+                    if (ExpressionEvaluator.isReduction(name) || ExpressionEvaluator.isMatrixFunction(name)
+                            || ExpressionEvaluator.isNumberTheoryFunction(name) && !name.equals("factorial")) {
+                        throw tree.error(node, name + "() cannot be compiled");
+                    }
+                    if (ExpressionEvaluator.isRandom(name)) {
+                        if (tree.childCount(node) != 0) throw tree.error(node, name + " expects 0 argument(s)");
+                        return add(name.equals("rand") ? RAND : RANDN, 0, 0, 0);
+                    }
+                    if (tree.childCount(node) != 1) throw tree.error(node, name + " expects 1 argument(s)");
+                    int argument = emit(tree.firstChild(node));
+                    return add(functionOp(name, degrees), argument, 0, 0);
+                }
+                case ExpressionTree.EQUATION: {
+                    // lhs = rhs compiles to lhs - rhs, which vanishes exactly at the solutions
+                    int a = emit(tree.left(node));
+                    int b = emit(tree.right(node));
+                    return add(SUB, a, b, 0);
+                }
+                case ExpressionTree.LIST:
+                    throw tree.error(node, "Matrices cannot be compiled");
+                default:
+                    throw tree.error(node, "Unexpected node in expression");
+            }
+        }
+
+        private int binaryOp(int kind, int rightSlot) {
+            switch (kind) {
+                case ExpressionTree.ADD: return ADD;
+                case ExpressionTree.SUBTRACT: return SUB;
+                case ExpressionTree.MULTIPLY: return MUL;
+                case ExpressionTree.DIVIDE: return DIV;
+                default: return varying[rightSlot] ? POW : POWC;
+            }
+        }
+
+        // In degree mode the trigonometric functions take their degree kernels, chosen here
+        // once instead of converting the argument on every evaluation
+        private static int functionOp(String name, boolean degrees) {
+            switch (name) {
+                case "sin": return degrees ? SIND : SIN;
+                case "cos": return degrees ? COSD : COS;
+                case "tan": return degrees ? TAND : TAN;
+                case "ln": return LN;
+                case "log": return LOG;
+                case "factorial": return FACT;
+                default: return SQRT;
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.calculator.logic;
+
+// A complex result re + im·i from complex mode. Arithmetic happens in ComplexExpression on
+// primitive pairs; this class only carries and formats the final value.
+public final class Complex {
+    private final double re;
+    private final double im;
+
+    public Complex(double re, double im) {
+        this.re = re;
+        this.im = im;
+    }
+
+    public double getRe() {
+        return re;
+    }
+
+    public double getIm() {
+        return im;
+    }
+
+    public double abs() {
+        return Math.hypot(re, im);
+    }
+
+    // Principal argument in (-π, π]
+    public double arg() {
+        return Math.atan2(im, re);
+    }
+
+    public boolean isReal() {
+        return im == 0;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Complex)) return false;
+        Complex other = (Complex) o;
+        return Double.compare(re, other.re) == 0 && Double.compare(im, other.im) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Double.hashCode(re) + Double.hashCode(im);
+    }
+
+    // "3 + 4i", "-2i", "0.5 - i"
+    @Override
+    public String toString() {
+        if (im == 0) return format(re);
+        String imaginary = Math.abs(im) == 1 ? "i" : format(Math.abs(im)) + "i";
+        if (re == 0) return (im < 0 ? "-" : "") + imaginary;
+        return format(re) + (im < 0 ? " - " : " + ") + imaginary;
+    }
+
+    private static String format(double v) {
+        if (v == Math.rint(v) && Math.abs(v) < 1e15) return String.valueOf((long) v);
+        String text = String.format("%.10g", v);
+        int exponent = text.indexOf('e');
+        String mantissa = exponent < 0 ? text : text.substring(0, exponent);
+        if (mantissa.indexOf('.') >= 0) mantissa = mantissa.replaceAll("\\.?0+$", "");
+        return exponent < 0 ? mantissa : mantissa + text.substring(exponent);
+    }
+}
@@ -0,0 +1,273 @@
+package com.example.calculator.logic;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+// An expression evaluated over the complex numbers, e.g. sqrt(-4) = 2i or e^(i*pi) = -1.
+// It runs the same straight-line program as CompiledExpression, with the imaginary unit i
+// compiled as one extra variable that is always bound to (0, 1). The tape holds every
+// value as a (re, im) pair in two parallel double arrays, so evaluation allocates nothing;
+// like CompiledExpression an instance is not thread-safe, and copy() gives another tape.
+//
+// Multivalued functions take their principal branch: ln and log have imaginary part in
+// (-π, π], sqrt has non-negative real part, and z^w = e^(w ln z). Integer powers use
+// repeated multiplication, so i^2 is exactly -1. There are no signed zeros: a value on the
+// negative real axis such as -4 takes the upper side of the cut, so sqrt(-4) = 2i. As in
+// CompiledExpression, poles and 0^w with Re w <= 0 give NaN or Infinity rather than throwing.
+public final class ComplexExpression {
+    public static final String IMAGINARY_UNIT = "i";
+    private static final int BATCH_CHUNK = 4096;
+    private static final int MAX_REPEATED_POWER = 64;
+
+    private final CompiledExpression program;  // own copy, for its random generator
+    private final String[] variables;          // without i
+    private final int imaginaryUnit;           // index of i among the program's variables
+    private final double[] re;
+    private final double[] im;
+    private final double[] result = new double[2];
+
+    private ComplexExpression(CompiledExpression program, String[] variables) {
+        this.program = program;
+        this.variables = variables;
+        this.imaginaryUnit = variables.length;
+        this.re = new double[program.length];
+        this.im = new double[program.length];
+    }
+
+    public ComplexExpression copy() {
+        return new ComplexExpression(program.copy(), variables);
+    }
+
+    public static ComplexExpression compile(String expression) {
+        return compile(ExpressionParser.parse(expression), SettingsManager.ANGLE_UNIT_RADIANS);
+    }
+
+    // Variables are numbered in order of first appearance; i, pi and e are constants
+    public static ComplexExpression compile(ExpressionTree tree, String angleUnit) {
+        List<String> names = new ArrayList<>();
+        for (int node = 0; node < tree.size(); node++) {
+            if (tree.kind(node) != ExpressionTree.IDENTIFIER) continue;
+            String name = tree.name(node);
+            if (CompiledExpression.isNamedConstant(name) || name.equals(IMAGINARY_UNIT) || names.contains(name)) continue;
+            names.add(name);
+        }
+        return compile(tree, angleUnit, names.toArray(new String[0]));
+    }
+
+    public static ComplexExpression compile(ExpressionTree tree, String angleUnit, String... variables) {
+        String[] withUnit = new String[variables.length + 1];
+        System.arraycopy(variables, 0, withUnit, 0, variables.length);
+        withUnit[variables.length] = IMAGINARY_UNIT;
+        CompiledExpression program = CompiledExpression.compile(tree, angleUnit, withUnit);
+        for (int i = 0; i < program.length; i++) {
+            if (program.ops[i] == CompiledExpression.FACT) throw new IllegalArgumentException("factorial() takes real arguments only");
+        }
+        return new ComplexExpression(program, variables.clone());
+    }
+
+    public void setRandom(SplittableRandom random) {
+        program.setRandom(random);
+    }
+
+    public String[] getVariables() {
+        return variables.clone();
+    }
+
+    public int getVariableCount() {
+        return variables.length;
+    }
+
+    // Value at the point (pointRe[k] + i pointIm[k] for variable k), written to
+    // out[0] (real part) and out[1] (imaginary part)
+    public void evaluate(double[] pointRe, double[] pointIm, double[] out) {
+        run(pointRe, pointIm);
+        int last = program.length - 1;
+        out[0] = re[last];
+        out[1] = im[last];
+    }
+
+    // Batch evaluation: pointsRe[k][j] + i pointsIm[k][j] is variable k at point j, and
+    // outRe[j] + i outIm[j] receives the value there. Large batches are split into chunks
+    // that run in parallel, one tape per thread.
+    public void evaluate(double[][] pointsRe, double[][] pointsIm, double[] outRe, double[] outIm) {
+        int n = outRe.length;
+        int chunks = (n + BATCH_CHUNK - 1) / BATCH_CHUNK;
+        ThreadLocal<ComplexExpression> tapes = ThreadLocal.withInitial(this::copy);
+        IntStream range = IntStream.range(0, chunks);
+        (chunks > 1 ? range.parallel() : range).forEach(chunk -> {
+            ComplexExpression tape = chunks > 1 ? tapes.get() : this;
+            double[] pointRe = new double[variables.length], pointIm = new double[variables.length];
+            double[] value = new double[2];
+            for (int j = chunk * BATCH_CHUNK; j < Math.min(n, (chunk + 1) * BATCH_CHUNK); j++) {
+                for (int k = 0; k < variables.length; k++) {
+                    pointRe[k] = pointsRe[k][j];
+                    pointIm[k] = pointsIm[k][j];
+                }
+                tape.evaluate(pointRe, pointIm, value);
+                outRe[j] = value[0];
+                outIm[j] = value[1];
+            }
+        });
+    }
+
+    private void run(double[] pointRe, double[] pointIm) {
+        int[] ops = program.ops, left = program.left, right = program.right;
+        double[] constants = program.constants;
+        double[] r = re, m = im;
+        for (int i = 0; i < program.length; i++) {
+            int a = left[i], b = right[i];
+            switch (ops[i]) {
+                case CompiledExpression.CONST: r[i] = constants[i]; m[i] = 0; break;
+                case CompiledExpression.VAR:
+                    if (a == imaginaryUnit) { r[i] = 0; m[i] = 1; }
+                    else { r[i] = pointRe[a]; m[i] = pointIm[a]; }
+                    break;
+                case CompiledExpression.ADD: r[i] = r[a] + r[b]; m[i] = m[a] + m[b]; break;
+                case CompiledExpression.SUB: r[i] = r[a] - r[b]; m[i] = m[a] - m[b]; break;
+                case CompiledExpression.MUL: {
+                    double x = r[a] * r[b] - m[a] * m[b];
+                    m[i] = r[a] * m[b] + m[a] * r[b];
+                    r[i] = x;
+                    break;
+                }
+                case CompiledExpression.DIV: divide(r[a], m[a], r[b], m[b]); r[i] = result[0]; m[i] = result[1]; break;
+                case CompiledExpression.POW:
+                case CompiledExpression.POWC: power(r[a], m[a], r[b], m[b]); r[i] = result[0]; m[i] = result[1]; break;
+                case CompiledExpression.NEG: r[i] = -r[a]; m[i] = -m[a]; break;
+                case CompiledExpression.SIN:
+                    r[i] = Math.sin(r[a]) * Math.cosh(m[a]);
+                    m[i] = Math.cos(r[a]) * Math.sinh(m[a]);
+                    break;
+                case CompiledExpression.COS:
+                    r[i] = Math.cos(r[a]) * Math.cosh(m[a]);
+                    m[i] = -Math.sin(r[a]) * Math.sinh(m[a]);
+                    break;
+                case CompiledExpression.TAN: tan(r[a], m[a]); r[i] = result[0]; m[i] = result[1]; break;
+                // Degrees: the real part goes through the exact degree kernels, so sin(180) is 0
+                case CompiledExpression.SIND: {
+                    double y = m[a] * DegreeTrig.RADIANS_PER_DEGREE;
+                    r[i] = DegreeTrig.sind(r[a]) * Math.cosh(y);
+                    m[i] = DegreeTrig.cosd(r[a]) * Math.sinh(y);
+                    break;
+                }
+                case CompiledExpression.COSD: {
+                    double y = m[a] * DegreeTrig.RADIANS_PER_DEGREE;
+                    r[i] = DegreeTrig.cosd(r[a]) * Math.cosh(y);
+                    m[i] = -DegreeTrig.sind(r[a]) * Math.sinh(y);
+                    break;
+                }
+                case CompiledExpression.TAND: tanDegrees(r[a], m[a]); r[i] = result[0]; m[i] = result[1]; break;
+                case CompiledExpression.LN:
+                    r[i] = Math.log(Math.hypot(r[a], m[a]));
+                    m[i] = Math.atan2(m[a] + 0.0, r[a]);
+                    break;
+                case CompiledExpression.LOG:
+                    r[i] = Math.log(Math.hypot(r[a], m[a])) / Math.log(10);
+                    m[i] = Math.atan2(m[a] + 0.0, r[a]) / Math.log(10);
+                    break;
+                case CompiledExpression.RAND:
+                case CompiledExpression.RANDN: r[i] = program.draw(ops[i]); m[i] = 0; break;
+                default: sqrt(r[a], m[a]); r[i] = result[0]; m[i] = result[1]; break;
+            }
+        }
+    }
+
+    // Smith's algorithm: scales by the larger component of the divisor to avoid overflow
+    private void divide(double a, double b, double c, double d) {
+        if (Math.abs(c) >= Math.abs(d)) {
+            double ratio = d / c, denominator = c + d * ratio;
+            result[0] = (a + b * ratio) / denominator;
+            result[1] = (b - a * ratio) / denominator;
+        } else {
+            double ratio = c / d, denominator = c * ratio + d;
+            result[0] = (a * ratio + b) / denominator;
+            result[1] = (b * ratio - a) / denominator;
+        }
+    }
+
+    // Principal square root (Kahan): real part >= 0, computed without cancellation
+    private void sqrt(double a, double b) {
+        if (a == 0 && b == 0) {
+            result[0] = 0;
+            result[1] = b;
+            return;
+        }
+        double t = Math.sqrt((Math.abs(a) + Math.hypot(a, b)) / 2);
+        if (a >= 0) {
+            result[0] = t;
+            result[1] = b / (2 * t);
+        } else {
+            result[0] = Math.abs(b) / (2 * t);
+            result[1] = Math.copySign(t, b + 0.0);
+        }
+    }
+
+    // tan(a + bi) = (sin 2a + i sinh 2b) / (cos 2a + cosh 2b), which tends to ±i for large |b|
+    private void tan(double a, double b) {
+        if (Math.abs(b) > 20) {
+            result[0] = 0;
+            result[1] = Math.signum(b);
+            return;
+        }
+        double denominator = Math.cos(2 * a) + Math.cosh(2 * b);
+        result[0] = Math.sin(2 * a) / denominator;
+        result[1] = Math.sinh(2 * b) / denominator;
+    }
+
+    // tan of a + bi degrees, by the formula above with sin 2a and cos 2a in degrees. At a
+    // real pole the denominator vanishes and the result is NaN.
+    private void tanDegrees(double a, double b) {
+        double y = b * DegreeTrig.RADIANS_PER_DEGREE;
+        if (Math.abs(y) > 20) {
+            result[0] = 0;
+            result[1] = Math.signum(y);
+            return;
+        }
+        if (y == 0) {
+            result[0] = DegreeTrig.tand(a);
+            result[1] = 0;
+            return;
+        }
+        double denominator = DegreeTrig.cosd(2 * a) + Math.cosh(2 * y);
+        result[0] = DegreeTrig.sind(2 * a) / denominator;
+        result[1] = Math.sinh(2 * y) / denominator;
+    }
+
+    // z^w: repeated multiplication for small integer w, else e^(w ln z)
+    private void power(double a, double b, double c, double d) {
+        if (d == 0 && c == Math.rint(c) && Math.abs(c) <= MAX_REPEATED_POWER) {
+            int n = (int) Math.abs(c);
+            double x = 1, y = 0, baseRe = a, baseIm = b;
+            for (; n > 0; n >>= 1) {
+                if ((n & 1) != 0) {
+                    double t = x * baseRe - y * baseIm;
+                    y = x * baseIm + y * baseRe;
+                    x = t;
+                }
+                double t = baseRe * baseRe - baseIm * baseIm;
+                baseIm = 2 * baseRe * baseIm;
+                baseRe = t;
+            }
+            if (c < 0) divide(1, 0, x, y);
+            else { result[0] = x; result[1] = y; }
+            return;
+        }
+        if (a == 0 && b == 0) {
+            result[0] = c > 0 ? 0 : Double.NaN;
+            result[1] = c > 0 ? 0 : Double.NaN;
+            return;
+        }
+        if (b == 0 && d == 0 && a > 0) { // stay exactly real
+            result[0] = Math.pow(a, c);
+            result[1] = 0;
+            return;
+        }
+        double logRe = Math.log(Math.hypot(a, b)), logIm = Math.atan2(b + 0.0, a);
+        double expRe = c * logRe - d * logIm, expIm = c * logIm + d * logRe;
+        double magnitude = Math.exp(expRe);
+        result[0] = magnitude * Math.cos(expIm);
+        result[1] = magnitude * Math.sin(expIm);
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.calculator.logic;
+
+// Sine, cosine and tangent of an angle in degrees. Math.sin(Math.toRadians(180)) is
+// 1.2e-16 rather than 0, because π/180 is rounded before the multiplication and the
+// reduction by π inside Math.sin sees the rounded product. Here the reduction happens in
+// degrees, where it is exact: |x| mod 360 is computed exactly by the remainder operator,
+// and subtracting the nearest multiple of 90° is a Sterbenz subtraction. Only an angle of
+// at most 45° is ever converted to radians, so the conversion error stays relative.
+//
+// Multiples of 30° and 45° give their exact values from a table (sin 30° = 0.5,
+// cos 60° = 0.5, tan 45° = 1, sin 180° = 0), and tan has its poles exactly at 90° + k·180°,
+// where it returns NaN. Zeros are always +0.
+public final class DegreeTrig {
+    static final double RADIANS_PER_DEGREE = Math.PI / 180;
+    private static final double SQRT_HALF = Math.sqrt(0.5);    // sin 45°, cos 45°
+    private static final double SQRT3_HALF = Math.sqrt(3) / 2; // cos 30°
+    private static final double SQRT3 = Math.sqrt(3);          // tan 60°, cot 30°
+    private static final double SQRT3_THIRD = Math.sqrt(3) / 3; // tan 30°
+
+    private DegreeTrig() {
+    }
+
+    public static double sind(double x) {
+        if (!(Math.abs(x) < Double.POSITIVE_INFINITY)) return Double.NaN; // NaN or infinite
+        double r = reduce(Math.abs(x), 360);
+        int q = quadrant(r);             // nearest multiple of 90°, 0..4
+        double t = r - 90 * q;           // in [-45, 45], exact
+        double s = (q & 1) == 0 ? sinKernel(t) : cosKernel(t);
+        return flip(s, (q >> 1) ^ signBit(x));
+    }
+
+    public static double cosd(double x) {
+        if (!(Math.abs(x) < Double.POSITIVE_INFINITY)) return Double.NaN;
+        double r = reduce(Math.abs(x), 360);
+        int q = quadrant(r);
+        double t = r - 90 * q;
+        double c = (q & 1) == 0 ? cosKernel(t) : sinKernel(t);
+        return flip(c, (q + 1) >> 1);
+    }
+
+    // NaN at the poles 90° + k·180°
+    public static double tand(double x) {
+        if (!(Math.abs(x) < Double.POSITIVE_INFINITY)) return Double.NaN;
+        double r = reduce(Math.abs(x), 180);
+        int q = quadrant(r);             // 0..2
+        double t = r - 90 * q;
+        double v;
+        if ((q & 1) == 0) {
+            v = tanKernel(t);
+        } else if (t == 0) {
+            return Double.NaN;
+        } else {                          // tan(90° + t) = -cot t
+            v = Math.abs(t) == 30 ? -Math.copySign(SQRT3, t) : -1 / tanKernel(t);
+        }
+        return flip(v, signBit(x));
+    }
+
+    // x mod period (360 or 180) for x >= 0, exactly. Below 2^40 the multiple k·period is an
+    // exact double and so is x - k·period (both are multiples of the ulp of k·period, and
+    // the difference is smaller than either); the estimate of k may be off by one, which
+    // the last steps correct. Beyond that the remainder operator, exact but much slower.
+    private static double reduce(double x, double period) {
+        if (x < period) return x;
+        if (x >= 0x1p40) return x % period;
+        double r = x - period * Math.floor(x * (1 / period));
+        if (r < 0) r += period;
+        else if (r >= period) r -= period;
+        return r;
+    }
+
+    // Rounds r / 90 to the nearest integer; a multiplication is much cheaper than the
+    // division, and an error in the last place only moves t slightly past ±45
+    private static int quadrant(double r) {
+        return (int) (r * (1.0 / 90) + 0.5);
+    }
+
+    private static int signBit(double x) {
+        return (int) (Double.doubleToRawLongBits(x) >>> 63);
+    }
+
+    // v negated when bit 0 of odd is set. A multiplication rather than a branch, which the
+    // random quadrants of a sweep would mispredict; + 0.0 turns -0 into +0.
+    private static double flip(double v, int odd) {
+        return v * (1 - 2 * (odd & 1)) + 0.0;
+    }
+
+    // The kernels take -45 <= t <= 45; the exact cases are rare, so their branch is cheap
+    private static double sinKernel(double t) {
+        double a = Math.abs(t);
+        if (a == 30 || a == 45) return Math.copySign(a == 30 ? 0.5 : SQRT_HALF, t);
+        return Math.sin(t * RADIANS_PER_DEGREE);
+    }
+
+    private static double cosKernel(double t) {
+        double a = Math.abs(t);
+        if (a == 30 || a == 45) return a == 30 ? SQRT3_HALF : SQRT_HALF;
+        return Math.cos(t * RADIANS_PER_DEGREE);
+    }
+
+    private static double tanKernel(double t) {
+        double a = Math.abs(t);
+        if (a == 30 || a == 45) return Math.copySign(a == 30 ? SQRT3_THIRD : 1, t);
+        return Math.tan(t * RADIANS_PER_DEGREE);
+    }
+}
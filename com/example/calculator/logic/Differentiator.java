@@ -0,0 +1,112 @@
+package com.example.calculator.logic;
+
+import java.util.Arrays;
+
+// Symbolic derivatives on an ExpressionDag with the sum, product, power and chain rules
+// for every ExpressionEvaluator function. The derivative of each node is memoized, so a
+// subexpression shared by several parents is differentiated once and the derivative of
+// a nested composition such as sin(sin(sin(x))) stays linear in its size. Higher orders
+// are built one at a time on the same DAG and memo, so each order reuses the work of the
+// ones before it.
+public final class Differentiator {
+    private final ExpressionDag dag;
+    private final int variable;
+    private final Simplifier simplifier;
+    private int[] memo = new int[64]; // derivative id + 1, or 0 when not computed yet
+
+    public Differentiator(ExpressionDag dag, String variable) {
+        this(dag, variable, new Simplifier(dag));
+    }
+
+    public Differentiator(ExpressionDag dag, String variable, Simplifier simplifier) {
+        this.dag = dag;
+        this.variable = dag.variable(variable);
+        this.simplifier = simplifier;
+    }
+
+    // d^order/dvariable^order of node, simplified after every order
+    public int derivative(int node, int order) {
+        if (order < 0) throw new IllegalArgumentException("Derivative order must be non-negative: " + order);
+        int current = simplifier.simplify(node);
+        for (int k = 0; k < order; k++) current = simplifier.simplify(derivative(current));
+        return current;
+    }
+
+    // First derivative, not simplified beyond the DAG's canonical form
+    public int derivative(int node) {
+        if (node >= memo.length) memo = Arrays.copyOf(memo, Math.max(node + 1, dag.size()) * 2);
+        if (memo[node] != 0) return memo[node] - 1;
+        int result = differentiate(node);
+        if (node >= memo.length) memo = Arrays.copyOf(memo, Math.max(node + 1, dag.size()) * 2);
+        memo[node] = result + 1;
+        return result;
+    }
+
+    private int differentiate(int node) {
+        switch (dag.kind(node)) {
+            case ExpressionDag.CONSTANT:
+                return dag.constant(0);
+            case ExpressionDag.VARIABLE:
+                return dag.constant(node == variable ? 1 : 0);
+            case ExpressionDag.SUM: {
+                int[] terms = new int[dag.childCount(node)];
+                for (int k = 0; k < terms.length; k++) terms[k] = derivative(dag.child(node, k));
+                return dag.sum(terms);
+            }
+            case ExpressionDag.PRODUCT: {
+                // (fgh)' = f'gh + fg'h + fgh'
+                int n = dag.childCount(node);
+                int[] terms = new int[n];
+                int count = 0;
+                for (int i = 0; i < n; i++) {
+                    int d = derivative(dag.child(node, i));
+                    if (dag.isConstant(d, 0)) continue;
+                    int[] factors = dag.childrenOf(node, 0);
+                    factors[i] = d;
+                    terms[count++] = dag.product(factors);
+                }
+                return dag.sum(Arrays.copyOf(terms, count));
+            }
+            case ExpressionDag.POWER:
+                return differentiatePower(node, dag.child(node, 0), dag.child(node, 1));
+            default:
+                return differentiateCall(dag.name(node), dag.child(node, 0));
+        }
+    }
+
+    private int differentiatePower(int node, int base, int exponent) {
+        int db = derivative(base);
+        int de = derivative(exponent);
+        if (dag.isConstant(de, 0)) {
+            // (u^c)' = c u^(c-1) u'
+            if (dag.isConstant(db, 0)) return dag.constant(0);
+            return dag.product(exponent, dag.power(base, dag.add(exponent, dag.constant(-1))), db);
+        }
+        int ln = dag.call("ln", base);
+        if (dag.isConstant(db, 0)) {
+            // (c^v)' = c^v ln(c) v'
+            return dag.product(node, ln, de);
+        }
+        // (u^v)' = u^v (v' ln(u) + v u'/u)
+        return dag.product(node, dag.add(dag.product(de, ln), dag.product(exponent, db, dag.power(base, dag.constant(-1)))));
+    }
+
+    private int differentiateCall(String name, int u) {
+        int du = derivative(u);
+        if (dag.isConstant(du, 0)) return du;
+        switch (name) {
+            case "sin":
+                return dag.product(dag.call("cos", u), du);
+            case "cos":
+                return dag.product(dag.constant(-1), dag.call("sin", u), du);
+            case "tan":
+                return dag.product(du, dag.power(dag.call("cos", u), dag.constant(-2)));
+            case "ln":
+                return dag.product(du, dag.power(u, dag.constant(-1)));
+            case "log":
+                return dag.product(du, dag.power(dag.product(u, dag.call("ln", dag.constant(10))), dag.constant(-1)));
+            default:
+                throw new IllegalArgumentException("Cannot differentiate function: " + name);
+        }
+    }
+}
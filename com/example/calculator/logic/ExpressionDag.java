@@ -0,0 +1,595 @@
+package com.example.calculator.logic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+// Hash-consed expression graph. Every node is interned: building a node that is
+// structurally equal to an existing one returns the existing id, so equal subexpressions
+// are stored once and equality is an int compare. Nodes live in parallel primitive
+// arrays like ExpressionTree and are never modified once created.
+//
+// The public constructors (sum, product, power, call) also keep nodes in a canonical
+// form, so "x + x" and "2x" are the same node:
+//   - sums and products are n-ary and flattened, with numbers folded into one numeric
+//     term / coefficient that comes first, and the remaining children ordered by id;
+//   - like terms are collected (2x + 3x = 5x) and equal bases merged (x * x^2 = x^3);
+//   - subtraction is a + (-1)b, division is a * b^-1 and sqrt(u) is u^0.5.
+// Identities that need matching beyond this (trig, ln/exp) are left to Simplifier.
+public final class ExpressionDag {
+    public static final int CONSTANT = 0;
+    public static final int VARIABLE = 1; // variables and the named constants pi and e
+    public static final int SUM = 2;
+    public static final int PRODUCT = 3;
+    public static final int POWER = 4;    // base ^ exponent
+    public static final int CALL = 5;     // function of one argument, e.g. sin(u)
+
+    private static final double ZERO_TOLERANCE = 1e-9; // same cut-off Polynomial uses
+    private static final int EMPTY = -1;
+
+    private int size;
+    private int[] kinds = new int[64];
+    private double[] values = new double[64];
+    private String[] names = new String[64];
+    private int[] childStart = new int[64];
+    private int[] childCount = new int[64];
+    private int[] hashes = new int[64];
+    private int[] children = new int[128]; // child lists of all nodes, back to back
+    private int childrenSize;
+    private int[] table = new int[128];    // open addressing over node ids
+
+    public ExpressionDag() {
+        Arrays.fill(table, EMPTY);
+    }
+
+    // --- Access ---
+
+    public int size() {
+        return size;
+    }
+
+    public int kind(int node) {
+        return kinds[node];
+    }
+
+    public int childCount(int node) {
+        return childCount[node];
+    }
+
+    public int child(int node, int index) {
+        return children[childStart[node] + index];
+    }
+
+    public double value(int node) {
+        return values[node];
+    }
+
+    // Variable or function name
+    public String name(int node) {
+        return names[node];
+    }
+
+    public boolean isConstant(int node, double value) {
+        return kinds[node] == CONSTANT && values[node] == value;
+    }
+
+    // Numeric coefficient of a term: the leading number of a product, the value of a
+    // constant, otherwise 1
+    public double coefficient(int node) {
+        if (kinds[node] == CONSTANT) return values[node];
+        if (kinds[node] == PRODUCT && kinds[child(node, 0)] == CONSTANT) return values[child(node, 0)];
+        return 1.0;
+    }
+
+    // The term with its numeric coefficient removed (1 for a constant)
+    public int withoutCoefficient(int node) {
+        if (kinds[node] == CONSTANT) return constant(1);
+        if (kinds[node] != PRODUCT || kinds[child(node, 0)] != CONSTANT) return node;
+        int[] rest = childrenOf(node, 1);
+        return rest.length == 1 ? rest[0] : intern(PRODUCT, 0, null, rest, rest.length);
+    }
+
+    int[] childrenOf(int node, int from) {
+        return Arrays.copyOfRange(children, childStart[node] + from, childStart[node] + childCount[node]);
+    }
+
+    // --- Construction ---
+
+    public int constant(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) throw new ArithmeticException("Result is not a finite number");
+        return intern(CONSTANT, value == 0 ? 0.0 : value, null, null, 0); // one zero, not +0 and -0
+    }
+
+    public int variable(String name) {
+        return intern(VARIABLE, 0, name, null, 0);
+    }
+
+    public int add(int a, int b) {
+        return sum(a, b);
+    }
+
+    public int subtract(int a, int b) {
+        return sum(a, negate(b));
+    }
+
+    public int negate(int a) {
+        return product(constant(-1), a);
+    }
+
+    public int multiply(int a, int b) {
+        return product(a, b);
+    }
+
+    public int divide(int a, int b) {
+        if (isConstant(b, 0)) throw new ArithmeticException("Division by zero");
+        return product(a, power(b, constant(-1)));
+    }
+
+    public int sum(int... terms) {
+        int[] flat = flatten(SUM, terms);
+        double constant = 0;
+        // (rest id << 32 | index) keys: sorting them groups like terms without boxing
+        long[] keys = new long[flat.length];
+        double[] coefficients = new double[flat.length];
+        int n = 0;
+        for (int t : flat) {
+            if (kinds[t] == CONSTANT) {
+                constant += values[t];
+                continue;
+            }
+            keys[n] = ((long) withoutCoefficient(t) << 32) | n;
+            coefficients[n] = coefficient(t);
+            n++;
+        }
+        Arrays.sort(keys, 0, n);
+        int[] out = new int[n + 1];
+        int m = 0;
+        if (Math.abs(constant) >= ZERO_TOLERANCE) out[m++] = constant(constant);
+        for (int i = 0; i < n; ) {
+            int rest = (int) (keys[i] >>> 32);
+            double c = 0;
+            while (i < n && (int) (keys[i] >>> 32) == rest) c += coefficients[(int) keys[i++]];
+            if (Math.abs(c) >= ZERO_TOLERANCE) out[m++] = c == 1 ? rest : scaled(rest, c);
+        }
+        if (m == 0) return constant(0);
+        if (m == 1) return out[0];
+        return intern(SUM, 0, null, out, m);
+    }
+
+    public int product(int... factors) {
+        int[] flat = flatten(PRODUCT, factors);
+        double coefficient = 1;
+        long[] keys = new long[flat.length];
+        int[] exponents = new int[flat.length];
+        int n = 0;
+        for (int f : flat) {
+            if (kinds[f] == CONSTANT) {
+                coefficient *= values[f];
+                continue;
+            }
+            int base = kinds[f] == POWER ? child(f, 0) : f;
+            exponents[n] = kinds[f] == POWER ? child(f, 1) : constant(1);
+            keys[n] = ((long) base << 32) | n;
+            n++;
+        }
+        if (coefficient == 0) return constant(0);
+        Arrays.sort(keys, 0, n);
+        int[] out = new int[n + 1];
+        int m = 0;
+        boolean nested = false;
+        for (int i = 0; i < n; ) {
+            int base = (int) (keys[i] >>> 32);
+            int j = i;
+            while (j < n && (int) (keys[j] >>> 32) == base) j++;
+            int exponent;
+            if (j - i == 1) {
+                exponent = exponents[(int) keys[i]];
+            } else {
+                int[] parts = new int[j - i];
+                for (int k = i; k < j; k++) parts[k - i] = exponents[(int) keys[k]];
+                exponent = sum(parts);
+            }
+            i = j;
+            int f = power(base, exponent);
+            if (kinds[f] == CONSTANT) {
+                coefficient *= values[f];
+            } else {
+                nested |= kinds[f] == PRODUCT;
+                out[m++] = f;
+            }
+        }
+        if (nested) {
+            // A merged power distributed over a product, e.g. (xy)^0.5 (xy)^0.5 = xy
+            out[m++] = constant(coefficient);
+            return product(Arrays.copyOf(out, m));
+        }
+        if (m == 0) return constant(coefficient);
+        if (coefficient == 1 && m == 1) return out[0];
+        if (m == 1 && kinds[out[0]] == SUM) {
+            // A number times a sum is distributed so its terms can combine with others
+            int[] terms = childrenOf(out[0], 0);
+            for (int k = 0; k < terms.length; k++) terms[k] = product(constant(coefficient), terms[k]);
+            return sum(terms);
+        }
+        Arrays.sort(out, 0, m);
+        if (coefficient != 1) {
+            System.arraycopy(out, 0, out, 1, m);
+            out[0] = constant(coefficient);
+            m++;
+        }
+        return intern(PRODUCT, 0, null, out, m);
+    }
+
+    public int power(int base, int exponent) {
+        if (kinds[exponent] == CONSTANT) {
+            double e = values[exponent];
+            if (e == 0) return constant(1);
+            if (e == 1) return base;
+            boolean integral = e == Math.rint(e);
+            if (kinds[base] == CONSTANT) {
+                double b = values[base];
+                if (b == 0 && e < 0) throw new ArithmeticException("Division by zero");
+                double r = Math.pow(b, e);
+                // Fold only when nothing is lost: 2^3 = 8 and 4^0.5 = 2, but 2^0.5 stays
+                if (!Double.isNaN(r) && !Double.isInfinite(r) && (integral || r == Math.rint(r))) return constant(r);
+            }
+            if (integral && kinds[base] == POWER) {
+                return power(child(base, 0), product(child(base, 1), exponent));
+            }
+            if (integral && kinds[base] == PRODUCT) {
+                int[] factors = childrenOf(base, 0);
+                for (int k = 0; k < factors.length; k++) factors[k] = power(factors[k], exponent);
+                return product(factors);
+            }
+        }
+        if (isConstant(base, 1)) return base;
+        return intern(POWER, 0, null, new int[]{base, exponent}, 2);
+    }
+
+    // name must be one of ExpressionEvaluator's functions. Calls on numbers are folded
+    // only when the result is an integer (sin(0), ln(1), log(100)), so nothing is rounded.
+    public int call(String name, int argument) {
+        if (name.equals("sqrt")) return power(argument, constant(0.5));
+        if (kinds[argument] == CONSTANT) {
+            double v = applyFunction(name, values[argument]);
+            if (!Double.isNaN(v) && !Double.isInfinite(v) && v == Math.rint(v)) return constant(v);
+        }
+        return intern(CALL, 0, name, new int[]{argument}, 1);
+    }
+
+    static double applyFunction(String name, double x) {
+        switch (name) {
+            case "sin": return Math.sin(x);
+            case "cos": return Math.cos(x);
+            case "tan": return Math.tan(x);
+            case "ln": return Math.log(x);
+            case "log": return Math.log10(x);
+            case "sqrt": return Math.sqrt(x);
+            default: throw new IllegalArgumentException("Unknown function: " + name);
+        }
+    }
+
+    // Builds the DAG for a parsed subtree; repeated subexpressions in the input map to
+    // the same node
+    public int fromTree(ExpressionTree tree, int node) {
+        switch (tree.kind(node)) {
+            case ExpressionTree.NUMBER:
+                return constant(tree.number(node));
+            case ExpressionTree.IDENTIFIER: {
+                String name = tree.name(node);
+                if (name.equals("π") || name.equalsIgnoreCase("pi")) return variable("pi");
+                return variable(name);
+            }
+            case ExpressionTree.NEGATE:
+                return negate(fromTree(tree, tree.firstChild(node)));
+            case ExpressionTree.ADD:
+                return add(fromTree(tree, tree.left(node)), fromTree(tree, tree.right(node)));
+            case ExpressionTree.SUBTRACT:
+                return subtract(fromTree(tree, tree.left(node)), fromTree(tree, tree.right(node)));
+            case ExpressionTree.MULTIPLY:
+                return multiply(fromTree(tree, tree.left(node)), fromTree(tree, tree.right(node)));
+            case ExpressionTree.DIVIDE: {
+                int numerator = fromTree(tree, tree.left(node));
+                int denominator = fromTree(tree, tree.right(node));
+                if (isConstant(denominator, 0)) throw tree.error(tree.right(node), "Division by zero");
+                return divide(numerator, denominator);
+            }
+            case ExpressionTree.POWER:
+                return power(fromTree(tree, tree.left(node)), fromTree(tree, tree.right(node)));
+            case ExpressionTree.CALL: {
+                String name = tree.name(node);
+                if (!ExpressionEvaluator.isFunction(name)) throw tree.error(node, "Unknown function: " + name);
+                if (ExpressionEvaluator.isRandom(name) || ExpressionEvaluator.isReduction(name) || ExpressionEvaluator.isMatrixFunction(name)
+                        || ExpressionEvaluator.isNumberTheoryFunction(name)) {
+                    throw tree.error(node, name + "() has no symbolic form");
+                }
+                if (tree.childCount(node) != 1) throw tree.error(node, name + " expects 1 argument(s)");
+                return call(name, fromTree(tree, tree.firstChild(node)));
+            }
+            case ExpressionTree.LIST:
+                throw tree.error(node, "Matrices have no symbolic form");
+            default:
+                throw tree.error(node, "Unexpected '=' in expression");
+        }
+    }
+
+    private int scaled(int term, double c) {
+        if (kinds[term] != PRODUCT) return intern(PRODUCT, 0, null, new int[]{constant(c), term}, 2);
+        int[] factors = new int[childCount[term] + 1];
+        factors[0] = constant(c);
+        System.arraycopy(children, childStart[term], factors, 1, childCount[term]);
+        return intern(PRODUCT, 0, null, factors, factors.length);
+    }
+
+    private int[] flatten(int kind, int[] nodes) {
+        int total = 0;
+        for (int t : nodes) total += kinds[t] == kind ? childCount[t] : 1;
+        if (total == nodes.length) return nodes;
+        int[] flat = new int[total];
+        int k = 0;
+        for (int t : nodes) {
+            if (kinds[t] == kind) {
+                System.arraycopy(children, childStart[t], flat, k, childCount[t]);
+                k += childCount[t];
+            } else {
+                flat[k++] = t;
+            }
+        }
+        return flat;
+    }
+
+    // --- Interning ---
+
+    private int intern(int kind, double value, String name, int[] kids, int count) {
+        int h = hash(kind, value, name, kids, count);
+        int mask = table.length - 1;
+        int i = h & mask;
+        for (int id; (id = table[i]) != EMPTY; i = (i + 1) & mask) {
+            if (hashes[id] == h && sameNode(id, kind, value, name, kids, count)) return id;
+        }
+        if (size == kinds.length) grow();
+        if (childrenSize + count > children.length) children = Arrays.copyOf(children, Math.max(children.length * 2, childrenSize + count));
+        int id = size++;
+        kinds[id] = kind;
+        values[id] = value;
+        names[id] = name;
+        hashes[id] = h;
+        childStart[id] = childrenSize;
+        childCount[id] = count;
+        if (count > 0) System.arraycopy(kids, 0, children, childrenSize, count);
+        childrenSize += count;
+        table[i] = id;
+        if (size * 2 > table.length) rehash();
+        return id;
+    }
+
+    private boolean sameNode(int id, int kind, double value, String name, int[] kids, int count) {
+        if (kinds[id] != kind || childCount[id] != count) return false;
+        if (Double.doubleToLongBits(values[id]) != Double.doubleToLongBits(value)) return false;
+        if (name == null ? names[id] != null : !name.equals(names[id])) return false;
+        int start = childStart[id];
+        for (int k = 0; k < count; k++) if (children[start + k] != kids[k]) return false;
+        return true;
+    }
+
+    private static int hash(int kind, double value, String name, int[] kids, int count) {
+        int h = kind * 31 + Double.hashCode(value);
+        if (name != null) h = h * 31 + name.hashCode();
+        for (int k = 0; k < count; k++) h = h * 31 + kids[k];
+        return h ^ (h >>> 16);
+    }
+
+    private void grow() {
+        int capacity = kinds.length * 2;
+        kinds = Arrays.copyOf(kinds, capacity);
+        values = Arrays.copyOf(values, capacity);
+        names = Arrays.copyOf(names, capacity);
+        childStart = Arrays.copyOf(childStart, capacity);
+        childCount = Arrays.copyOf(childCount, capacity);
+        hashes = Arrays.copyOf(hashes, capacity);
+    }
+
+    private void rehash() {
+        table = new int[table.length * 2];
+        Arrays.fill(table, EMPTY);
+        int mask = table.length - 1;
+        for (int id = 0; id < size; id++) {
+            int i = hashes[id] & mask;
+            while (table[i] != EMPTY) i = (i + 1) & mask;
+            table[i] = id;
+        }
+    }
+
+    // --- Printing ---
+
+    private static final int IN_SUM = 0;
+    private static final int IN_PRODUCT = 1;
+    private static final int IN_POWER = 2;
+
+    // Infix text that ExpressionParser reads back to the same node. Terms are listed by
+    // descending degree and factors alphabetically, independent of node ids.
+    public String toString(int node) {
+        StringBuilder sb = new StringBuilder();
+        append(sb, node, IN_SUM);
+        return sb.toString();
+    }
+
+    private void append(StringBuilder sb, int node, int context) {
+        switch (kinds[node]) {
+            case CONSTANT:
+                if (values[node] < 0 && context != IN_SUM) sb.append('(').append(formatConstant(values[node])).append(')');
+                else sb.append(formatConstant(values[node]));
+                return;
+            case VARIABLE:
+                sb.append(names[node]);
+                return;
+            case SUM: {
+                if (context != IN_SUM) sb.append('(');
+                Integer[] terms = displayOrder(childrenOf(node, 0), true);
+                for (int k = 0; k < terms.length; k++) {
+                    int t = terms[k];
+                    double c = coefficient(t);
+                    if (k > 0) sb.append(c < 0 ? " - " : " + ");
+                    else if (c < 0) sb.append('-');
+                    if (kinds[t] == CONSTANT) sb.append(formatConstant(Math.abs(c)));
+                    else appendProduct(sb, Math.abs(c), withoutCoefficient(t), IN_SUM);
+                }
+                if (context != IN_SUM) sb.append(')');
+                return;
+            }
+            case POWER:
+                if (kinds[child(node, 1)] != CONSTANT || values[child(node, 1)] > 0) {
+                    if (context == IN_POWER) sb.append('(');
+                    appendPowerNode(sb, node);
+                    if (context == IN_POWER) sb.append(')');
+                } else {
+                    appendQuotient(sb, node, context); // negative powers print as a quotient, like products
+                }
+                return;
+            case PRODUCT:
+                appendQuotient(sb, node, context);
+                return;
+            default:
+                sb.append(names[node]).append('(');
+                append(sb, child(node, 0), IN_SUM);
+                sb.append(')');
+        }
+    }
+
+    // A product or negative power node, signed and bracketed as its context requires
+    private void appendQuotient(StringBuilder sb, int node, int context) {
+        boolean negative = coefficient(node) < 0;
+        boolean paren = context == IN_POWER || (negative && context == IN_PRODUCT);
+        if (paren) sb.append('(');
+        if (negative) sb.append('-');
+        appendProduct(sb, Math.abs(coefficient(node)), withoutCoefficient(node), IN_SUM);
+        if (paren) sb.append(')');
+    }
+
+    // coefficient >= 0 times the factors of rest, with negative powers written as a quotient
+    private void appendProduct(StringBuilder sb, double coefficient, int rest, int context) {
+        int[] factors = kinds[rest] == PRODUCT ? childrenOf(rest, 0) : new int[]{rest};
+        List<Integer> numerator = new ArrayList<>();
+        List<Integer> denominator = new ArrayList<>();
+        for (Integer f : displayOrder(factors, false)) {
+            if (kinds[f] == POWER && kinds[child(f, 1)] == CONSTANT && values[child(f, 1)] < 0) denominator.add(f);
+            else numerator.add(f);
+        }
+        // 1/3 x prints as x/3
+        double reciprocal = 1 / coefficient;
+        boolean divideByInteger = coefficient != Math.rint(coefficient) && reciprocal == Math.rint(reciprocal) && Math.abs(reciprocal) < 1e15;
+        StringBuilder num = new StringBuilder();
+        if ((coefficient != 1 && !divideByInteger) || numerator.isEmpty()) num.append(formatConstant(divideByInteger ? 1 : coefficient));
+        boolean afterCoefficient = num.length() > 0;
+        for (int f : numerator) {
+            int mark = num.length();
+            if (kinds[f] == POWER) appendPowerNode(num, f);
+            else append(num, f, IN_PRODUCT);
+            // Juxtapose right after the coefficient (2x, 2sin(x)) unless that would merge digits
+            if (mark > 0 && (!afterCoefficient || Character.isDigit(num.charAt(mark)))) num.insert(mark, '*');
+            afterCoefficient = false;
+        }
+        int denominatorCount = denominator.size() + (divideByInteger ? 1 : 0);
+        boolean paren = context != IN_SUM && denominatorCount > 0;
+        if (paren) sb.append('(');
+        sb.append(num);
+        if (denominatorCount > 0) {
+            sb.append('/');
+            if (denominatorCount > 1) sb.append('(');
+            boolean first = true;
+            if (divideByInteger) {
+                sb.append(formatConstant(reciprocal));
+                first = false;
+            }
+            for (int f : denominator) {
+                if (!first) sb.append('*');
+                first = false;
+                appendPower(sb, child(f, 0), -values[child(f, 1)]);
+            }
+            if (denominatorCount > 1) sb.append(')');
+        }
+        if (paren) sb.append(')');
+    }
+
+    private void appendPower(StringBuilder sb, int base, double exponent) {
+        if (exponent == 0.5) {
+            sb.append("sqrt(");
+            append(sb, base, IN_SUM);
+            sb.append(')');
+            return;
+        }
+        append(sb, base, IN_POWER);
+        if (exponent == 1) return;
+        double reciprocal = 1 / exponent;
+        if (exponent != Math.rint(exponent) && reciprocal == Math.rint(reciprocal)) {
+            sb.append("^(1/").append(formatConstant(reciprocal)).append(')'); // roots: x^(1/3)
+        } else {
+            sb.append('^').append(formatConstant(exponent));
+        }
+    }
+
+    // Only called for positive or symbolic exponents; negative ones print as quotients
+    private void appendPowerNode(StringBuilder sb, int node) {
+        int exponent = child(node, 1);
+        if (kinds[exponent] == CONSTANT) {
+            appendPower(sb, child(node, 0), values[exponent]);
+            return;
+        }
+        append(sb, child(node, 0), IN_POWER);
+        sb.append('^');
+        append(sb, exponent, IN_POWER);
+    }
+
+    private Integer[] displayOrder(int[] nodes, boolean terms) {
+        Integer[] order = new Integer[nodes.length];
+        String[] keys = new String[nodes.length];
+        for (int k = 0; k < nodes.length; k++) order[k] = k;
+        for (int k = 0; k < nodes.length; k++) keys[k] = displayKey(terms ? withoutCoefficient(nodes[k]) : nodes[k]);
+        Comparator<Integer> byKey = Comparator.comparing(k -> keys[k]);
+        if (terms) {
+            // Highest degree first, numbers last
+            Comparator<Integer> byDegree = Comparator.comparingDouble(k -> kinds[nodes[k]] == CONSTANT ? Double.NEGATIVE_INFINITY : degree(nodes[k]));
+            Arrays.sort(order, byDegree.reversed().thenComparing(byKey));
+        } else {
+            // Variables and their powers first, then everything else
+            Comparator<Integer> byRank = Comparator.comparingInt(k -> kinds[base(nodes[k])] == VARIABLE ? 0 : 1);
+            Arrays.sort(order, byRank.thenComparing(byKey));
+        }
+        for (int k = 0; k < order.length; k++) order[k] = nodes[order[k]];
+        return order;
+    }
+
+    private String displayKey(int node) {
+        StringBuilder sb = new StringBuilder();
+        if (kinds[node] == POWER) appendPowerNode(sb, node);
+        else append(sb, node, IN_SUM);
+        return sb.toString();
+    }
+
+    private int base(int node) {
+        return kinds[node] == POWER ? child(node, 0) : node;
+    }
+
+    // Polynomial degree of a term in its variables (named constants count as numbers)
+    private double degree(int node) {
+        switch (kinds[node]) {
+            case VARIABLE:
+                return names[node].equals("pi") || names[node].equals("e") ? 0 : 1;
+            case POWER:
+                return kinds[child(node, 1)] == CONSTANT ? degree(child(node, 0)) * values[child(node, 1)] : 0;
+            case PRODUCT: {
+                double d = 0;
+                for (int k = 0; k < childCount[node]; k++) d += degree(child(node, k));
+                return d;
+            }
+            default:
+                return 0;
+        }
+    }
+
+    private static String formatConstant(double value) {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) return String.valueOf((long) value);
+        return String.format("%.4f", value).replaceAll("\\.?0+$", "");
+    }
+}
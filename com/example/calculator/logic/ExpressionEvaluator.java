@@ -1,37 +1,66 @@
 package com.example.calculator.logic;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.math.RoundingMode;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Stack;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 public class ExpressionEvaluator {
 
-    // ... (PRECEDENCE and FUNCTIONS maps remain the same)
-    private static final Map<String, Integer> PRECEDENCE = new HashMap<>();
-    static {
-        PRECEDENCE.put("+", 1); PRECEDENCE.put("-", 1);
-        PRECEDENCE.put("*", 2); PRECEDENCE.put("/", 2);
-        PRECEDENCE.put("^", 3); PRECEDENCE.put("~", 4);
-    }
-
-    private static final Map<String, Integer> FUNCTIONS = new HashMap<>();
+    private static final Map<String, Integer> FUNCTIONS = new HashMap<>(); // name -> number of arguments
     static {
         FUNCTIONS.put("sin", 1); FUNCTIONS.put("cos", 1); FUNCTIONS.put("tan", 1);
         FUNCTIONS.put("log", 1); FUNCTIONS.put("ln", 1); FUNCTIONS.put("sqrt", 1);
+        FUNCTIONS.put("rand", 0); FUNCTIONS.put("randn", 0); // uniform on [0, 1), standard normal
+        FUNCTIONS.put("sum", 4); FUNCTIONS.put("prod", 4);   // (body, index, from, to)
+        FUNCTIONS.put("transpose", 1); FUNCTIONS.put("det", 1); FUNCTIONS.put("inv", 1);
+        FUNCTIONS.put("solve", 2);                           // (A, b): x with A x = b
+        FUNCTIONS.put("gcd", 2); FUNCTIONS.put("lcm", 2); FUNCTIONS.put("mod", 2);
+        FUNCTIONS.put("modpow", 3);                          // (b, e, m): b^e mod m
+        FUNCTIONS.put("isprime", 1); FUNCTIONS.put("nextprime", 1); FUNCTIONS.put("primepi", 1);
+        FUNCTIONS.put("factor", 1); FUNCTIONS.put("phi", 1);
+        FUNCTIONS.put("ncr", 2); FUNCTIONS.put("npr", 2);    // call names are lower-cased: nCr, nPr
+        FUNCTIONS.put("factorial", 1); FUNCTIONS.put("doublefactorial", 1); // n! and n!!
     }
 
+    private static final double MAX_EXACT_INTEGER = 9007199254740992.0; // 2^53
+    private static final long INTERPRETED_TERM_LIMIT = 10_000_000;
+    private static final int MAX_INTEGER_BITS = 1 << 22; // about 1.26 million digits
+
+    // Values of the indices of the sums being evaluated, innermost last
+    private final Map<String, Object> bindings = new HashMap<>();
+
 
     // Evaluate method now takes angleUnit from SettingsManager via GUI
     public Object evaluate(String expression, boolean preferFractionResult, String angleUnit) throws IllegalArgumentException {
         if (expression == null || expression.trim().isEmpty()) {
             return preferFractionResult ? new Fraction(0) : 0.0;
         }
-        List<String> tokens = tokenize(expression);
-        if (tokens.isEmpty()) return preferFractionResult ? new Fraction(0) : 0.0;
-        List<String> postfix = infixToPostfix(tokens);
-        return evaluatePostfix(postfix, preferFractionResult, angleUnit);
+        return evaluate(ExpressionParser.parse(expression), preferFractionResult, angleUnit);
+    }
+
+    // Evaluates an already parsed expression, so callers that also hand the tree to the
+    // symbolic or calculus evaluators parse only once
+    public Object evaluate(ExpressionTree tree, boolean preferFractionResult, String angleUnit) throws IllegalArgumentException {
+        Object finalResult = evaluateNode(tree, tree.root(), preferFractionResult, angleUnit);
+        if (!preferFractionResult && finalResult instanceof Fraction) return ((Fraction) finalResult).toDouble();
+        return finalResult;
+    }
+
+    // A number typed into a field, such as a bound or a start value, as a double. Every
+    // numeric result is accepted (200! arrives as a BigInteger); matrices and the like are not.
+    public double evaluateNumber(String expression, String angleUnit) throws IllegalArgumentException {
+        Object value = evaluate(expression, false, angleUnit);
+        if (value instanceof Number) return ((Number) value).doubleValue();
+        if (value instanceof Fraction) return ((Fraction) value).toDouble();
+        throw new IllegalArgumentException("Expected a number, found '" + expression.trim() + "'");
     }
 
     // Overload for existing calls that don't specify angle unit (default to degrees from SettingsManager)
@@ -43,162 +72,474 @@ public class ExpressionEvaluator {
         return evaluate(expression, false, SettingsManager.loadAngleUnit());
     }
 
+    // Complex mode: i is the imaginary unit, and sqrt, ln, log and ^ take principal values
+    // instead of failing on negative arguments. Returns a Double when the imaginary part
+    // vanishes, otherwise a Complex. Parts below 2^-50 of the magnitude are rounding noise
+    // and snap to zero, so e^(i*pi) gives -1.
+    public Object evaluateComplex(String expression, String angleUnit) throws IllegalArgumentException {
+        if (expression == null || expression.trim().isEmpty()) return 0.0;
+        return evaluateComplex(ExpressionParser.parse(expression), angleUnit);
+    }
 
-    // ... (tokenize, preprocessTokensForUnary, infixToPostfix remain largely the same)
-    // Minor change in tokenizer if needed, but likely ok. The main change is in evaluation.
-    private List<String> tokenize(String expression) {
-        List<String> tokens = new ArrayList<>();
-        StringBuilder currentToken = new StringBuilder();
-        for (int i = 0; i < expression.length(); i++) {
-            char c = expression.charAt(i);
-            if (Character.isWhitespace(c)) continue;
-            if (Character.isDigit(c) || c == '.' ||
-                (c == '/' && currentToken.length() > 0 && Character.isDigit(currentToken.charAt(currentToken.length()-1)) &&
-                 i + 1 < expression.length() && Character.isDigit(expression.charAt(i+1)) &&
-                 (i == 0 || !Character.isDigit(expression.charAt(i-1))) && // Heuristic start of fraction
-                 (i > 0 && !isOperatorOrParen(expression.charAt(i-1))) 
-                )
-               ) {
-                currentToken.append(c);
-            } else if (c == 'E' || c == 'e') {
-                if (currentToken.length() > 0 && (Character.isDigit(currentToken.charAt(currentToken.length() -1)) || currentToken.charAt(currentToken.length() -1) == '.' )) {
-                    currentToken.append(c);
-                    if (i + 1 < expression.length() && (expression.charAt(i+1) == '+' || expression.charAt(i+1) == '-')) {
-                        currentToken.append(expression.charAt(++i));
+    public Object evaluateComplex(ExpressionTree tree, String angleUnit) throws IllegalArgumentException {
+        ComplexExpression compiled = ComplexExpression.compile(tree, angleUnit, new String[0]);
+        double[] value = new double[2];
+        compiled.evaluate(new double[0], new double[0], value);
+        double re = value[0], im = value[1];
+        if (Double.isNaN(re) || Double.isNaN(im)) throw new ArithmeticException("Undefined result");
+        double noise = Math.hypot(re, im) * 0x1p-50;
+        if (Math.abs(re) < noise) re = 0;
+        if (Math.abs(im) < noise) im = 0;
+        if (im == 0) return re + 0.0; // no -0
+        return new Complex(re + 0.0, im);
+    }
+
+    public static boolean isFunction(String name) {
+        return FUNCTIONS.containsKey(name.toLowerCase());
+    }
+
+    // rand() and randn(): a new random value on every evaluation
+    public static boolean isRandom(String name) {
+        return name.equalsIgnoreCase("rand") || name.equalsIgnoreCase("randn");
+    }
+
+    // sum(...) and prod(...): the body is evaluated for a range of an index variable
+    public static boolean isReduction(String name) {
+        return name.equalsIgnoreCase("sum") || name.equalsIgnoreCase("prod");
+    }
+
+    // transpose, det, inv and solve take matrices rather than numbers
+    public static boolean isMatrixFunction(String name) {
+        String n = name.toLowerCase();
+        return n.equals("transpose") || n.equals("det") || n.equals("inv") || n.equals("solve");
+    }
+
+    // gcd, lcm, mod, modpow, isprime, nextprime, primepi, factor, phi, nCr, nPr, n! and n!!
+    // work on exact integers (see NumberTheory and Factorials)
+    public static boolean isNumberTheoryFunction(String name) {
+        switch (name.toLowerCase()) {
+            case "gcd": case "lcm": case "mod": case "modpow": case "isprime": case "nextprime":
+            case "primepi": case "factor": case "phi": case "ncr": case "npr":
+            case "factorial": case "doublefactorial":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    // Values are Fraction (exact, in fraction mode), Double or Matrix, BigInteger for
+    // integers past 2^53 from the number-theory functions, and BigDecimal for the
+    // approximations of decimal mode that are beyond the range of a double, such as 1000000!
+    private Object evaluateNode(ExpressionTree tree, int node, boolean preferFractionResult, String angleUnit) {
+        switch (tree.kind(node)) {
+            case ExpressionTree.NUMBER: {
+                String literal = tree.literal(node);
+                if (preferFractionResult && isIntegerLiteral(literal)) {
+                    try {
+                        return new Fraction(Long.parseLong(literal));
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("Invalid number/fraction: " + literal, e);
                     }
-                } else {
-                    if (currentToken.length() > 0) tokens.add(currentToken.toString());
-                    currentToken.setLength(0);
-                    tokens.add("e");
                 }
-            } else if (Character.isLetter(c)) {
-                if (currentToken.length() > 0 && !Character.isLetter(currentToken.charAt(currentToken.length() - 1))) {
-                    tokens.add(currentToken.toString());
-                    currentToken.setLength(0);
+                return tree.number(node);
+            }
+            case ExpressionTree.IDENTIFIER: {
+                String name = tree.name(node);
+                Object bound = bindings.get(name);
+                if (bound != null) return bound;
+                if (name.equalsIgnoreCase("pi") || name.equals("π")) return Math.PI;
+                if (name.equalsIgnoreCase("e")) return Math.E;
+                throw tree.error(node, "Unknown variable '" + name + "'");
+            }
+            case ExpressionTree.NEGATE: {
+                Object operandObj = evaluateNode(tree, tree.firstChild(node), preferFractionResult, angleUnit);
+                if (operandObj instanceof Matrix) return ((Matrix) operandObj).negate();
+                if (operandObj instanceof BigInteger) return ((BigInteger) operandObj).negate();
+                if (operandObj instanceof BigDecimal) return ((BigDecimal) operandObj).negate();
+                if (operandObj instanceof Fraction && preferFractionResult) {
+                    Fraction f = (Fraction) operandObj;
+                    return new Fraction(-f.getNumerator(), f.getDenominator());
                 }
-                currentToken.append(c);
-            } else {
-                if (currentToken.length() > 0) {
-                    tokens.add(currentToken.toString());
-                    currentToken.setLength(0);
+                return -convertToDouble(operandObj);
+            }
+            case ExpressionTree.ADD: case ExpressionTree.SUBTRACT: case ExpressionTree.MULTIPLY:
+            case ExpressionTree.DIVIDE: case ExpressionTree.POWER: {
+                Object aObj = evaluateNode(tree, tree.left(node), preferFractionResult, angleUnit);
+                Object bObj = evaluateNode(tree, tree.right(node), preferFractionResult, angleUnit);
+                return applyOperator(operatorSymbol(tree.kind(node)), aObj, bObj, preferFractionResult);
+            }
+            case ExpressionTree.CALL: {
+                String name = tree.name(node);
+                Integer arity = FUNCTIONS.get(name);
+                if (arity == null) throw tree.error(node, "Unknown function: " + name);
+                if (tree.childCount(node) != arity) throw tree.error(node, name + " expects " + arity + " argument(s)");
+                if (isReduction(name)) return evaluateReduction(tree, node, preferFractionResult, angleUnit);
+                if (isMatrixFunction(name)) return applyMatrixFunction(tree, node, preferFractionResult, angleUnit);
+                if (isNumberTheoryFunction(name)) return applyNumberTheoryFunction(tree, node, preferFractionResult, angleUnit);
+                if (arity == 0) {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    return name.equals("rand") ? random.nextDouble() : random.nextGaussian();
                 }
-                tokens.add(String.valueOf(c));
+                Object operandObj = evaluateNode(tree, tree.firstChild(node), preferFractionResult, angleUnit);
+                return applyFunction(name, convertToDouble(operandObj), angleUnit);
+            }
+            case ExpressionTree.EQUATION:
+                throw tree.error(node, "Unexpected '=' in numerical expression");
+            case ExpressionTree.LIST:
+                return evaluateMatrix(tree, node, preferFractionResult, angleUnit);
+            default:
+                throw tree.error(node, "Unsupported expression");
+        }
+    }
+
+    // [a, b, c] is a 1×3 row vector; [[a, b], [c, d]] lists the rows of a 2×2 matrix
+    private Matrix evaluateMatrix(ExpressionTree tree, int node, boolean preferFractionResult, String angleUnit) {
+        int first = tree.firstChild(node);
+        boolean nested = tree.kind(first) == ExpressionTree.LIST;
+        int rows = nested ? tree.childCount(node) : 1;
+        int cols = nested ? tree.childCount(first) : tree.childCount(node);
+        double[] entries = new double[rows * cols];
+        int r = 0;
+        for (int row = nested ? first : node; row >= 0; row = nested ? tree.nextSibling(row) : -1, r++) {
+            if (nested && tree.kind(row) != ExpressionTree.LIST) throw tree.error(row, "Every row of a matrix must be a list");
+            if (tree.childCount(row) != cols) {
+                throw tree.error(row, "Row " + (r + 1) + " has " + tree.childCount(row) + " entries, expected " + cols);
+            }
+            int c = 0;
+            for (int entry = tree.firstChild(row); entry >= 0; entry = tree.nextSibling(entry), c++) {
+                if (tree.kind(entry) == ExpressionTree.LIST) throw tree.error(entry, "Matrices cannot be nested more than two levels deep");
+                entries[r * cols + c] = convertToDouble(evaluateNode(tree, entry, preferFractionResult, angleUnit));
+            }
+        }
+        return Matrix.of(rows, cols, entries);
+    }
+
+    private Object applyMatrixFunction(ExpressionTree tree, int node, boolean preferFractionResult, String angleUnit) {
+        String name = tree.name(node);
+        int argument = tree.firstChild(node);
+        Matrix a = matrixArgument(tree, argument, name, preferFractionResult, angleUnit);
+        switch (name) {
+            case "transpose": return a.transpose();
+            case "det": return a.determinant();
+            case "inv": return a.inverse();
+            default: return a.solve(matrixArgument(tree, tree.nextSibling(argument), name, preferFractionResult, angleUnit));
+        }
+    }
+
+    private Matrix matrixArgument(ExpressionTree tree, int node, String function, boolean preferFractionResult, String angleUnit) {
+        Object value = evaluateNode(tree, node, preferFractionResult, angleUnit);
+        if (!(value instanceof Matrix)) throw tree.error(node, function + " expects a matrix");
+        return (Matrix) value;
+    }
+
+    // Sums and differences of equal shapes, products by conformable matrices or scalars,
+    // division by a scalar and integer powers of square matrices
+    private Matrix applyMatrixOperator(String op, Object aObj, Object bObj) {
+        if (aObj instanceof Matrix && bObj instanceof Matrix) {
+            Matrix a = (Matrix) aObj, b = (Matrix) bObj;
+            switch (op) {
+                case "+": return a.add(b);
+                case "-": return a.subtract(b);
+                case "*": return a.multiply(b);
+                case "/": throw new IllegalArgumentException("Matrix division is not defined; use inv() or solve()");
+                default: throw new IllegalArgumentException("Exponent must be a number, found a matrix");
+            }
+        }
+        if (aObj instanceof Matrix) {
+            Matrix a = (Matrix) aObj;
+            double b = convertToDouble(bObj);
+            switch (op) {
+                case "*": return a.scale(b);
+                case "/":
+                    if (b == 0) throw new ArithmeticException("Div by zero");
+                    return a.scale(1 / b);
+                case "^":
+                    if (b != Math.rint(b) || Math.abs(b) > Integer.MAX_VALUE) {
+                        throw new IllegalArgumentException("Matrix powers need an integer exponent");
+                    }
+                    return a.power((int) b);
+                default: throw new IllegalArgumentException("Cannot " + (op.equals("+") ? "add a number to" : "subtract a number from") + " a matrix");
+            }
+        }
+        Matrix b = (Matrix) bObj;
+        if (op.equals("*")) return b.scale(convertToDouble(aObj));
+        throw new IllegalArgumentException("Cannot apply '" + op + "' to a number and a matrix");
+    }
+
+    // Arguments are read as exact integers, so nextprime(10^18) sees 10^18 and not the
+    // nearest double. mod and factorial also take real arguments.
+    private Object applyNumberTheoryFunction(ExpressionTree tree, int node, boolean preferFractionResult, String angleUnit) {
+        String name = tree.name(node);
+        int first = tree.firstChild(node);
+        int second = tree.nextSibling(first);
+        if (name.equals("factorial")) {
+            BigInteger n = exactInteger(tree, first, preferFractionResult, angleUnit);
+            if (n == null) return gammaResult(convertToDouble(evaluateNode(tree, first, preferFractionResult, angleUnit)) + 1, preferFractionResult);
+            if (n.signum() < 0) throw new ArithmeticException("Factorial of a negative integer");
+            double ln = Factorials.lgamma(n.doubleValue() + 1);
+            return combinatorialResult(ln, 4 * Math.ulp(ln), () -> Factorials.factorial(n.longValue()), preferFractionResult);
+        }
+        if (name.equals("mod")) {
+            BigInteger a = exactInteger(tree, first, preferFractionResult, angleUnit);
+            BigInteger m = a == null ? null : exactInteger(tree, second, preferFractionResult, angleUnit);
+            if (m != null) return integerResult(NumberTheory.mod(a, m), preferFractionResult);
+            double x = convertToDouble(evaluateNode(tree, first, preferFractionResult, angleUnit));
+            return NumberTheory.mod(x, convertToDouble(evaluateNode(tree, second, preferFractionResult, angleUnit)));
+        }
+        BigInteger a = integerArgument(tree, first, name, preferFractionResult, angleUnit);
+        BigInteger b = second < 0 ? null : integerArgument(tree, second, name, preferFractionResult, angleUnit);
+        switch (name) {
+            case "gcd": return integerResult(a.gcd(b), preferFractionResult);
+            case "lcm": return integerResult(NumberTheory.lcm(a, b), preferFractionResult);
+            case "modpow": {
+                BigInteger m = integerArgument(tree, tree.nextSibling(second), name, preferFractionResult, angleUnit);
+                return integerResult(NumberTheory.modPow(a, b, m), preferFractionResult);
+            }
+            case "isprime": return integerResult(NumberTheory.isPrime(a) ? BigInteger.ONE : BigInteger.ZERO, preferFractionResult);
+            case "nextprime": return integerResult(NumberTheory.nextPrime(a), preferFractionResult);
+            case "primepi":
+                if (a.bitLength() > 62) throw tree.error(node, "primepi is limited to n <= 10^12");
+                return integerResult(BigInteger.valueOf(PrimeSieve.count(a.longValue())), preferFractionResult);
+            case "factor": return NumberTheory.factor(a);
+            case "phi": return integerResult(NumberTheory.phi(a), preferFractionResult);
+            case "doublefactorial": {
+                if (a.bitLength() > 62) throw tree.error(node, "doublefactorial argument is too large");
+                long n = a.longValue(), m = n / 2;
+                if (n < -1) throw new ArithmeticException("Double factorial below -1");
+                double lnFactorial = Factorials.lgamma(n + 1.0);
+                double ln = n < 2 ? 0 : (n & 1) == 0 ? m * Factorials.LN2 + Factorials.lgamma(m + 1.0)
+                                                     : lnFactorial - m * Factorials.LN2 - Factorials.lgamma(m + 1.0);
+                return combinatorialResult(ln, 4 * Math.ulp(lnFactorial), () -> Factorials.doubleFactorial(n), preferFractionResult);
             }
+            default: { // ncr, npr
+                if (a.bitLength() > 62 || b.bitLength() > 62) throw tree.error(node, name + " arguments are too large");
+                long n = a.longValue(), k = b.longValue();
+                boolean combinations = name.equals("ncr");
+                if (n < 0) throw new ArithmeticException(combinations ? "nCr needs n >= 0" : "nPr needs n >= 0");
+                if (k < 0 || k > n) return integerResult(BigInteger.ZERO, preferFractionResult);
+                double lnFactorial = Factorials.lgamma(n + 1.0);
+                double ln = lnFactorial - Factorials.lgamma(n - k + 1.0) - (combinations ? Factorials.lgamma(k + 1.0) : 0);
+                return combinatorialResult(ln, 4 * Math.ulp(lnFactorial),
+                        () -> combinations ? Factorials.binomial(n, k) : Factorials.permutations(n, k), preferFractionResult);
+            }
+        }
+    }
+
+    // n!, n!!, nCr and nPr are exact up to MAX_INTEGER_BITS. Past that, decimal mode gets the
+    // leading digits from lgamma (ln is the natural logarithm of the result and lnError its
+    // uncertainty) and fraction mode an error.
+    private static Object combinatorialResult(double ln, double lnError, Supplier<BigInteger> exact, boolean preferFractionResult) {
+        if (ln / Factorials.LN2 <= MAX_INTEGER_BITS) return integerResult(exact.get(), preferFractionResult);
+        if (preferFractionResult) throw new ArithmeticException("Too large for exact arithmetic");
+        return Factorials.approximate(ln, lnError);
+    }
+
+    // x! = Γ(x + 1) for a non-integer x
+    private static Object gammaResult(double x, boolean preferFractionResult) {
+        double g = Factorials.gamma(x);
+        if (Double.isNaN(g)) throw new ArithmeticException("Undefined result");
+        if (!Double.isInfinite(g)) return g;
+        if (preferFractionResult) throw new ArithmeticException("Too large for exact arithmetic");
+        double ln = Factorials.lgamma(x);
+        return Factorials.approximate(ln, 4 * Math.ulp(ln));
+    }
+
+    private BigInteger integerArgument(ExpressionTree tree, int node, String function, boolean preferFractionResult, String angleUnit) {
+        BigInteger value = exactInteger(tree, node, preferFractionResult, angleUnit);
+        if (value == null) throw tree.error(node, function + " expects integer arguments");
+        return value;
+    }
+
+    // The exact value of an integer expression such as 10^18 + 9, which double arithmetic
+    // would round, or null if some part of it is not an integer
+    private BigInteger exactInteger(ExpressionTree tree, int node, boolean preferFractionResult, String angleUnit) {
+        switch (tree.kind(node)) {
+            case ExpressionTree.NUMBER: {
+                String literal = tree.literal(node);
+                return isIntegerLiteral(literal) ? new BigInteger(literal) : integerValue(tree.number(node));
+            }
+            case ExpressionTree.NEGATE: {
+                BigInteger a = exactInteger(tree, tree.firstChild(node), preferFractionResult, angleUnit);
+                return a == null ? null : a.negate();
+            }
+            case ExpressionTree.ADD: case ExpressionTree.SUBTRACT: case ExpressionTree.MULTIPLY:
+            case ExpressionTree.DIVIDE: case ExpressionTree.POWER: {
+                BigInteger a = exactInteger(tree, tree.left(node), preferFractionResult, angleUnit);
+                BigInteger b = a == null ? null : exactInteger(tree, tree.right(node), preferFractionResult, angleUnit);
+                return b == null ? null : integerOperation(operatorSymbol(tree.kind(node)), a, b);
+            }
+            default:
+                return integerValue(evaluateNode(tree, node, preferFractionResult, angleUnit));
+        }
+    }
+
+    // a op b when the result is an integer, otherwise null
+    private static BigInteger integerOperation(String op, BigInteger a, BigInteger b) {
+        switch (op) {
+            case "+": return a.add(b);
+            case "-": return a.subtract(b);
+            case "*": return a.multiply(b);
+            case "/": {
+                if (b.signum() == 0) throw new ArithmeticException("Div by zero");
+                BigInteger[] qr = a.divideAndRemainder(b);
+                return qr[1].signum() == 0 ? qr[0] : null;
+            }
+            default: {
+                if (b.signum() < 0 || b.bitLength() > 31) return null;
+                if ((long) a.bitLength() * b.intValue() > MAX_INTEGER_BITS) throw new ArithmeticException("Result too large");
+                return a.pow(b.intValue());
+            }
+        }
+    }
+
+    private static BigInteger integerValue(Object value) {
+        if (value instanceof BigInteger) return (BigInteger) value;
+        if (value instanceof NumberTheory.Factorization) return ((NumberTheory.Factorization) value).value();
+        if (value instanceof Fraction) {
+            Fraction f = (Fraction) value;
+            return f.getDenominator() == 1 ? BigInteger.valueOf(f.getNumerator()) : null;
+        }
+        if (value instanceof Double) {
+            double d = (Double) value;
+            return d == Math.rint(d) && !Double.isInfinite(d) ? new BigDecimal(d).toBigInteger() : null;
+        }
+        return null;
+    }
+
+    // Integers that a double holds exactly become the usual Fraction or Double
+    private static Object integerResult(BigInteger value, boolean preferFractionResult) {
+        if (value.bitLength() > 53) return value;
+        return preferFractionResult ? new Fraction(value.longValue()) : (Object) value.doubleValue();
+    }
+
+    // sum(body, k, a, b) or prod(body, k, a, b) for integers a <= k <= b. Polynomial sums use
+    // closed forms, fraction mode is exact for rational bodies and moderate ranges, and the
+    // rest runs compiled and in parallel (see Summation). Bodies that cannot be compiled,
+    // such as nested sums, are interpreted with the index bound.
+    private Object evaluateReduction(ExpressionTree tree, int node, boolean preferFractionResult, String angleUnit) {
+        boolean product = tree.name(node).equals("prod");
+        int body = tree.firstChild(node);
+        int indexNode = tree.nextSibling(body);
+        if (tree.kind(indexNode) != ExpressionTree.IDENTIFIER || CompiledExpression.isNamedConstant(tree.name(indexNode))) {
+            throw tree.error(indexNode, tree.name(node) + " expects an index variable as its second argument");
+        }
+        String index = tree.name(indexNode);
+        long from = integerBound(tree, tree.nextSibling(indexNode), preferFractionResult, angleUnit);
+        long to = integerBound(tree, tree.nextSibling(tree.nextSibling(indexNode)), preferFractionResult, angleUnit);
+        if (to < from) return preferFractionResult ? new Fraction(product ? 1 : 0) : (product ? 1.0 : 0.0);
+        long terms = to - from + 1;
+
+        Function<String, BigFraction> constants = name -> exactConstant(name, index, preferFractionResult);
+        if (!product) {
+            RationalPolynomial p = Summation.toPolynomial(tree, body, index, constants);
+            if (p != null) return narrow(Summation.polynomialSum(p, from, to), preferFractionResult);
         }
-        if (currentToken.length() > 0) {
-            tokens.add(currentToken.toString());
+        if (preferFractionResult && terms <= Summation.EXACT_TERM_LIMIT) {
+            BigFraction exact = Summation.exactReduce(tree, body, index, from, to, constants, product);
+            if (exact != null) return narrow(exact, preferFractionResult);
         }
-        return preprocessTokensForUnary(tokens);
-    }
-    private boolean isOperatorOrParen(char c) { return PRECEDENCE.containsKey(String.valueOf(c)) || c == '(' || c == ')'; }
-    private List<String> preprocessTokensForUnary(List<String> rawTokens) {
-        List<String> processed = new ArrayList<>();
-        for (int i = 0; i < rawTokens.size(); i++) {
-            String token = rawTokens.get(i);
-            if (token.equals("-")) {
-                boolean isUnary = (i == 0) || (isOperator(rawTokens.get(i-1)) && !rawTokens.get(i-1).equals(")")) || (rawTokens.get(i-1).equals("("));
-                if (isUnary) {
-                    if (i+1 < rawTokens.size() && (isPotentiallyNumericOrFraction(rawTokens.get(i+1)) || rawTokens.get(i+1).equals("pi") || rawTokens.get(i+1).equals("e"))) {
-                        processed.add("-" + rawTokens.get(i+1)); i++;
-                    } else { processed.add("~"); }
-                } else { processed.add("-"); }
-            } else { processed.add(token); }
+
+        List<String> names = new ArrayList<>();
+        names.add(index);
+        for (String name : bindings.keySet()) if (!name.equals(index)) names.add(name);
+        CompiledExpression compiled = null;
+        try {
+            compiled = CompiledExpression.compile(tree, body, angleUnit, names.toArray(new String[0]));
+        } catch (IllegalArgumentException e) {
+            // e.g. a nested sum; interpreted below, which also reports real errors
+        }
+        if (compiled != null) {
+            double[] point = new double[names.size()];
+            for (int i = 1; i < point.length; i++) point[i] = convertToDouble(bindings.get(names.get(i)));
+            return product ? Summation.parallelProduct(compiled, point, from, to) : Summation.parallelSum(compiled, point, from, to);
         }
-        return processed;
-    }
-    private boolean isPotentiallyNumericOrFraction(String token) {
-        if (token == null || token.isEmpty()) return false;
-        return Character.isDigit(token.charAt(0)) || (token.startsWith("-") && token.length() > 1 && Character.isDigit(token.charAt(1))) || token.contains("/");
-    }
-    private List<String> infixToPostfix(List<String> tokens) {
-        List<String> postfix = new ArrayList<>(); Stack<String> operatorStack = new Stack<>();
-        for (String token : tokens) {
-            if (isOperandToken(token)) { postfix.add(token);
-            } else if (FUNCTIONS.containsKey(token.toLowerCase())) { operatorStack.push(token.toLowerCase());
-            } else if (token.equals("(")) { operatorStack.push(token);
-            } else if (token.equals(")")) {
-                while (!operatorStack.isEmpty() && !operatorStack.peek().equals("(")) postfix.add(operatorStack.pop());
-                if (operatorStack.isEmpty()) throw new IllegalArgumentException("Mismatched parentheses: ')'");
-                operatorStack.pop(); 
-                if (!operatorStack.isEmpty() && FUNCTIONS.containsKey(operatorStack.peek().toLowerCase())) postfix.add(operatorStack.pop());
-            } else if (isOperator(token) || token.equals("~")) {
-                while (!operatorStack.isEmpty() && !operatorStack.peek().equals("(") &&
-                       ((FUNCTIONS.containsKey(operatorStack.peek().toLowerCase())) ||
-                        (isOperator(operatorStack.peek()) && getPrecedence(operatorStack.peek()) > getPrecedence(token)) ||
-                        (isOperator(operatorStack.peek()) && getPrecedence(operatorStack.peek()) == getPrecedence(token) && !token.equals("^")))) {
-                    postfix.add(operatorStack.pop());
+
+        if (terms > INTERPRETED_TERM_LIMIT) throw tree.error(node, "Too many terms for this body: " + terms);
+        Object previous = bindings.get(index);
+        try {
+            double result = product ? 1 : 0, compensation = 0;
+            for (long k = from; k <= to; k++) {
+                bindings.put(index, preferFractionResult ? new Fraction(k) : (Object) (double) k);
+                double v = convertToDouble(evaluateNode(tree, body, preferFractionResult, angleUnit));
+                if (product) {
+                    result *= v;
+                } else {
+                    double t = result + v; // Neumaier summation
+                    compensation += Math.abs(result) >= Math.abs(v) ? (result - t) + v : (v - t) + result;
+                    result = t;
                 }
-                operatorStack.push(token);
-            } else { throw new IllegalArgumentException("Invalid token: " + token); }
+            }
+            return result + compensation;
+        } finally {
+            if (previous != null) bindings.put(index, previous); else bindings.remove(index);
         }
-        while (!operatorStack.isEmpty()) {
-            String op = operatorStack.pop();
-            if (op.equals("(")) throw new IllegalArgumentException("Mismatched parentheses: '('");
-            postfix.add(op);
+    }
+
+    private long integerBound(ExpressionTree tree, int node, boolean preferFractionResult, String angleUnit) {
+        double v = convertToDouble(evaluateNode(tree, node, preferFractionResult, angleUnit));
+        if (v != Math.rint(v) || Math.abs(v) > MAX_EXACT_INTEGER) throw tree.error(node, "Summation bounds must be integers");
+        return (long) v;
+    }
+
+    // Exact value of a name inside a sum body other than the index, or null if it is not a
+    // known constant. Irrational constants only count in decimal mode.
+    private BigFraction exactConstant(String name, String index, boolean preferFractionResult) {
+        if (name.equals(index)) return null;
+        Object bound = bindings.get(name);
+        if (bound instanceof Fraction) return BigFraction.valueOf((Fraction) bound);
+        if (preferFractionResult) return null;
+        if (bound != null) return BigFraction.valueOf(convertToDouble(bound));
+        if (name.equalsIgnoreCase("pi") || name.equals("π")) return BigFraction.valueOf(Math.PI);
+        if (name.equalsIgnoreCase("e")) return BigFraction.valueOf(Math.E);
+        return null;
+    }
+
+    // Exact results stay fractions when they fit the long-based Fraction
+    private static Object narrow(BigFraction value, boolean preferFractionResult) {
+        if (preferFractionResult) {
+            try {
+                return value.toFraction();
+            } catch (ArithmeticException e) {
+                // too large; fall back to the nearest double
+            }
         }
-        return postfix;
-    }
-
-
-    // Updated evaluatePostfix to accept angleUnit
-    private Object evaluatePostfix(List<String> postfixTokens, boolean preferFractionResult, String angleUnit) {
-        Stack<Object> operandStack = new Stack<>();
-        for (String token : postfixTokens) {
-            // ... (operand parsing logic for pi, e, fractions, doubles as before)
-            if (token.equalsIgnoreCase("pi")) { operandStack.push(Math.PI);
-            } else if (token.equalsIgnoreCase("e")) { operandStack.push(Math.E);
-            } else if (isOperandToken(token)) {
-                try {
-                    if (token.matches("-?\\d+/-?\\d+")) { operandStack.push(Fraction.parseFraction(token));
-                    } else if (token.matches("-?\\d+") && preferFractionResult && !token.contains(".")) { // Integer string
-                        operandStack.push(new Fraction(Long.parseLong(token)));
-                    } else { operandStack.push(Double.parseDouble(token));}
-                } catch (NumberFormatException e) { throw new IllegalArgumentException("Invalid number/fraction: " + token, e); }
-            } else if (FUNCTIONS.containsKey(token.toLowerCase())) {
-                if (operandStack.isEmpty()) throw new IllegalArgumentException("Operand missing for " + token);
-                Object operandObj = operandStack.pop();
-                double operandVal = convertToDouble(operandObj);
-                operandStack.push(applyFunction(token.toLowerCase(), operandVal, angleUnit)); // Pass angleUnit
-            } else if (token.equals("~")) {
-                if (operandStack.isEmpty()) throw new IllegalArgumentException("Operand missing for unary minus");
-                Object operandObj = operandStack.pop();
-                if (operandObj instanceof Fraction && preferFractionResult) {
-                    Fraction f = (Fraction) operandObj; operandStack.push(new Fraction(-f.getNumerator(), f.getDenominator()));
-                } else { operandStack.push(-convertToDouble(operandObj)); }
-            } else if (isOperator(token)) {
-                if (operandStack.size() < 2) throw new IllegalArgumentException("Operands missing for " + token);
-                Object bObj = operandStack.pop(); Object aObj = operandStack.pop();
-                operandStack.push(applyOperator(token, aObj, bObj, preferFractionResult));
-            } else { throw new IllegalArgumentException("Unknown RPN token: " + token); }
+        return value.toDouble();
+    }
+
+    private static boolean isIntegerLiteral(String literal) {
+        for (int i = 0; i < literal.length(); i++) {
+            if (!Character.isDigit(literal.charAt(i))) return false;
         }
-        if (operandStack.size() != 1) throw new IllegalArgumentException("Invalid RPN. Stack: " + operandStack.size());
-        Object finalResult = operandStack.pop();
-        if (!preferFractionResult && finalResult instanceof Fraction) return ((Fraction) finalResult).toDouble();
-        return finalResult;
+        return true;
     }
 
-    // Updated applyFunction to accept angleUnit
-    private double applyFunction(String funcName, double operand, String angleUnit) {
-        double processedOperand = operand;
-        if (SettingsManager.ANGLE_UNIT_DEGREES.equals(angleUnit) && (funcName.equals("sin") || funcName.equals("cos") || funcName.equals("tan"))) {
-            processedOperand = Math.toRadians(operand);
+    private static String operatorSymbol(int kind) {
+        switch (kind) {
+            case ExpressionTree.ADD: return "+";
+            case ExpressionTree.SUBTRACT: return "-";
+            case ExpressionTree.MULTIPLY: return "*";
+            case ExpressionTree.DIVIDE: return "/";
+            default: return "^";
         }
-        // If angleUnit is radians, no conversion needed for Math.sin/cos/tan input
+    }
 
+    // In degrees, sin, cos and tan use the exact degree kernels (sin(180) = 0, tan(45) = 1)
+    private double applyFunction(String funcName, double operand, String angleUnit) {
         switch (funcName) {
-            case "sin": return Math.sin(processedOperand);
-            case "cos": return Math.cos(processedOperand);
+            case "sin": return isDegrees(angleUnit) ? DegreeTrig.sind(operand) : Math.sin(operand);
+            case "cos": return isDegrees(angleUnit) ? DegreeTrig.cosd(operand) : Math.cos(operand);
             case "tan":
-                // Check for undefined cases based on the *original* operand if it was in degrees
-                if (SettingsManager.ANGLE_UNIT_DEGREES.equals(angleUnit) && Math.abs(operand % 180) == 90) {
-                     throw new ArithmeticException("Tan undefined for " + operand + " deg");
+                if (isDegrees(angleUnit)) {
+                    double t = DegreeTrig.tand(operand);
+                    if (Double.isNaN(t)) throw new ArithmeticException("Tan undefined for " + operand + " deg");
+                    return t;
                 }
                 // For radians, tan is undefined at pi/2 + n*pi.
-                // cos(processedOperand) being close to 0 indicates this.
-                if (Math.abs(Math.cos(processedOperand)) < 1e-12) { // Check if cos is near zero
+                // cos(operand) being close to 0 indicates this.
+                if (Math.abs(Math.cos(operand)) < 1e-12) { // Check if cos is near zero
                     throw new ArithmeticException("Tan undefined (close to pi/2 + n*pi rad)");
                 }
-                return Math.tan(processedOperand);
+                return Math.tan(operand);
             case "log":
                 if (operand <= 0) throw new ArithmeticException("Log domain error");
                 return Math.log10(operand);
@@ -212,11 +553,18 @@ public class ExpressionEvaluator {
         }
     }
 
-    // ... (convertToDouble, convertToFraction, applyOperator, isOperandToken, isOperator, getPrecedence, doubleToFraction remain mostly the same)
-    // Ensure applyOperator handles preferFractionResult for its return type.
+    private static boolean isDegrees(String angleUnit) {
+        return SettingsManager.ANGLE_UNIT_DEGREES.equals(angleUnit);
+    }
+
+    // applyOperator respects preferFractionResult for its return type.
     private double convertToDouble(Object obj) { /* same as before */ 
         if (obj instanceof Fraction) return ((Fraction) obj).toDouble();
         if (obj instanceof Double) return (Double) obj;
+        if (obj instanceof BigInteger) return ((BigInteger) obj).doubleValue();
+        if (obj instanceof BigDecimal) return ((BigDecimal) obj).doubleValue();
+        if (obj instanceof NumberTheory.Factorization) return ((NumberTheory.Factorization) obj).value().doubleValue();
+        if (obj instanceof Matrix) throw new IllegalArgumentException("Expected a number, found a matrix");
         throw new IllegalArgumentException("Cannot convert to double: " + obj.getClass());
     }
     public static Fraction doubleToFraction(double d, long maxDenominator) { /* same as before */
@@ -232,12 +580,56 @@ public class ExpressionEvaluator {
         }
         return new Fraction(bestNum, bestDen);
     }
+    // An integer in full when it has at most maxDigits digits, otherwise its leading and
+    // trailing digits and the digit count, "4023872600770937…0000 (2568 digits)". Only the
+    // ends are converted: the leading digits and the count come from the top 128 bits,
+    // scaled by a power of two in 60-digit decimal arithmetic, so a million-digit integer
+    // costs a fraction of a millisecond instead of a full toString.
+    public static String formatInteger(BigInteger value, int maxDigits) {
+        BigInteger abs = value.abs();
+        if (abs.bitLength() <= maxDigits * 3.32) return value.toString(); // fewer than maxDigits digits
+        int shift = Math.max(0, abs.bitLength() - 128);
+        BigInteger top = abs.shiftRight(shift);
+        MathContext context = new MathContext(60);
+        BigDecimal scale = new BigDecimal(2).pow(shift, context);
+        BigDecimal slack = BigDecimal.ONE.movePointLeft(50);
+        // abs lies in [top, top + 1) · 2^shift; widened for the rounding of the scale
+        BigDecimal low = new BigDecimal(top).multiply(scale, context).multiply(BigDecimal.ONE.subtract(slack), context);
+        BigDecimal high = new BigDecimal(top.add(BigInteger.ONE)).multiply(scale, context).multiply(BigDecimal.ONE.add(slack), context);
+        int digits = low.precision() - low.scale();
+        int leading = maxDigits * 2 / 3, trailing = maxDigits - leading - 4;
+        BigInteger head = low.movePointLeft(digits - leading).setScale(0, RoundingMode.FLOOR).toBigInteger();
+        if (high.precision() - high.scale() != digits
+                || !head.equals(high.movePointLeft(digits - leading).setScale(0, RoundingMode.FLOOR).toBigInteger())) {
+            String text = abs.toString(); // next to a power of ten: rare, and exact
+            digits = text.length();
+            head = new BigInteger(text.substring(0, leading));
+        }
+        String tail = abs.mod(BigInteger.TEN.pow(trailing)).toString();
+        while (tail.length() < trailing) tail = "0" + tail;
+        return (value.signum() < 0 ? "-" : "") + head + "…" + tail + " (" + digits + " digits)";
+    }
+
     private Fraction convertToFraction(Object obj) { /* same as before */
         if (obj instanceof Fraction) return (Fraction) obj;
         if (obj instanceof Double) return doubleToFraction((Double) obj, 1000000);
+        if (obj instanceof Matrix) throw new IllegalArgumentException("Expected a number, found a matrix");
         throw new IllegalArgumentException("Cannot convert to fraction: " + obj.getClass());
     }
+    private static boolean isBigInteger(Object value) {
+        return value instanceof BigInteger || value instanceof NumberTheory.Factorization;
+    }
+
     private Object applyOperator(String op, Object aObj, Object bObj, boolean preferFractionResult) { /* same as before (respects preferFractionResult) */
+        if (aObj instanceof Matrix || bObj instanceof Matrix) return applyMatrixOperator(op, aObj, bObj);
+        if (isBigInteger(aObj) || isBigInteger(bObj)) {
+            // Exact while the result is an integer; otherwise decimal, as a long-based
+            // Fraction cannot hold the operand
+            BigInteger a = integerValue(aObj), b = integerValue(bObj);
+            BigInteger exact = a == null || b == null ? null : integerOperation(op, a, b);
+            if (exact != null) return integerResult(exact, preferFractionResult);
+            preferFractionResult = false;
+        }
          if (preferFractionResult) {
             Fraction fracA = convertToFraction(aObj); Fraction fracB = convertToFraction(bObj);
             switch (op) {
@@ -269,11 +661,4 @@ public class ExpressionEvaluator {
             }
         }
     }
-    private boolean isOperandToken(String token) { /* same as before */
-        if (token == null || token.isEmpty()) return false;
-        if (token.equalsIgnoreCase("pi") || token.equalsIgnoreCase("e")) return true;
-        return token.matches("-?\\d+(\\.\\d+)?([eE][+-]?\\d+)?") || token.matches("-?\\d+/-?\\d+");
-    }
-    private boolean isOperator(String token) { return PRECEDENCE.containsKey(token); }
-    private int getPrecedence(String token) { return PRECEDENCE.getOrDefault(token, 0); }
 }
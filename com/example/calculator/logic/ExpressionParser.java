@@ -0,0 +1,223 @@
+package com.example.calculator.logic;
+
+// The single recursive-descent parser shared by the numeric, symbolic and calculus
+// evaluators. It runs in one left-to-right pass, linear in the input length, and builds
+// an ExpressionTree.
+//
+//   equation := sum ['=' sum]
+//   sum      := product (('+' | '-') product)*
+//   product  := unary (('*' | '/') unary | unary)*     (juxtaposition = implicit '*')
+//   unary    := ('-' | '+') unary | power
+//   power    := postfix ['^' unary]                    (right-associative)
+//   postfix  := primary ('!' | '!!')*                  (factorial, double factorial)
+//   primary  := number | name ['(' [sum (',' sum)*] ')'] | '(' sum ')'
+//             | '[' sum (',' sum)* ']'                 (list; a list of lists is a matrix)
+//
+// Names are a letter followed by letters, digits or '_', so "sin", "pi" and "x1" are
+// single names and "2x(x+1)" reads as 2 * x * (x + 1).
+public final class ExpressionParser {
+    private final String text;
+    private final ExpressionTree tree;
+    private int pos;
+
+    private ExpressionParser(String text) {
+        this.text = text;
+        this.tree = new ExpressionTree(text);
+    }
+
+    public static ExpressionTree parse(String expression) {
+        if (expression == null || expression.trim().isEmpty()) {
+            throw new IllegalArgumentException("Empty expression");
+        }
+        ExpressionParser parser = new ExpressionParser(expression);
+        int root = parser.parseEquation();
+        parser.skipSpaces();
+        if (parser.pos < expression.length()) {
+            char c = expression.charAt(parser.pos);
+            throw new IllegalArgumentException((c == ')' ? "Mismatched parentheses: ')'"
+                                                : c == ']' ? "Mismatched brackets: ']'" : "Unexpected '" + c + "'")
+                                               + " at position " + (parser.pos + 1));
+        }
+        parser.tree.setRoot(root);
+        return parser.tree;
+    }
+
+    private void skipSpaces() {
+        while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) pos++;
+    }
+
+    private boolean accept(char c) {
+        skipSpaces();
+        if (pos < text.length() && text.charAt(pos) == c) {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    private int binary(int kind, int left, int right) {
+        int node = tree.addNode(kind, tree.start(left), tree.end(right));
+        tree.appendChild(node, -1, left);
+        tree.appendChild(node, left, right);
+        return node;
+    }
+
+    private int parseEquation() {
+        int left = parseSum();
+        if (accept('=')) {
+            return binary(ExpressionTree.EQUATION, left, parseSum());
+        }
+        return left;
+    }
+
+    private int parseSum() {
+        int left = parseProduct();
+        while (true) {
+            if (accept('+')) left = binary(ExpressionTree.ADD, left, parseProduct());
+            else if (accept('-')) left = binary(ExpressionTree.SUBTRACT, left, parseProduct());
+            else return left;
+        }
+    }
+
+    private int parseProduct() {
+        int left = parseUnary();
+        while (true) {
+            if (accept('*')) {
+                left = binary(ExpressionTree.MULTIPLY, left, parseUnary());
+            } else if (accept('/')) {
+                left = binary(ExpressionTree.DIVIDE, left, parseUnary());
+            } else if (startsPrimary()) {
+                left = binary(ExpressionTree.MULTIPLY, left, parsePower());
+            } else {
+                return left;
+            }
+        }
+    }
+
+    private boolean startsPrimary() {
+        skipSpaces();
+        if (pos >= text.length()) return false;
+        char c = text.charAt(pos);
+        return Character.isLetterOrDigit(c) || c == '.' || c == '(' || c == '[';
+    }
+
+    private int parseUnary() {
+        skipSpaces();
+        int start = pos;
+        if (accept('-')) {
+            int operand = parseUnary();
+            int node = tree.addNode(ExpressionTree.NEGATE, start, tree.end(operand));
+            tree.appendChild(node, -1, operand);
+            return node;
+        }
+        if (accept('+')) return parseUnary();
+        return parsePower();
+    }
+
+    private int parsePower() {
+        int base = parsePostfix();
+        if (accept('^')) {
+            return binary(ExpressionTree.POWER, base, parseUnary());
+        }
+        return base;
+    }
+
+    // n! and n!! become calls of factorial and doublefactorial, so 2^3! is 2^6 and -3! is -(3!)
+    private int parsePostfix() {
+        int operand = parsePrimary();
+        while (accept('!')) {
+            boolean twice = pos < text.length() && text.charAt(pos) == '!';
+            if (twice) pos++;
+            int call = tree.addNode(ExpressionTree.CALL, tree.start(operand), pos);
+            tree.setName(call, twice ? "doublefactorial" : "factorial");
+            tree.appendChild(call, -1, operand);
+            operand = call;
+        }
+        return operand;
+    }
+
+    private int parsePrimary() {
+        skipSpaces();
+        if (pos >= text.length()) {
+            throw new IllegalArgumentException("Unexpected end of expression at position " + (pos + 1));
+        }
+        int start = pos;
+        char c = text.charAt(pos);
+        if (c == '(') {
+            pos++;
+            int inner = parseSum();
+            if (!accept(')')) throw new IllegalArgumentException("Mismatched parentheses: '(' at position " + (start + 1));
+            return inner;
+        }
+        if (c == '[') {
+            pos++;
+            int list = tree.addNode(ExpressionTree.LIST, start, pos);
+            int previous = -1;
+            do {
+                int element = parseSum();
+                tree.appendChild(list, previous, element);
+                previous = element;
+            } while (accept(','));
+            if (!accept(']')) throw new IllegalArgumentException("Mismatched brackets: '[' at position " + (start + 1));
+            tree.setEnd(list, pos);
+            return list;
+        }
+        if (Character.isDigit(c) || c == '.') {
+            return parseNumber();
+        }
+        if (Character.isLetter(c)) {
+            while (pos < text.length() && (Character.isLetterOrDigit(text.charAt(pos)) || text.charAt(pos) == '_')) pos++;
+            String name = text.substring(start, pos);
+            skipSpaces();
+            if (pos < text.length() && text.charAt(pos) == '(') {
+                pos++;
+                int call = tree.addNode(ExpressionTree.CALL, start, pos);
+                tree.setName(call, name.toLowerCase());
+                int previous = -1;
+                if (!accept(')')) {
+                    do {
+                        int argument = parseSum();
+                        tree.appendChild(call, previous, argument);
+                        previous = argument;
+                    } while (accept(','));
+                    if (!accept(')')) throw new IllegalArgumentException("Mismatched parentheses: '(' at position " + (start + name.length() + 1));
+                }
+                tree.setEnd(call, pos);
+                return call;
+            }
+            int node = tree.addNode(ExpressionTree.IDENTIFIER, start, start + name.length());
+            tree.setName(node, name);
+            return node;
+        }
+        if (c == ')') throw new IllegalArgumentException("Mismatched parentheses: ')' at position " + (pos + 1));
+        if (c == ']') throw new IllegalArgumentException("Mismatched brackets: ']' at position " + (pos + 1));
+        throw new IllegalArgumentException("Unexpected '" + c + "' at position " + (pos + 1));
+    }
+
+    // digits [. digits] [(e|E) [+|-] digits]; an 'e' not followed by digits is left for
+    // the name rule, so "2e" means 2 * e
+    private int parseNumber() {
+        int start = pos;
+        while (pos < text.length() && Character.isDigit(text.charAt(pos))) pos++;
+        if (pos < text.length() && text.charAt(pos) == '.') {
+            pos++;
+            while (pos < text.length() && Character.isDigit(text.charAt(pos))) pos++;
+        }
+        if (pos < text.length() && (text.charAt(pos) == 'e' || text.charAt(pos) == 'E')) {
+            int p = pos + 1;
+            if (p < text.length() && (text.charAt(p) == '+' || text.charAt(p) == '-')) p++;
+            if (p < text.length() && Character.isDigit(text.charAt(p))) {
+                while (p < text.length() && Character.isDigit(text.charAt(p))) p++;
+                pos = p;
+            }
+        }
+        String literal = text.substring(start, pos);
+        int node = tree.addNode(ExpressionTree.NUMBER, start, pos);
+        try {
+            tree.setNumber(node, Double.parseDouble(literal));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number: " + literal + " at position " + (start + 1));
+        }
+        return node;
+    }
+}
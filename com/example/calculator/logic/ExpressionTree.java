@@ -0,0 +1,169 @@
+package com.example.calculator.logic;
+
+import java.util.Arrays;
+
+// Abstract syntax tree produced by ExpressionParser. Nodes live in parallel primitive
+// arrays (an arena) and are referred to by int index; children are linked through
+// firstChild/nextSibling, so calls with any number of arguments need no extra objects.
+// Every node records the source range it was parsed from for error reporting.
+// A tree is immutable once the parser returns it and can be shared between evaluators.
+public final class ExpressionTree {
+    public static final int NUMBER = 0;      // numeric literal; literal() holds the source text
+    public static final int IDENTIFIER = 1;  // variable or constant name
+    public static final int ADD = 2;
+    public static final int SUBTRACT = 3;
+    public static final int MULTIPLY = 4;
+    public static final int DIVIDE = 5;
+    public static final int POWER = 6;
+    public static final int NEGATE = 7;
+    public static final int CALL = 8;        // name(args...)
+    public static final int EQUATION = 9;    // lhs = rhs
+    public static final int LIST = 10;       // [a, b, ...]; a list of lists is a matrix, one list per row
+
+    private final String source;
+    private int size;
+    private int root = -1;
+    private int[] kinds;
+    private int[] firstChild;
+    private int[] nextSibling;
+    private int[] starts;
+    private int[] ends;
+    private double[] numbers;
+    private String[] names;
+
+    ExpressionTree(String source) {
+        this.source = source;
+        int capacity = Math.max(8, source.length());
+        kinds = new int[capacity];
+        firstChild = new int[capacity];
+        nextSibling = new int[capacity];
+        starts = new int[capacity];
+        ends = new int[capacity];
+        numbers = new double[capacity];
+        names = new String[capacity];
+    }
+
+    // --- Construction (parser only) ---
+
+    int addNode(int kind, int start, int end) {
+        if (size == kinds.length) grow();
+        kinds[size] = kind;
+        firstChild[size] = -1;
+        nextSibling[size] = -1;
+        starts[size] = start;
+        ends[size] = end;
+        return size++;
+    }
+
+    void setNumber(int node, double value) {
+        numbers[node] = value;
+    }
+
+    void setName(int node, String name) {
+        names[node] = name;
+    }
+
+    void setEnd(int node, int end) {
+        ends[node] = end;
+    }
+
+    void setRoot(int node) {
+        root = node;
+    }
+
+    // Children are appended in order; the caller passes the previous child (or -1)
+    void appendChild(int parent, int previousChild, int child) {
+        if (previousChild < 0) firstChild[parent] = child;
+        else nextSibling[previousChild] = child;
+    }
+
+    private void grow() {
+        int capacity = kinds.length * 2;
+        kinds = Arrays.copyOf(kinds, capacity);
+        firstChild = Arrays.copyOf(firstChild, capacity);
+        nextSibling = Arrays.copyOf(nextSibling, capacity);
+        starts = Arrays.copyOf(starts, capacity);
+        ends = Arrays.copyOf(ends, capacity);
+        numbers = Arrays.copyOf(numbers, capacity);
+        names = Arrays.copyOf(names, capacity);
+    }
+
+    // --- Access ---
+
+    public String getSource() {
+        return source;
+    }
+
+    public int root() {
+        return root;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int kind(int node) {
+        return kinds[node];
+    }
+
+    public int firstChild(int node) {
+        return firstChild[node];
+    }
+
+    public int nextSibling(int node) {
+        return nextSibling[node];
+    }
+
+    public int left(int node) {
+        return firstChild[node];
+    }
+
+    public int right(int node) {
+        return nextSibling[firstChild[node]];
+    }
+
+    public int childCount(int node) {
+        int count = 0;
+        for (int c = firstChild[node]; c >= 0; c = nextSibling[c]) count++;
+        return count;
+    }
+
+    public double number(int node) {
+        return numbers[node];
+    }
+
+    // Identifier or function name
+    public String name(int node) {
+        return names[node];
+    }
+
+    // Source text of a node, e.g. "2.50" for a literal
+    public String literal(int node) {
+        return source.substring(starts[node], ends[node]);
+    }
+
+    public int start(int node) {
+        return starts[node];
+    }
+
+    public int end(int node) {
+        return ends[node];
+    }
+
+    // True if any identifier below node is something other than the given constants
+    public boolean containsIdentifierOtherThan(int node, String... constants) {
+        if (kinds[node] == IDENTIFIER) {
+            for (String c : constants) if (c.equalsIgnoreCase(names[node])) return false;
+            return true;
+        }
+        for (int c = firstChild[node]; c >= 0; c = nextSibling[c]) {
+            if (containsIdentifierOtherThan(c, constants)) return true;
+        }
+        return false;
+    }
+
+    // Error helper that points at the offending node (1-based column, like the parser)
+    public IllegalArgumentException error(int node, String message) {
+        return new IllegalArgumentException(message + " at position " + (starts[node] + 1));
+    }
+}
@@ -0,0 +1,294 @@
+package com.example.calculator.logic;
+
+// Limits and infinite series of compiled expressions by convergence acceleration: a few
+// dozen evaluations extrapolated to the limit instead of billions of terms.
+//   - Limits x -> a: f is sampled at a + h for h = h0, h0/2, h0/4, ... and the values are
+//     extrapolated to h = 0 with Richardson's table, which removes the error terms c1 h,
+//     c2 h^2, ... one per column. x -> infinity is the same with x = 1/h. If that does not
+//     settle, h is divided by 4 instead, i.e. the table works in sqrt(h), which covers
+//     error terms like sqrt(x) at 0.
+//   - Series: the partial sums go through Levin's u-transform, which also handles
+//     logarithmically convergent series such as sum 1/k^2, and Wynn's epsilon algorithm,
+//     which is best for alternating and geometric-like ones. The estimate whose
+//     successive values agree best wins. Levin's transform cancels heavily and stalls
+//     near 1e-10, so when neither reaches the tolerance the partial sums S_n at
+//     n = 64, 128, ... are also extrapolated to n = infinity with Richardson's table,
+//     which is exact for remainders in powers of 1/n (rational terms).
+// Both stop as soon as two successive estimates agree to the tolerance. Rounding error
+// eventually takes over (small h, high-order Levin), so otherwise the most stable
+// estimate seen is returned, flagged as not converged.
+public final class Extrapolator {
+    public static final double DEFAULT_TOLERANCE = 1e-13;
+    public static final String RICHARDSON = "Richardson extrapolation";
+    public static final String RICHARDSON_SQRT = "Richardson extrapolation in √h";
+    public static final String LEVIN = "Levin u-transform";
+    public static final String WYNN = "Wynn epsilon";
+    public static final String PARTIAL_SUMS = "Richardson on partial sums";
+    private static final int MAX_LEVELS = 24;    // step halvings for limits
+    private static final int MAX_TERMS = 64;     // series terms; beyond this the transforms lose accuracy
+    private static final int MAX_DOUBLINGS = 14; // partial sums up to 64 * 2^14 (about a million) terms
+    private static final double INITIAL_STEP = 0.125;
+
+    private final double tolerance;
+
+    public Extrapolator() {
+        this(DEFAULT_TOLERANCE);
+    }
+
+    public Extrapolator(double tolerance) {
+        if (!(tolerance > 0)) throw new IllegalArgumentException("Tolerance must be positive");
+        this.tolerance = tolerance;
+    }
+
+    public static final class Result {
+        private final double value;
+        private final double errorEstimate;
+        private final int evaluations;
+        private final boolean converged;
+        private final String method;
+
+        Result(double value, double errorEstimate, int evaluations, boolean converged, String method) {
+            this.value = value;
+            this.errorEstimate = errorEstimate;
+            this.evaluations = evaluations;
+            this.converged = converged;
+            this.method = method;
+        }
+
+        public double getValue() { return value; }
+        public double getErrorEstimate() { return errorEstimate; }
+        public int getEvaluations() { return evaluations; }
+        public boolean isConverged() { return converged; }
+        public String getMethod() { return method; }
+    }
+
+    // Limit of a one-variable expression as x -> point, from above (direction > 0), below
+    // (direction < 0) or both (0; throws if the one-sided limits differ). point may be
+    // infinite, which implies the direction.
+    public Result limit(CompiledExpression f, double point, int direction) {
+        if (Double.isNaN(point)) throw new IllegalArgumentException("Limit point is not a number");
+        if (Double.isInfinite(point)) return oneSidedLimit(f, point, point > 0 ? -1 : 1);
+        if (direction != 0) return oneSidedLimit(f, point, direction);
+        Result above = oneSidedLimit(f, point, 1);
+        Result below = oneSidedLimit(f, point, -1);
+        double a = above.getValue(), b = below.getValue();
+        boolean agree = a == b || (!Double.isInfinite(a) && !Double.isInfinite(b)
+            && Math.abs(a - b) <= 2 * (above.getErrorEstimate() + below.getErrorEstimate()) + tolerance * Math.max(1, Math.abs(a)));
+        if (!agree) {
+            throw new ArithmeticException("The one-sided limits differ (" + b + " from below, " + a + " from above)");
+        }
+        Result better = above.getErrorEstimate() <= below.getErrorEstimate() ? above : below;
+        return new Result(better.getValue(), a == b ? better.getErrorEstimate() : Math.max(better.getErrorEstimate(), Math.abs(a - b) / 2),
+                          above.getEvaluations() + below.getEvaluations(), above.isConverged() && below.isConverged(), better.getMethod());
+    }
+
+    private Result oneSidedLimit(CompiledExpression f, double point, int direction) {
+        Result result = oneSidedLimit(f, point, direction, 2, RICHARDSON);
+        if (result.isConverged()) return result;
+        Result alternative = oneSidedLimit(f, point, direction, 4, RICHARDSON_SQRT);
+        return alternative.getErrorEstimate() < result.getErrorEstimate() ? alternative : result;
+    }
+
+    private Result oneSidedLimit(CompiledExpression f, double point, int direction, double shrink, String method) {
+        double scale = Double.isInfinite(point) ? 1 : Math.max(1, Math.abs(point));
+        double h = INITIAL_STEP * scale;
+        int evaluations = 0;
+        RichardsonTable table = new RichardsonTable(MAX_LEVELS);
+        double[] raw = new double[MAX_LEVELS];
+        double best = Double.NaN, bestError = Double.POSITIVE_INFINITY;
+        int rows = 0, growing = 0;
+        for (int level = 0; level < MAX_LEVELS; level++, h /= shrink) {
+            double x = Double.isInfinite(point) ? -direction / h : point + direction * h;
+            if (!Double.isInfinite(point) && x == point) break; // h below the resolution of point
+            double value = f.evaluate(x);
+            evaluations++;
+            if (Double.isNaN(value) || Double.isInfinite(value)) {
+                if (rows == 0) continue; // outside the domain far from the point; move closer
+                break;
+            }
+            raw[rows] = value;
+            double estimate = table.add(value);
+            if (rows > 0) {
+                double error = table.change();
+                if (error < bestError) {
+                    best = estimate;
+                    bestError = error;
+                    growing = 0;
+                } else if (++growing >= 3 && rows >= 6) {
+                    break; // rounding noise dominates from here on
+                }
+                if (error <= tolerance * Math.max(1, Math.abs(estimate))) {
+                    return new Result(estimate, error, evaluations, true, method);
+                }
+            }
+            rows++;
+        }
+        if (rows == 0) throw new ArithmeticException("The expression is undefined near the limit point");
+        if (divergesToInfinity(raw, rows)) {
+            return new Result(Math.copySign(Double.POSITIVE_INFINITY, raw[rows - 1]), 0, evaluations, true, method);
+        }
+        if (rows == 1) return new Result(raw[0], Double.POSITIVE_INFINITY, evaluations, false, method);
+        return new Result(best, bestError, evaluations, false, method);
+    }
+
+    // The samples keep one sign and grow by a steady factor, as 1/h or 1/h^2 do
+    private static boolean divergesToInfinity(double[] raw, int rows) {
+        if (rows < 6) return false;
+        for (int k = rows - 4; k < rows; k++) {
+            if (Math.signum(raw[k]) != Math.signum(raw[k - 1]) || Math.abs(raw[k]) < 1.4 * Math.abs(raw[k - 1])) return false;
+        }
+        return true;
+    }
+
+    // Sum of term(k) for k = start, start + 1, ... for a one-variable term expression
+    public Result sumSeries(CompiledExpression term, long start) {
+        double[] a = new double[MAX_TERMS];
+        double[] partial = new double[MAX_TERMS];
+        double sum = 0;
+        double[] previous = {Double.NaN, Double.NaN};  // last Levin and Wynn estimates
+        double[] lastError = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY};
+        double best = Double.NaN, bestError = Double.POSITIVE_INFINITY;
+        String bestMethod = LEVIN;
+        boolean levinUsable = true;
+        double compensation = 0;
+        for (int n = 0; n < MAX_TERMS; n++) {
+            a[n] = term.evaluate((double) (start + n));
+            if (Double.isNaN(a[n]) || Double.isInfinite(a[n])) {
+                throw new ArithmeticException("Term " + (start + n) + " is undefined");
+            }
+            double t = sum + a[n]; // Neumaier summation
+            compensation += Math.abs(sum) >= Math.abs(a[n]) ? (sum - t) + a[n] : (a[n] - t) + sum;
+            sum = t;
+            partial[n] = sum + compensation;
+            levinUsable &= a[n] != 0;
+            if (n < 2) continue;
+            double[] estimates = {levinUsable ? levin(a, partial, n) : Double.NaN, wynn(partial, n)};
+            for (int m = 0; m < 2; m++) {
+                double estimate = estimates[m];
+                if (Double.isNaN(estimate) || Double.isInfinite(estimate)) {
+                    lastError[m] = Double.POSITIVE_INFINITY;
+                    continue;
+                }
+                double change = Math.abs(estimate - previous[m]);
+                double error = Math.max(change, lastError[m]); // two agreeing steps, not one lucky one
+                lastError[m] = Double.isNaN(change) ? Double.POSITIVE_INFINITY : change;
+                previous[m] = estimate;
+                if (error < bestError) {
+                    best = estimate;
+                    bestError = error;
+                    bestMethod = m == 0 ? LEVIN : WYNN;
+                }
+            }
+            if (bestError <= tolerance * Math.max(1, Math.abs(best)) && termsVanish(a, n)) {
+                return new Result(best, bestError, n + 1, true, bestMethod);
+            }
+        }
+        if (!termsVanish(a, MAX_TERMS - 1)) throw new ArithmeticException("The terms do not tend to zero; the series diverges");
+
+        // S_n at n = MAX_TERMS * 2^m, extrapolated in h = 1/n
+        RichardsonTable table = new RichardsonTable(MAX_DOUBLINGS + 1);
+        table.add(partial[MAX_TERMS - 1]);
+        long n = MAX_TERMS;
+        double[] point = new double[1];
+        for (int m = 1; m <= MAX_DOUBLINGS; m++) {
+            for (long end = 2 * n; n < end; n++) {
+                point[0] = start + n;
+                double v = term.evaluate(point);
+                double t = sum + v;
+                compensation += Math.abs(sum) >= Math.abs(v) ? (sum - t) + v : (v - t) + sum;
+                sum = t;
+            }
+            double estimate = table.add(sum + compensation);
+            double error = Math.max(table.change(), m > 1 ? table.previousChange() : Double.POSITIVE_INFINITY);
+            if (error < bestError) {
+                best = estimate;
+                bestError = error;
+                bestMethod = PARTIAL_SUMS;
+            }
+            if (bestError <= tolerance * Math.max(1, Math.abs(best))) return new Result(best, bestError, (int) n, true, bestMethod);
+        }
+        return new Result(best, bestError, (int) n, false, bestMethod);
+    }
+
+    // The last quarter of the terms is smaller than the first: a necessary condition that
+    // rules out (-1)^k, which Wynn's algorithm would happily "sum" to 1/2
+    private static boolean termsVanish(double[] a, int n) {
+        int quarter = Math.max(1, (n + 1) / 4);
+        double head = 0, tail = 0;
+        for (int k = 0; k < quarter; k++) {
+            head = Math.max(head, Math.abs(a[k]));
+            tail = Math.max(tail, Math.abs(a[n - k]));
+        }
+        return tail < head || tail == 0;
+    }
+
+    // Richardson's table for samples at h, h/2, h/4, ...: column j removes the h^j term of
+    // the error, and the diagonal holds the best estimates
+    private static final class RichardsonTable {
+        private final double[][] rows;
+        private final double[] changes;
+        private int size;
+
+        RichardsonTable(int capacity) {
+            rows = new double[capacity][];
+            changes = new double[capacity];
+        }
+
+        // Adds the next sample and returns the new diagonal estimate
+        double add(double value) {
+            double[] row = new double[size + 1];
+            row[0] = value;
+            double factor = 1;
+            for (int j = 1; j <= size; j++) {
+                factor *= 2;
+                row[j] = row[j - 1] + (row[j - 1] - rows[size - 1][j - 1]) / (factor - 1);
+            }
+            rows[size] = row;
+            changes[size] = size == 0 ? Double.POSITIVE_INFINITY : Math.abs(row[size] - rows[size - 1][size - 1]);
+            return row[size++];
+        }
+
+        // Difference between the last two diagonal estimates
+        double change() {
+            return changes[size - 1];
+        }
+
+        double previousChange() {
+            return size < 2 ? Double.POSITIVE_INFINITY : changes[size - 2];
+        }
+    }
+
+    // Levin's u-transform of S_0 .. S_k, remainder estimates (j + 1) a_j
+    private static double levin(double[] a, double[] partial, int k) {
+        double numerator = 0, denominator = 0;
+        double binomial = 1; // C(k, j)
+        for (int j = 0; j <= k; j++) {
+            double c = binomial * Math.pow((1.0 + j) / (1.0 + k), k - 1) / ((1.0 + j) * a[j]);
+            if ((j & 1) != 0) c = -c;
+            numerator += c * partial[j];
+            denominator += c;
+            binomial = binomial * (k - j) / (j + 1);
+        }
+        return numerator / denominator;
+    }
+
+    // Wynn's epsilon table over S_0 .. S_n; the deepest even column is the estimate
+    private static double wynn(double[] partial, int n) {
+        double[] previous = new double[n + 2];   // column k - 1 (epsilon_{-1} = 0)
+        double[] current = new double[n + 1];    // column k
+        System.arraycopy(partial, 0, current, 0, n + 1);
+        double estimate = partial[n];
+        for (int k = 1; k <= n; k++) {
+            double[] next = new double[n + 1 - k];
+            for (int i = 0; i < next.length; i++) {
+                double difference = current[i + 1] - current[i];
+                if (difference == 0) return k % 2 == 1 ? current[i + 1] : estimate; // converged exactly
+                next[i] = previous[i + 1] + 1 / difference;
+            }
+            previous = current;
+            current = next;
+            if (k % 2 == 0) estimate = current[current.length - 1];
+        }
+        return estimate;
+    }
+}
@@ -0,0 +1,255 @@
+package com.example.calculator.logic;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.util.stream.IntStream;
+
+// Exact n!, n!! and binomial coefficients of any size, and their approximations through
+// lgamma. Multiplying 1 · 2 · 3 ··· n one factor at a time costs a quadratic number of word
+// operations; here every result is assembled from its prime factorization instead
+// (Legendre: p divides n! exactly Σ floor(n / p^i) times). The exponents are taken bit
+// by bit from the top, so
+//     n! = (...((P_top)^2 · P_top-1)^2 ...)^2 · P_0 · 2^e2,
+// where P_i is the product of the odd primes whose exponent has bit i set: a few
+// squarings plus products of primes. Those products are formed as balanced trees, where
+// every multiplication has two operands of similar size and so reaches BigInteger's
+// Karatsuba and Toom-Cook range; the power of two is a shift. Pairs of a tree level, and
+// the halves of a single multiplication past PARALLEL_MULTIPLY_BITS, run on the common
+// fork/join pool.
+final class Factorials {
+    static final double LN2 = Math.log(2);
+    private static final double LN10 = Math.log(10);
+    private static final int PARALLEL_MULTIPLY_BITS = 1 << 18; // about 79000 digits
+    private static final int PARALLEL_LEVEL_BITS = 1 << 16;
+    private static final int PRIME_TABLE_LIMIT = 1 << 25;     // prime factorizations up to this n
+    private static final int MAX_DOUBLE_FACTORIAL = 170;     // 171! overflows a double
+
+    // Lanczos coefficients for g = 7, n = 9, as in Numerical Recipes
+    private static final double LANCZOS_G = 7;
+    private static final double[] LANCZOS = {
+        0.99999999999980993, 676.5203681218851, -1259.1392167224028, 771.32342877765313,
+        -176.61502916214059, 12.507343278686905, -0.13857109526572012,
+        9.9843695780195716e-6, 1.5056327351493116e-7
+    };
+    // n! correctly rounded, for the integers that compiled expressions meet most
+    private static final double[] DOUBLE_FACTORIALS = IntStream.rangeClosed(0, MAX_DOUBLE_FACTORIAL)
+        .mapToDouble(n -> factorial(n).doubleValue()).toArray();
+
+    private Factorials() {
+    }
+
+    // ----- exact values
+
+    static BigInteger factorial(long n) {
+        if (n < 0) throw new ArithmeticException("Factorial of a negative integer");
+        if (n < 2) return BigInteger.ONE;
+        int[] primes = primesUpTo(n);
+        int[] exponents = new int[primes.length];
+        for (int i = 0; i < primes.length; i++) exponents[i] = legendre(n, primes[i]);
+        return fromExponents(primes, exponents);
+    }
+
+    // n · (n - 2) · (n - 4) ···, down to 1 or 2; (-1)!! = 0!! = 1
+    static BigInteger doubleFactorial(long n) {
+        if (n < -1) throw new ArithmeticException("Double factorial of an integer below -1");
+        if (n < 2) return BigInteger.ONE;
+        long m = n / 2;
+        if ((n & 1) == 0) return factorial(m).shiftLeft((int) m); // (2m)!! = 2^m m!
+        int[] primes = primesUpTo(n);                              // (2m+1)!! = (2m+1)! / (2^m m!)
+        int[] exponents = new int[primes.length];
+        for (int i = 1; i < primes.length; i++) exponents[i] = legendre(n, primes[i]) - legendre(m, primes[i]);
+        return fromExponents(primes, exponents);
+    }
+
+    static BigInteger binomial(long n, long k) {
+        if (n < 0) throw new ArithmeticException("nCr needs n >= 0");
+        if (k < 0 || k > n) return BigInteger.ZERO;
+        k = Math.min(k, n - k);
+        if (k < 16 || n >= PRIME_TABLE_LIMIT) return product(n - k + 1, n).divide(factorial(k));
+        int[] primes = primesUpTo(n);
+        int[] exponents = new int[primes.length];
+        for (int i = 0; i < primes.length; i++) {
+            int p = primes[i];
+            exponents[i] = legendre(n, p) - legendre(k, p) - legendre(n - k, p);
+        }
+        return fromExponents(primes, exponents);
+    }
+
+    // n! / (n - k)!
+    static BigInteger permutations(long n, long k) {
+        if (n < 0) throw new ArithmeticException("nPr needs n >= 0");
+        if (k < 0 || k > n) return BigInteger.ZERO;
+        if (k < 16 || n >= PRIME_TABLE_LIMIT) return product(n - k + 1, n);
+        int[] primes = primesUpTo(n);
+        int[] exponents = new int[primes.length];
+        for (int i = 0; i < primes.length; i++) exponents[i] = legendre(n, primes[i]) - legendre(n - k, primes[i]);
+        return fromExponents(primes, exponents);
+    }
+
+    private static int[] primesUpTo(long n) {
+        if (n >= PRIME_TABLE_LIMIT) throw new ArithmeticException("Result too large");
+        return PrimeSieve.primesBelow((int) n + 1);
+    }
+
+    // The exponent of the prime p in n!
+    private static int legendre(long n, long p) {
+        long e = 0;
+        for (long q = n / p; q > 0; q /= p) e += q;
+        return (int) e;
+    }
+
+    // ∏ primes[i]^exponents[i], with primes ascending from 2
+    private static BigInteger fromExponents(int[] primes, int[] exponents) {
+        int top = 0;
+        for (int i = 1; i < primes.length; i++) top = Math.max(top, 31 - Integer.numberOfLeadingZeros(exponents[i]));
+        long[] selected = new long[primes.length];
+        BigInteger result = BigInteger.ONE;
+        for (int bit = top; bit >= 0; bit--) {
+            int count = 0;
+            for (int i = 1; i < primes.length; i++) if ((exponents[i] >> bit & 1) != 0) selected[count++] = primes[i];
+            if (result.bitLength() > 1) result = multiply(result, result);
+            if (count > 0) result = multiply(result, product(selected, count));
+        }
+        int twos = primes.length > 0 && primes[0] == 2 ? exponents[0] : 0;
+        return result.shiftLeft(twos);
+    }
+
+    // ----- products
+
+    // lo · (lo + 1) ··· hi for 1 <= lo
+    static BigInteger product(long lo, long hi) {
+        if (lo > hi) return BigInteger.ONE;
+        if (hi - lo >= Integer.MAX_VALUE) throw new ArithmeticException("Result too large");
+        long[] factors = new long[(int) (hi - lo + 1)];
+        for (int i = 0; i < factors.length; i++) factors[i] = lo + i;
+        return product(factors, factors.length);
+    }
+
+    // The product of the positive values[0..count). Neighbouring values are first packed
+    // into longs, then multiplied pairwise, level by level, so that sizes stay balanced.
+    static BigInteger product(long[] values, int count) {
+        BigInteger[] level = new BigInteger[count];
+        int n = 0;
+        long partial = 1;
+        for (int i = 0; i < count; i++) {
+            long v = values[i];
+            if (partial > Long.MAX_VALUE / v) {
+                level[n++] = BigInteger.valueOf(partial);
+                partial = 1;
+            }
+            partial *= v;
+        }
+        level[n++] = BigInteger.valueOf(partial);
+        while (n > 1) {
+            BigInteger[] current = level;
+            int pairs = n / 2;
+            BigInteger[] next = new BigInteger[(n + 1) / 2];
+            IntStream range = IntStream.range(0, pairs);
+            ((long) current[0].bitLength() * n >= PARALLEL_LEVEL_BITS ? range.parallel() : range)
+                .forEach(i -> next[i] = multiply(current[2 * i], current[2 * i + 1]));
+            if ((n & 1) != 0) next[pairs] = current[n - 1];
+            level = next;
+            n = next.length;
+        }
+        return level[0];
+    }
+
+    // a · b for a, b >= 0. Past PARALLEL_MULTIPLY_BITS, one level of Karatsuba splits the
+    // product into three of half the size, computed in parallel (and split again if still
+    // large); a very unbalanced product is cut into balanced slices instead. a == b is
+    // kept as a squaring, which BigInteger does faster.
+    static BigInteger multiply(BigInteger a, BigInteger b) {
+        int small = Math.min(a.bitLength(), b.bitLength()), large = Math.max(a.bitLength(), b.bitLength());
+        if (small < PARALLEL_MULTIPLY_BITS) return a.multiply(b);
+        if (large > 2 * small) {
+            BigInteger big = a.bitLength() >= b.bitLength() ? a : b, other = big == a ? b : a;
+            int slices = (large + small - 1) / small;
+            BigInteger[] parts = new BigInteger[slices];
+            IntStream.range(0, slices).parallel().forEach(i -> {
+                BigInteger slice = big.shiftRight(i * small);
+                if (i < slices - 1) slice = slice.subtract(slice.shiftRight(small).shiftLeft(small));
+                parts[i] = multiply(slice, other);
+            });
+            BigInteger result = parts[slices - 1];
+            for (int i = slices - 2; i >= 0; i--) result = result.shiftLeft(small).add(parts[i]);
+            return result;
+        }
+        int half = (large / 2) & ~31;
+        BigInteger a1 = a.shiftRight(half), a0 = a.subtract(a1.shiftLeft(half));
+        boolean square = a == b;
+        BigInteger b1 = square ? a1 : b.shiftRight(half), b0 = square ? a0 : b.subtract(b1.shiftLeft(half));
+        BigInteger as = a1.add(a0), bs = square ? as : b1.add(b0);
+        BigInteger[] z = new BigInteger[3];
+        IntStream.range(0, 3).parallel().forEach(i -> {
+            switch (i) {
+                case 0: z[0] = multiply(a0, b0); break;
+                case 1: z[1] = multiply(as, bs); break;
+                default: z[2] = multiply(a1, b1); break;
+            }
+        });
+        BigInteger middle = z[1].subtract(z[0]).subtract(z[2]);
+        return z[2].shiftLeft(2 * half).add(middle.shiftLeft(half)).add(z[0]);
+    }
+
+    // ----- approximations
+
+    // ln Γ(x) for x > 0: Stirling's series from 20 on, where its first omitted term is below
+    // 2e-15, and Lanczos below
+    static double lgamma(double x) {
+        if (x >= 20) {
+            double r = 1 / x, r2 = r * r;
+            double series = r * (1.0 / 12 - r2 * (1.0 / 360 - r2 * (1.0 / 1260 - r2 * (1.0 / 1680))));
+            return (x - 0.5) * Math.log(x) - x + 0.5 * Math.log(2 * Math.PI) + series;
+        }
+        return Math.log(lanczos(x));
+    }
+
+    // Γ(x), with Γ(x) = π / (sin(πx) Γ(1 - x)) for x < 1/2; NaN at the poles 0, -1, -2, ...
+    static double gamma(double x) {
+        if (x == Math.rint(x) && x <= 0) return Double.NaN;
+        if (x < 0.5) return Math.PI / (Math.sin(Math.PI * x) * gamma(1 - x));
+        if (x > 171.7) return Double.POSITIVE_INFINITY;
+        if (x >= 20) return Math.exp(lgamma(x));
+        return lanczos(x);
+    }
+
+    // x! = Γ(x + 1) as a double, exact to rounding at the integers 0..170
+    static double realFactorial(double x) {
+        if (x >= 0 && x <= MAX_DOUBLE_FACTORIAL && x == Math.rint(x)) return DOUBLE_FACTORIALS[(int) x];
+        return gamma(x + 1);
+    }
+
+    // ψ(x) = Γ'(x) / Γ(x), by ψ(x) = ψ(x + 1) - 1/x up to 10 and the asymptotic series from
+    // there, with ψ(1 - x) - ψ(x) = π cot(πx) below 1/2; NaN at the poles 0, -1, -2, ...
+    static double digamma(double x) {
+        if (x == Math.rint(x) && x <= 0) return Double.NaN;
+        if (x < 0.5) return digamma(1 - x) - Math.PI / Math.tan(Math.PI * x);
+        double shift = 0;
+        for (; x < 10; x++) shift -= 1 / x;
+        double r2 = 1 / (x * x);
+        double series = r2 * (1.0 / 12 - r2 * (1.0 / 120 - r2 * (1.0 / 252 - r2 * (1.0 / 240 - r2 * (1.0 / 132)))));
+        return shift + Math.log(x) - 0.5 / x - series;
+    }
+
+    // Γ(x) for 1/2 <= x < 20, to about 1e-15 relative
+    private static double lanczos(double x) {
+        x -= 1;
+        double sum = LANCZOS[0];
+        for (int i = 1; i < LANCZOS.length; i++) sum += LANCZOS[i] / (x + i);
+        double t = x + LANCZOS_G + 0.5;
+        return Math.sqrt(2 * Math.PI) * Math.pow(t, x + 0.5) * Math.exp(-t) * sum;
+    }
+
+    // e^ln as a decimal, with only the digits that an absolute error of lnError in ln
+    // leaves correct (at most 15): e^ln = 10^(ln / ln 10) = mantissa · 10^exponent
+    static BigDecimal approximate(double ln, double lnError) {
+        int digits = (int) Math.min(15, Math.floor(-Math.log10(lnError)));
+        if (digits < 1 || Double.isInfinite(ln)) throw new ArithmeticException("Result too large");
+        double log10 = ln / LN10;
+        double exponent = Math.floor(log10);
+        double mantissa = Math.pow(10, log10 - exponent);
+        if (exponent > Integer.MAX_VALUE - 20) throw new ArithmeticException("Result too large");
+        return new BigDecimal(mantissa, new MathContext(digits)).scaleByPowerOfTen((int) exponent);
+    }
+}
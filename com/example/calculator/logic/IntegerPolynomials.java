@@ -0,0 +1,237 @@
+package com.example.calculator.logic;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+// Static helpers for dense integer polynomials stored as BigInteger[] in ascending
+// order of degree (index i holds the coefficient of x^i). Arrays are kept trimmed,
+// so the zero polynomial is the empty array.
+final class IntegerPolynomials {
+    static final BigInteger[] ZERO = new BigInteger[0];
+
+    private IntegerPolynomials() {
+    }
+
+    static int degree(BigInteger[] p) {
+        return p.length - 1;
+    }
+
+    static BigInteger leadingCoefficient(BigInteger[] p) {
+        return p.length == 0 ? BigInteger.ZERO : p[p.length - 1];
+    }
+
+    static BigInteger[] trim(BigInteger[] p) {
+        int n = p.length;
+        while (n > 0 && p[n - 1].signum() == 0) n--;
+        return n == p.length ? p : Arrays.copyOf(p, n);
+    }
+
+    static BigInteger content(BigInteger[] p) {
+        BigInteger g = BigInteger.ZERO;
+        for (BigInteger c : p) {
+            g = g.gcd(c);
+            if (g.equals(BigInteger.ONE)) break;
+        }
+        return g;
+    }
+
+    // Divides out the content and normalizes the leading coefficient to be positive
+    static BigInteger[] primitivePart(BigInteger[] p) {
+        if (p.length == 0) return p;
+        BigInteger c = content(p);
+        if (leadingCoefficient(p).signum() < 0) c = c.negate();
+        if (c.equals(BigInteger.ONE)) return p;
+        BigInteger[] r = new BigInteger[p.length];
+        for (int i = 0; i < p.length; i++) r[i] = p[i].divide(c);
+        return r;
+    }
+
+    static BigInteger[] scale(BigInteger[] p, BigInteger factor) {
+        if (factor.signum() == 0) return ZERO;
+        BigInteger[] r = new BigInteger[p.length];
+        for (int i = 0; i < p.length; i++) r[i] = p[i].multiply(factor);
+        return r;
+    }
+
+    static BigInteger[] derivative(BigInteger[] p) {
+        if (p.length <= 1) return ZERO;
+        BigInteger[] r = new BigInteger[p.length - 1];
+        for (int i = 1; i < p.length; i++) r[i - 1] = p[i].multiply(BigInteger.valueOf(i));
+        return r;
+    }
+
+    // lc(b)^(deg a - deg b + 1) * a mod b, computed without leaving the integers
+    static BigInteger[] pseudoRemainder(BigInteger[] a, BigInteger[] b) {
+        if (b.length == 0) throw new ArithmeticException("Polynomial division by zero");
+        BigInteger[] r = a.clone();
+        int db = degree(b);
+        BigInteger lb = leadingCoefficient(b);
+        int rLen = r.length;
+        int steps = Math.max(degree(a) - db + 1, 0);
+        while (rLen - 1 >= db && rLen > 0) {
+            BigInteger lr = r[rLen - 1];
+            int shift = rLen - 1 - db;
+            for (int i = 0; i < rLen - 1; i++) r[i] = r[i].multiply(lb);
+            for (int i = 0; i < db; i++) r[i + shift] = r[i + shift].subtract(lr.multiply(b[i]));
+            r[rLen - 1] = BigInteger.ZERO;
+            rLen--;
+            while (rLen > 0 && r[rLen - 1].signum() == 0) rLen--;
+            steps--;
+        }
+        BigInteger[] result = Arrays.copyOf(r, rLen);
+        // Pad the remaining powers of lc(b) so the result is the true pseudo-remainder
+        return steps > 0 ? scale(result, lb.pow(steps)) : result;
+    }
+
+    // Exact division over Z. Returns null if b does not divide a with an integer quotient.
+    static BigInteger[] divideExact(BigInteger[] a, BigInteger[] b) {
+        if (b.length == 0) throw new ArithmeticException("Polynomial division by zero");
+        if (a.length == 0) return ZERO;
+        if (a.length < b.length) return null;
+        BigInteger[] r = a.clone();
+        BigInteger[] q = new BigInteger[a.length - b.length + 1];
+        BigInteger lb = leadingCoefficient(b);
+        for (int k = q.length - 1; k >= 0; k--) {
+            BigInteger[] qr = r[k + b.length - 1].divideAndRemainder(lb);
+            if (qr[1].signum() != 0) return null;
+            q[k] = qr[0];
+            if (q[k].signum() != 0) {
+                for (int i = 0; i < b.length; i++) r[k + i] = r[k + i].subtract(q[k].multiply(b[i]));
+            }
+        }
+        for (int i = 0; i < b.length - 1; i++) {
+            if (r[i].signum() != 0) return null;
+        }
+        return q;
+    }
+
+    // GCD over Z (primitive, positive leading coefficient, times the gcd of the contents).
+    // Uses the dense modular algorithm: the gcd is computed modulo word-sized primes and
+    // recombined with the CRT, so intermediate coefficients never grow beyond the size of
+    // the answer. Unlucky primes are detected by their larger gcd degree and discarded.
+    static BigInteger[] gcd(BigInteger[] a, BigInteger[] b) {
+        if (a.length == 0) return primitivePartWithContent(b);
+        if (b.length == 0) return primitivePartWithContent(a);
+        BigInteger c = content(a).gcd(content(b));
+        a = primitivePart(a);
+        b = primitivePart(b);
+        if (degree(a) == 0 || degree(b) == 0) return new BigInteger[]{c};
+
+        BigInteger g = leadingCoefficient(a).gcd(leadingCoefficient(b));
+        int bestDegree = Math.min(degree(a), degree(b)) + 1;
+        BigInteger[] accumulated = null;
+        BigInteger modulus = BigInteger.ONE;
+        BigInteger[] previousCandidate = null;
+        long p = 2147483647L;
+
+        while (true) {
+            p = previousPrime(p);
+            BigInteger bp = BigInteger.valueOf(p);
+            if (g.mod(bp).signum() == 0) continue;
+            long[] ga = gcdMod(reduce(a, p), reduce(b, p), p);
+            int d = ga.length - 1;
+            if (d == 0) return new BigInteger[]{c};
+            if (d > bestDegree) continue; // unlucky prime
+            // Scale the monic modular image so its leading coefficient is g (mod p)
+            long gm = g.mod(bp).longValue();
+            for (int i = 0; i < ga.length; i++) ga[i] = mulMod(ga[i], gm, p);
+
+            if (d < bestDegree) {
+                bestDegree = d;
+                accumulated = new BigInteger[ga.length];
+                for (int i = 0; i < ga.length; i++) accumulated[i] = BigInteger.valueOf(ga[i]);
+                modulus = bp;
+                previousCandidate = null;
+            } else {
+                BigInteger inv = modulus.mod(bp).modInverse(bp);
+                for (int i = 0; i < ga.length; i++) {
+                    long acc = accumulated[i].mod(bp).longValue();
+                    long t = mulMod(Math.floorMod(ga[i] - acc, p), inv.longValue(), p);
+                    accumulated[i] = accumulated[i].add(modulus.multiply(BigInteger.valueOf(t)));
+                }
+                modulus = modulus.multiply(bp);
+            }
+
+            BigInteger[] candidate = primitivePart(symmetric(accumulated, modulus));
+            // Only pay for trial division once the CRT image has stopped changing
+            if (Arrays.equals(candidate, previousCandidate)
+                    && divideExact(a, candidate) != null && divideExact(b, candidate) != null) {
+                return scale(candidate, c);
+            }
+            previousCandidate = candidate;
+        }
+    }
+
+    private static BigInteger[] primitivePartWithContent(BigInteger[] p) {
+        if (p.length == 0) return p;
+        return scale(primitivePart(p), content(p));
+    }
+
+    // Coefficients reduced into (-modulus/2, modulus/2], trimmed
+    static BigInteger[] symmetric(BigInteger[] p, BigInteger modulus) {
+        BigInteger half = modulus.shiftRight(1);
+        BigInteger[] r = new BigInteger[p.length];
+        for (int i = 0; i < p.length; i++) {
+            BigInteger v = p[i].mod(modulus);
+            r[i] = v.compareTo(half) > 0 ? v.subtract(modulus) : v;
+        }
+        return trim(r);
+    }
+
+    static long previousPrime(long n) {
+        long candidate = n - 1;
+        while (!BigInteger.valueOf(candidate).isProbablePrime(30)) candidate--;
+        return candidate;
+    }
+
+    static long[] reduce(BigInteger[] p, long prime) {
+        BigInteger bp = BigInteger.valueOf(prime);
+        long[] r = new long[p.length];
+        for (int i = 0; i < p.length; i++) r[i] = p[i].mod(bp).longValue();
+        return trimMod(r);
+    }
+
+    static long mulMod(long a, long b, long p) {
+        return (a * b) % p; // a, b < 2^31 so the product fits in a long
+    }
+
+    static long invMod(long a, long p) {
+        return BigInteger.valueOf(a).modInverse(BigInteger.valueOf(p)).longValue();
+    }
+
+    static long[] trimMod(long[] p) {
+        int n = p.length;
+        while (n > 0 && p[n - 1] == 0) n--;
+        return n == p.length ? p : Arrays.copyOf(p, n);
+    }
+
+    // Monic gcd in GF(p)[x] by the Euclidean algorithm
+    static long[] gcdMod(long[] a, long[] b, long p) {
+        a = a.clone();
+        b = b.clone();
+        while (b.length > 0) {
+            long[] r = remMod(a, b, p);
+            a = b;
+            b = r;
+        }
+        if (a.length == 0) return a;
+        long inv = invMod(a[a.length - 1], p);
+        for (int i = 0; i < a.length; i++) a[i] = mulMod(a[i], inv, p);
+        return a;
+    }
+
+    static long[] remMod(long[] a, long[] b, long p) {
+        long[] r = a.clone();
+        int db = b.length - 1;
+        long inv = invMod(b[db], p);
+        for (int k = r.length - 1; k >= db; k--) {
+            if (r[k] == 0) continue;
+            long q = mulMod(r[k], inv, p);
+            int shift = k - db;
+            for (int i = 0; i <= db; i++) {
+                r[i + shift] = Math.floorMod(r[i + shift] - mulMod(q, b[i], p), p);
+            }
+        }
+        return trimMod(Arrays.copyOf(r, Math.min(r.length, db)));
+    }
+}
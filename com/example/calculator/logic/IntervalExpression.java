@@ -0,0 +1,306 @@
+package com.example.calculator.logic;
+
+import java.util.SplittableRandom;
+
+// Interval evaluation of a compiled expression: given a box lower[k] <= x_k <= upper[k],
+// one pass over the CompiledExpression program gives [lo, hi] containing every value the
+// expression takes there. Each tape slot holds an interval in two parallel double arrays,
+// so, as in ComplexExpression, evaluation allocates nothing and an instance is not
+// thread-safe (use copy()).
+//
+// The bounds are rigorous: every endpoint is rounded outward by one ulp, which covers the
+// half-ulp error of + - * / and sqrt and the one-ulp error Math allows for sin, log, pow and
+// the rest, and non-integer constants such as pi or 0.1 are widened the same way. They are
+// not tight, because each occurrence of a variable varies independently (x - x over [0, 1]
+// gives [-1, 1]); splitting the box shrinks the overestimate.
+//
+// Outside a function's domain the box is clipped rather than rejected: sqrt over [-1, 4] is
+// [0, 2], the range over the part where the expression is defined. When it is defined
+// nowhere in the box the result is empty, with both endpoints NaN. Dividing by an interval
+// that contains zero gives a half-line or the whole line.
+public final class IntervalExpression {
+    private static final double TWO_PI = 2 * Math.PI;
+    private static final double LARGE_ANGLE = 1e6; // beyond this, trig ranges are not located
+    private static final double PEAK_SLACK = 1e-9;  // in periods, covers rounding in the location
+    // Γ(x + 1) falls on (-1, FACTORIAL_MIN_AT] and rises after; its minimum there, rounded down
+    private static final double FACTORIAL_MIN_AT = 0.46163214496836234;
+    private static final double FACTORIAL_MIN = 0.8856031944108886;
+    private static final double GAMMA_ERROR = 1e-12; // relative, covers lgamma's error near 171
+
+    private final CompiledExpression program;
+    private final double[] lo;
+    private final double[] hi;
+    private double resultLo, resultHi;
+
+    private IntervalExpression(CompiledExpression program) {
+        this.program = program;
+        this.lo = new double[program.length];
+        this.hi = new double[program.length];
+    }
+
+    // Interval evaluation of an already compiled expression, with the same variables
+    public static IntervalExpression of(CompiledExpression f) {
+        return new IntervalExpression(f.copy());
+    }
+
+    public static IntervalExpression compile(ExpressionTree tree, String angleUnit, String... variables) {
+        return new IntervalExpression(CompiledExpression.compile(tree, angleUnit, variables));
+    }
+
+    public IntervalExpression copy() {
+        return new IntervalExpression(program.copy());
+    }
+
+    // rand() only ever contributes [0, 1] and randn() the whole line; kept for symmetry
+    // with the other tapes
+    public void setRandom(SplittableRandom random) {
+        program.setRandom(random);
+    }
+
+    public String[] getVariables() {
+        return program.getVariables();
+    }
+
+    public int getVariableCount() {
+        return program.getVariableCount();
+    }
+
+    // Enclosure of the values over the box, written to out[0] (lower) and out[1] (upper)
+    public void range(double[] lower, double[] upper, double[] out) {
+        run(lower, upper);
+        out[0] = lo[program.length - 1];
+        out[1] = hi[program.length - 1];
+    }
+
+    // One-variable form: {lo, hi} over a <= x <= b
+    public double[] range(double a, double b) {
+        double[] out = new double[2];
+        range(new double[]{Math.min(a, b)}, new double[]{Math.max(a, b)}, out);
+        return out;
+    }
+
+    // False only if the expression certainly has no zero in the box
+    public boolean mayVanish(double[] lower, double[] upper) {
+        run(lower, upper);
+        int last = program.length - 1;
+        return lo[last] <= 0 && hi[last] >= 0;
+    }
+
+    private void run(double[] lower, double[] upper) {
+        int[] ops = program.ops, left = program.left, right = program.right;
+        double[] constants = program.constants;
+        for (int i = 0; i < program.length; i++) {
+            int a = left[i], b = right[i];
+            switch (ops[i]) {
+                case CompiledExpression.CONST: {
+                    double c = constants[i];
+                    boolean exact = c == Math.rint(c) && Math.abs(c) <= 0x1p53;
+                    lo[i] = exact ? c : Math.nextDown(c);
+                    hi[i] = exact ? c : Math.nextUp(c);
+                    break;
+                }
+                case CompiledExpression.VAR: lo[i] = lower[a]; hi[i] = upper[a]; break;
+                case CompiledExpression.ADD: set(i, sumDown(lo[a] + lo[b]), sumUp(hi[a] + hi[b])); break;
+                case CompiledExpression.SUB: set(i, sumDown(lo[a] - hi[b]), sumUp(hi[a] - lo[b])); break;
+                case CompiledExpression.MUL: multiply(lo[a], hi[a], lo[b], hi[b]); store(i); break;
+                case CompiledExpression.DIV: divide(lo[a], hi[a], lo[b], hi[b]); store(i); break;
+                case CompiledExpression.POW:
+                case CompiledExpression.POWC: power(lo[a], hi[a], lo[b], hi[b]); store(i); break;
+                case CompiledExpression.NEG: set(i, -hi[a], -lo[a]); break;
+                case CompiledExpression.SIN: trig(lo[a], hi[a], Math.PI / 2); store(i); break;
+                case CompiledExpression.COS: trig(lo[a], hi[a], 0); store(i); break;
+                case CompiledExpression.TAN: tan(lo[a], hi[a]); store(i); break;
+                case CompiledExpression.SIND: toRadians(lo[a], hi[a]); trig(resultLo, resultHi, Math.PI / 2); store(i); break;
+                case CompiledExpression.COSD: toRadians(lo[a], hi[a]); trig(resultLo, resultHi, 0); store(i); break;
+                case CompiledExpression.TAND: toRadians(lo[a], hi[a]); tan(resultLo, resultHi); store(i); break;
+                case CompiledExpression.LN:
+                    if (hi[a] < 0) set(i, Double.NaN, Double.NaN);
+                    else set(i, lo[a] <= 0 ? Double.NEGATIVE_INFINITY : Math.nextDown(Math.log(lo[a])), Math.nextUp(Math.log(hi[a])));
+                    break;
+                case CompiledExpression.LOG:
+                    if (hi[a] < 0) set(i, Double.NaN, Double.NaN);
+                    else set(i, lo[a] <= 0 ? Double.NEGATIVE_INFINITY : Math.nextDown(Math.log10(lo[a])), Math.nextUp(Math.log10(hi[a])));
+                    break;
+                case CompiledExpression.RAND: set(i, 0, 1); break;
+                case CompiledExpression.RANDN: set(i, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY); break;
+                case CompiledExpression.FACT: factorial(lo[a], hi[a]); store(i); break;
+                default: // SQRT
+                    if (hi[a] < 0) set(i, Double.NaN, Double.NaN);
+                    else set(i, lo[a] <= 0 ? 0 : Math.max(0, Math.nextDown(Math.sqrt(lo[a]))), Math.nextUp(Math.sqrt(hi[a])));
+                    break;
+            }
+        }
+    }
+
+    private static boolean isEmpty(double l, double h) {
+        return Double.isNaN(l) || Double.isNaN(h);
+    }
+
+    // A sum or difference that rounds to zero is exactly zero, so it needs no widening
+    private static double sumDown(double x) {
+        return x == 0 ? 0 : Math.nextDown(x);
+    }
+
+    private static double sumUp(double x) {
+        return x == 0 ? 0 : Math.nextUp(x);
+    }
+
+    private void set(int i, double l, double h) {
+        lo[i] = l;
+        hi[i] = h;
+    }
+
+    private void store(int i) {
+        lo[i] = resultLo;
+        hi[i] = resultHi;
+    }
+
+    private void result(double l, double h) {
+        resultLo = l;
+        resultHi = h;
+    }
+
+    // An endpoint product; 0 × ∞ is 0 here, as the infinite end is never attained
+    private static double product(double x, double y) {
+        return x == 0 || y == 0 ? 0 : x * y;
+    }
+
+    private void multiply(double a, double b, double c, double d) {
+        double p1 = product(a, c), p2 = product(a, d), p3 = product(b, c), p4 = product(b, d);
+        result(Math.nextDown(Math.min(Math.min(p1, p2), Math.min(p3, p4))),
+               Math.nextUp(Math.max(Math.max(p1, p2), Math.max(p3, p4))));
+    }
+
+    private void divide(double a, double b, double c, double d) {
+        if (isEmpty(a, b) || isEmpty(c, d) || (c == 0 && d == 0)) {
+            result(Double.NaN, Double.NaN);
+        } else if (c > 0 || d < 0) {
+            double q1 = a / c, q2 = a / d, q3 = b / c, q4 = b / d;
+            result(Math.nextDown(Math.min(Math.min(q1, q2), Math.min(q3, q4))),
+                   Math.nextUp(Math.max(Math.max(q1, q2), Math.max(q3, q4))));
+        } else if ((a <= 0 && b >= 0) || (c < 0 && d > 0)) {
+            // Zero inside the divisor splits the quotient into two half-lines; their hull
+            result(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+        } else if (c == 0) { // divisor [0, d]
+            if (a > 0) result(Math.nextDown(a / d), Double.POSITIVE_INFINITY);
+            else result(Double.NEGATIVE_INFINITY, Math.nextUp(b / d));
+        } else {             // divisor [c, 0]
+            if (a > 0) result(Double.NEGATIVE_INFINITY, Math.nextUp(a / c));
+            else result(Math.nextDown(b / c), Double.POSITIVE_INFINITY);
+        }
+    }
+
+    // [a, b]! from the ends and the minimum; the poles below -1 are not located, so a box
+    // that reaches -1 gets the whole line
+    private void factorial(double a, double b) {
+        if (isEmpty(a, b)) {
+            result(Double.NaN, Double.NaN);
+        } else if (a <= -1) {
+            result(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+        } else {
+            double fa = Factorials.realFactorial(a), fb = Factorials.realFactorial(b);
+            double min = b < FACTORIAL_MIN_AT ? fb : a > FACTORIAL_MIN_AT ? fa : FACTORIAL_MIN;
+            result(min * (1 - GAMMA_ERROR), Math.max(fa, fb) * (1 + GAMMA_ERROR));
+        }
+    }
+
+    // [a, b]^[c, d]. An integer exponent allows negative bases; any other exponent clips
+    // the base to [0, ∞), where x^y is monotonic in each argument and the corners bound it.
+    private void power(double a, double b, double c, double d) {
+        if (isEmpty(a, b) || isEmpty(c, d)) {
+            result(Double.NaN, Double.NaN);
+            return;
+        }
+        if (c == d && c == Math.rint(c) && Math.abs(c) <= Integer.MAX_VALUE) {
+            integerPower(a, b, (int) c);
+            return;
+        }
+        if (a < 0 && Math.ceil(c) <= Math.floor(d)) {
+            // Negative bases count at the integers in [c, d]; bound |x|^y from the corners
+            double least = b >= 0 ? 0 : -b, most = Math.max(-a, Math.abs(b));
+            double bound = Math.nextUp(Math.max(Math.max(Math.pow(least, c), Math.pow(least, d)),
+                                                Math.max(Math.pow(most, c), Math.pow(most, d))));
+            result(-bound, bound);
+            return;
+        }
+        if (b < 0) {
+            result(Double.NaN, Double.NaN);
+            return;
+        }
+        a = Math.max(a, 0);
+        double p1 = Math.pow(a, c), p2 = Math.pow(a, d), p3 = Math.pow(b, c), p4 = Math.pow(b, d);
+        result(Math.max(0, Math.nextDown(Math.min(Math.min(p1, p2), Math.min(p3, p4)))),
+               Math.nextUp(Math.max(Math.max(p1, p2), Math.max(p3, p4))));
+    }
+
+    private void integerPower(double a, double b, int n) {
+        if (n == 0) {
+            result(1, 1);
+            return;
+        }
+        int m = Math.abs(n);
+        double pa = Math.pow(a, m), pb = Math.pow(b, m);
+        double l, h;
+        if (m % 2 == 1 || a >= 0) { // monotonic: odd power, or even power of a non-negative base
+            l = Math.min(pa, pb);
+            h = Math.max(pa, pb);
+        } else if (b <= 0) {
+            l = pb;
+            h = pa;
+        } else {                     // even power across zero
+            l = 0;
+            h = Math.max(pa, pb);
+        }
+        l = l == 0 ? 0 : Math.nextDown(l);
+        h = Math.nextUp(h);
+        if (m % 2 == 0) l = Math.max(0, l);
+        if (n > 0) result(l, h);
+        else divide(1, 1, l, h);
+    }
+
+    // Degrees to radians, enclosing the exact product with π/180
+    private void toRadians(double a, double b) {
+        double degree = DegreeTrig.RADIANS_PER_DEGREE;
+        multiply(a, b, Math.nextDown(degree), Math.nextUp(degree));
+    }
+
+    // Range of sin (peak at pi/2) or cos (peak at 0) over [a, b]: the endpoint values,
+    // extended to 1 or -1 when a peak or trough lies inside
+    private void trig(double a, double b, double peak) {
+        if (isEmpty(a, b)) {
+            result(Double.NaN, Double.NaN);
+            return;
+        }
+        if (b - a >= TWO_PI || Math.max(Math.abs(a), Math.abs(b)) > LARGE_ANGLE) {
+            result(-1, 1);
+            return;
+        }
+        boolean cosine = peak == 0;
+        double fa = cosine ? Math.cos(a) : Math.sin(a), fb = cosine ? Math.cos(b) : Math.sin(b);
+        double l = Math.max(-1, Math.nextDown(Math.min(fa, fb)));
+        double h = Math.min(1, Math.nextUp(Math.max(fa, fb)));
+        if (containsShift(a, b, peak)) h = 1;
+        if (containsShift(a, b, peak + Math.PI)) l = -1;
+        result(l, h);
+    }
+
+    // Whether some shift + 2kπ may lie in [a, b]; errs towards yes near the ends
+    private static boolean containsShift(double a, double b, double shift) {
+        double first = (a - shift) / TWO_PI, last = (b - shift) / TWO_PI;
+        return Math.ceil(first - PEAK_SLACK) <= Math.floor(last + PEAK_SLACK);
+    }
+
+    // tan increases between its poles at pi/2 + kπ; an interval reaching a pole is unbounded
+    private void tan(double a, double b) {
+        if (isEmpty(a, b)) {
+            result(Double.NaN, Double.NaN);
+            return;
+        }
+        if (b - a >= Math.PI || Math.max(Math.abs(a), Math.abs(b)) > LARGE_ANGLE
+                || containsShift(a, b, Math.PI / 2) || containsShift(a, b, -Math.PI / 2)) {
+            result(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+            return;
+        }
+        result(a == 0 ? 0 : Math.nextDown(Math.tan(a)), b == 0 ? 0 : Math.nextUp(Math.tan(b)));
+    }
+}
@@ -0,0 +1,527 @@
+package com.example.calculator.logic;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.IntStream;
+
+// A system of linear equations such as "2x + 3y = 5; x - y = 1", stored sparsely: each
+// equation keeps only its non-zero coefficients, with exact rational values (decimals are
+// taken as typed).
+//   - Up to EXACT_UNKNOWNS unknowns the system is solved exactly by fraction-free (Bareiss)
+//     elimination over the integers, which also gives the rank and tells unique,
+//     underdetermined and inconsistent systems apart.
+//   - Larger square systems are solved in double precision on a CSR (compressed sparse
+//     row) matrix: Jacobi-preconditioned conjugate gradients when the matrix is symmetric,
+//     restarted GMRES otherwise or when CG finds the matrix is not positive definite.
+public final class LinearSystem {
+    static final int EXACT_UNKNOWNS = 100;
+    static final int EXACT_EQUATIONS = 400;
+    private static final int GMRES_RESTART = 50;
+    private static final double TOLERANCE = 1e-12;   // relative residual of iterative solutions
+    private static final int PARALLEL_NONZEROS = 1 << 15;
+    private static final int PARALLEL_BAREISS = 1 << 12; // entries updated per elimination step
+
+    private final List<String> unknowns = new ArrayList<>();
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<int[]> columns = new ArrayList<>();          // per equation, ascending
+    private final List<BigFraction[]> coefficients = new ArrayList<>();
+    private final List<BigFraction> rightHandSides = new ArrayList<>();
+
+    public static final class Solution {
+        private final boolean consistent;
+        private final int rank;
+        private final String[] unknowns;
+        private final boolean[] free;
+        private final BigFraction[][] exact;   // per unknown: constant, then one coefficient per free unknown
+        private final double[] approximate;
+        private final String method;
+        private final int iterations;
+        private final double residual;
+
+        Solution(boolean consistent, int rank, String[] unknowns, boolean[] free, BigFraction[][] exact,
+                 double[] approximate, String method, int iterations, double residual) {
+            this.consistent = consistent;
+            this.rank = rank;
+            this.unknowns = unknowns;
+            this.free = free;
+            this.exact = exact;
+            this.approximate = approximate;
+            this.method = method;
+            this.iterations = iterations;
+            this.residual = residual;
+        }
+
+        public boolean isConsistent() { return consistent; }
+        public boolean isUnique() { return consistent && rank == unknowns.length; }
+        public boolean isExact() { return exact != null; }
+        // -1 for iterative solutions, which do not determine it
+        public int getRank() { return rank; }
+        public String[] getUnknowns() { return unknowns.clone(); }
+        public boolean isFree(int unknown) { return free[unknown]; }
+        public String getMethod() { return method; }
+        public int getIterations() { return iterations; }
+        public double getResidual() { return residual; }
+
+        public double getValue(int unknown) {
+            return exact != null ? exact[unknown][0].toDouble() : approximate[unknown];
+        }
+
+        // The exact value of a unique solution, or the particular solution with all free
+        // unknowns set to zero
+        public BigFraction getExactValue(int unknown) {
+            return exact[unknown][0];
+        }
+
+        // unknown = constant + sum of coefficient * free unknown, e.g. "5/2 - (3/2)y"
+        public String formatExact(int unknown) {
+            if (free[unknown]) return unknowns[unknown];
+            BigFraction[] row = exact[unknown];
+            StringBuilder sb = new StringBuilder();
+            int parameter = 0;
+            for (int j = 0; j < unknowns.length; j++) {
+                if (!free[j]) continue;
+                BigFraction c = row[1 + parameter++];
+                if (c.isZero()) continue;
+                if (sb.length() > 0) sb.append(c.signum() > 0 ? " + " : " - ");
+                else if (c.signum() < 0) sb.append("-");
+                BigFraction abs = c.abs();
+                if (!abs.equals(BigFraction.ONE)) sb.append(abs.isInteger() ? abs.toString() : "(" + abs + ")");
+                sb.append(unknowns[j]);
+            }
+            BigFraction constant = row[0];
+            if (sb.length() == 0) return constant.toString();
+            if (!constant.isZero()) return constant + (sb.charAt(0) == '-' ? " - " + sb.substring(1) : " + " + sb);
+            return sb.toString();
+        }
+    }
+
+    // Sparse linear form: constant + sum of terms.get(id) * unknown id
+    private static final class LinearForm {
+        final BigFraction constant;
+        final Map<Integer, BigFraction> terms;
+
+        LinearForm(BigFraction constant, Map<Integer, BigFraction> terms) {
+            this.constant = constant;
+            this.terms = terms;
+        }
+
+        boolean isConstant() {
+            return terms.isEmpty();
+        }
+
+        LinearForm add(LinearForm other, boolean subtract) {
+            Map<Integer, BigFraction> sum = new TreeMap<>(terms);
+            for (Map.Entry<Integer, BigFraction> e : other.terms.entrySet()) {
+                BigFraction c = subtract ? e.getValue().negate() : e.getValue();
+                BigFraction previous = sum.get(e.getKey());
+                BigFraction total = previous == null ? c : previous.add(c);
+                if (total.isZero()) sum.remove(e.getKey());
+                else sum.put(e.getKey(), total);
+            }
+            return new LinearForm(subtract ? constant.subtract(other.constant) : constant.add(other.constant), sum);
+        }
+
+        LinearForm scale(BigFraction factor) {
+            Map<Integer, BigFraction> scaled = new TreeMap<>();
+            if (!factor.isZero()) for (Map.Entry<Integer, BigFraction> e : terms.entrySet()) scaled.put(e.getKey(), e.getValue().multiply(factor));
+            return new LinearForm(constant.multiply(factor), scaled);
+        }
+    }
+
+    // Equations separated by ';' or line breaks. A part without '=' means "= 0".
+    public static LinearSystem parse(String text) {
+        LinearSystem system = new LinearSystem();
+        for (String part : text.split("[;\\n]")) {
+            if (part.trim().isEmpty()) continue;
+            system.addEquation(ExpressionParser.parse(part));
+        }
+        if (system.rightHandSides.isEmpty()) throw new IllegalArgumentException("Empty system");
+        return system;
+    }
+
+    // True when every part of the text parses as a linear equation
+    public static boolean isLinear(String text) {
+        try {
+            parse(text);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    public void addEquation(ExpressionTree tree) {
+        int root = tree.root();
+        LinearForm form = tree.kind(root) == ExpressionTree.EQUATION
+            ? linearForm(tree, tree.left(root)).add(linearForm(tree, tree.right(root)), true)
+            : linearForm(tree, root);
+        int[] cols = new int[form.terms.size()];
+        BigFraction[] values = new BigFraction[cols.length];
+        int k = 0;
+        for (Map.Entry<Integer, BigFraction> e : form.terms.entrySet()) {
+            cols[k] = e.getKey();
+            values[k++] = e.getValue();
+        }
+        columns.add(cols);
+        coefficients.add(values);
+        rightHandSides.add(form.constant.negate());
+    }
+
+    public int getEquationCount() {
+        return rightHandSides.size();
+    }
+
+    public int getUnknownCount() {
+        return unknowns.size();
+    }
+
+    public String[] getUnknowns() {
+        return unknowns.toArray(new String[0]);
+    }
+
+    private LinearForm linearForm(ExpressionTree tree, int node) {
+        switch (tree.kind(node)) {
+            case ExpressionTree.NUMBER:
+                return constant(BigFraction.valueOf(tree.number(node)));
+            case ExpressionTree.IDENTIFIER: {
+                String name = tree.name(node);
+                if (name.equalsIgnoreCase("pi") || name.equals("π")) return constant(BigFraction.valueOf(Math.PI));
+                if (name.equalsIgnoreCase("e")) return constant(BigFraction.valueOf(Math.E));
+                Integer id = ids.get(name);
+                if (id == null) {
+                    id = unknowns.size();
+                    ids.put(name, id);
+                    unknowns.add(name);
+                }
+                Map<Integer, BigFraction> terms = new TreeMap<>();
+                terms.put(id, BigFraction.ONE);
+                return new LinearForm(BigFraction.ZERO, terms);
+            }
+            case ExpressionTree.NEGATE:
+                return linearForm(tree, tree.firstChild(node)).scale(BigFraction.ONE.negate());
+            case ExpressionTree.ADD:
+            case ExpressionTree.SUBTRACT:
+                return linearForm(tree, tree.left(node)).add(linearForm(tree, tree.right(node)), tree.kind(node) == ExpressionTree.SUBTRACT);
+            case ExpressionTree.MULTIPLY: {
+                LinearForm a = linearForm(tree, tree.left(node));
+                LinearForm b = linearForm(tree, tree.right(node));
+                if (a.isConstant()) return b.scale(a.constant);
+                if (b.isConstant()) return a.scale(b.constant);
+                throw tree.error(node, "Not linear: product of unknowns");
+            }
+            case ExpressionTree.DIVIDE: {
+                LinearForm b = linearForm(tree, tree.right(node));
+                if (!b.isConstant()) throw tree.error(node, "Not linear: division by an unknown");
+                if (b.constant.isZero()) throw new ArithmeticException("Division by zero");
+                return linearForm(tree, tree.left(node)).scale(b.constant.reciprocal());
+            }
+            case ExpressionTree.POWER: {
+                LinearForm exponent = linearForm(tree, tree.right(node));
+                if (!exponent.isConstant() || !exponent.constant.isInteger() || exponent.constant.getNumerator().bitLength() > 11) {
+                    throw tree.error(node, "Not linear: exponent must be a small integer");
+                }
+                int e = exponent.constant.getNumerator().intValue();
+                LinearForm base = linearForm(tree, tree.left(node));
+                if (base.isConstant()) {
+                    if (e < 0 && base.constant.isZero()) throw new ArithmeticException("0 to negative power");
+                    BigFraction b = e < 0 ? base.constant.reciprocal() : base.constant;
+                    BigFraction power = BigFraction.ONE;
+                    for (int i = 0; i < Math.abs(e); i++) power = power.multiply(b);
+                    return constant(power);
+                }
+                if (e == 0) return constant(BigFraction.ONE);
+                if (e == 1) return base;
+                throw tree.error(node, "Not linear: power of an unknown");
+            }
+            case ExpressionTree.CALL:
+                throw tree.error(node, "Not linear: " + tree.name(node) + "()");
+            default:
+                throw tree.error(node, "Not a linear equation");
+        }
+    }
+
+    private static LinearForm constant(BigFraction value) {
+        return new LinearForm(value, new TreeMap<>());
+    }
+
+    public Solution solve() {
+        if (unknowns.isEmpty()) throw new IllegalArgumentException("The system has no unknowns");
+        if (unknowns.size() <= EXACT_UNKNOWNS && rightHandSides.size() <= EXACT_EQUATIONS) return solveExactly();
+        return solveIteratively();
+    }
+
+    // --- Exact: Bareiss elimination ---
+
+    // Every row is scaled to integers, then reduced to echelon form fraction-free: after
+    // step k each entry is a (k+1)×(k+1) minor, so dividing by the previous pivot is exact
+    // and entries grow only linearly in size. The augmented column takes part, so a pivot
+    // there marks an inconsistent system.
+    private Solution solveExactly() {
+        int m = rightHandSides.size(), n = unknowns.size();
+        BigInteger[][] a = new BigInteger[m][n + 1];
+        for (int i = 0; i < m; i++) {
+            Arrays.fill(a[i], BigInteger.ZERO);
+            BigInteger scale = rightHandSides.get(i).getDenominator();
+            for (BigFraction c : coefficients.get(i)) scale = lcm(scale, c.getDenominator());
+            int[] cols = columns.get(i);
+            BigFraction[] values = coefficients.get(i);
+            for (int k = 0; k < cols.length; k++) a[i][cols[k]] = values[k].multiply(scale).getNumerator();
+            a[i][n] = rightHandSides.get(i).multiply(scale).getNumerator();
+        }
+        int[] pivotColumns = new int[Math.min(m, n + 1)];
+        int rank = 0;
+        BigInteger previous = BigInteger.ONE;
+        for (int c = 0; c <= n && rank < m; c++) {
+            int p = rank;
+            while (p < m && a[p][c].signum() == 0) p++;
+            if (p == m) continue;
+            BigInteger[] t = a[p]; a[p] = a[rank]; a[rank] = t;
+            final int r = rank, col = c;
+            final BigInteger divisor = previous;
+            IntStream rows = IntStream.range(r + 1, m);
+            ((long) (m - r) * (n + 1 - c) >= PARALLEL_BAREISS ? rows.parallel() : rows).forEach(i -> {
+                BigInteger pivot = a[r][col], factor = a[i][col];
+                for (int j = col + 1; j <= n; j++) {
+                    a[i][j] = pivot.multiply(a[i][j]).subtract(factor.multiply(a[r][j])).divide(divisor);
+                }
+                a[i][col] = BigInteger.ZERO;
+            });
+            previous = a[rank][c];
+            pivotColumns[rank++] = c;
+        }
+        String[] names = getUnknowns();
+        boolean[] free = new boolean[n];
+        Arrays.fill(free, true);
+        if (rank > 0 && pivotColumns[rank - 1] == n) {
+            return new Solution(false, rank - 1, names, free, null, null, "Bareiss elimination", 0, 0);
+        }
+        for (int k = 0; k < rank; k++) free[pivotColumns[k]] = false;
+        int[] parameterOf = new int[n];
+        int parameters = 0;
+        for (int j = 0; j < n; j++) parameterOf[j] = free[j] ? 1 + parameters++ : -1;
+
+        // Back substitution in rationals, each unknown as constant + combination of free unknowns
+        BigFraction[][] exact = new BigFraction[n][1 + parameters];
+        for (int j = 0; j < n; j++) {
+            Arrays.fill(exact[j], BigFraction.ZERO);
+            if (free[j]) exact[j][parameterOf[j]] = BigFraction.ONE;
+        }
+        for (int k = rank - 1; k >= 0; k--) {
+            int pc = pivotColumns[k];
+            BigFraction[] value = exact[pc];
+            value[0] = new BigFraction(a[k][n]);
+            for (int j = pc + 1; j < n; j++) {
+                if (a[k][j].signum() == 0) continue;
+                BigFraction factor = new BigFraction(a[k][j]);
+                for (int q = 0; q <= parameters; q++) {
+                    if (!exact[j][q].isZero()) value[q] = value[q].subtract(factor.multiply(exact[j][q]));
+                }
+            }
+            BigFraction pivot = new BigFraction(a[k][pc]);
+            for (int q = 0; q <= parameters; q++) value[q] = value[q].divide(pivot);
+        }
+        return new Solution(true, rank, names, free, exact, null, "Bareiss elimination", 0, 0);
+    }
+
+    private static BigInteger lcm(BigInteger a, BigInteger b) {
+        return a.divide(a.gcd(b)).multiply(b);
+    }
+
+    // --- Iterative: CSR matrix, conjugate gradients or GMRES ---
+
+    private static final class CsrMatrix {
+        final int n;
+        final int[] rowStart;
+        final int[] columnIndex;
+        final double[] values;
+
+        CsrMatrix(int n, int[] rowStart, int[] columnIndex, double[] values) {
+            this.n = n;
+            this.rowStart = rowStart;
+            this.columnIndex = columnIndex;
+            this.values = values;
+        }
+
+        void multiply(double[] x, double[] y) {
+            IntStream rows = IntStream.range(0, n);
+            (values.length >= PARALLEL_NONZEROS ? rows.parallel() : rows).forEach(i -> {
+                double s = 0;
+                for (int k = rowStart[i]; k < rowStart[i + 1]; k++) s += values[k] * x[columnIndex[k]];
+                y[i] = s;
+            });
+        }
+
+        double get(int i, int j) {
+            int k = Arrays.binarySearch(columnIndex, rowStart[i], rowStart[i + 1], j);
+            return k < 0 ? 0 : values[k];
+        }
+
+        boolean isSymmetric() {
+            for (int i = 0; i < n; i++) {
+                for (int k = rowStart[i]; k < rowStart[i + 1]; k++) {
+                    if (get(columnIndex[k], i) != values[k]) return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private Solution solveIteratively() {
+        int m = rightHandSides.size(), n = unknowns.size();
+        if (m != n) {
+            throw new IllegalArgumentException("Systems with more than " + EXACT_UNKNOWNS + " unknowns need one equation per unknown (found "
+                                               + m + " equations in " + n + " unknowns)");
+        }
+        int nonzeros = 0;
+        for (int[] cols : columns) nonzeros += cols.length;
+        int[] rowStart = new int[n + 1];
+        int[] columnIndex = new int[nonzeros];
+        double[] values = new double[nonzeros];
+        double[] b = new double[n];
+        for (int i = 0, k = 0; i < n; i++) {
+            int[] cols = columns.get(i);
+            BigFraction[] coefficientRow = coefficients.get(i);
+            for (int q = 0; q < cols.length; q++, k++) {
+                columnIndex[k] = cols[q];
+                values[k] = coefficientRow[q].toDouble();
+            }
+            rowStart[i + 1] = k;
+            b[i] = rightHandSides.get(i).toDouble();
+        }
+        CsrMatrix a = new CsrMatrix(n, rowStart, columnIndex, values);
+        double[] inverseDiagonal = new double[n];
+        for (int i = 0; i < n; i++) {
+            double d = a.get(i, i);
+            inverseDiagonal[i] = d == 0 ? 1 : 1 / d;
+        }
+        int maxIterations = Math.max(1000, 10 * n);
+        Solution solution = null;
+        if (a.isSymmetric()) solution = conjugateGradient(a, b, inverseDiagonal, maxIterations);
+        if (solution == null) solution = gmres(a, b, inverseDiagonal, maxIterations);
+        return solution;
+    }
+
+    // Preconditioned CG; null when a direction of non-positive curvature shows the matrix
+    // is not positive definite
+    private Solution conjugateGradient(CsrMatrix a, double[] b, double[] inverseDiagonal, int maxIterations) {
+        int n = a.n;
+        double[] x = new double[n], r = b.clone(), z = new double[n], p = new double[n], q = new double[n];
+        double bNorm = norm(b);
+        if (bNorm == 0) return iterativeSolution(x, "conjugate gradients", 0, 0);
+        for (int i = 0; i < n; i++) z[i] = inverseDiagonal[i] * r[i];
+        System.arraycopy(z, 0, p, 0, n);
+        double rz = dot(r, z);
+        for (int iteration = 1; iteration <= maxIterations; iteration++) {
+            a.multiply(p, q);
+            double curvature = dot(p, q);
+            if (!(curvature > 0)) return null;
+            double alpha = rz / curvature;
+            for (int i = 0; i < n; i++) {
+                x[i] += alpha * p[i];
+                r[i] -= alpha * q[i];
+            }
+            double residual = norm(r) / bNorm;
+            if (residual <= TOLERANCE) return iterativeSolution(x, "conjugate gradients", iteration, residual);
+            for (int i = 0; i < n; i++) z[i] = inverseDiagonal[i] * r[i];
+            double rzNext = dot(r, z);
+            double beta = rzNext / rz;
+            rz = rzNext;
+            for (int i = 0; i < n; i++) p[i] = z[i] + beta * p[i];
+        }
+        return null;
+    }
+
+    // Restarted GMRES with right Jacobi preconditioning: minimizes the true residual over
+    // each Krylov space, with Givens rotations keeping the least-squares problem triangular
+    private Solution gmres(CsrMatrix a, double[] b, double[] inverseDiagonal, int maxIterations) {
+        int n = a.n;
+        double[] x = new double[n];
+        double bNorm = norm(b);
+        if (bNorm == 0) return iterativeSolution(x, "GMRES", 0, 0);
+        int restart = Math.min(GMRES_RESTART, n);
+        double[][] v = new double[restart + 1][n];
+        double[][] h = new double[restart + 1][restart];
+        double[] cs = new double[restart], sn = new double[restart], g = new double[restart + 1];
+        double[] w = new double[n], z = new double[n];
+        int iterations = 0;
+        double residual = 1;
+        while (iterations < maxIterations) {
+            a.multiply(x, w);
+            for (int i = 0; i < n; i++) v[0][i] = b[i] - w[i];
+            double beta = norm(v[0]);
+            residual = beta / bNorm;
+            if (residual <= TOLERANCE) return iterativeSolution(x, "GMRES", iterations, residual);
+            for (int i = 0; i < n; i++) v[0][i] /= beta;
+            Arrays.fill(g, 0);
+            g[0] = beta;
+            int k = 0;
+            for (; k < restart && iterations < maxIterations; k++, iterations++) {
+                for (int i = 0; i < n; i++) z[i] = inverseDiagonal[i] * v[k][i];
+                a.multiply(z, w);
+                // Modified Gram-Schmidt against the basis so far
+                for (int j = 0; j <= k; j++) {
+                    h[j][k] = dot(w, v[j]);
+                    for (int i = 0; i < n; i++) w[i] -= h[j][k] * v[j][i];
+                }
+                h[k + 1][k] = norm(w);
+                if (h[k + 1][k] != 0) for (int i = 0; i < n; i++) v[k + 1][i] = w[i] / h[k + 1][k];
+                for (int j = 0; j < k; j++) {
+                    double t = cs[j] * h[j][k] + sn[j] * h[j + 1][k];
+                    h[j + 1][k] = -sn[j] * h[j][k] + cs[j] * h[j + 1][k];
+                    h[j][k] = t;
+                }
+                double d = Math.hypot(h[k][k], h[k + 1][k]);
+                if (d == 0) break; // singular Hessenberg: the Krylov space cannot reach b
+                cs[k] = h[k][k] / d;
+                sn[k] = h[k + 1][k] / d;
+                h[k][k] = d;
+                h[k + 1][k] = 0;
+                g[k + 1] = -sn[k] * g[k];
+                g[k] = cs[k] * g[k];
+                if (Math.abs(g[k + 1]) / bNorm <= TOLERANCE) {
+                    k++;
+                    iterations++;
+                    break;
+                }
+            }
+            if (k == 0) break;
+            // Solve the triangular system for the update and apply the preconditioner
+            double[] y = new double[k];
+            for (int j = k - 1; j >= 0; j--) {
+                double s = g[j];
+                for (int l = j + 1; l < k; l++) s -= h[j][l] * y[l];
+                y[j] = s / h[j][j];
+            }
+            for (int i = 0; i < n; i++) {
+                double s = 0;
+                for (int j = 0; j < k; j++) s += y[j] * v[j][i];
+                x[i] += inverseDiagonal[i] * s;
+            }
+        }
+        a.multiply(x, w);
+        double[] r = new double[n];
+        for (int i = 0; i < n; i++) r[i] = b[i] - w[i];
+        residual = norm(r) / bNorm;
+        if (residual <= TOLERANCE) return iterativeSolution(x, "GMRES", iterations, residual);
+        throw new ArithmeticException("GMRES did not converge after " + iterations + " iterations (relative residual "
+                                      + String.format("%.1e", residual) + "); the system may be singular");
+    }
+
+    private Solution iterativeSolution(double[] x, String method, int iterations, double residual) {
+        return new Solution(true, -1, getUnknowns(), new boolean[x.length], null, x, method, iterations, residual);
+    }
+
+    private static double dot(double[] a, double[] b) {
+        double s = 0;
+        for (int i = 0; i < a.length; i++) s += a[i] * b[i];
+        return s;
+    }
+
+    private static double norm(double[] a) {
+        return Math.sqrt(dot(a, a));
+    }
+}
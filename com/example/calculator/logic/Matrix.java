@@ -0,0 +1,323 @@
+package com.example.calculator.logic;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+// Dense real matrix, stored row-major in one flat double[] (entry (i, j) at i * cols + j),
+// which keeps rows contiguous for the inner loops below.
+//   - multiply() is cache-blocked: a block of rows of A times a panel of B accumulates into
+//     a block of C, i-k-j order so the innermost loop streams along rows.
+//   - LU decomposition with partial pivoting backs det, inv and solve.
+// Above PARALLEL_THRESHOLD the row blocks of a product and the row updates of an
+// elimination step are spread over the common fork/join pool.
+// Instances are immutable.
+public final class Matrix {
+    static final int PARALLEL_THRESHOLD = 128;  // rows (or inner dimension) at which work goes parallel
+    private static final int ROW_BLOCK = 64;
+    private static final int INNER_BLOCK = 128;
+    private static final int COLUMN_BLOCK = 512;
+
+    private final int rows;
+    private final int cols;
+    private final double[] data;
+
+    // Trusted: data is not copied
+    private Matrix(int rows, int cols, double[] data) {
+        this.rows = rows;
+        this.cols = cols;
+        this.data = data;
+    }
+
+    // Entries in row-major order
+    public static Matrix of(int rows, int cols, double... entries) {
+        if (rows < 1 || cols < 1) throw new IllegalArgumentException("A matrix needs at least one row and one column");
+        if (entries.length != rows * cols) {
+            throw new IllegalArgumentException("Expected " + rows * cols + " entries, found " + entries.length);
+        }
+        return new Matrix(rows, cols, entries.clone());
+    }
+
+    public static Matrix identity(int n) {
+        double[] d = new double[n * n];
+        for (int i = 0; i < n; i++) d[i * n + i] = 1;
+        return new Matrix(n, n, d);
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getColumns() {
+        return cols;
+    }
+
+    public double get(int row, int column) {
+        return data[row * cols + column];
+    }
+
+    public double[] toArray() {
+        return data.clone();
+    }
+
+    public boolean isSquare() {
+        return rows == cols;
+    }
+
+    // --- Element-wise ---
+
+    public Matrix add(Matrix other) {
+        checkSameShape(other, "add");
+        double[] r = new double[data.length];
+        for (int i = 0; i < r.length; i++) r[i] = data[i] + other.data[i];
+        return new Matrix(rows, cols, r);
+    }
+
+    public Matrix subtract(Matrix other) {
+        checkSameShape(other, "subtract");
+        double[] r = new double[data.length];
+        for (int i = 0; i < r.length; i++) r[i] = data[i] - other.data[i];
+        return new Matrix(rows, cols, r);
+    }
+
+    public Matrix scale(double factor) {
+        double[] r = new double[data.length];
+        for (int i = 0; i < r.length; i++) r[i] = data[i] * factor;
+        return new Matrix(rows, cols, r);
+    }
+
+    public Matrix negate() {
+        return scale(-1);
+    }
+
+    public Matrix transpose() {
+        double[] r = new double[data.length];
+        // Tiled, so neither side is read with a stride larger than a tile
+        for (int ii = 0; ii < rows; ii += ROW_BLOCK) {
+            for (int jj = 0; jj < cols; jj += ROW_BLOCK) {
+                for (int i = ii; i < Math.min(rows, ii + ROW_BLOCK); i++) {
+                    for (int j = jj; j < Math.min(cols, jj + ROW_BLOCK); j++) r[j * rows + i] = data[i * cols + j];
+                }
+            }
+        }
+        return new Matrix(cols, rows, r);
+    }
+
+    // --- Products ---
+
+    public Matrix multiply(Matrix other) {
+        if (cols != other.rows) {
+            throw new IllegalArgumentException("Cannot multiply a " + shape() + " matrix by a " + other.shape() + " matrix");
+        }
+        int n = rows, inner = cols, m = other.cols;
+        double[] c = new double[n * m];
+        double[] a = data, b = other.data;
+        int blocks = (n + ROW_BLOCK - 1) / ROW_BLOCK;
+        IntStream range = IntStream.range(0, blocks);
+        boolean parallel = blocks > 1 && Math.max(n, Math.max(inner, m)) >= PARALLEL_THRESHOLD;
+        (parallel ? range.parallel() : range).forEach(block -> {
+            int i0 = block * ROW_BLOCK, i1 = Math.min(n, i0 + ROW_BLOCK);
+            for (int kk = 0; kk < inner; kk += INNER_BLOCK) {
+                int k1 = Math.min(inner, kk + INNER_BLOCK);
+                for (int jj = 0; jj < m; jj += COLUMN_BLOCK) {
+                    int j1 = Math.min(m, jj + COLUMN_BLOCK);
+                    for (int i = i0; i < i1; i++) {
+                        int ci = i * m;
+                        for (int k = kk; k < k1; k++) {
+                            double aik = a[i * inner + k];
+                            if (aik == 0) continue;
+                            int bk = k * m;
+                            for (int j = jj; j < j1; j++) c[ci + j] += aik * b[bk + j];
+                        }
+                    }
+                }
+            }
+        });
+        return new Matrix(n, m, c);
+    }
+
+    // The textbook i-j-k triple loop, for comparison in MatrixBenchmark
+    static Matrix multiplyNaive(Matrix a, Matrix b) {
+        int n = a.rows, inner = a.cols, m = b.cols;
+        double[] c = new double[n * m];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < m; j++) {
+                double s = 0;
+                for (int k = 0; k < inner; k++) s += a.data[i * inner + k] * b.data[k * m + j];
+                c[i * m + j] = s;
+            }
+        }
+        return new Matrix(n, m, c);
+    }
+
+    // this^exponent by repeated squaring; negative exponents invert first
+    public Matrix power(int exponent) {
+        checkSquare("raise to a power");
+        Matrix base = exponent < 0 ? inverse() : this;
+        long e = Math.abs((long) exponent);
+        Matrix result = identity(rows);
+        while (e > 0) {
+            if ((e & 1) != 0) result = result.multiply(base);
+            e >>= 1;
+            if (e > 0) base = base.multiply(base);
+        }
+        return result;
+    }
+
+    // --- LU based ---
+
+    public double determinant() {
+        checkSquare("take the determinant of");
+        LU lu = new LU(this);
+        double det = lu.sign;
+        for (int i = 0; i < rows; i++) det *= lu.lu[i * rows + i];
+        return det;
+    }
+
+    public Matrix inverse() {
+        checkSquare("invert");
+        return new LU(this).solve(identity(rows));
+    }
+
+    // X with this * X = rhs. A row vector of the right length counts as a column, and the
+    // solution comes back in the same orientation.
+    public Matrix solve(Matrix rhs) {
+        checkSquare("solve with");
+        if (rhs.rows == 1 && rhs.cols == rows && rows > 1) return solve(rhs.transpose()).transpose();
+        if (rhs.rows != rows) {
+            throw new IllegalArgumentException("Right-hand side must have " + rows + " rows, found " + rhs.shape());
+        }
+        return new LU(this).solve(rhs);
+    }
+
+    // PA = LU with unit lower triangular L and upper triangular U, stored together in lu
+    private static final class LU {
+        final int n;
+        final double[] lu;
+        final int[] permutation; // row i of PA is row permutation[i] of A
+        int sign = 1;
+        boolean singular;
+
+        LU(Matrix a) {
+            n = a.rows;
+            lu = a.data.clone();
+            permutation = new int[n];
+            for (int i = 0; i < n; i++) permutation[i] = i;
+            double scale = 0;
+            for (double v : lu) scale = Math.max(scale, Math.abs(v));
+            double tiny = n * Math.ulp(1.0) * scale;
+            for (int k = 0; k < n; k++) {
+                int pivot = k;
+                for (int i = k + 1; i < n; i++) if (Math.abs(lu[i * n + k]) > Math.abs(lu[pivot * n + k])) pivot = i;
+                if (pivot != k) {
+                    swapRows(k, pivot);
+                    int t = permutation[k]; permutation[k] = permutation[pivot]; permutation[pivot] = t;
+                    sign = -sign;
+                }
+                double p = lu[k * n + k];
+                if (Math.abs(p) <= tiny) {
+                    singular = true;
+                    if (p == 0) continue; // column already eliminated; nothing to divide by
+                }
+                final int col = k;
+                IntStream range = IntStream.range(k + 1, n);
+                (n - k >= PARALLEL_THRESHOLD ? range.parallel() : range).forEach(i -> eliminate(i, col));
+            }
+        }
+
+        // Row i -= l_ik * row k, leaving l_ik in place of the eliminated entry
+        private void eliminate(int i, int k) {
+            int ri = i * n, rk = k * n;
+            double factor = lu[ri + k] / lu[rk + k];
+            lu[ri + k] = factor;
+            if (factor == 0) return;
+            for (int j = k + 1; j < n; j++) lu[ri + j] -= factor * lu[rk + j];
+        }
+
+        private void swapRows(int a, int b) {
+            for (int j = 0; j < n; j++) {
+                double t = lu[a * n + j];
+                lu[a * n + j] = lu[b * n + j];
+                lu[b * n + j] = t;
+            }
+        }
+
+        // Forward and back substitution, one right-hand-side column per task
+        Matrix solve(Matrix rhs) {
+            if (singular) throw new ArithmeticException("Matrix is singular");
+            int m = rhs.cols;
+            double[] x = new double[n * m];
+            IntStream range = IntStream.range(0, m);
+            (n >= PARALLEL_THRESHOLD && m > 1 ? range.parallel() : range).forEach(c -> {
+                double[] y = new double[n];
+                for (int i = 0; i < n; i++) {
+                    double s = rhs.data[permutation[i] * m + c];
+                    for (int j = 0; j < i; j++) s -= lu[i * n + j] * y[j];
+                    y[i] = s;
+                }
+                for (int i = n - 1; i >= 0; i--) {
+                    double s = y[i];
+                    for (int j = i + 1; j < n; j++) s -= lu[i * n + j] * y[j];
+                    y[i] = s / lu[i * n + i];
+                }
+                for (int i = 0; i < n; i++) x[i * m + c] = y[i];
+            });
+            return new Matrix(n, m, x);
+        }
+    }
+
+    // --- Helpers ---
+
+    private String shape() {
+        return rows + "×" + cols;
+    }
+
+    private void checkSameShape(Matrix other, String operation) {
+        if (rows != other.rows || cols != other.cols) {
+            throw new IllegalArgumentException("Cannot " + operation + " a " + shape() + " and a " + other.shape() + " matrix");
+        }
+    }
+
+    private void checkSquare(String operation) {
+        if (!isSquare()) throw new IllegalArgumentException("Cannot " + operation + " a non-square " + shape() + " matrix");
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Matrix that = (Matrix) o;
+        return rows == that.rows && cols == that.cols && Arrays.equals(data, that.data);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * rows + cols) + Arrays.hashCode(data);
+    }
+
+    // [[1, 2], [3, 4]], or [1, 2] for a single row: the same syntax the parser reads
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        if (rows > 1) sb.append('[');
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append('[');
+            for (int j = 0; j < cols; j++) {
+                if (j > 0) sb.append(", ");
+                sb.append(formatEntry(data[i * cols + j]));
+            }
+            sb.append(']');
+        }
+        if (rows > 1) sb.append(']');
+        return sb.toString();
+    }
+
+    private static String formatEntry(double v) {
+        if (v == Math.rint(v) && Math.abs(v) < 1e15) return String.valueOf((long) v);
+        String text = String.format("%.10g", v);
+        int exponent = text.indexOf('e');
+        String mantissa = exponent < 0 ? text : text.substring(0, exponent);
+        if (mantissa.indexOf('.') >= 0) mantissa = mantissa.replaceAll("\\.?0+$", "");
+        return exponent < 0 ? mantissa : mantissa + text.substring(exponent);
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.calculator.logic;
+
+import java.util.SplittableRandom;
+
+// Times Matrix.multiply against the textbook triple loop on random n×n matrices:
+//
+//   java com.example.calculator.logic.MatrixBenchmark [n] [repetitions]
+//
+// n defaults to 2000. Each side gets a warm-up run, then the best of the repetitions is
+// reported in GFLOP/s (2n^3 floating point operations per product), together with the
+// largest difference between the two results.
+public final class MatrixBenchmark {
+    private MatrixBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int repetitions = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        SplittableRandom random = new SplittableRandom(42);
+        Matrix a = randomMatrix(n, random);
+        Matrix b = randomMatrix(n, random);
+        System.out.println(n + "×" + n + " multiply, " + Runtime.getRuntime().availableProcessors() + " processors");
+
+        Matrix naive = Matrix.multiplyNaive(a, b);
+        double naiveSeconds = Double.MAX_VALUE;
+        for (int r = 0; r < repetitions; r++) {
+            long start = System.nanoTime();
+            naive = Matrix.multiplyNaive(a, b);
+            naiveSeconds = Math.min(naiveSeconds, (System.nanoTime() - start) / 1e9);
+        }
+        report("naive triple loop", n, naiveSeconds);
+
+        Matrix blocked = a.multiply(b);
+        double blockedSeconds = Double.MAX_VALUE;
+        for (int r = 0; r < repetitions; r++) {
+            long start = System.nanoTime();
+            blocked = a.multiply(b);
+            blockedSeconds = Math.min(blockedSeconds, (System.nanoTime() - start) / 1e9);
+        }
+        report("blocked, parallel", n, blockedSeconds);
+
+        double difference = 0;
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) difference = Math.max(difference, Math.abs(naive.get(i, j) - blocked.get(i, j)));
+        }
+        System.out.printf("speedup %.1f×, max difference %.3g%n", naiveSeconds / blockedSeconds, difference);
+    }
+
+    private static Matrix randomMatrix(int n, SplittableRandom random) {
+        double[] entries = new double[n * n];
+        for (int i = 0; i < entries.length; i++) entries[i] = random.nextDouble() * 2 - 1;
+        return Matrix.of(n, n, entries);
+    }
+
+    private static void report(String label, int n, double seconds) {
+        System.out.printf("%-18s %8.3f s %8.2f GFLOP/s%n", label, seconds, 2.0 * n * n * n / seconds / 1e9);
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.calculator.logic;
+
+import java.util.Arrays;
+
+// Open-addressing hash map from packed monomials to coefficients, with linear probing
+// over primitive arrays. Used as the accumulator when adding or multiplying sparse
+// polynomials so no boxed keys or entry objects are created per term.
+final class MonomialMap {
+    private static final long EMPTY = -1L; // guard bits set: never a valid monomial
+
+    private long[] keys;
+    private double[] values;
+    private int size;
+
+    MonomialMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+        keys = new long[capacity];
+        values = new double[capacity];
+        Arrays.fill(keys, EMPTY);
+    }
+
+    void add(long monomial, double coefficient) {
+        if (coefficient == 0) return;
+        int mask = keys.length - 1;
+        int i = hash(monomial) & mask;
+        while (true) {
+            long k = keys[i];
+            if (k == monomial) {
+                values[i] += coefficient;
+                return;
+            }
+            if (k == EMPTY) {
+                keys[i] = monomial;
+                values[i] = coefficient;
+                if (++size * 2 > keys.length) grow();
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    long keyAt(int slot) {
+        return keys[slot];
+    }
+
+    double valueAt(int slot) {
+        return values[slot];
+    }
+
+    int capacity() {
+        return keys.length;
+    }
+
+    boolean isOccupied(int slot) {
+        return keys[slot] != EMPTY;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        double[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new double[oldKeys.length * 2];
+        Arrays.fill(keys, EMPTY);
+        int mask = keys.length - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] == EMPTY) continue;
+            int i = hash(oldKeys[j]) & mask;
+            while (keys[i] != EMPTY) i = (i + 1) & mask;
+            keys[i] = oldKeys[j];
+            values[i] = oldValues[j];
+        }
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L; // Fibonacci hashing spreads the packed fields
+        return (int) (h ^ (h >>> 32));
+    }
+}
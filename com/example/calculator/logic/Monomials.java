@@ -0,0 +1,64 @@
+package com.example.calculator.logic;
+
+// Packed exponent vectors. A monomial over up to MAX_VARIABLES variables is a single long:
+// variable id v owns the 10-bit field starting at bit 10 * (MAX_VARIABLES - 1 - v), so
+// variable 0 sits in the most significant field and comparing packed values compares
+// monomials lexicographically. The top bit of every field is a guard bit that is never
+// set in a valid monomial, which makes multiplication a single add plus an overflow check.
+final class Monomials {
+    static final int MAX_VARIABLES = 6;
+    static final int MAX_EXPONENT = 511;
+    static final long ONE = 0L; // the empty monomial (all exponents zero)
+
+    private static final int FIELD_BITS = 10;
+    private static final long FIELD_MASK = (1L << FIELD_BITS) - 1;
+    private static final long GUARD_MASK;
+    static {
+        long guards = 0;
+        for (int v = 0; v < MAX_VARIABLES; v++) guards |= 1L << (shift(v) + FIELD_BITS - 1);
+        GUARD_MASK = guards;
+    }
+
+    private Monomials() {
+    }
+
+    private static int shift(int variable) {
+        return FIELD_BITS * (MAX_VARIABLES - 1 - variable);
+    }
+
+    static long of(int variable, int exponent) {
+        if (exponent < 0 || exponent > MAX_EXPONENT) {
+            throw new ArithmeticException("Exponent out of range (0.." + MAX_EXPONENT + "): " + exponent);
+        }
+        return ((long) exponent) << shift(variable);
+    }
+
+    static int exponent(long monomial, int variable) {
+        return (int) ((monomial >>> shift(variable)) & FIELD_MASK);
+    }
+
+    static long multiply(long a, long b) {
+        long product = a + b; // fields cannot carry into each other while guards stay clear
+        if ((product & GUARD_MASK) != 0) {
+            throw new ArithmeticException("Exponent overflow (maximum " + MAX_EXPONENT + ")");
+        }
+        return product;
+    }
+
+    static long withExponent(long monomial, int variable, int exponent) {
+        return (monomial & ~(FIELD_MASK << shift(variable))) | of(variable, exponent);
+    }
+
+    static int totalDegree(long monomial) {
+        int degree = 0;
+        for (int v = 0; v < MAX_VARIABLES; v++) degree += exponent(monomial, v);
+        return degree;
+    }
+
+    // Graded lexicographic order, highest first: total degree, then lex on variable ids
+    static int compareDescending(long a, long b) {
+        int da = totalDegree(a), db = totalDegree(b);
+        if (da != db) return Integer.compare(db, da);
+        return Long.compare(b, a);
+    }
+}
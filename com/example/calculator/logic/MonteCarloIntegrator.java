@@ -0,0 +1,223 @@
+package com.example.calculator.logic;
+
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+// Integrals of compiled expressions over n-dimensional boxes by sampling, for dimensions
+// where nested quadrature is hopeless.
+//   - Monte Carlo: uniform pseudo-random points. The standard error comes from the sample
+//     variance and shrinks like 1/sqrt(N) whatever the dimension.
+//   - Quasi-Monte Carlo: a Sobol sequence (Joe-Kuo direction numbers, Gray code order),
+//     which fills the box far more evenly and usually converges close to 1/N for smooth
+//     integrands. A few independent random digital shifts of the sequence give
+//     replicates whose spread is the error estimate.
+// The samples are cut into fixed blocks that run in parallel on the common fork/join pool,
+// one tape per thread. Every block gets its own generator, split off the seeded root in
+// block order, and block sums are combined in block order, so a seed reproduces the same
+// estimate on any number of cores. rand() inside the integrand draws from the same
+// per-block generators.
+public final class MonteCarloIntegrator {
+    public static final long DEFAULT_SAMPLES = 1L << 20;
+    public static final int SOBOL_MAX_DIMENSION = 21;
+    private static final int BLOCK = 1 << 14;     // samples per parallel task
+    private static final int REPLICATES = 16;     // digital shifts for quasi-Monte Carlo
+    private static final long MAX_SAMPLES = 1L << 32;
+    private static final double TWO_TO_MINUS_32 = 1.0 / (1L << 32);
+
+    // Joe and Kuo's primitive polynomials and initial direction numbers for dimensions 2
+    // and up: degree s, interior coefficient bits a, then m_1 .. m_s
+    private static final int[][] SOBOL_PARAMETERS = {
+        {1, 0, 1},
+        {2, 1, 1, 3},
+        {3, 1, 1, 3, 1},
+        {3, 2, 1, 1, 1},
+        {4, 1, 1, 1, 3, 3},
+        {4, 4, 1, 3, 5, 13},
+        {5, 2, 1, 1, 5, 5, 17},
+        {5, 4, 1, 1, 5, 5, 5},
+        {5, 7, 1, 1, 7, 11, 19},
+        {5, 11, 1, 1, 5, 1, 1},
+        {5, 13, 1, 1, 1, 3, 11},
+        {5, 14, 1, 3, 5, 5, 31},
+        {6, 1, 1, 3, 3, 9, 7, 49},
+        {6, 13, 1, 1, 1, 15, 21, 21},
+        {6, 16, 1, 3, 1, 13, 27, 49},
+        {6, 19, 1, 1, 1, 15, 7, 5},
+        {6, 22, 1, 3, 1, 15, 13, 25},
+        {6, 25, 1, 1, 5, 5, 19, 61},
+        {7, 1, 1, 3, 7, 11, 23, 15, 103},
+        {7, 4, 1, 3, 7, 13, 13, 15, 69}
+    };
+    private static final int[][] DIRECTIONS = sobolDirections();
+
+    public static final class Result {
+        private final double estimate;
+        private final double standardError;
+        private final long samples;
+        private final double samplesPerSecond;
+        private final String method;
+
+        Result(double estimate, double standardError, long samples, double samplesPerSecond, String method) {
+            this.estimate = estimate;
+            this.standardError = standardError;
+            this.samples = samples;
+            this.samplesPerSecond = samplesPerSecond;
+            this.method = method;
+        }
+
+        public double getEstimate() { return estimate; }
+        public double getStandardError() { return standardError; }
+        public long getSamples() { return samples; }
+        public double getSamplesPerSecond() { return samplesPerSecond; }
+        public String getMethod() { return method; }
+    }
+
+    // Running mean and sum of squared deviations of a block of samples
+    private static final class Moments {
+        long count;
+        double mean, m2;
+
+        void add(double value) {
+            count++;
+            double delta = value - mean;
+            mean += delta / count;
+            m2 += delta * (value - mean);
+        }
+
+        // Chan et al.'s pairwise update, exact in the order it is applied
+        void merge(Moments other) {
+            if (other.count == 0) return;
+            long total = count + other.count;
+            double delta = other.mean - mean;
+            mean += delta * other.count / total;
+            m2 += other.m2 + delta * delta * ((double) count * other.count / total);
+            count = total;
+        }
+    }
+
+    // Integral of f over the box lower[i] <= x_i <= upper[i] (f's variable order) from
+    // about `samples` points. Quasi-Monte Carlo rounds the count to whole replicates of a
+    // power of two points, which is where Sobol points are balanced.
+    public Result integrate(CompiledExpression f, double[] lower, double[] upper, long samples, long seed, boolean quasi) {
+        int n = f.getVariableCount();
+        if (lower.length != n || upper.length != n) throw new IllegalArgumentException("Expected bounds for " + n + " variable(s)");
+        double volume = 1;
+        for (int i = 0; i < n; i++) {
+            if (!isFinite(lower[i]) || !isFinite(upper[i])) {
+                throw new IllegalArgumentException("Bounds of " + f.getVariables()[i] + " must be finite");
+            }
+            volume *= upper[i] - lower[i];
+        }
+        if (samples < 2 || samples > MAX_SAMPLES) throw new IllegalArgumentException("Sample count must be between 2 and " + MAX_SAMPLES);
+        if (quasi && n > SOBOL_MAX_DIMENSION) {
+            throw new IllegalArgumentException("Sobol points are available up to " + SOBOL_MAX_DIMENSION + " dimensions");
+        }
+        long started = System.nanoTime();
+        Result unit = quasi ? sobol(f, lower, upper, samples, seed) : pseudoRandom(f, lower, upper, samples, seed);
+        double seconds = Math.max(1e-9, (System.nanoTime() - started) / 1e9);
+        return new Result(unit.estimate * volume, unit.standardError * Math.abs(volume), unit.samples,
+                          unit.samples / seconds, unit.method);
+    }
+
+    // Mean of f over the box and its standard error
+    private Result pseudoRandom(CompiledExpression f, double[] lower, double[] upper, long samples, long seed) {
+        int blocks = (int) ((samples + BLOCK - 1) / BLOCK);
+        SplittableRandom root = new SplittableRandom(seed);
+        SplittableRandom[] generators = new SplittableRandom[blocks];
+        for (int b = 0; b < blocks; b++) generators[b] = root.split();
+        Moments[] parts = new Moments[blocks];
+        ThreadLocal<CompiledExpression> tapes = ThreadLocal.withInitial(f::copy);
+        IntStream.range(0, blocks).parallel().forEach(b -> {
+            CompiledExpression tape = tapes.get();
+            SplittableRandom random = generators[b];
+            tape.setRandom(random.split());
+            double[] point = new double[lower.length];
+            Moments m = new Moments();
+            long count = Math.min(BLOCK, samples - (long) b * BLOCK);
+            for (long k = 0; k < count; k++) {
+                for (int i = 0; i < point.length; i++) point[i] = lower[i] + (upper[i] - lower[i]) * random.nextDouble();
+                m.add(tape.evaluate(point));
+            }
+            parts[b] = m;
+        });
+        Moments total = new Moments();
+        for (Moments m : parts) total.merge(m);
+        double standardError = Math.sqrt(total.m2 / (total.count - 1) / total.count);
+        return new Result(total.mean, standardError, total.count, 0, "Monte Carlo");
+    }
+
+    // Mean over REPLICATES digitally shifted copies of the first 2^k Sobol points
+    private Result sobol(CompiledExpression f, double[] lower, double[] upper, long samples, long seed) {
+        int n = lower.length;
+        long perReplicate = Math.max(2, Long.highestOneBit(Math.max(2, samples / REPLICATES)));
+        int blocksPerReplicate = (int) ((perReplicate + BLOCK - 1) / BLOCK);
+        SplittableRandom root = new SplittableRandom(seed);
+        int[][] shifts = new int[REPLICATES][n];
+        SplittableRandom[] generators = new SplittableRandom[REPLICATES * blocksPerReplicate];
+        for (int r = 0; r < REPLICATES; r++) {
+            for (int i = 0; i < n; i++) shifts[r][i] = root.nextInt();
+            for (int b = 0; b < blocksPerReplicate; b++) generators[r * blocksPerReplicate + b] = root.split();
+        }
+        double[] sums = new double[generators.length];
+        ThreadLocal<CompiledExpression> tapes = ThreadLocal.withInitial(f::copy);
+        IntStream.range(0, generators.length).parallel().forEach(task -> {
+            CompiledExpression tape = tapes.get();
+            tape.setRandom(generators[task]);
+            int[] shift = shifts[task / blocksPerReplicate];
+            long from = (long) (task % blocksPerReplicate) * BLOCK;
+            long to = Math.min(perReplicate, from + BLOCK);
+            // Jump straight to point `from`, then walk in Gray code order: consecutive
+            // points differ by a single direction number per dimension
+            int[] x = new int[n];
+            long gray = from ^ (from >>> 1);
+            for (int bit = 0; gray != 0; bit++, gray >>>= 1) {
+                if ((gray & 1) != 0) for (int i = 0; i < n; i++) x[i] ^= DIRECTIONS[i][bit];
+            }
+            double[] point = new double[n];
+            double sum = 0;
+            for (long k = from; k < to; k++) {
+                for (int i = 0; i < n; i++) {
+                    // Midpoint of the 2^-32 cell, so no coordinate is exactly 0 or 1
+                    double u = ((x[i] ^ shift[i]) & 0xFFFFFFFFL) * TWO_TO_MINUS_32 + 0.5 * TWO_TO_MINUS_32;
+                    point[i] = lower[i] + (upper[i] - lower[i]) * u;
+                }
+                sum += tape.evaluate(point);
+                int bit = Long.numberOfTrailingZeros(k + 1);
+                for (int i = 0; i < n; i++) x[i] ^= DIRECTIONS[i][bit];
+            }
+            sums[task] = sum;
+        });
+        Moments replicates = new Moments();
+        for (int r = 0; r < REPLICATES; r++) {
+            double sum = 0;
+            for (int b = 0; b < blocksPerReplicate; b++) sum += sums[r * blocksPerReplicate + b];
+            replicates.add(sum / perReplicate);
+        }
+        double standardError = Math.sqrt(replicates.m2 / (REPLICATES - 1) / REPLICATES);
+        return new Result(replicates.mean, standardError, perReplicate * REPLICATES, 0,
+                          "quasi-Monte Carlo (Sobol, " + REPLICATES + " shifts)");
+    }
+
+    // 32-bit direction numbers v[i][k], the k-th bit's contribution to coordinate i
+    private static int[][] sobolDirections() {
+        int[][] v = new int[SOBOL_MAX_DIMENSION][33]; // one spare: the walk past the last point
+        for (int k = 0; k < 32; k++) v[0][k] = 1 << (31 - k); // van der Corput in base 2
+        for (int i = 1; i < SOBOL_MAX_DIMENSION; i++) {
+            int[] p = SOBOL_PARAMETERS[i - 1];
+            int s = p[0], a = p[1];
+            for (int k = 0; k < Math.min(s, 32); k++) v[i][k] = p[2 + k] << (31 - k);
+            for (int k = s; k < 32; k++) {
+                int next = v[i][k - s] ^ (v[i][k - s] >>> s);
+                for (int j = 1; j < s; j++) {
+                    if (((a >>> (s - 1 - j)) & 1) != 0) next ^= v[i][k - j];
+                }
+                v[i][k] = next;
+            }
+        }
+        return v;
+    }
+
+    private static boolean isFinite(double v) {
+        return !Double.isNaN(v) && !Double.isInfinite(v);
+    }
+}
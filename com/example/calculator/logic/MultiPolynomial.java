@@ -0,0 +1,317 @@
+package com.example.calculator.logic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Sparse multivariate polynomial with double coefficients. Each term is a packed
+// monomial (see Monomials) plus a coefficient, stored in two parallel arrays sorted in
+// graded lexicographic order. Variable names are interned once into a VariableTable and
+// never appear in the terms themselves. Instances are immutable.
+public final class MultiPolynomial {
+    private static final double ZERO_TOLERANCE = 1e-9; // same cut-off Polynomial uses
+
+    private final VariableTable variables;
+    private final long[] monomials;
+    private final double[] coefficients;
+
+    private MultiPolynomial(VariableTable variables, long[] monomials, double[] coefficients) {
+        this.variables = variables;
+        this.monomials = monomials;
+        this.coefficients = coefficients;
+    }
+
+    public static MultiPolynomial constant(double value, VariableTable variables) {
+        if (Math.abs(value) < ZERO_TOLERANCE) return new MultiPolynomial(variables, new long[0], new double[0]);
+        return new MultiPolynomial(variables, new long[]{Monomials.ONE}, new double[]{value});
+    }
+
+    public static MultiPolynomial variable(String name, VariableTable variables) {
+        int id = variables.intern(name);
+        return new MultiPolynomial(variables, new long[]{Monomials.of(id, 1)}, new double[]{1.0});
+    }
+
+    public VariableTable getVariables() {
+        return variables;
+    }
+
+    public int getTermCount() {
+        return monomials.length;
+    }
+
+    public boolean isZero() {
+        return monomials.length == 0;
+    }
+
+    public boolean isConstant() {
+        return monomials.length == 0 || (monomials.length == 1 && monomials[0] == Monomials.ONE);
+    }
+
+    public double getConstantValue() {
+        for (int i = monomials.length - 1; i >= 0; i--) {
+            if (monomials[i] == Monomials.ONE) return coefficients[i];
+        }
+        return 0.0;
+    }
+
+    public int getTotalDegree() {
+        return monomials.length == 0 ? -1 : Monomials.totalDegree(monomials[0]);
+    }
+
+    public int getDegree(String variable) {
+        int id = variables.idOf(variable);
+        if (id < 0) return monomials.length == 0 ? -1 : 0;
+        int degree = -1;
+        for (long m : monomials) degree = Math.max(degree, Monomials.exponent(m, id));
+        return degree;
+    }
+
+    // Ids of the variables that actually occur with a non-zero exponent
+    public int[] getUsedVariables() {
+        boolean[] used = new boolean[Monomials.MAX_VARIABLES];
+        int count = 0;
+        for (long m : monomials) {
+            for (int v = 0; v < variables.size(); v++) {
+                if (!used[v] && Monomials.exponent(m, v) > 0) {
+                    used[v] = true;
+                    count++;
+                }
+            }
+        }
+        int[] result = new int[count];
+        int k = 0;
+        for (int v = 0; v < used.length; v++) if (used[v]) result[k++] = v;
+        return result;
+    }
+
+    double getCoefficient(long monomial) {
+        for (int i = 0; i < monomials.length; i++) {
+            if (monomials[i] == monomial) return coefficients[i];
+        }
+        return 0.0;
+    }
+
+    long monomialAt(int index) {
+        return monomials[index];
+    }
+
+    double coefficientAt(int index) {
+        return coefficients[index];
+    }
+
+    public MultiPolynomial add(MultiPolynomial other) {
+        other = other.inTable(variables);
+        MonomialMap acc = new MonomialMap(monomials.length + other.monomials.length);
+        for (int i = 0; i < monomials.length; i++) acc.add(monomials[i], coefficients[i]);
+        for (int i = 0; i < other.monomials.length; i++) acc.add(other.monomials[i], other.coefficients[i]);
+        return fromMap(acc, variables);
+    }
+
+    public MultiPolynomial negate() {
+        double[] c = new double[coefficients.length];
+        for (int i = 0; i < c.length; i++) c[i] = -coefficients[i];
+        return new MultiPolynomial(variables, monomials, c);
+    }
+
+    public MultiPolynomial subtract(MultiPolynomial other) {
+        return add(other.negate());
+    }
+
+    public MultiPolynomial scale(double factor) {
+        if (Math.abs(factor) < ZERO_TOLERANCE) return constant(0, variables);
+        double[] c = new double[coefficients.length];
+        for (int i = 0; i < c.length; i++) c[i] = coefficients[i] * factor;
+        return new MultiPolynomial(variables, monomials, c);
+    }
+
+    public MultiPolynomial multiply(MultiPolynomial other) {
+        other = other.inTable(variables);
+        if (isZero() || other.isZero()) return constant(0, variables);
+        MonomialMap acc = new MonomialMap(Math.max(monomials.length, other.monomials.length) * 4);
+        for (int i = 0; i < monomials.length; i++) {
+            long mi = monomials[i];
+            double ci = coefficients[i];
+            for (int j = 0; j < other.monomials.length; j++) {
+                acc.add(Monomials.multiply(mi, other.monomials[j]), ci * other.coefficients[j]);
+            }
+        }
+        return fromMap(acc, variables);
+    }
+
+    // Binary powering: O(log n) multiplications
+    public MultiPolynomial pow(int exponent) {
+        if (exponent < 0) throw new IllegalArgumentException("Negative exponent for polynomial: " + exponent);
+        MultiPolynomial result = constant(1, variables);
+        MultiPolynomial base = this;
+        while (exponent > 0) {
+            if ((exponent & 1) != 0) result = result.multiply(base);
+            exponent >>= 1;
+            if (exponent > 0) base = base.multiply(base);
+        }
+        return result;
+    }
+
+    public MultiPolynomial partialDerivative(String variable) {
+        int id = variables.idOf(variable);
+        if (id < 0) return constant(0, variables);
+        MonomialMap acc = new MonomialMap(monomials.length);
+        for (int i = 0; i < monomials.length; i++) {
+            int e = Monomials.exponent(monomials[i], id);
+            if (e == 0) continue;
+            acc.add(Monomials.withExponent(monomials[i], id, e - 1), coefficients[i] * e);
+        }
+        return fromMap(acc, variables);
+    }
+
+    // values[id] is the value of the variable with that id
+    public double evaluate(double[] values) {
+        double sum = 0;
+        for (int i = 0; i < monomials.length; i++) {
+            double term = coefficients[i];
+            for (int v = 0; v < variables.size(); v++) {
+                int e = Monomials.exponent(monomials[i], v);
+                if (e != 0) term *= Math.pow(values[v], e);
+            }
+            sum += term;
+        }
+        return sum;
+    }
+
+    // Converts to the Polynomial used by the rest of the calculator, whose terms each
+    // carry at most one variable (so "x + y" converts but "xy" does not).
+    public Polynomial toPolynomial() {
+        List<Term> terms = new ArrayList<>(monomials.length);
+        for (int i = 0; i < monomials.length; i++) {
+            String name = "";
+            int exponent = 0;
+            for (int v = 0; v < variables.size(); v++) {
+                int e = Monomials.exponent(monomials[i], v);
+                if (e == 0) continue;
+                if (exponent != 0) throw new IllegalArgumentException("Term mixes several variables: " + this);
+                name = variables.nameOf(v);
+                exponent = e;
+            }
+            terms.add(new Term(coefficients[i], name, exponent));
+        }
+        return new Polynomial(terms);
+    }
+
+    // Re-expresses this polynomial over another table (interning any missing names there)
+    private MultiPolynomial inTable(VariableTable target) {
+        if (target == variables) return this;
+        int[] remap = new int[variables.size()];
+        for (int v = 0; v < remap.length; v++) remap[v] = target.intern(variables.nameOf(v));
+        MonomialMap acc = new MonomialMap(monomials.length);
+        for (int i = 0; i < monomials.length; i++) {
+            long m = Monomials.ONE;
+            for (int v = 0; v < remap.length; v++) {
+                int e = Monomials.exponent(monomials[i], v);
+                if (e != 0) m = Monomials.multiply(m, Monomials.of(remap[v], e));
+            }
+            acc.add(m, coefficients[i]);
+        }
+        return fromMap(acc, target);
+    }
+
+    private static MultiPolynomial fromMap(MonomialMap acc, VariableTable variables) {
+        int count = 0;
+        for (int s = 0; s < acc.capacity(); s++) {
+            if (acc.isOccupied(s) && Math.abs(acc.valueAt(s)) >= ZERO_TOLERANCE) count++;
+        }
+        // Only the final ordering sorts boxed slot indices; accumulation stayed primitive
+        Integer[] slots = new Integer[count];
+        int k = 0;
+        for (int s = 0; s < acc.capacity(); s++) {
+            if (acc.isOccupied(s) && Math.abs(acc.valueAt(s)) >= ZERO_TOLERANCE) slots[k++] = s;
+        }
+        Arrays.sort(slots, (a, b) -> Monomials.compareDescending(acc.keyAt(a), acc.keyAt(b)));
+        long[] keys = new long[count];
+        double[] values = new double[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = acc.keyAt(slots[i]);
+            values[i] = acc.valueAt(slots[i]);
+        }
+        return new MultiPolynomial(variables, keys, values);
+    }
+
+    @Override
+    public String toString() {
+        if (monomials.length == 0) return "0";
+        // Single-letter names can be juxtaposed (x^2y); longer names need an explicit '*'
+        boolean explicitProduct = false;
+        for (int v = 0; v < variables.size(); v++) explicitProduct |= variables.nameOf(v).length() > 1;
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < monomials.length; i++) {
+            double c = coefficients[i];
+            if (i > 0) sb.append(c > 0 ? " + " : " - ");
+            else if (c < 0) sb.append("-");
+            double abs = Math.abs(c);
+            boolean constantTerm = monomials[i] == Monomials.ONE;
+            boolean first = true;
+            if (abs != 1.0 || constantTerm) {
+                sb.append(Term.formatMagnitude(abs));
+                first = false;
+            }
+            for (int v = 0; v < variables.size(); v++) {
+                int e = Monomials.exponent(monomials[i], v);
+                if (e == 0) continue;
+                if (!first && explicitProduct) sb.append("*");
+                first = false;
+                sb.append(variables.nameOf(v));
+                if (e > 1) sb.append("^").append(e);
+            }
+        }
+        return sb.toString();
+    }
+
+    // --- Parsing ---
+
+    public static MultiPolynomial parse(String expression) {
+        return parse(expression, new VariableTable());
+    }
+
+    public static MultiPolynomial parse(String expression, VariableTable variables) {
+        ExpressionTree tree = ExpressionParser.parse(expression);
+        return fromTree(tree, tree.root(), variables);
+    }
+
+    // Builds the polynomial for a parsed subtree. Every identifier is a variable; division
+    // is only allowed by a non-zero constant and exponents must be non-negative integers.
+    public static MultiPolynomial fromTree(ExpressionTree tree, int node, VariableTable variables) {
+        switch (tree.kind(node)) {
+            case ExpressionTree.NUMBER:
+                return constant(tree.number(node), variables);
+            case ExpressionTree.IDENTIFIER:
+                return variable(tree.name(node), variables);
+            case ExpressionTree.NEGATE:
+                return fromTree(tree, tree.firstChild(node), variables).negate();
+            case ExpressionTree.ADD:
+                return fromTree(tree, tree.left(node), variables).add(fromTree(tree, tree.right(node), variables));
+            case ExpressionTree.SUBTRACT:
+                return fromTree(tree, tree.left(node), variables).subtract(fromTree(tree, tree.right(node), variables));
+            case ExpressionTree.MULTIPLY:
+                return fromTree(tree, tree.left(node), variables).multiply(fromTree(tree, tree.right(node), variables));
+            case ExpressionTree.DIVIDE: {
+                MultiPolynomial divisor = fromTree(tree, tree.right(node), variables);
+                if (!divisor.isConstant() || divisor.isZero()) {
+                    throw tree.error(tree.right(node), "Can only divide a polynomial by a non-zero constant");
+                }
+                return fromTree(tree, tree.left(node), variables).scale(1.0 / divisor.getConstantValue());
+            }
+            case ExpressionTree.POWER: {
+                MultiPolynomial exponent = fromTree(tree, tree.right(node), variables);
+                double e = exponent.isConstant() ? exponent.getConstantValue() : Double.NaN;
+                if (e != Math.rint(e) || e < 0) {
+                    throw tree.error(tree.right(node), "Exponent must be a non-negative integer");
+                }
+                return fromTree(tree, tree.left(node), variables).pow((int) e);
+            }
+            case ExpressionTree.CALL:
+                throw tree.error(node, "Function " + tree.name(node) + " is not allowed in a polynomial");
+            case ExpressionTree.LIST:
+                throw tree.error(node, "Matrices are not allowed in a polynomial");
+            default:
+                throw tree.error(node, "Unexpected '=' in polynomial");
+        }
+    }
+}
@@ -0,0 +1,354 @@
+package com.example.calculator.logic;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Integer functions behind gcd, lcm, mod, modpow, isprime, nextprime, factor and phi in
+// ExpressionEvaluator (nCr and nPr are in Factorials). Values are BigIntegers, but
+// everything below 2^63 runs on primitive longs:
+//   - primality is a Miller-Rabin test with seven fixed bases that is deterministic for
+//     every 64-bit number (Jaeschke / Sinclair), with the modular products done by
+//     Montgomery multiplication, so no division happens inside the loop;
+//   - factoring divides out the primes below 2^10, then splits what remains with Brent's
+//     variant of Pollard's rho, accumulating |x - y| over 128 steps per gcd.
+// Larger numbers fall back to BigInteger: isProbablePrime (Miller-Rabin plus a Lucas test)
+// and the same rho with an iteration cap, since 40-digit semiprimes are out of its reach.
+public final class NumberTheory {
+    private static final long[] WITNESSES = {2, 325, 9375, 28178, 450775, 9780504, 1795265022};
+    private static final int TRIAL_LIMIT = 1 << 10;
+    private static final int RHO_BATCH = 128;
+    private static final long BIG_RHO_ITERATIONS = 1L << 22;
+    private static final BigInteger LONG_LIMIT = BigInteger.ONE.shiftLeft(63);
+    private static final int[] SMALL_PRIMES = PrimeSieve.primesBelow(TRIAL_LIMIT);
+
+    private NumberTheory() {
+    }
+
+    // ----- primality
+
+    public static boolean isPrime(BigInteger n) {
+        if (n.compareTo(LONG_LIMIT) < 0) return n.signum() > 0 && isPrime(n.longValue());
+        return n.isProbablePrime(64);
+    }
+
+    public static boolean isPrime(long n) {
+        if (n < 2) return false;
+        if (n < TRIAL_LIMIT * TRIAL_LIMIT) {
+            for (int p : SMALL_PRIMES) {
+                if ((long) p * p > n) return true;
+                if (n % p == 0) return n == p;
+            }
+            return true;
+        }
+        for (int i = 0; i < 16; i++) if (n % SMALL_PRIMES[i] == 0) return false;
+        Montgomery m = new Montgomery(n);
+        long d = n - 1;
+        int s = Long.numberOfTrailingZeros(d);
+        d >>>= s;
+        long one = m.one, minusOne = n - m.one;
+        for (long a : WITNESSES) {
+            long x = m.pow(m.toMontgomery(a % n), d);
+            if (x == 0 || x == one || x == minusOne) continue; // a ≡ 0 proves nothing
+            boolean composite = true;
+            for (int r = 1; r < s && composite; r++) {
+                x = m.multiply(x, x);
+                if (x == minusOne) composite = false;
+            }
+            if (composite) return false;
+        }
+        return true;
+    }
+
+    // The smallest prime greater than n. Prime gaps below 2^64 are at most 1550, so the long
+    // search cannot overflow below the cut-off.
+    public static BigInteger nextPrime(BigInteger n) {
+        if (n.compareTo(BigInteger.valueOf(2)) < 0) return BigInteger.valueOf(2);
+        if (n.compareTo(LONG_LIMIT.subtract(BigInteger.valueOf(2048))) >= 0) return n.nextProbablePrime();
+        long candidate = n.longValue() + 1;
+        if (candidate == 3) return BigInteger.valueOf(3);
+        if ((candidate & 1) == 0) candidate++;
+        while (!isPrime(candidate)) candidate += 2;
+        return BigInteger.valueOf(candidate);
+    }
+
+    // ----- factorization
+
+    // Prime factorization of n != 0; a negative n gets a factor of -1
+    public static Factorization factor(BigInteger n) {
+        if (n.signum() == 0) throw new ArithmeticException("0 has no factorization");
+        TreeMap<BigInteger, Integer> factors = new TreeMap<>();
+        BigInteger rest = n.abs();
+        for (int p : SMALL_PRIMES) {
+            if (rest.bitLength() < 64) break;
+            BigInteger prime = BigInteger.valueOf(p);
+            while (rest.mod(prime).signum() == 0) {
+                rest = rest.divide(prime);
+                factors.merge(prime, 1, Integer::sum);
+            }
+        }
+        collect(rest, factors);
+        return new Factorization(n.signum() < 0, factors);
+    }
+
+    private static void collect(BigInteger n, Map<BigInteger, Integer> factors) {
+        if (n.equals(BigInteger.ONE)) return;
+        if (n.compareTo(LONG_LIMIT) < 0) {
+            List<Long> primes = new ArrayList<>();
+            factor(n.longValue(), primes);
+            for (long p : primes) factors.merge(BigInteger.valueOf(p), 1, Integer::sum);
+            return;
+        }
+        if (n.isProbablePrime(64)) {
+            factors.merge(n, 1, Integer::sum);
+            return;
+        }
+        BigInteger d = bigRho(n);
+        collect(d, factors);
+        collect(n.divide(d), factors);
+    }
+
+    // Appends the prime factors of n >= 1, with repetition
+    static void factor(long n, List<Long> primes) {
+        for (int p : SMALL_PRIMES) {
+            if ((long) p * p > n) break;
+            while (n % p == 0) {
+                primes.add((long) p);
+                n /= p;
+            }
+        }
+        split(n, primes);
+    }
+
+    private static void split(long n, List<Long> primes) {
+        if (n == 1) return;
+        if (isPrime(n)) {
+            primes.add(n);
+            return;
+        }
+        long d = rho(n);
+        split(d, primes);
+        split(n / d, primes);
+    }
+
+    // A proper divisor of the odd composite n, by Brent's cycle detection on x -> x^2 + c in
+    // Montgomery form (the map stays a random-looking polynomial map, which is all rho needs)
+    private static long rho(long n) {
+        Montgomery m = new Montgomery(n);
+        for (long c = 1; ; c++) {
+            long y = m.toMontgomery(2), x = y, saved = y, q = m.one, g = 1;
+            long cm = m.toMontgomery(c);
+            for (long r = 1; g == 1; r <<= 1) {
+                x = y;
+                for (long i = 0; i < r; i++) y = m.square(y, cm);
+                for (long k = 0; k < r && g == 1; k += RHO_BATCH) {
+                    saved = y;
+                    long steps = Math.min(RHO_BATCH, r - k);
+                    for (long i = 0; i < steps; i++) {
+                        y = m.square(y, cm);
+                        q = m.multiply(q, x > y ? x - y : y - x);
+                    }
+                    g = gcd(q, n);
+                }
+            }
+            if (g == n) { // the batch overshot: step from its start one gcd at a time
+                do {
+                    saved = m.square(saved, cm);
+                    g = gcd(x > saved ? x - saved : saved - x, n);
+                } while (g == 1);
+            }
+            if (g != n) return g;
+        }
+    }
+
+    private static BigInteger bigRho(BigInteger n) {
+        for (int c = 1; c < 20; c++) {
+            BigInteger cb = BigInteger.valueOf(c);
+            BigInteger y = BigInteger.valueOf(2), x = y, saved = y, q = BigInteger.ONE, g = BigInteger.ONE;
+            long iterations = 0;
+            for (long r = 1; g.equals(BigInteger.ONE); r <<= 1) {
+                if (iterations > BIG_RHO_ITERATIONS) {
+                    throw new ArithmeticException("Cannot factor " + n.toString().length() + "-digit composite " + n);
+                }
+                x = y;
+                for (long i = 0; i < r; i++) y = y.multiply(y).add(cb).mod(n);
+                for (long k = 0; k < r && g.equals(BigInteger.ONE); k += RHO_BATCH) {
+                    saved = y;
+                    long steps = Math.min(RHO_BATCH, r - k);
+                    for (long i = 0; i < steps; i++) {
+                        y = y.multiply(y).add(cb).mod(n);
+                        q = q.multiply(x.subtract(y).abs()).mod(n);
+                    }
+                    g = q.gcd(n);
+                }
+                iterations += 2 * r;
+            }
+            if (g.equals(n)) {
+                do {
+                    saved = saved.multiply(saved).add(cb).mod(n);
+                    g = x.subtract(saved).abs().gcd(n);
+                } while (g.equals(BigInteger.ONE));
+            }
+            if (!g.equals(n)) return g;
+        }
+        throw new ArithmeticException("Cannot factor " + n);
+    }
+
+    // ----- arithmetic functions
+
+    // Euler's totient, from the factorization: n ∏ (1 - 1/p)
+    public static BigInteger phi(BigInteger n) {
+        if (n.signum() <= 0) throw new ArithmeticException("phi needs a positive integer");
+        BigInteger result = n;
+        for (BigInteger p : factor(n).primes()) result = result.divide(p).multiply(p.subtract(BigInteger.ONE));
+        return result;
+    }
+
+    public static BigInteger lcm(BigInteger a, BigInteger b) {
+        if (a.signum() == 0 || b.signum() == 0) return BigInteger.ZERO;
+        return a.divide(a.gcd(b)).multiply(b).abs();
+    }
+
+    // a mod m with the sign of m, so mod(-7, 3) = 2
+    public static BigInteger mod(BigInteger a, BigInteger m) {
+        if (m.signum() == 0) throw new ArithmeticException("Mod by zero");
+        BigInteger r = a.mod(m.abs());
+        return m.signum() < 0 && r.signum() != 0 ? r.add(m) : r;
+    }
+
+    public static double mod(double a, double m) {
+        if (m == 0) throw new ArithmeticException("Mod by zero");
+        double r = a % m;
+        return r != 0 && (r < 0) != (m < 0) ? r + m : r;
+    }
+
+    // b^e mod m for m > 0; a negative e uses the inverse of b
+    public static BigInteger modPow(BigInteger b, BigInteger e, BigInteger m) {
+        if (m.signum() <= 0) throw new ArithmeticException("Modulus must be positive");
+        if (e.signum() < 0 && !b.gcd(m).equals(BigInteger.ONE)) {
+            throw new ArithmeticException(b + " has no inverse mod " + m);
+        }
+        return b.modPow(e, m);
+    }
+
+    // Binary gcd; n is odd, so factors of two in a never matter
+    private static long gcd(long a, long n) {
+        if (a == 0) return n;
+        a >>>= Long.numberOfTrailingZeros(a);
+        long b = n;
+        while (a != b) {
+            if (a > b) {
+                a -= b;
+                a >>>= Long.numberOfTrailingZeros(a);
+            } else {
+                b -= a;
+                b >>>= Long.numberOfTrailingZeros(b);
+            }
+        }
+        return a;
+    }
+
+    // ----- Montgomery arithmetic modulo an odd n < 2^63, with R = 2^64. Residues are kept
+    // in [0, n); x is represented by x·R mod n, and a product a·b·R^-1 mod n needs two
+    // 64×64-bit products and a conditional subtraction instead of a 128-bit division.
+    static final class Montgomery {
+        final long n;
+        final long one;       // R mod n
+        private final long r2; // R^2 mod n
+        private final long negInverse; // -n^-1 mod 2^64
+
+        Montgomery(long n) {
+            this.n = n;
+            long inverse = n; // Newton's iteration doubles the correct low bits: 3, 6, ..., 96
+            for (int i = 0; i < 5; i++) inverse *= 2 - n * inverse;
+            negInverse = -inverse;
+            one = Long.remainderUnsigned(-n, n); // 2^64 - n ≡ 2^64
+            long r = one;
+            for (int i = 0; i < 64; i++) {      // R·2^64 by doubling; r < n < 2^63 never overflows
+                r <<= 1;
+                if (Long.compareUnsigned(r, n) >= 0) r -= n;
+            }
+            r2 = r;
+        }
+
+        long toMontgomery(long x) {
+            return multiply(x, r2);
+        }
+
+        long multiply(long a, long b) {
+            return reduce(a * b, multiplyHigh(a, b));
+        }
+
+        // a^2 + c
+        long square(long a, long c) {
+            long s = multiply(a, a) + c; // below 2n, which may pass 2^63
+            return Long.compareUnsigned(s, n) >= 0 ? s - n : s;
+        }
+
+        long pow(long base, long e) {
+            long result = one;
+            while (e != 0) {
+                if ((e & 1) != 0) result = multiply(result, base);
+                base = multiply(base, base);
+                e >>>= 1;
+            }
+            return result;
+        }
+
+        // (hi·2^64 + lo)·R^-1 mod n for hi < n
+        private long reduce(long lo, long hi) {
+            long m = lo * negInverse;
+            long t = hi + multiplyHigh(m, n) + (lo != 0 ? 1 : 0); // lo + low(m·n) carries iff lo != 0
+            return Long.compareUnsigned(t, n) >= 0 ? t - n : t;
+        }
+
+        // The high 64 bits of the unsigned 128-bit product a·b
+        private static long multiplyHigh(long a, long b) {
+            long a0 = a & 0xFFFFFFFFL, a1 = a >>> 32;
+            long b0 = b & 0xFFFFFFFFL, b1 = b >>> 32;
+            long low = a0 * b0, cross1 = a1 * b0, cross2 = a0 * b1;
+            long middle = (low >>> 32) + (cross1 & 0xFFFFFFFFL) + (cross2 & 0xFFFFFFFFL);
+            return a1 * b1 + (cross1 >>> 32) + (cross2 >>> 32) + (middle >>> 32);
+        }
+    }
+
+    // The result of factor(): prime powers in increasing order, shown as "2^3 × 3 × 5"
+    public static final class Factorization {
+        private final boolean negative;
+        private final TreeMap<BigInteger, Integer> powers;
+
+        Factorization(boolean negative, TreeMap<BigInteger, Integer> powers) {
+            this.negative = negative;
+            this.powers = powers;
+        }
+
+        public List<BigInteger> primes() {
+            return Collections.unmodifiableList(new ArrayList<>(powers.keySet()));
+        }
+
+        public int exponent(BigInteger prime) {
+            return powers.getOrDefault(prime, 0);
+        }
+
+        // The factored number
+        public BigInteger value() {
+            BigInteger v = negative ? BigInteger.ONE.negate() : BigInteger.ONE;
+            for (Map.Entry<BigInteger, Integer> e : powers.entrySet()) v = v.multiply(e.getKey().pow(e.getValue()));
+            return v;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder(negative ? "-1" : "");
+            for (Map.Entry<BigInteger, Integer> e : powers.entrySet()) {
+                if (sb.length() > 0) sb.append(" × ");
+                sb.append(e.getKey());
+                if (e.getValue() > 1) sb.append('^').append(e.getValue());
+            }
+            return sb.length() == 0 ? "1" : sb.toString();
+        }
+    }
+}
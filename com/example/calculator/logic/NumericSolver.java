@@ -0,0 +1,177 @@
+package com.example.calculator.logic;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+// All real roots of a one-variable compiled function in an interval, for equations that
+// are not polynomials (cos(x) = x, e^x = 3x). The interval is sampled on a uniform grid,
+// values and derivatives together by forward-mode AD, in parallel chunks with one tape per
+// thread. Then every grid cell is examined on its own:
+//   - a sign change of f is bracketed with Brent's method and the root polished by Newton
+//     steps, which converge quadratically once Brent is close;
+//   - a sign change of f' without one of f may hide a root of even multiplicity (x^2 = 0),
+//     so the critical point is located the same way and kept if f vanishes there.
+// A sign change across a pole (tan(x) at pi/2) also brackets, but f does not become
+// small there, and such "roots" are dropped.
+//
+// Before sampling, the grid is cut into blocks of BLOCK cells and f is bounded over each
+// block by interval arithmetic (IntervalExpression). A block whose bounds exclude zero
+// cannot hold a root and is neither sampled nor examined, so far from its roots a function
+// costs one interval evaluation per block instead of BLOCK evaluations with derivatives.
+public final class NumericSolver {
+    public static final int DEFAULT_SAMPLES = 4096;
+    private static final int BLOCK = 32; // grid cells per interval test and parallel task
+    private static final double EPSILON = Math.ulp(1.0);
+
+    private final int samples;
+
+    public NumericSolver() {
+        this(DEFAULT_SAMPLES);
+    }
+
+    // Roots closer together than (upper - lower) / samples may be missed
+    public NumericSolver(int samples) {
+        if (samples < 2) throw new IllegalArgumentException("At least 2 samples are needed: " + samples);
+        this.samples = samples;
+    }
+
+    // Roots in [lower, upper] in ascending order
+    public double[] findRoots(CompiledExpression f, double lower, double upper) {
+        if (Double.isNaN(lower) || Double.isNaN(upper) || Double.isInfinite(lower) || Double.isInfinite(upper)) {
+            throw new IllegalArgumentException("Search interval must be finite");
+        }
+        if (lower > upper) return findRoots(f, upper, lower);
+        if (lower == upper) return f.evaluate(lower) == 0 ? new double[]{lower} : new double[0];
+
+        int n = samples;
+        double[] xs = new double[n + 1];
+        for (int k = 0; k <= n; k++) xs[k] = k == n ? upper : lower + (upper - lower) * k / n;
+        double[] fs = new double[n + 1];
+        double[] ds = new double[n + 1];
+        Arrays.fill(fs, Double.NaN); // points of pruned blocks are never looked at
+        int blocks = (n + BLOCK - 1) / BLOCK;
+        boolean[] active = new boolean[blocks];
+        ThreadLocal<CompiledExpression> tapes = ThreadLocal.withInitial(f::copy);
+        IntervalExpression bounds = IntervalExpression.of(f);
+        ThreadLocal<IntervalExpression> boundTapes = ThreadLocal.withInitial(bounds::copy);
+        IntStream.range(0, blocks).parallel().forEach(block -> {
+            int from = block * BLOCK, to = Math.min(n, from + BLOCK); // cells from..to-1, points from..to
+            active[block] = boundTapes.get().mayVanish(new double[]{xs[from]}, new double[]{xs[to]});
+            if (!active[block]) return;
+            double[] values = new double[to - from + 1];
+            double[] slopes = new double[to - from + 1];
+            tapes.get().derivatives(Arrays.copyOfRange(xs, from, to + 1), values, slopes);
+            System.arraycopy(values, 0, fs, from, values.length);
+            System.arraycopy(slopes, 0, ds, from, slopes.length);
+        });
+
+        double[] found = IntStream.range(0, n + 1).parallel()
+            .mapToDouble(k -> k == n ? (fs[n] == 0 ? xs[n] : Double.NaN)
+                                     : active[k / BLOCK] ? examine(tapes.get(), xs, fs, ds, k) : Double.NaN)
+            .filter(x -> !Double.isNaN(x))
+            .sorted()
+            .toArray();
+        // A root on a grid point or cell boundary can be found from both sides
+        int count = 0;
+        for (double x : found) {
+            if (count > 0 && x - found[count - 1] <= 1e-10 * Math.max(1, Math.abs(x))) continue;
+            found[count++] = x;
+        }
+        return Arrays.copyOf(found, count);
+    }
+
+    // The root in cell [xs[k], xs[k+1]), or NaN
+    private static double examine(CompiledExpression f, double[] xs, double[] fs, double[] ds, int k) {
+        double a = xs[k], b = xs[k + 1], fa = fs[k], fb = fs[k + 1];
+        if (fa == 0) return a;
+        if (!isFinite(fa) || !isFinite(fb)) return Double.NaN;
+        if ((fa < 0) != (fb < 0)) {
+            if (fb == 0) return Double.NaN; // left to the next cell
+            // Brent to a coarse tolerance, then Newton; Brent all the way if Newton stalls
+            double x = polish(f, brent(f, false, a, b, fa, fb, 1e-6 * (b - a)), a, b);
+            if (Double.isNaN(x)) x = brent(f, false, a, b, fa, fb, 0);
+            double fx = f.evaluate(x);
+            return Math.abs(fx) <= 1e-6 * Math.max(1, Math.max(Math.abs(fa), Math.abs(fb))) ? x : Double.NaN;
+        }
+        double da = ds[k], db = ds[k + 1];
+        if (!isFinite(da) || !isFinite(db) || (da < 0) == (db < 0) || db == 0) return Double.NaN;
+        // |f| has a minimum inside; a root only if f touches zero there
+        double x = brent(f, true, a, b, da, db, 0);
+        double fx = f.evaluate(x);
+        return Math.abs(fx) <= 1e-12 * Math.max(1, Math.max(Math.abs(fa), Math.abs(fb))) ? x : Double.NaN;
+    }
+
+    // Newton iteration from x with the exact AD derivative; NaN if a step leaves [a, b] or
+    // the iteration does not settle to full precision
+    private static double polish(CompiledExpression f, double x, double a, double b) {
+        double[] point = {x};
+        for (int iteration = 0; iteration < 8; iteration++) {
+            double fx = f.evaluate(point);
+            if (fx == 0) return x;
+            double slope = f.derivative(point, 0);
+            if (slope == 0 || !isFinite(slope)) return Double.NaN;
+            double next = x - fx / slope;
+            if (!(next >= a && next <= b)) return Double.NaN;
+            if (Math.abs(next - x) <= 4 * EPSILON * Math.max(Math.abs(next), Double.MIN_NORMAL)) return next;
+            x = next;
+            point[0] = x;
+        }
+        return Double.NaN;
+    }
+
+    // Brent's method on a bracket [a, b] with g(a) and g(b) of opposite signs, where g is f
+    // or, for derivative = true, f'. Combines bisection with secant and inverse quadratic
+    // steps; the bracket shrinks on every step, so it cannot fail on a continuous g. Stops
+    // when the bracket is below the given width or at full precision.
+    private static double brent(CompiledExpression f, boolean derivative, double a, double b, double ga, double gb, double width) {
+        double[] point = new double[1];
+        double c = a, gc = ga, d = b - a, e = d;
+        for (int iteration = 0; iteration < 200; iteration++) {
+            if ((gb > 0) == (gc > 0)) {
+                c = a;
+                gc = ga;
+                d = e = b - a;
+            }
+            if (Math.abs(gc) < Math.abs(gb)) {
+                a = b; b = c; c = a;
+                ga = gb; gb = gc; gc = ga;
+            }
+            double tolerance = Math.max(0.5 * width, 2 * EPSILON * Math.abs(b) + 1e-300);
+            double m = 0.5 * (c - b);
+            if (Math.abs(m) <= tolerance || gb == 0) return b;
+            if (Math.abs(e) >= tolerance && Math.abs(ga) > Math.abs(gb)) {
+                double s = gb / ga, p, q;
+                if (a == c) {
+                    p = 2 * m * s;
+                    q = 1 - s;
+                } else {
+                    double r = gb / gc, t = ga / gc;
+                    p = s * (2 * m * t * (t - r) - (b - a) * (r - 1));
+                    q = (t - 1) * (r - 1) * (s - 1);
+                }
+                if (p > 0) q = -q; else p = -p;
+                if (2 * p < Math.min(3 * m * q - Math.abs(tolerance * q), Math.abs(e * q))) {
+                    e = d;
+                    d = p / q;
+                } else {
+                    d = m;
+                    e = d;
+                }
+            } else {
+                d = m;
+                e = d;
+            }
+            a = b;
+            ga = gb;
+            b += Math.abs(d) > tolerance ? d : (m > 0 ? tolerance : -tolerance);
+            point[0] = b;
+            gb = derivative ? f.derivative(point, 0) : f.evaluate(point);
+            if (Double.isNaN(gb)) return b;
+        }
+        return b;
+    }
+
+    private static boolean isFinite(double v) {
+        return !Double.isNaN(v) && !Double.isInfinite(v);
+    }
+}
@@ -0,0 +1,234 @@
+package com.example.calculator.logic;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.stream.IntStream;
+
+// Definite integrals of compiled expressions.
+//
+// The main method is globally adaptive Gauss-Kronrod quadrature: every subinterval gets a
+// 15-point Kronrod estimate and the embedded 7-point Gauss rule gives its error. The
+// subintervals sit in a priority queue by error, and each round bisects the worst ones
+// until the summed error meets the tolerance. When a round has several intervals to split
+// they are evaluated in parallel on the common fork/join pool, each worker with its own
+// copy of the compiled integrand (one tape per thread, no re-parsing).
+//
+// Integrands that blow up at an endpoint (1/sqrt(x) on [0, 1]) go to tanh-sinh
+// quadrature instead, whose nodes cluster doubly exponentially towards the endpoints
+// without ever evaluating them.
+public final class NumericalIntegrator {
+    public static final double DEFAULT_TOLERANCE = 1e-10;
+    private static final int MAX_INTERVALS = 20_000;
+    private static final int PARALLEL_BATCH = 8; // intervals split per round once the queue is large
+    private static final double EPSILON = Math.ulp(1.0);
+
+    // Kronrod nodes on [0, 1] (symmetric); the odd entries are the Gauss nodes
+    private static final double[] XGK = {
+        0.991455371120812639206854697526329, 0.949107912342758524526189684047851,
+        0.864864423359769072789712788640926, 0.741531185599394439863864773280788,
+        0.586087235467691130294144845693013, 0.405845151377397166906606412076961,
+        0.207784955007898467600689403773245, 0.000000000000000000000000000000000
+    };
+    private static final double[] WGK = {
+        0.022935322010529224963732008058970, 0.063092092629978553290700663189204,
+        0.104790010322250183839876322541518, 0.140653259715525918745189590510238,
+        0.169004726639267902826583426598550, 0.190350578064785409913256402421014,
+        0.204432940075298892414161999234649, 0.209482141084727828012999174891714
+    };
+    private static final double[] WG = {
+        0.129484966168869693270611432679082, 0.279705391489276667901467771423780,
+        0.381830050505118944950369775488975, 0.417959183673469387755102040816327
+    };
+
+    public static final class Result {
+        private final double value;
+        private final double errorEstimate;
+        private final long evaluations;
+        private final boolean converged;
+        private final String method;
+
+        Result(double value, double errorEstimate, long evaluations, boolean converged, String method) {
+            this.value = value;
+            this.errorEstimate = errorEstimate;
+            this.evaluations = evaluations;
+            this.converged = converged;
+            this.method = method;
+        }
+
+        public double getValue() { return value; }
+        public double getErrorEstimate() { return errorEstimate; }
+        public long getEvaluations() { return evaluations; }
+        public boolean isConverged() { return converged; }
+        public String getMethod() { return method; }
+
+        Result negate() {
+            return new Result(-value, errorEstimate, evaluations, converged, method);
+        }
+    }
+
+    private static final class Interval implements Comparable<Interval> {
+        final double a, b, value, error;
+
+        Interval(double a, double b, double value, double error) {
+            this.a = a;
+            this.b = b;
+            this.value = value;
+            this.error = error;
+        }
+
+        @Override
+        public int compareTo(Interval other) {
+            return Double.compare(other.error, error); // largest error first
+        }
+    }
+
+    // Integral of a one-variable compiled expression over [a, b] to the given tolerance
+    // (absolute, or relative to the result when that is larger)
+    public Result integrate(CompiledExpression f, double a, double b, double tolerance) {
+        if (Double.isNaN(a) || Double.isNaN(b) || Double.isInfinite(a) || Double.isInfinite(b)) {
+            throw new IllegalArgumentException("Integration limits must be finite");
+        }
+        if (a == b) return new Result(0, 0, 0, true, "exact");
+        if (a > b) return integrate(f, b, a, tolerance).negate();
+        if (!isFinite(f.evaluate(a)) || !isFinite(f.evaluate(b))) return tanhSinh(f, a, b, tolerance);
+        Result adaptive = gaussKronrod(f, a, b, tolerance);
+        if (adaptive.isConverged()) return adaptive;
+        // Typically a steep or singular spot near an end; tanh-sinh may do better there
+        Result fallback = tanhSinh(f, a, b, tolerance);
+        return fallback.getErrorEstimate() < adaptive.getErrorEstimate() ? fallback : adaptive;
+    }
+
+    private Result gaussKronrod(CompiledExpression f, double a, double b, double tolerance) {
+        ThreadLocal<CompiledExpression> tapes = ThreadLocal.withInitial(f::copy);
+        PriorityQueue<Interval> queue = new PriorityQueue<>();
+        Interval whole = kronrod(f, a, b);
+        queue.add(whole);
+        double total = whole.value, error = whole.error; // running sums, recomputed at the end
+        long evaluations = 15;
+        boolean converged = false;
+        while (queue.size() < MAX_INTERVALS) {
+            if (error <= Math.max(tolerance, tolerance * Math.abs(total))) {
+                converged = true;
+                break;
+            }
+            // Split the worst intervals; several at a time once there are enough of them
+            int batch = Math.min(queue.size() >= 2 * PARALLEL_BATCH ? PARALLEL_BATCH : 1, MAX_INTERVALS - queue.size());
+            List<Interval> worst = new ArrayList<>(batch);
+            for (int k = 0; k < batch; k++) worst.add(queue.poll());
+            Interval first = worst.get(0);
+            double width = first.b - first.a;
+            if (width <= 4 * EPSILON * Math.max(Math.abs(first.a), Math.abs(first.b)) || width < Double.MIN_NORMAL) {
+                queue.addAll(worst); // cannot bisect any further: a singularity or a jump
+                break;
+            }
+            Interval[] halves = new Interval[2 * batch];
+            IntStream range = IntStream.range(0, 2 * batch);
+            (batch > 1 ? range.parallel() : range).forEach(k -> {
+                Interval parent = worst.get(k / 2);
+                double mid = 0.5 * (parent.a + parent.b);
+                halves[k] = k % 2 == 0 ? kronrod(tapes.get(), parent.a, mid) : kronrod(tapes.get(), mid, parent.b);
+            });
+            for (Interval parent : worst) {
+                total -= parent.value;
+                error -= parent.error;
+            }
+            for (Interval h : halves) {
+                queue.add(h);
+                total += h.value;
+                error += h.error;
+            }
+            if (!isFinite(error)) error = Double.POSITIVE_INFINITY; // inf - inf once the bad piece is split
+            evaluations += 30L * batch;
+        }
+        total = 0;
+        error = 0;
+        for (Interval interval : queue) {
+            total += interval.value;
+            error += interval.error;
+        }
+        converged &= isFinite(total);
+        return new Result(total, error, evaluations, converged, "Gauss-Kronrod (" + queue.size() + " intervals)");
+    }
+
+    // G7/K15 on one interval with the QUADPACK error estimate
+    private static Interval kronrod(CompiledExpression f, double a, double b) {
+        double center = 0.5 * (a + b);
+        double half = 0.5 * (b - a);
+        double fc = f.evaluate(center);
+        double resultGauss = fc * WG[3];
+        double resultKronrod = fc * WGK[7];
+        double resultAbs = Math.abs(resultKronrod);
+        double[] f1 = new double[7], f2 = new double[7];
+        for (int j = 0; j < 7; j++) {
+            double dx = half * XGK[j];
+            f1[j] = f.evaluate(center - dx);
+            f2[j] = f.evaluate(center + dx);
+            double sum = f1[j] + f2[j];
+            resultKronrod += WGK[j] * sum;
+            resultAbs += WGK[j] * (Math.abs(f1[j]) + Math.abs(f2[j]));
+            if (j % 2 == 1) resultGauss += WG[j / 2] * sum;
+        }
+        double mean = resultKronrod * 0.5;
+        double resultAsc = WGK[7] * Math.abs(fc - mean);
+        for (int j = 0; j < 7; j++) resultAsc += WGK[j] * (Math.abs(f1[j] - mean) + Math.abs(f2[j] - mean));
+        double value = resultKronrod * half;
+        resultAsc *= Math.abs(half);
+        resultAbs *= Math.abs(half);
+        double error = Math.abs((resultKronrod - resultGauss) * half);
+        if (resultAsc != 0 && error != 0) error = resultAsc * Math.min(1, Math.pow(200 * error / resultAsc, 1.5));
+        if (resultAbs > Double.MIN_NORMAL / (50 * EPSILON)) error = Math.max(50 * EPSILON * resultAbs, error);
+        if (!isFinite(value) || !isFinite(error)) error = Double.POSITIVE_INFINITY;
+        return new Interval(a, b, value, error);
+    }
+
+    // Tanh-sinh (double exponential) quadrature: x = c + h tanh(pi/2 sinh t). Each level
+    // halves the step and only evaluates the new odd-numbered nodes; the distance to the
+    // nearer endpoint is computed directly so nodes never round onto it.
+    Result tanhSinh(CompiledExpression f, double a, double b, double tolerance) {
+        double half = 0.5 * (b - a);
+        long[] evaluations = {1};
+        double step = 1.0;
+        double sum = f.evaluate(0.5 * (a + b)) * Math.PI / 2 + tanhSinhNodes(f, a, b, step, 1, evaluations);
+        double estimate = sum * half * step;
+        double error = Double.POSITIVE_INFINITY;
+        for (int level = 1; level <= 12; level++) {
+            step /= 2;
+            sum += tanhSinhNodes(f, a, b, step, 2, evaluations);
+            double next = sum * half * step;
+            error = Math.abs(next - estimate);
+            estimate = next;
+            if (level >= 3 && error <= Math.max(tolerance, tolerance * Math.abs(estimate))) {
+                return new Result(estimate, error, evaluations[0], true, "tanh-sinh");
+            }
+        }
+        return new Result(estimate, error, evaluations[0], false, "tanh-sinh");
+    }
+
+    private static final double T_MAX = 4.0; // the weights are negligible beyond this
+
+    // Weighted sum over the nodes t = k * step, k = 1, 1 + stride, ..., and their mirror
+    // images -t. Non-finite values right at the ends are dropped: their weights are tiny.
+    private static double tanhSinhNodes(CompiledExpression f, double a, double b, double step, int stride, long[] evaluations) {
+        double half = 0.5 * (b - a);
+        double sum = 0;
+        for (int k = 1; k * step <= T_MAX; k += stride) {
+            double t = k * step;
+            double sinh = Math.sinh(t);
+            double delta = 2 * half / (1 + Math.exp(Math.PI * sinh)); // 1 - tanh(s) = 2 / (1 + e^2s)
+            double cosh = Math.cosh(Math.PI / 2 * sinh);
+            double weight = Math.PI / 2 * Math.cosh(t) / (cosh * cosh);
+            if (delta == 0 || weight < 1e-300) break;
+            double left = f.evaluate(a + delta);
+            double right = f.evaluate(b - delta);
+            evaluations[0] += 2;
+            if (isFinite(left)) sum += weight * left;
+            if (isFinite(right)) sum += weight * right;
+        }
+        return sum;
+    }
+
+    private static boolean isFinite(double v) {
+        return !Double.isNaN(v) && !Double.isInfinite(v);
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.calculator.logic;
+
+// Runs OdeSolver.solve on reference problems with known solutions and checks which method
+// it settles on, the step count and the error at the end of the interval:
+//
+//   java com.example.calculator.logic.OdeBenchmark
+//
+// The exit status is 1 if any problem misses its expectations. The stiff case
+// y' = -1000 (y - cos x) on [0, 10] must switch to ROS2: Dormand-Prince needs over 7600
+// stability-limited steps there, and the step size controller keeps h |lambda| well below
+// the 3.25 of the stability boundary, where a fixed stiffness threshold never fires.
+public final class OdeBenchmark {
+    private OdeBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        boolean ok = true;
+        double l = 1000, x1 = 10;
+        double exact = (l * l * Math.cos(x1) + l * Math.sin(x1) - l * l * Math.exp(-l * x1)) / (l * l + 1);
+        ok &= check("y' = -1000 (y - cos x), y(0) = 0", "x", new String[]{"y"}, new String[]{"-1000*(y-cos(x))"},
+                new double[]{0}, x1, exact, "Rosenbrock ROS2", 1e-5);
+        ok &= check("y'' = -y, y(0) = 1, y'(0) = 0", "t", new String[]{"y", "v"}, new String[]{"v", "-y"},
+                new double[]{1, 0}, 50, Math.cos(50), "Dormand-Prince 5(4)", 1e-6);
+        ok &= check("y' = -50 (y - sin x), y(0) = 0", "x", new String[]{"y"}, new String[]{"-50*(y-sin(x))"},
+                new double[]{0}, 10, (2500 * Math.sin(10) - 50 * Math.cos(10) + 50 * Math.exp(-500)) / 2501,
+                "Dormand-Prince 5(4)", 1e-6);
+        if (!ok) System.exit(1);
+    }
+
+    private static boolean check(String label, String independent, String[] states, String[] rhs, double[] y0,
+                                 double x1, double exact, String expectedMethod, double maxError) {
+        ExpressionTree[] trees = new ExpressionTree[rhs.length];
+        for (int i = 0; i < rhs.length; i++) trees[i] = ExpressionParser.parse(rhs[i]);
+        OdeSolver solver = OdeSolver.compile(independent, states, trees, SettingsManager.ANGLE_UNIT_RADIANS);
+        long start = System.nanoTime();
+        OdeSolver.Solution solution = solver.solve(0, y0, x1, OdeSolver.DEFAULT_TOLERANCE);
+        double millis = (System.nanoTime() - start) / 1e6;
+        double error = Math.abs(solution.getFinalValues()[0] - exact);
+        boolean ok = solution.getMethod().equals(expectedMethod) && error <= maxError;
+        System.out.printf("%-4s %-36s %-20s %7d steps %8.1f ms  error %.1e%n", ok ? "ok" : "FAIL", label,
+                solution.getMethod(), solution.getStepCount(), millis, error);
+        return ok;
+    }
+}
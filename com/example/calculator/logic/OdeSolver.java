@@ -0,0 +1,418 @@
+package com.example.calculator.logic;
+
+import java.util.Arrays;
+
+// Initial value problems y' = f(x, y) for a scalar y or a small system y = (y1, ..., yn).
+// Each right-hand side is a CompiledExpression over (x, y1, ..., yn), so a step is a
+// few passes over primitive tapes. All work arrays belong to the solver and are reused,
+// so stepping allocates nothing; only the stored dense output grows (amortized).
+//
+// Two methods:
+//   - Dormand-Prince 5(4): explicit, adaptive, the default. Its 4th order embedded
+//     solution gives the error estimate, the last stage is reused as the first one of the
+//     next step, and a 5th order polynomial per step gives dense output.
+//   - ROS2: a linearly implicit (Rosenbrock) L-stable method of order 2 for stiff
+//     problems, where explicit steps would have to stay tiny. The Jacobian comes from
+//     reverse-mode AD, one gradient per equation. Dense output is cubic Hermite.
+// solve() tries Dormand-Prince first and switches to ROS2 when the explicit steps turn
+// out to be limited by stability rather than accuracy.
+// Not thread-safe: the work arrays and tapes are shared by all calls.
+public final class OdeSolver {
+    public static final double DEFAULT_TOLERANCE = 1e-8;
+    private static final int MAX_STEPS = 200_000;
+    // ROS2 is second order, so its steps grow only with the square root of the tolerance;
+    // tighter requests are relaxed to this
+    private static final double STIFF_MIN_TOLERANCE = 1e-6;
+    private static final int STIFF_STEPS = 15; // stability-limited steps before giving up
+    private static final double STABILITY_LIMIT = 3.25; // |h lambda| at the edge of the stability region
+    private static final double EPSILON = Math.ulp(1.0);
+
+    // Dormand-Prince 5(4) tableau
+    private static final double C2 = 1.0 / 5, C3 = 3.0 / 10, C4 = 4.0 / 5, C5 = 8.0 / 9;
+    private static final double A21 = 1.0 / 5;
+    private static final double A31 = 3.0 / 40, A32 = 9.0 / 40;
+    private static final double A41 = 44.0 / 45, A42 = -56.0 / 15, A43 = 32.0 / 9;
+    private static final double A51 = 19372.0 / 6561, A52 = -25360.0 / 2187, A53 = 64448.0 / 6561, A54 = -212.0 / 729;
+    private static final double A61 = 9017.0 / 3168, A62 = -355.0 / 33, A63 = 46732.0 / 5247, A64 = 49.0 / 176, A65 = -5103.0 / 18656;
+    private static final double A71 = 35.0 / 384, A73 = 500.0 / 1113, A74 = 125.0 / 192, A75 = -2187.0 / 6784, A76 = 11.0 / 84;
+    private static final double E1 = 71.0 / 57600, E3 = -71.0 / 16695, E4 = 71.0 / 1920, E5 = -17253.0 / 339200, E6 = 22.0 / 525, E7 = -1.0 / 40;
+    // Dense output (Hairer and Wanner's CONTD5)
+    private static final double D1 = -12715105075.0 / 11282082432.0, D3 = 87487479700.0 / 32700410799.0,
+        D4 = -10690763975.0 / 1880347072.0, D5 = 701980252875.0 / 199316789632.0,
+        D6 = -1453857185.0 / 822651844.0, D7 = 69997945.0 / 29380423.0;
+    // ROS2
+    private static final double GAMMA = 1 + 1 / Math.sqrt(2);
+
+    private final CompiledExpression[] rhs;
+    private final int n;
+    private final double[] point;                   // (x, y1, ..., yn) for the tapes
+    private final double[] k1, k2, k3, k4, k5, k6, k7, stage, next;
+    private final double[] jacobian, matrix, fx, gradient;
+    private final int[] pivot;
+
+    // rhs[i] is dy_i/dx, compiled with the variables (x, y1, ..., yn) in that order
+    public OdeSolver(CompiledExpression... rhs) {
+        if (rhs.length == 0) throw new IllegalArgumentException("No equations");
+        for (CompiledExpression f : rhs) {
+            if (f.getVariableCount() != rhs.length + 1) {
+                throw new IllegalArgumentException("Each right-hand side needs " + (rhs.length + 1) + " variables");
+            }
+        }
+        this.rhs = rhs.clone();
+        this.n = rhs.length;
+        this.point = new double[n + 1];
+        this.k1 = new double[n]; this.k2 = new double[n]; this.k3 = new double[n]; this.k4 = new double[n];
+        this.k5 = new double[n]; this.k6 = new double[n]; this.k7 = new double[n];
+        this.stage = new double[n];
+        this.next = new double[n];
+        this.jacobian = new double[n * n];
+        this.matrix = new double[n * n];
+        this.fx = new double[n];
+        this.gradient = new double[n + 1];
+        this.pivot = new int[n];
+    }
+
+    // Compiles y_i' = rhs[i] with the independent variable and state names given, e.g.
+    // ("t", {"y", "v"}, {"v", "-y"}) for the harmonic oscillator
+    public static OdeSolver compile(String independent, String[] states, ExpressionTree[] rhs, String angleUnit) {
+        if (states.length != rhs.length) throw new IllegalArgumentException("Expected one equation per state variable");
+        String[] variables = new String[states.length + 1];
+        variables[0] = independent;
+        System.arraycopy(states, 0, variables, 1, states.length);
+        CompiledExpression[] compiled = new CompiledExpression[rhs.length];
+        for (int i = 0; i < rhs.length; i++) compiled[i] = CompiledExpression.compile(rhs[i], angleUnit, variables);
+        return new OdeSolver(compiled);
+    }
+
+    public int getDimension() {
+        return n;
+    }
+
+    // Integrates from (x0, y0) to x1 (which may be below x0), non-stiff method first
+    public Solution solve(double x0, double[] y0, double x1, double tolerance) {
+        Solution explicit = solveNonStiff(x0, y0, x1, tolerance);
+        return explicit != null ? explicit : solveStiff(x0, y0, x1, tolerance);
+    }
+
+    // Dormand-Prince 5(4); null if the problem looks stiff or MAX_STEPS were not enough
+    public Solution solveNonStiff(double x0, double[] y0, double x1, double tolerance) {
+        checkArguments(x0, y0, x1, tolerance);
+        Solution solution = new Solution(n, x0, "Dormand-Prince 5(4)");
+        double[] y = y0.clone();
+        if (x0 == x1) return solution.finish(y);
+        double direction = Math.signum(x1 - x0);
+        double x = x0;
+        evaluate(x, y, k1);
+        double h = initialStep(x, y, k1, x1, tolerance, 5);
+        double previousError = 1e-4;
+        int stiffSteps = 0, smoothSteps = 0;
+        double stiffLimit = Math.min(0.9 * STABILITY_LIMIT, 40 * Math.pow(tolerance, 0.2));
+        for (int steps = 0; ; steps++) {
+            if (steps >= MAX_STEPS) return null;
+            if ((x + h - x1) * direction > 0) h = x1 - x;
+            // Stages; k1 is f(x, y) from the previous step
+            for (int i = 0; i < n; i++) stage[i] = y[i] + h * A21 * k1[i];
+            evaluate(x + C2 * h, stage, k2);
+            for (int i = 0; i < n; i++) stage[i] = y[i] + h * (A31 * k1[i] + A32 * k2[i]);
+            evaluate(x + C3 * h, stage, k3);
+            for (int i = 0; i < n; i++) stage[i] = y[i] + h * (A41 * k1[i] + A42 * k2[i] + A43 * k3[i]);
+            evaluate(x + C4 * h, stage, k4);
+            for (int i = 0; i < n; i++) stage[i] = y[i] + h * (A51 * k1[i] + A52 * k2[i] + A53 * k3[i] + A54 * k4[i]);
+            evaluate(x + C5 * h, stage, k5);
+            for (int i = 0; i < n; i++) stage[i] = y[i] + h * (A61 * k1[i] + A62 * k2[i] + A63 * k3[i] + A64 * k4[i] + A65 * k5[i]);
+            evaluate(x + h, stage, k6);
+            for (int i = 0; i < n; i++) next[i] = y[i] + h * (A71 * k1[i] + A73 * k3[i] + A74 * k4[i] + A75 * k5[i] + A76 * k6[i]);
+            evaluate(x + h, next, k7);
+            double error = 0;
+            for (int i = 0; i < n; i++) {
+                double e = h * (E1 * k1[i] + E3 * k3[i] + E4 * k4[i] + E5 * k5[i] + E6 * k6[i] + E7 * k7[i]);
+                double scale = tolerance + tolerance * Math.max(Math.abs(y[i]), Math.abs(next[i]));
+                error += (e / scale) * (e / scale);
+            }
+            error = Math.sqrt(error / n);
+            if (error <= 1 && !Double.isNaN(error)) {
+                // Dense output coefficients before y and k1 move on
+                int base = solution.addStep(x, h);
+                double[] c = solution.coefficients;
+                for (int i = 0; i < n; i++) {
+                    double difference = next[i] - y[i];
+                    double slope = h * k1[i] - difference;
+                    c[base + i] = y[i];
+                    c[base + n + i] = difference;
+                    c[base + 2 * n + i] = slope;
+                    c[base + 3 * n + i] = difference - h * k7[i] - slope;
+                    c[base + 4 * n + i] = h * (D1 * k1[i] + D3 * k3[i] + D4 * k4[i] + D5 * k5[i] + D6 * k6[i] + D7 * k7[i]);
+                }
+                // Hairer's stiffness test: h times the local Lipschitz estimate from the last
+                // two stages approaches the edge of the stability region. The controller
+                // parks a stability-limited h below that edge, the further below the tighter
+                // the tolerance (h |lambda| is about 1.3 at 1e-8), while accuracy-limited
+                // steps keep h L near tolerance^(1/5). So steps count from stiffLimit, and
+                // only 6 steps clearly below it (under half) clear the count.
+                double slopes = 0, states = 0;
+                for (int i = 0; i < n; i++) {
+                    slopes += (k7[i] - k6[i]) * (k7[i] - k6[i]);
+                    states += (next[i] - stage[i]) * (next[i] - stage[i]);
+                }
+                double stiffness = states > 0 ? Math.abs(h) * Math.sqrt(slopes / states) : 0;
+                if (stiffness > stiffLimit) {
+                    smoothSteps = 0;
+                    if (++stiffSteps >= STIFF_STEPS) return null;
+                } else if (stiffness < 0.5 * stiffLimit && ++smoothSteps >= 6) {
+                    stiffSteps = 0;
+                }
+                x += h;
+                System.arraycopy(next, 0, y, 0, n);
+                System.arraycopy(k7, 0, k1, 0, n); // first same as last
+                if ((x - x1) * direction >= 0) return solution.finish(y);
+                // PI step size control
+                double factor = 0.9 * Math.pow(Math.max(error, 1e-10), -0.7 / 5) * Math.pow(previousError, 0.4 / 5);
+                h *= Math.min(5, Math.max(0.2, factor));
+                previousError = Math.max(error, 1e-4);
+            } else {
+                h *= Double.isNaN(error) ? 0.1 : Math.max(0.1, 0.9 * Math.pow(error, -0.2));
+            }
+            checkStep(x, h);
+        }
+    }
+
+    // ROS2 (Verwer et al.), with x treated as an extra state so the method stays exact
+    // for non-autonomous problems. Each step solves two linear systems with the same
+    // matrix I - gamma h J.
+    public Solution solveStiff(double x0, double[] y0, double x1, double tolerance) {
+        checkArguments(x0, y0, x1, tolerance);
+        tolerance = Math.max(tolerance, STIFF_MIN_TOLERANCE);
+        Solution solution = new Solution(n, x0, "Rosenbrock ROS2");
+        double[] y = y0.clone();
+        if (x0 == x1) return solution.finish(y);
+        double direction = Math.signum(x1 - x0);
+        double x = x0;
+        jacobian(x, y, k1);
+        double h = initialStep(x, y, k1, x1, tolerance, 2);
+        double previousError = 1e-4;
+        for (int steps = 0; ; steps++) {
+            if (steps >= MAX_STEPS) throw new ArithmeticException("Too many steps; try a larger tolerance");
+            if ((x + h - x1) * direction > 0) h = x1 - x;
+            // k1 = f(x, y), jacobian and fx are current for (x, y)
+            for (int i = 0; i < n * n; i++) matrix[i] = -GAMMA * h * jacobian[i];
+            for (int i = 0; i < n; i++) matrix[i * n + i] += 1;
+            boolean regular = factor();
+            double error = Double.NaN;
+            if (regular) {
+                for (int i = 0; i < n; i++) k2[i] = k1[i] + GAMMA * h * fx[i];
+                solveFactored(k2);                               // first stage slope
+                for (int i = 0; i < n; i++) stage[i] = y[i] + h * k2[i];
+                evaluate(x + h, stage, k3);
+                for (int i = 0; i < n; i++) k3[i] = k3[i] - 2 * k2[i] - GAMMA * h * fx[i];
+                solveFactored(k3);                               // second stage slope
+                error = 0;
+                for (int i = 0; i < n; i++) {
+                    next[i] = y[i] + h * (1.5 * k2[i] + 0.5 * k3[i]);
+                    double e = 0.5 * h * (k2[i] + k3[i]);        // against the 1st order y + h k2
+                    double scale = tolerance + tolerance * Math.max(Math.abs(y[i]), Math.abs(next[i]));
+                    error += (e / scale) * (e / scale);
+                }
+                error = Math.sqrt(error / n);
+            }
+            if (error <= 1 && !Double.isNaN(error)) {
+                int base = solution.addStep(x, h);
+                double[] c = solution.coefficients;
+                for (int i = 0; i < n; i++) {
+                    c[base + i] = y[i];
+                    c[base + n + i] = next[i] - y[i];
+                    c[base + 2 * n + i] = h * k1[i] - c[base + n + i];
+                }
+                x += h;
+                System.arraycopy(next, 0, y, 0, n);
+                jacobian(x, y, k1);
+                for (int i = 0; i < n; i++) c[base + 3 * n + i] = c[base + n + i] - h * k1[i] - c[base + 2 * n + i]; // cubic Hermite
+                if ((x - x1) * direction >= 0) return solution.finish(y);
+                double factor = 0.9 * Math.pow(Math.max(error, 1e-10), -0.7 / 2) * Math.pow(previousError, 0.4 / 2);
+                h *= Math.min(5, Math.max(0.2, factor));
+                previousError = Math.max(error, 1e-4);
+            } else {
+                h *= Double.isNaN(error) ? 0.1 : Math.max(0.1, 0.9 * Math.pow(error, -0.5));
+            }
+            checkStep(x, h);
+        }
+    }
+
+    private void checkArguments(double x0, double[] y0, double x1, double tolerance) {
+        if (y0.length != n) throw new IllegalArgumentException("Expected " + n + " initial value(s), found " + y0.length);
+        if (!isFinite(x0) || !isFinite(x1)) throw new IllegalArgumentException("Interval must be finite");
+        if (!(tolerance > 0)) throw new IllegalArgumentException("Tolerance must be positive");
+        for (double v : y0) if (!isFinite(v)) throw new IllegalArgumentException("Initial values must be finite");
+    }
+
+    private static void checkStep(double x, double h) {
+        if (Math.abs(h) <= 16 * EPSILON * Math.max(1, Math.abs(x))) {
+            throw new ArithmeticException("Step size underflow near x = " + x + " (singularity?)");
+        }
+    }
+
+    // Hairer's starting step: a small explicit Euler trial measures the curvature
+    private double initialStep(double x, double[] y, double[] f, double x1, double tolerance, int order) {
+        double d0 = 0, d1 = 0;
+        for (int i = 0; i < n; i++) {
+            double scale = tolerance + tolerance * Math.abs(y[i]);
+            d0 += (y[i] / scale) * (y[i] / scale);
+            d1 += (f[i] / scale) * (f[i] / scale);
+        }
+        d0 = Math.sqrt(d0 / n);
+        d1 = Math.sqrt(d1 / n);
+        double span = Math.abs(x1 - x);
+        double h0 = d0 < 1e-5 || d1 < 1e-5 ? 1e-6 : 0.01 * d0 / d1;
+        h0 = Math.min(h0, span);
+        double direction = Math.signum(x1 - x);
+        for (int i = 0; i < n; i++) stage[i] = y[i] + direction * h0 * f[i];
+        evaluate(x + direction * h0, stage, next);
+        double d2 = 0;
+        for (int i = 0; i < n; i++) {
+            double scale = tolerance + tolerance * Math.abs(y[i]);
+            double curvature = (next[i] - f[i]) / scale;
+            d2 += curvature * curvature;
+        }
+        d2 = Math.sqrt(d2 / n) / h0;
+        double h1 = Math.max(d1, d2) <= 1e-15 ? Math.max(1e-6, h0 * 1e-3) : Math.pow(0.01 / Math.max(d1, d2), 1.0 / (order + 1));
+        if (Double.isNaN(h1)) h1 = h0;
+        return direction * Math.min(Math.min(100 * h0, h1), span);
+    }
+
+    private void evaluate(double x, double[] y, double[] out) {
+        point[0] = x;
+        System.arraycopy(y, 0, point, 1, n);
+        for (int i = 0; i < n; i++) out[i] = rhs[i].evaluate(point);
+    }
+
+    // f, d f/dx and d f/dy at (x, y) by reverse mode, one gradient per equation
+    private void jacobian(double x, double[] y, double[] f) {
+        point[0] = x;
+        System.arraycopy(y, 0, point, 1, n);
+        for (int i = 0; i < n; i++) {
+            f[i] = rhs[i].gradient(point, gradient);
+            fx[i] = gradient[0];
+            System.arraycopy(gradient, 1, jacobian, i * n, n);
+        }
+    }
+
+    // In-place LU factorization of matrix with partial pivoting; false if singular
+    private boolean factor() {
+        for (int col = 0; col < n; col++) {
+            int best = col;
+            for (int row = col + 1; row < n; row++) {
+                if (Math.abs(matrix[row * n + col]) > Math.abs(matrix[best * n + col])) best = row;
+            }
+            pivot[col] = best;
+            double p = matrix[best * n + col];
+            if (p == 0 || Double.isNaN(p)) return false;
+            if (best != col) {
+                for (int j = 0; j < n; j++) {
+                    double t = matrix[col * n + j];
+                    matrix[col * n + j] = matrix[best * n + j];
+                    matrix[best * n + j] = t;
+                }
+            }
+            for (int row = col + 1; row < n; row++) {
+                double m = matrix[row * n + col] / p;
+                matrix[row * n + col] = m;
+                if (m == 0) continue;
+                for (int j = col + 1; j < n; j++) matrix[row * n + j] -= m * matrix[col * n + j];
+            }
+        }
+        return true;
+    }
+
+    // Solves matrix * v = b in place, with matrix as left by factor()
+    private void solveFactored(double[] b) {
+        for (int col = 0; col < n; col++) {
+            int p = pivot[col];
+            if (p != col) {
+                double t = b[col];
+                b[col] = b[p];
+                b[p] = t;
+            }
+            for (int row = col + 1; row < n; row++) b[row] -= matrix[row * n + col] * b[col];
+        }
+        for (int row = n - 1; row >= 0; row--) {
+            double s = b[row];
+            for (int j = row + 1; j < n; j++) s -= matrix[row * n + j] * b[j];
+            b[row] = s / matrix[row * n + row];
+        }
+    }
+
+    private static boolean isFinite(double v) {
+        return !Double.isNaN(v) && !Double.isInfinite(v);
+    }
+
+    // The computed trajectory. Every accepted step keeps five coefficient vectors of the
+    // interpolant y(x + theta h) = c0 + theta (c1 + (1 - theta) (c2 + theta (c3 + (1 - theta) c4))),
+    // so the solution can be read anywhere in the interval at the order of the method.
+    public static final class Solution {
+        private final int n;
+        private final String method;
+        private double[] starts = new double[64];
+        private double[] steps = new double[64];
+        private double[] coefficients;
+        private int count;
+        private double end;
+        private double[] finalValues;
+
+        Solution(int n, double start, String method) {
+            this.n = n;
+            this.method = method;
+            this.coefficients = new double[64 * 5 * n];
+            this.end = start;
+            this.starts[0] = start;
+        }
+
+        // Offset of the coefficients of a new step in coefficients (initially zero)
+        int addStep(double x, double h) {
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count * 2);
+                steps = Arrays.copyOf(steps, count * 2);
+                coefficients = Arrays.copyOf(coefficients, count * 2 * 5 * n);
+            }
+            starts[count] = x;
+            steps[count] = h;
+            count++;
+            end = x + h;
+            return (count - 1) * 5 * n;
+        }
+
+        Solution finish(double[] y) {
+            finalValues = y.clone();
+            return this;
+        }
+
+        public String getMethod() { return method; }
+        public int getStepCount() { return count; }
+        public int getDimension() { return n; }
+        public double getStart() { return starts[0]; }
+        public double getEnd() { return end; }
+
+        public double[] getFinalValues() {
+            return finalValues.clone();
+        }
+
+        // Component i of the solution at x, which must lie between the start and the end
+        public double valueAt(double x, int component) {
+            if (count == 0) return finalValues[component];
+            double start = starts[0];
+            double direction = Math.signum(end - start);
+            if ((x - start) * direction < -1e-12 * Math.abs(end - start) || (x - end) * direction > 1e-12 * Math.abs(end - start)) {
+                throw new IllegalArgumentException("x = " + x + " is outside the solved interval");
+            }
+            // Last step starting at or before x
+            int lo = 0, hi = count - 1;
+            while (lo < hi) {
+                int mid = (lo + hi + 1) >>> 1;
+                if ((starts[mid] - x) * direction <= 0) lo = mid; else hi = mid - 1;
+            }
+            double theta = Math.min(1, Math.max(0, (x - starts[lo]) / steps[lo]));
+            double theta1 = 1 - theta;
+            int base = lo * 5 * n + component;
+            double[] c = coefficients;
+            return c[base] + theta * (c[base + n] + theta1 * (c[base + 2 * n] + theta * (c[base + 3 * n] + theta1 * c[base + 4 * n])));
+        }
+    }
+}
@@ -0,0 +1,548 @@
+package com.example.calculator.logic;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+// Local and multi-start minimization of compiled expressions, optionally within bounds.
+//   - One variable on a finite interval: Brent's method, golden-section steps mixed with
+//     parabolic interpolation; no derivatives needed.
+//   - Several variables: BFGS with gradients from reverse-mode AD (one tape pass per
+//     gradient, whatever the number of variables) and a backtracking line search. Bounds
+//     are removed by the usual change of variables (x = a + (b - a)(sin u + 1)/2 and
+//     similar for one-sided bounds), so the search itself is unconstrained.
+//   - Nelder-Mead, the derivative-free simplex method, with vertices clamped to the
+//     bounds; used when gradients are unusable and as a fallback for BFGS.
+// minimize() runs the local method from many starting points at once, one task per start
+// on the common fork/join pool with a tape per thread, and keeps the best result.
+// Points outside the domain (NaN values) count as +Infinity.
+public final class Optimizer {
+    public static final double DEFAULT_TOLERANCE = 1e-10;
+    public static final String BRENT = "Brent";
+    public static final String BFGS = "BFGS";
+    public static final String NELDER_MEAD = "Nelder-Mead";
+    private static final int MAX_ITERATIONS = 10_000;
+    private static final double SEARCH_RADIUS = 10; // start region for unbounded variables
+    // An iterate this many times farther out than its start (plus one), or the square root
+    // of it with the value this many times lower, is taken to diverge: the objective is
+    // unbounded, or its infimum lies at infinity
+    private static final double DIVERGENCE_FACTOR = 1e8;
+    // Past this many times its start (plus one), a stopping point with the objective flat all
+    // the way out, as e^x is once it underflows, counts as running away
+    private static final double RUNAWAY_REACH = 100;
+    private static final double GOLDEN = (3 - Math.sqrt(5)) / 2;
+    private static final double SQRT_EPSILON = Math.sqrt(Math.ulp(1.0)); // best relative accuracy of a minimizer
+    private static final long SEED = 0x5DEECE66DL;   // fixed, so results are reproducible
+
+    private final double tolerance;
+
+    public Optimizer() {
+        this(DEFAULT_TOLERANCE);
+    }
+
+    public Optimizer(double tolerance) {
+        if (!(tolerance > 0)) throw new IllegalArgumentException("Tolerance must be positive");
+        this.tolerance = tolerance;
+    }
+
+    public static final class Result {
+        private final double[] point;
+        private final double value;
+        private final int iterations;
+        private final long evaluations;
+        private final int starts;
+        private final boolean converged;
+        private final boolean diverged;
+        private final String method;
+
+        Result(double[] point, double value, int iterations, long evaluations, int starts, boolean converged, String method) {
+            this(point, value, iterations, evaluations, starts, converged, false, method);
+        }
+
+        Result(double[] point, double value, int iterations, long evaluations, int starts, boolean converged,
+               boolean diverged, String method) {
+            this.point = point;
+            this.value = value;
+            this.iterations = iterations;
+            this.evaluations = evaluations;
+            this.starts = starts;
+            this.converged = converged;
+            this.diverged = diverged;
+            this.method = method;
+        }
+
+        public double[] getPoint() { return point.clone(); }
+        public double getValue() { return value; }
+        public int getIterations() { return iterations; }         // summed over all starts
+        public long getEvaluations() { return evaluations; }      // values and gradients
+        public int getStarts() { return starts; }
+        public boolean isConverged() { return converged; }
+        public boolean isDiverged() { return diverged; }          // ran off towards infinity; never converged
+        public String getMethod() { return method; }
+    }
+
+    // Global-ish minimum (maximum when maximize is set) from `starts` starting points;
+    // lower and upper may hold infinities and may be null for no bounds at all
+    public Result minimize(CompiledExpression f, double[] lower, double[] upper, int starts, boolean maximize) {
+        int n = f.getVariableCount();
+        double[] lo = lower != null ? lower.clone() : filled(n, Double.NEGATIVE_INFINITY);
+        double[] hi = upper != null ? upper.clone() : filled(n, Double.POSITIVE_INFINITY);
+        checkBounds(n, lo, hi);
+        if (starts < 1) throw new IllegalArgumentException("At least one start is needed");
+        if (n == 0) {
+            double v = f.evaluate(new double[0]);
+            return new Result(new double[0], v, 0, 1, 1, true, "constant");
+        }
+        double sign = maximize ? -1 : 1;
+        ThreadLocal<CompiledExpression> tapes = ThreadLocal.withInitial(f::copy);
+        if (n == 1 && isFinite(lo[0]) && isFinite(hi[0])) {
+            // One Brent search per piece of the interval
+            double width = (hi[0] - lo[0]) / starts;
+            Result[] results = IntStream.range(0, starts).parallel()
+                .mapToObj(k -> brent(new Objective(tapes.get(), sign, lo, hi), lo[0] + k * width, k == starts - 1 ? hi[0] : lo[0] + (k + 1) * width))
+                .toArray(Result[]::new);
+            return best(results, sign);
+        }
+
+        // Start points are drawn up front from one seeded generator, then run in parallel
+        double[][] points = new double[starts][];
+        SplittableRandom random = new SplittableRandom(SEED);
+        for (int k = 0; k < starts; k++) {
+            double[] x = new double[n];
+            for (int i = 0; i < n; i++) {
+                double a = isFinite(lo[i]) ? lo[i] : (isFinite(hi[i]) ? hi[i] - 2 * SEARCH_RADIUS : -SEARCH_RADIUS);
+                double b = isFinite(hi[i]) ? hi[i] : a + 2 * SEARCH_RADIUS;
+                x[i] = k == 0 ? 0.5 * (a + b) : a + (b - a) * random.nextDouble();
+            }
+            points[k] = x;
+        }
+        Result[] results = IntStream.range(0, starts).parallel()
+            .mapToObj(k -> {
+                Result r = bfgs(new Objective(tapes.get(), sign, lo, hi), points[k]);
+                if (r.isConverged() && isFinite(r.getValue()) || r.isDiverged()) return r;
+                Result simplex = nelderMead(new Objective(tapes.get(), sign, lo, hi), points[k]);
+                Result better = simplex.getValue() < r.getValue() || !isFinite(r.getValue()) ? simplex : r;
+                return new Result(better.point, better.value, r.iterations + simplex.iterations,
+                                  r.evaluations + simplex.evaluations, 1, better.converged, better.diverged, better.method);
+            })
+            .toArray(Result[]::new);
+        return best(results, sign);
+    }
+
+    // The lowest of the per-start results (in internal sign), with the statistics summed
+    private static Result best(Result[] results, double sign) {
+        Result best = results[0];
+        int iterations = 0;
+        long evaluations = 0;
+        for (Result r : results) {
+            iterations += r.iterations;
+            evaluations += r.evaluations;
+            // On a tie, e.g. x^2 e^(-x^2) at 0 and far out, the attained minimum wins
+            if (r.value < best.value || r.value == best.value && best.diverged && !r.diverged) best = r;
+        }
+        boolean converged = best.converged && isFinite(best.value);
+        return new Result(best.point, sign * best.value, iterations, evaluations, results.length, converged, best.diverged, best.method);
+    }
+
+    // --- Brent's method in one dimension ---
+
+    private Result brent(Objective objective, double lower, double upper) {
+        double[] point = new double[1];
+        double a = lower, b = upper;
+        double x = a + GOLDEN * (b - a), w = x, v = x;
+        double fx = objective.at(point, x), fw = fx, fv = fx;
+        double d = 0, e = 0;
+        int iteration = 0;
+        boolean converged = false;
+        for (; iteration < MAX_ITERATIONS; iteration++) {
+            double middle = 0.5 * (a + b);
+            double tol1 = SQRT_EPSILON * Math.abs(x) + tolerance, tol2 = 2 * tol1;
+            if (Math.abs(x - middle) <= tol2 - 0.5 * (b - a)) {
+                converged = true;
+                break;
+            }
+            boolean golden = true;
+            if (Math.abs(e) > tol1) {
+                // Parabola through (x, fx), (w, fw), (v, fv)
+                double r = (x - w) * (fx - fv);
+                double q = (x - v) * (fx - fw);
+                double p = (x - v) * q - (x - w) * r;
+                q = 2 * (q - r);
+                if (q > 0) p = -p; else q = -q;
+                if (Math.abs(p) < Math.abs(0.5 * q * e) && p > q * (a - x) && p < q * (b - x)) {
+                    e = d;
+                    d = p / q;
+                    double u = x + d;
+                    if (u - a < tol2 || b - u < tol2) d = middle > x ? tol1 : -tol1;
+                    golden = false;
+                }
+            }
+            if (golden) {
+                e = (x >= middle ? a : b) - x;
+                d = GOLDEN * e;
+            }
+            double u = x + (Math.abs(d) >= tol1 ? d : (d > 0 ? tol1 : -tol1));
+            double fu = objective.at(point, u);
+            if (fu <= fx) {
+                if (u >= x) a = x; else b = x;
+                v = w; fv = fw;
+                w = x; fw = fx;
+                x = u; fx = fu;
+            } else {
+                if (u < x) a = u; else b = u;
+                if (fu <= fw || w == x) {
+                    v = w; fv = fw;
+                    w = u; fw = fu;
+                } else if (fu <= fv || v == x || v == w) {
+                    v = u; fv = fu;
+                }
+            }
+        }
+        // The interior search cannot land exactly on an end; compare with both
+        double fa = objective.at(point, lower), fb = objective.at(point, upper);
+        if (fa < fx) { x = lower; fx = fa; }
+        if (fb < fx) { x = upper; fx = fb; }
+        return new Result(new double[]{x}, fx, iteration, objective.evaluations, 1, converged, BRENT);
+    }
+
+    // --- BFGS in the unconstrained variables u ---
+
+    private Result bfgs(Objective objective, double[] start) {
+        int n = start.length;
+        double[] u = objective.toInternal(start);
+        double[] x = new double[n];
+        double[] g = new double[n], gNew = new double[n], uNew = new double[n];
+        double[] s = new double[n], y = new double[n], direction = new double[n], hy = new double[n];
+        double[] h = new double[n * n]; // inverse Hessian approximation, row-major
+        for (int i = 0; i < n; i++) h[i * n + i] = 1;
+        double f = objective.valueAndGradient(u, x, g);
+        double fStart = f;
+        int iteration = 0;
+        boolean converged = false, diverged = false;
+        for (; iteration < MAX_ITERATIONS && isFinite(f); iteration++) {
+            if (maxAbs(g) <= Math.sqrt(tolerance) * (1 + Math.abs(f)) * 1e-3) {
+                converged = true;
+                break;
+            }
+            double slope = 0;
+            for (int i = 0; i < n; i++) {
+                double sum = 0;
+                for (int j = 0; j < n; j++) sum -= h[i * n + j] * g[j];
+                direction[i] = sum;
+                slope += sum * g[i];
+            }
+            if (!(slope < 0)) {
+                // Not a descent direction any more: restart from steepest descent
+                Arrays.fill(h, 0);
+                for (int i = 0; i < n; i++) {
+                    h[i * n + i] = 1;
+                    direction[i] = -g[i];
+                }
+                slope = -dot(g, g);
+            }
+            // Backtracking line search with the Armijo condition
+            double step = 1, fNew = Double.NaN;
+            boolean accepted = false;
+            for (int trial = 0; trial < 60; trial++) {
+                for (int i = 0; i < n; i++) uNew[i] = u[i] + step * direction[i];
+                fNew = objective.valueAndGradient(uNew, x, gNew);
+                if (fNew <= f + 1e-4 * step * slope) {
+                    accepted = true;
+                    break;
+                }
+                step *= fNew > f + 10 * Math.abs(f) + 1 || !isFinite(fNew) ? 0.1 : 0.5;
+            }
+            if (!accepted) {
+                converged = maxAbs(g) <= Math.sqrt(tolerance) * (1 + Math.abs(f)); // stuck at rounding level
+                break;
+            }
+            if (diverging(start, fStart, x, fNew)) { // x holds the external point of uNew
+                System.arraycopy(uNew, 0, u, 0, n);
+                f = fNew;
+                diverged = true;
+                break;
+            }
+            for (int i = 0; i < n; i++) {
+                s[i] = uNew[i] - u[i];
+                y[i] = gNew[i] - g[i];
+            }
+            double decrease = f - fNew;
+            System.arraycopy(uNew, 0, u, 0, n);
+            System.arraycopy(gNew, 0, g, 0, n);
+            f = fNew;
+            double sy = dot(s, y);
+            if (sy > 1e-12 * Math.sqrt(dot(s, s) * dot(y, y))) {
+                // H += (1 + y'Hy/s'y) ss'/s'y - (Hy s' + s y'H)/s'y
+                double yhy = 0;
+                for (int i = 0; i < n; i++) {
+                    double sum = 0;
+                    for (int j = 0; j < n; j++) sum += h[i * n + j] * y[j];
+                    hy[i] = sum;
+                    yhy += y[i] * sum;
+                }
+                double factor = (1 + yhy / sy) / sy;
+                for (int i = 0; i < n; i++) {
+                    for (int j = 0; j < n; j++) {
+                        h[i * n + j] += factor * s[i] * s[j] - (hy[i] * s[j] + s[i] * hy[j]) / sy;
+                    }
+                }
+            }
+            if (decrease <= tolerance * (Math.abs(f) + tolerance) && maxAbs(s) <= Math.sqrt(tolerance) * (1 + maxAbs(u))) {
+                converged = true;
+                break;
+            }
+        }
+        objective.toExternal(u, x);
+        if (converged && runaway(objective, start, x, f)) {
+            converged = false;
+            diverged = true;
+        }
+        return new Result(x, f, iteration, objective.evaluations, 1, converged && isFinite(f), diverged, BFGS);
+    }
+
+    // --- Nelder-Mead in the original variables, vertices clamped to the bounds ---
+
+    private Result nelderMead(Objective objective, double[] start) {
+        int n = start.length;
+        double[][] simplex = new double[n + 1][];
+        double[] values = new double[n + 1];
+        for (int k = 0; k <= n; k++) {
+            double[] vertex = start.clone();
+            if (k > 0) {
+                int i = k - 1;
+                double range = isFinite(objective.lower[i]) && isFinite(objective.upper[i]) ? objective.upper[i] - objective.lower[i] : 0;
+                double step = range > 0 ? 0.1 * range : 0.1 * Math.max(1, Math.abs(vertex[i]));
+                vertex[i] += vertex[i] + step <= objective.upper[i] ? step : -step;
+            }
+            objective.clamp(vertex);
+            simplex[k] = vertex;
+            values[k] = objective.value(vertex);
+        }
+        double[] centroid = new double[n], reflected = new double[n], trial = new double[n];
+        double fStart = values[0];
+        int iteration = 0;
+        boolean converged = false, diverged = false;
+        for (; iteration < MAX_ITERATIONS; iteration++) {
+            sortSimplex(simplex, values);
+            if (values[0] == Double.NEGATIVE_INFINITY) break; // unbounded below
+            if (diverging(start, fStart, simplex[0], values[0])) {
+                diverged = true;
+                break;
+            }
+            double spread = values[n] - values[0];
+            double size = 0;
+            for (int k = 1; k <= n; k++) {
+                for (int i = 0; i < n; i++) size = Math.max(size, Math.abs(simplex[k][i] - simplex[0][i]));
+            }
+            if (spread <= tolerance * (Math.abs(values[0]) + tolerance) && size <= Math.sqrt(tolerance) * (1 + maxAbs(simplex[0]))) {
+                converged = true;
+                break;
+            }
+            Arrays.fill(centroid, 0);
+            for (int k = 0; k < n; k++) {
+                for (int i = 0; i < n; i++) centroid[i] += simplex[k][i] / n;
+            }
+            double fr = objective.value(towards(centroid, simplex[n], -1, reflected, objective));
+            if (fr < values[0]) {
+                double fe = objective.value(towards(centroid, simplex[n], -2, trial, objective));
+                replaceWorst(simplex, values, fe < fr ? trial : reflected, Math.min(fe, fr));
+            } else if (fr < values[n - 1]) {
+                replaceWorst(simplex, values, reflected, fr);
+            } else {
+                // Contract towards the better of the worst point and its reflection
+                boolean outside = fr < values[n];
+                double fc = objective.value(towards(centroid, outside ? reflected : simplex[n], 0.5, trial, objective));
+                if (fc < Math.min(fr, values[n])) {
+                    replaceWorst(simplex, values, trial, fc);
+                } else {
+                    for (int k = 1; k <= n; k++) {
+                        for (int i = 0; i < n; i++) simplex[k][i] = simplex[0][i] + 0.5 * (simplex[k][i] - simplex[0][i]);
+                        values[k] = objective.value(simplex[k]);
+                    }
+                }
+            }
+        }
+        sortSimplex(simplex, values);
+        if (converged && runaway(objective, start, simplex[0], values[0])) {
+            converged = false;
+            diverged = true;
+        }
+        return new Result(simplex[0].clone(), values[0], iteration, objective.evaluations, 1, converged, diverged, NELDER_MEAD);
+    }
+
+    // centroid + t (from - centroid), clamped, written into out
+    private static double[] towards(double[] centroid, double[] from, double t, double[] out, Objective objective) {
+        for (int i = 0; i < out.length; i++) out[i] = centroid[i] + t * (from[i] - centroid[i]);
+        objective.clamp(out);
+        return out;
+    }
+
+    private static void replaceWorst(double[][] simplex, double[] values, double[] vertex, double value) {
+        int worst = values.length - 1;
+        System.arraycopy(vertex, 0, simplex[worst], 0, vertex.length);
+        values[worst] = value;
+    }
+
+    // Insertion sort by value; the simplex is tiny and nearly sorted after each step
+    private static void sortSimplex(double[][] simplex, double[] values) {
+        for (int k = 1; k < values.length; k++) {
+            double[] vertex = simplex[k];
+            double value = values[k];
+            int j = k - 1;
+            while (j >= 0 && values[j] > value) {
+                simplex[j + 1] = simplex[j];
+                values[j + 1] = values[j];
+                j--;
+            }
+            simplex[j + 1] = vertex;
+            values[j + 1] = value;
+        }
+    }
+
+    // --- Objective: sign, bounds transform and evaluation count around one tape ---
+
+    private static final class Objective {
+        final CompiledExpression tape;
+        final double sign;
+        final double[] lower, upper;
+        final double[] gradient;
+        long evaluations;
+
+        Objective(CompiledExpression tape, double sign, double[] lower, double[] upper) {
+            this.tape = tape;
+            this.sign = sign;
+            this.lower = lower;
+            this.upper = upper;
+            this.gradient = new double[lower.length];
+        }
+
+        double value(double[] x) {
+            evaluations++;
+            double v = sign * tape.evaluate(x);
+            return Double.isNaN(v) ? Double.POSITIVE_INFINITY : v;
+        }
+
+        double at(double[] point, double x) {
+            point[0] = x;
+            return value(point);
+        }
+
+        // Value at x(u) and its gradient with respect to u (chain rule through the bounds
+        // transform); x receives the external point
+        double valueAndGradient(double[] u, double[] x, double[] gu) {
+            evaluations++;
+            toExternal(u, x);
+            double v = sign * tape.gradient(x, gradient);
+            for (int i = 0; i < u.length; i++) gu[i] = sign * gradient[i] * derivative(i, u[i]);
+            return Double.isNaN(v) ? Double.POSITIVE_INFINITY : v;
+        }
+
+        void clamp(double[] x) {
+            for (int i = 0; i < x.length; i++) x[i] = Math.max(lower[i], Math.min(upper[i], x[i]));
+        }
+
+        void toExternal(double[] u, double[] x) {
+            for (int i = 0; i < u.length; i++) {
+                double a = lower[i], b = upper[i];
+                if (isFinite(a) && isFinite(b)) x[i] = a + (b - a) * (Math.sin(u[i]) + 1) / 2;
+                else if (isFinite(a)) x[i] = a - 1 + Math.sqrt(u[i] * u[i] + 1);
+                else if (isFinite(b)) x[i] = b + 1 - Math.sqrt(u[i] * u[i] + 1);
+                else x[i] = u[i];
+            }
+        }
+
+        double[] toInternal(double[] x) {
+            double[] u = new double[x.length];
+            for (int i = 0; i < x.length; i++) {
+                double a = lower[i], b = upper[i];
+                double xi = Math.max(a, Math.min(b, x[i]));
+                if (isFinite(a) && isFinite(b)) u[i] = a == b ? 0 : Math.asin(Math.max(-1, Math.min(1, 2 * (xi - a) / (b - a) - 1)));
+                else if (isFinite(a)) u[i] = Math.sqrt((xi - a + 1) * (xi - a + 1) - 1);
+                else if (isFinite(b)) u[i] = Math.sqrt((b - xi + 1) * (b - xi + 1) - 1);
+                else u[i] = xi;
+            }
+            return u;
+        }
+
+        private double derivative(int i, double ui) {
+            double a = lower[i], b = upper[i];
+            if (isFinite(a) && isFinite(b)) return (b - a) * Math.cos(ui) / 2;
+            if (isFinite(a)) return ui / Math.sqrt(ui * ui + 1);
+            if (isFinite(b)) return -ui / Math.sqrt(ui * ui + 1);
+            return 1;
+        }
+    }
+
+    private static void checkBounds(int n, double[] lower, double[] upper) {
+        if (lower.length != n || upper.length != n) throw new IllegalArgumentException("Expected bounds for " + n + " variable(s)");
+        for (int i = 0; i < n; i++) {
+            if (Double.isNaN(lower[i]) || Double.isNaN(upper[i]) || lower[i] > upper[i]) {
+                throw new IllegalArgumentException("Invalid bounds for variable " + (i + 1));
+            }
+        }
+    }
+
+    private static double[] filled(int n, double value) {
+        double[] a = new double[n];
+        Arrays.fill(a, value);
+        return a;
+    }
+
+    private static double dot(double[] a, double[] b) {
+        double s = 0;
+        for (int i = 0; i < a.length; i++) s += a[i] * b[i];
+        return s;
+    }
+
+    // Whether the search has run off from start: a far-out point alone, since BFGS can stall at
+    // rounding level there (x^2 + y^2 maximized stops near 4e8), or one much farther out with
+    // a value far below the start's
+    private static boolean diverging(double[] start, double fStart, double[] x, double f) {
+        double reach = maxAbs(x) / (1 + maxAbs(start));
+        return reach > DIVERGENCE_FACTOR
+            || reach > Math.sqrt(DIVERGENCE_FACTOR) && fStart - f > DIVERGENCE_FACTOR * (1 + Math.abs(fStart));
+    }
+
+    // Whether a converged point is only where the objective became too flat to follow, its
+    // infimum not being attained (e^x, 1/(1 + x^2)). Going on past it, 1, 2, 4 and 8 times
+    // as far as from start and within the bounds, the value must never rise and must level
+    // off: the drop over the last, four-step stretch is below the one over the first step,
+    // or nothing changes at all and the point is far out already. A true minimum rises on
+    // that ray, one in a neighbouring well is passed on the way, and a search stopped on a
+    // slope keeps falling at least as fast. A search that stopped at its start, the slope
+    // there being below the tolerance, goes downhill by 1 + |x| instead.
+    private static boolean runaway(Objective objective, double[] start, double[] x, double f) {
+        int n = x.length;
+        double[] step = new double[n];
+        for (int i = 0; i < n; i++) step[i] = x[i] - start[i];
+        if (maxAbs(step) == 0) {
+            objective.evaluations++;
+            objective.tape.gradient(x, step);
+            double slope = maxAbs(step);
+            if (!(slope > 0) || !isFinite(slope)) return false;
+            for (int i = 0; i < n; i++) step[i] *= -objective.sign * (1 + maxAbs(x)) / slope;
+        }
+        double[] beyond = new double[n];
+        double[] values = new double[5];
+        values[0] = f;
+        for (int k = 1, j = 1; k <= 8; k *= 2, j++) {
+            for (int i = 0; i < n; i++) beyond[i] = x[i] + k * step[i];
+            objective.clamp(beyond);
+            if (Arrays.equals(beyond, x)) return false; // at a bound, or never moved
+            values[j] = objective.value(beyond);
+            if (values[j] > values[j - 1]) return false;
+        }
+        double first = values[0] - values[1], last = values[3] - values[4];
+        return last < first || values[4] == f && maxAbs(x) > RUNAWAY_REACH * (1 + maxAbs(start));
+    }
+
+    private static double maxAbs(double[] a) {
+        double m = 0;
+        for (double v : a) m = Math.max(m, Math.abs(v));
+        return m;
+    }
+
+    private static boolean isFinite(double v) {
+        return !Double.isNaN(v) && !Double.isInfinite(v);
+    }
+}
@@ -0,0 +1,398 @@
+package com.example.calculator.logic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+// Finds all complex roots of a dense polynomial simultaneously with the Aberth-Ehrlich
+// iteration, then groups clustered approximations into multiple roots where the
+// cluster is verified to be one, and polishes the simple roots with Newton's method. Every
+// root carries an inclusion radius: a disc of that radius around the reported value is
+// guaranteed (up to rounding) to contain the indicated number of roots.
+public class PolynomialRootFinder {
+
+    public static final class Root {
+        private final double real;
+        private final double imaginary;
+        private final int multiplicity;
+        private final double errorBound;
+
+        Root(double real, double imaginary, int multiplicity, double errorBound) {
+            this.real = real;
+            this.imaginary = imaginary;
+            this.multiplicity = multiplicity;
+            this.errorBound = errorBound;
+        }
+
+        public double getReal() { return real; }
+        public double getImaginary() { return imaginary; }
+        public int getMultiplicity() { return multiplicity; }
+        public double getErrorBound() { return errorBound; }
+
+        // A root counts as real when its inclusion disc reaches the real axis
+        public boolean isReal() {
+            return Math.abs(imaginary) <= errorBound;
+        }
+
+        @Override
+        public String toString() {
+            return "(" + real + ", " + imaginary + ") x" + multiplicity + " +/- " + errorBound;
+        }
+    }
+
+    private static final int MAX_ITERATIONS = 2000;
+    private static final int PARALLEL_THRESHOLD = 256; // degree from which each sweep runs on all cores
+    private static final double EPS = Math.ulp(1.0);
+
+    // coefficients[i] is the coefficient of x^i. Leading zeros are ignored.
+    public List<Root> findRoots(double[] coefficients) {
+        int high = coefficients.length - 1;
+        while (high >= 0 && coefficients[high] == 0) high--;
+        if (high < 0) throw new IllegalArgumentException("The zero polynomial has no isolated roots");
+        int low = 0;
+        while (coefficients[low] == 0) low++; // x^low factor gives an exact root at 0
+
+        List<Root> roots = new ArrayList<>();
+        if (low > 0) roots.add(new Root(0.0, 0.0, low, 0.0));
+        int n = high - low;
+        if (n == 0) return roots;
+
+        // Normalize to a monic polynomial of degree n
+        double[] a = new double[n + 1];
+        for (int i = 0; i <= n; i++) a[i] = coefficients[low + i] / coefficients[high];
+
+        if (n == 1) {
+            roots.add(new Root(-a[0], 0.0, 1, 0.0));
+            return roots;
+        }
+
+        double[] re = new double[n];
+        double[] im = new double[n];
+        initialGuesses(a, re, im);
+        aberth(a, re, im);
+        roots.addAll(cluster(a, re, im));
+        roots.sort((r1, r2) -> r1.real != r2.real ? Double.compare(r1.real, r2.real) : Double.compare(r1.imaginary, r2.imaginary));
+        return roots;
+    }
+
+    // Starting points spread over a circle whose radius is Fujiwara's root bound scaled
+    // towards the geometric mean of the root moduli; the angular offset breaks symmetry.
+    private void initialGuesses(double[] a, double[] re, double[] im) {
+        int n = a.length - 1;
+        double radius = Math.pow(Math.abs(a[0]), 1.0 / n);
+        double bound = 0;
+        for (int i = 0; i < n; i++) {
+            double v = Math.pow(Math.abs(a[i]), 1.0 / (n - i));
+            if (i == 0) v *= Math.pow(0.5, 1.0 / n);
+            bound = Math.max(bound, 2 * v);
+        }
+        if (radius == 0 || !Double.isFinite(radius)) radius = bound;
+        radius = Math.min(radius, bound);
+        if (radius == 0) radius = 1;
+        for (int k = 0; k < n; k++) {
+            double theta = 2 * Math.PI * k / n + 0.4;
+            re[k] = radius * Math.cos(theta);
+            im[k] = radius * Math.sin(theta);
+        }
+    }
+
+    private void aberth(double[] a, double[] re, double[] im) {
+        int n = re.length;
+        boolean[] converged = new boolean[n];
+        double[] newRe = new double[n];
+        double[] newIm = new double[n];
+        for (int iter = 0; iter < MAX_ITERATIONS; iter++) {
+            // Jacobi-style sweep: every update reads only the previous iterate, so the
+            // per-root work is independent and can be split across threads.
+            IntStream range = IntStream.range(0, n);
+            if (n >= PARALLEL_THRESHOLD) range = range.parallel();
+            range.forEach(k -> {
+                newRe[k] = re[k];
+                newIm[k] = im[k];
+                if (converged[k]) return;
+                double[] ratio = newtonRatio(a, re[k], im[k]);
+                double nr = ratio[0], ni = ratio[1];
+                double sr = 0, si = 0; // sum of 1 / (z_k - z_j)
+                for (int j = 0; j < n; j++) {
+                    if (j == k) continue;
+                    double dr = re[k] - re[j], di = im[k] - im[j];
+                    double d = dr * dr + di * di;
+                    if (d == 0) continue;
+                    sr += dr / d;
+                    si -= di / d;
+                }
+                // w = N / (1 - N * S)
+                double denR = 1 - (nr * sr - ni * si);
+                double denI = -(nr * si + ni * sr);
+                double den = denR * denR + denI * denI;
+                double wr, wi;
+                if (den == 0) { wr = nr; wi = ni; }
+                else {
+                    wr = (nr * denR + ni * denI) / den;
+                    wi = (ni * denR - nr * denI) / den;
+                }
+                newRe[k] = re[k] - wr;
+                newIm[k] = im[k] - wi;
+                if (Math.hypot(wr, wi) <= 4 * EPS * Math.hypot(newRe[k], newIm[k]) || !Double.isFinite(wr + wi)) {
+                    converged[k] = true;
+                    if (!Double.isFinite(wr + wi)) { newRe[k] = re[k]; newIm[k] = im[k]; }
+                }
+            });
+            System.arraycopy(newRe, 0, re, 0, n);
+            System.arraycopy(newIm, 0, im, 0, n);
+            boolean done = true;
+            for (boolean c : converged) if (!c) { done = false; break; }
+            if (done) return;
+        }
+    }
+
+    // Newton correction p(z)/p'(z). For |z| > 1 the reversed polynomial is evaluated at
+    // 1/z instead, which keeps high-degree evaluation free of overflow.
+    static double[] newtonRatio(double[] a, double zr, double zi) {
+        int n = a.length - 1;
+        if (zr * zr + zi * zi <= 1) {
+            double pr = a[n], pi = 0, dr = 0, di = 0;
+            for (int i = n - 1; i >= 0; i--) {
+                double t = dr * zr - di * zi + pr;
+                di = dr * zi + di * zr + pi;
+                dr = t;
+                t = pr * zr - pi * zi + a[i];
+                pi = pr * zi + pi * zr;
+                pr = t;
+            }
+            return complexDivide(pr, pi, dr, di);
+        }
+        double m = zr * zr + zi * zi;
+        double wr = zr / m, wi = -zi / m;
+        // q(w) = sum a[n-i] w^i, evaluated together with q'(w)
+        double qr = a[0], qi = 0, dr = 0, di = 0;
+        for (int i = 1; i <= n; i++) {
+            double t = dr * wr - di * wi + qr;
+            di = dr * wi + di * wr + qi;
+            dr = t;
+            t = qr * wr - qi * wi + a[i];
+            qi = qr * wi + qi * wr;
+            qr = t;
+        }
+        // p/p' = z / (n - w q'(w)/q(w))
+        double[] ratio = complexDivide(dr, di, qr, qi);
+        double tr = wr * ratio[0] - wi * ratio[1];
+        double ti = wr * ratio[1] + wi * ratio[0];
+        return complexDivide(zr, zi, n - tr, -ti);
+    }
+
+    private static double[] complexDivide(double ar, double ai, double br, double bi) {
+        double d = br * br + bi * bi;
+        if (d == 0) return new double[]{Double.POSITIVE_INFINITY, 0};
+        return new double[]{(ar * br + ai * bi) / d, (ai * br - ar * bi) / d};
+    }
+
+    // A couple of plain Newton steps on the approximations listed in indices; for simple
+    // roots this recovers the last bits lost to the simultaneous iteration. Steps that do
+    // not shrink the correction are rejected.
+    private void polish(double[] a, double[] re, double[] im, List<Integer> indices) {
+        for (int k : indices) {
+            double previous = Double.POSITIVE_INFINITY;
+            for (int step = 0; step < 3; step++) {
+                double[] ratio = newtonRatio(a, re[k], im[k]);
+                double size = Math.hypot(ratio[0], ratio[1]);
+                if (!Double.isFinite(size) || size >= previous) break;
+                re[k] -= ratio[0];
+                im[k] -= ratio[1];
+                previous = size;
+            }
+        }
+    }
+
+    // Groups the approximations into roots. Gerschgorin discs (see weierstrassRadii) are
+    // joined into connected components; a component of m discs meets no other disc, so it
+    // holds exactly m roots. It becomes one m-fold root only if multipleRoot confirms that
+    // the m roots are one multiple root; otherwise it is split again with the rounding
+    // bound left out of the radii, and what still does not pass is reported one
+    // approximation at a time. Only those single approximations are
+    // polished: on a multiple root Newton converges linearly and pulls the cluster apart
+    // unevenly.
+    private List<Root> cluster(double[] a, double[] re, double[] im) {
+        List<Root> roots = new ArrayList<>();
+        List<Integer> single = new ArrayList<>();
+        group(a, re, im, IntStream.range(0, re.length).toArray(), true, roots, single);
+        polish(a, re, im, single);
+        for (int k : single) roots.add(new Root(re[k], im[k], 1, inclusionRadius(a, re[k], im[k])));
+        return roots;
+    }
+
+    private void group(double[] a, double[] re, double[] im, int[] members, boolean rigorous,
+                       List<Root> roots, List<Integer> single) {
+        double[] radius = weierstrassRadii(a, re, im, members, rigorous);
+        int m = members.length;
+        int[] parent = new int[m];
+        for (int i = 0; i < m; i++) parent[i] = i;
+        for (int i = 0; i < m; i++) {
+            for (int j = i + 1; j < m; j++) {
+                if (Math.hypot(re[members[i]] - re[members[j]], im[members[i]] - im[members[j]]) <= radius[i] + radius[j]) {
+                    parent[find(parent, i)] = find(parent, j);
+                }
+            }
+        }
+        boolean[] seen = new boolean[m];
+        for (int i = 0; i < m; i++) {
+            int rootId = find(parent, i);
+            if (seen[rootId]) continue;
+            seen[rootId] = true;
+            int count = 0;
+            int[] component = new int[m];
+            for (int j = 0; j < m; j++) if (find(parent, j) == rootId) component[count++] = members[j];
+            if (count == 1) {
+                single.add(component[0]);
+                continue;
+            }
+            Root root = multipleRoot(a, re, im, component, count);
+            if (root != null) roots.add(root);
+            else if (rigorous) group(a, re, im, Arrays.copyOf(component, count), false, roots, single);
+            else for (int j = 0; j < count; j++) single.add(component[j]);
+        }
+    }
+
+    // Gerschgorin radii n (|p(z_k)| + e) / |prod_{j != k} (z_k - z_j)| of the monic p for the
+    // listed approximations, e bounding the rounding error of evaluating p: the discs
+    // around all n approximations contain the roots, and a connected union of m of them
+    // that meets no other disc contains exactly m. Worked in logarithms, since at high
+    // degree both |p| and the product overflow. With rigorous unset e is left out.
+    private static double[] weierstrassRadii(double[] a, double[] re, double[] im, int[] members, boolean rigorous) {
+        int n = a.length - 1;
+        double[] radius = new double[members.length];
+        IntStream range = IntStream.range(0, members.length);
+        if (n >= PARALLEL_THRESHOLD) range = range.parallel();
+        range.forEach(i -> {
+            int k = members[i];
+            double[] value = evaluate(a, re[k], im[k]);
+            double logValue = Math.log(Math.hypot(value[0], value[1]) + (rigorous ? 2 * (n + 1) * EPS * value[4] : 0)) + value[5];
+            double logProduct = 0;
+            for (int j = 0; j < re.length; j++) {
+                if (j != k) logProduct += Math.log(Math.hypot(re[k] - re[j], im[k] - im[j]));
+            }
+            radius[i] = n * Math.exp(logValue - logProduct);
+        });
+        return radius;
+    }
+
+    // The m-fold root that the approximations around (cr, ci) stand for, or null if they are
+    // not one. With p written as sum t_j (z - c)^j, and e_j bounding the rounding error in
+    // t_j, the centre is first refined by Newton's method on p^(m-1), which has a simple
+    // root there: c -= t_{m-1} / (m t_m). Rounding can only have split an m-fold root into
+    // m roots within (e_0 / |t_m|)^(1/m) of it, since t_0 ... t_{m-1} are noise there
+    // (p^(j)(c) = 0 for j < m and p^(m)(c) != 0); approximations spread wider are distinct
+    // close roots. The count is then confirmed by Pellet's test: if |t_m| R^m exceeds
+    // sum_{j != m} |t_j| R^j, with the error bounds added against it, p has exactly m roots
+    // in |z - c| < R.
+    private static Root multipleRoot(double[] a, double[] re, double[] im, int[] members, int m) {
+        int n = a.length - 1;
+        double cr = 0, ci = 0;
+        for (int j = 0; j < m; j++) {
+            cr += re[members[j]];
+            ci += im[members[j]];
+        }
+        cr /= m;
+        ci /= m;
+        double[][] t = taylor(a, cr, ci);
+        double previous = Double.POSITIVE_INFINITY;
+        for (int step = 0; step < 4; step++) {
+            double[] delta = complexDivide(t[0][m - 1], t[1][m - 1], m * t[0][m], m * t[1][m]);
+            double size = Math.hypot(delta[0], delta[1]);
+            if (!Double.isFinite(size) || size >= previous) break;
+            double[][] next = taylor(a, cr - delta[0], ci - delta[1]);
+            cr -= delta[0];
+            ci -= delta[1];
+            t = next;
+            previous = size;
+        }
+        double spread = 0;
+        for (int j = 0; j < m; j++) spread = Math.max(spread, Math.hypot(re[members[j]] - cr, im[members[j]] - ci));
+        double[] tr = t[0], ti = t[1], abs = t[2];
+        double gamma = 4 * (n + 1) * EPS;
+        double lead = Math.hypot(tr[m], ti[m]) - gamma * abs[m];
+        if (!(lead > 0)) return null;
+        double noise = Math.pow(gamma * abs[0] / lead, 1.0 / m);
+        if (!(spread <= 2 * noise)) return null;
+        double radius = 2 * Math.max(spread, noise);
+        double rest = 0;
+        for (int j = 0; j <= n; j++) {
+            if (j != m) rest += (Math.hypot(tr[j], ti[j]) + gamma * abs[j]) * Math.pow(radius, j - m);
+        }
+        return rest < lead ? new Root(cr, ci, m, radius) : null;
+    }
+
+    // The coefficients of p in powers of (z - c), by repeated synthetic division, as
+    // {real parts, imaginary parts, the same shift of |a_i| by |c|}
+    private static double[][] taylor(double[] a, double cr, double ci) {
+        int n = a.length - 1;
+        double[] tr = a.clone(), ti = new double[n + 1], abs = new double[n + 1];
+        for (int i = 0; i <= n; i++) abs[i] = Math.abs(a[i]);
+        double c = Math.hypot(cr, ci);
+        for (int k = 0; k < n; k++) {
+            for (int i = n - 1; i >= k; i--) {
+                double t = tr[i] + cr * tr[i + 1] - ci * ti[i + 1];
+                ti[i] += cr * ti[i + 1] + ci * tr[i + 1];
+                tr[i] = t;
+                abs[i] += c * abs[i + 1];
+            }
+        }
+        return new double[][]{tr, ti, abs};
+    }
+
+    // p and p' at z with the sum of |a_i| |z|^i, as {p, p', sum, log scale}. For |z| > 1
+    // these are q and q' of the reversed polynomial q(w) = w^n p(1/w) at w = 1/z instead,
+    // so that nothing overflows; then |p(z)| = |q(w)| |z|^n, the scale being n log|z|.
+    private static double[] evaluate(double[] a, double zr, double zi) {
+        int n = a.length - 1;
+        double modulus = Math.hypot(zr, zi);
+        boolean reversed = modulus > 1;
+        double wr = zr, wi = zi;
+        if (reversed) {
+            double m = zr * zr + zi * zi;
+            wr = zr / m;
+            wi = -zi / m;
+        }
+        double w = Math.hypot(wr, wi);
+        double pr = reversed ? a[0] : a[n], pi = 0, dr = 0, di = 0;
+        double abs = Math.abs(pr);
+        for (int step = 1; step <= n; step++) {
+            double c = reversed ? a[step] : a[n - step];
+            double t = dr * wr - di * wi + pr;
+            di = dr * wi + di * wr + pi;
+            dr = t;
+            t = pr * wr - pi * wi + c;
+            pi = pr * wi + pi * wr;
+            pr = t;
+            abs = abs * w + Math.abs(c);
+        }
+        return new double[]{pr, pi, dr, di, abs, reversed ? n * Math.log(modulus) : 0};
+    }
+
+    // Newton inclusion radius n (|p| + e) / |p'|: the disc holds at least one root
+    private static double inclusionRadius(double[] a, double zr, double zi) {
+        int n = a.length - 1;
+        double modulus = Math.hypot(zr, zi);
+        double[] v = evaluate(a, zr, zi);
+        double pr = v[0], pi = v[1], dr = v[2], di = v[3];
+        double value = Math.hypot(pr, pi) + 2 * (n + 1) * EPS * v[4];
+        if (v[5] == 0) {
+            return n * value / Math.hypot(dr, di) + 4 * EPS * modulus;
+        }
+        // p/p' = z q / (n q - w q')
+        double m = zr * zr + zi * zi;
+        double wr = zr / m, wi = -zi / m;
+        double denR = n * pr - (wr * dr - wi * di);
+        double denI = n * pi - (wr * di + wi * dr);
+        return n * modulus * value / Math.hypot(denR, denI) + 4 * EPS * modulus;
+    }
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+}
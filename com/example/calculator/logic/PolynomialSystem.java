@@ -0,0 +1,458 @@
+package com.example.calculator.logic;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+// Real solutions of two polynomial equations in two unknowns, e.g. "x^2 + y^2 = 1; x*y = 1/4".
+// The second unknown y is eliminated with the resultant R(x) = Res_y(P, Q), which
+// vanishes exactly at the x-coordinates of the common solutions. R is computed modulo
+// word-sized primes: for each prime it is evaluated at enough points x = a (each a
+// univariate resultant by the Euclidean algorithm) and interpolated, and the images are
+// recombined with the CRT until the modulus exceeds twice a Hadamard bound on R's
+// coefficients. Intermediate values therefore never grow beyond the size of R itself, and
+// the primes run in parallel. The real roots of R are isolated exactly (RealRootIsolator);
+// each one is substituted back, the y-roots shared by both equations found, and every
+// pair polished by Newton's method on the full system.
+public final class PolynomialSystem {
+    static final int MAX_DEGREE = 24;              // per unknown and equation
+    private static final long MAX_RESULTANT_DEGREE = 400;
+    private static final double SOLUTION_TOLERANCE = 1e-8;
+
+    private final String[] unknowns;
+    private final BigInteger[][] p;  // p[j][i]: coefficient of x^i y^j, integers
+    private final BigInteger[][] q;
+
+    public static final class Solution {
+        private final String[] unknowns;
+        private final double[][] points;
+        private final BigInteger[] resultant;
+        private final boolean commonFactor;
+
+        Solution(String[] unknowns, double[][] points, BigInteger[] resultant, boolean commonFactor) {
+            this.unknowns = unknowns;
+            this.points = points;
+            this.resultant = resultant;
+            this.commonFactor = commonFactor;
+        }
+
+        public String[] getUnknowns() { return unknowns.clone(); }
+        public int getCount() { return points.length; }
+        public double getX(int solution) { return points[solution][0]; }
+        public double getY(int solution) { return points[solution][1]; }
+        // True when the equations share a factor, so they have a whole curve in common
+        public boolean hasCommonFactor() { return commonFactor; }
+        public int getResultantDegree() { return resultant.length - 1; }
+
+        // The eliminant in the first unknown, e.g. "16x^4 - 16x^2 + 1"
+        public String getResultant() {
+            return RationalPolynomial.fromIntegers(IntegerPolynomials.primitivePart(resultant), unknowns[0]).toString();
+        }
+    }
+
+    private PolynomialSystem(String[] unknowns, BigInteger[][] p, BigInteger[][] q) {
+        this.unknowns = unknowns;
+        this.p = p;
+        this.q = q;
+    }
+
+    // Two equations separated by ';'. A part without '=' means "= 0".
+    public static PolynomialSystem parse(String text) {
+        List<ExpressionTree> equations = new ArrayList<>();
+        for (String part : text.split("[;\\n]")) {
+            if (!part.trim().isEmpty()) equations.add(ExpressionParser.parse(part));
+        }
+        List<String> names = new ArrayList<>();
+        for (ExpressionTree tree : equations) collectUnknowns(tree, tree.root(), names);
+        if (equations.size() != 2 || names.size() != 2) {
+            throw new IllegalArgumentException("Polynomial systems need two equations in two unknowns (found "
+                                               + equations.size() + " equations in " + names.size() + " unknowns)");
+        }
+        String[] unknowns = names.toArray(new String[0]);
+        Arrays.sort(unknowns); // x before y whatever the order of appearance
+        return new PolynomialSystem(unknowns, integerCoefficients(equation(equations.get(0), unknowns)),
+                                    integerCoefficients(equation(equations.get(1), unknowns)));
+    }
+
+    public Solution solve() {
+        if (degreeY(p) < 0 || degreeY(q) < 0) {
+            throw new IllegalArgumentException("Each equation must be a non-trivial polynomial");
+        }
+        if (degreeY(p) == 0 && degreeY(q) == 0) {
+            throw new IllegalArgumentException("Neither equation involves " + unknowns[1]);
+        }
+        BigInteger[] r = resultant();
+        if (r.length == 0) return new Solution(unknowns, new double[0][], r, true);
+        if (r.length == 1) return new Solution(unknowns, new double[0][], r, false);
+        List<double[]> points = new ArrayList<>();
+        BigFraction[] coefficients = new BigFraction[r.length];
+        for (int i = 0; i < r.length; i++) coefficients[i] = new BigFraction(r[i]);
+        for (RealRootIsolator.RootInterval root : new RealRootIsolator().isolate(new RationalPolynomial(coefficients, unknowns[0]))) {
+            BigFraction magnitude = root.getLower().abs().compareTo(BigFraction.ONE) > 0 ? root.getLower().abs() : BigFraction.ONE;
+            BigFraction width = magnitude.multiply(BigFraction.valueOf(1, 1L << 55));
+            double x = root.refine(width).approximate();
+            for (double y : commonRoots(x)) addDistinct(points, polish(x, y));
+        }
+        points.sort((a, b) -> a[0] != b[0] ? Double.compare(a[0], b[0]) : Double.compare(a[1], b[1]));
+        return new Solution(unknowns, points.toArray(new double[0][]), r, false);
+    }
+
+    // --- Setting up ---
+
+    private static void collectUnknowns(ExpressionTree tree, int node, List<String> names) {
+        if (tree.kind(node) == ExpressionTree.IDENTIFIER) {
+            String name = tree.name(node);
+            if (!CompiledExpression.isNamedConstant(name) && !names.contains(name)) names.add(name);
+        }
+        for (int child = tree.firstChild(node); child >= 0; child = tree.nextSibling(child)) collectUnknowns(tree, child, names);
+    }
+
+    private static RationalPolynomial[] equation(ExpressionTree tree, String[] unknowns) {
+        int root = tree.root();
+        if (tree.kind(root) != ExpressionTree.EQUATION) return bivariate(tree, root, unknowns);
+        return add(bivariate(tree, tree.left(root), unknowns), scale(bivariate(tree, tree.right(root), unknowns), BigFraction.ONE.negate()));
+    }
+
+    // A polynomial in x and y as coefficients in x of the powers of y: result[j] multiplies y^j
+    private static RationalPolynomial[] bivariate(ExpressionTree tree, int node, String[] unknowns) {
+        String x = unknowns[0];
+        switch (tree.kind(node)) {
+            case ExpressionTree.NUMBER:
+                return new RationalPolynomial[]{RationalPolynomial.constant(BigFraction.valueOf(tree.number(node)), x)};
+            case ExpressionTree.IDENTIFIER: {
+                String name = tree.name(node);
+                if (name.equals(x)) return new RationalPolynomial[]{new RationalPolynomial(new BigFraction[]{BigFraction.ZERO, BigFraction.ONE}, x)};
+                if (name.equals(unknowns[1])) return new RationalPolynomial[]{RationalPolynomial.zero(x), RationalPolynomial.constant(BigFraction.ONE, x)};
+                double value = name.equalsIgnoreCase("e") ? Math.E : Math.PI;
+                return new RationalPolynomial[]{RationalPolynomial.constant(BigFraction.valueOf(value), x)};
+            }
+            case ExpressionTree.NEGATE:
+                return scale(bivariate(tree, tree.firstChild(node), unknowns), BigFraction.ONE.negate());
+            case ExpressionTree.ADD:
+                return add(bivariate(tree, tree.left(node), unknowns), bivariate(tree, tree.right(node), unknowns));
+            case ExpressionTree.SUBTRACT:
+                return add(bivariate(tree, tree.left(node), unknowns), scale(bivariate(tree, tree.right(node), unknowns), BigFraction.ONE.negate()));
+            case ExpressionTree.MULTIPLY:
+                return multiply(tree, node, bivariate(tree, tree.left(node), unknowns), bivariate(tree, tree.right(node), unknowns));
+            case ExpressionTree.DIVIDE: {
+                BigFraction divisor = constantValue(bivariate(tree, tree.right(node), unknowns));
+                if (divisor == null) throw tree.error(node, "Not a polynomial: division by an unknown");
+                if (divisor.isZero()) throw new ArithmeticException("Division by zero");
+                return scale(bivariate(tree, tree.left(node), unknowns), divisor.reciprocal());
+            }
+            case ExpressionTree.POWER: {
+                BigFraction exponent = constantValue(bivariate(tree, tree.right(node), unknowns));
+                if (exponent == null || !exponent.isInteger() || exponent.signum() < 0 || exponent.getNumerator().bitLength() > 8) {
+                    throw tree.error(node, "Not a polynomial: exponents must be non-negative integers");
+                }
+                RationalPolynomial[] base = bivariate(tree, tree.left(node), unknowns);
+                RationalPolynomial[] power = new RationalPolynomial[]{RationalPolynomial.constant(BigFraction.ONE, x)};
+                for (int k = exponent.getNumerator().intValue(); k > 0; k--) power = multiply(tree, node, power, base);
+                return power;
+            }
+            case ExpressionTree.CALL:
+                throw tree.error(node, "Not a polynomial: " + tree.name(node) + "()");
+            default:
+                throw tree.error(node, "Not a polynomial equation");
+        }
+    }
+
+    private static RationalPolynomial[] add(RationalPolynomial[] a, RationalPolynomial[] b) {
+        RationalPolynomial[] r = new RationalPolynomial[Math.max(a.length, b.length)];
+        for (int j = 0; j < r.length; j++) {
+            r[j] = j >= a.length ? b[j] : j >= b.length ? a[j] : a[j].add(b[j]);
+        }
+        return r;
+    }
+
+    private static RationalPolynomial[] scale(RationalPolynomial[] a, BigFraction factor) {
+        RationalPolynomial[] r = new RationalPolynomial[a.length];
+        for (int j = 0; j < a.length; j++) r[j] = a[j].multiply(factor);
+        return r;
+    }
+
+    private static RationalPolynomial[] multiply(ExpressionTree tree, int node, RationalPolynomial[] a, RationalPolynomial[] b) {
+        RationalPolynomial[] r = new RationalPolynomial[a.length + b.length - 1];
+        Arrays.fill(r, RationalPolynomial.zero(a[0].getVariable()));
+        for (int i = 0; i < a.length; i++) {
+            if (a[i].isZero()) continue;
+            for (int j = 0; j < b.length; j++) if (!b[j].isZero()) r[i + j] = r[i + j].add(a[i].multiply(b[j]));
+        }
+        int degreeX = 0;
+        for (RationalPolynomial c : r) degreeX = Math.max(degreeX, c.getDegree());
+        if (r.length - 1 > MAX_DEGREE || degreeX > MAX_DEGREE) throw tree.error(node, "Degree too high (maximum " + MAX_DEGREE + ")");
+        return r;
+    }
+
+    // The value of a polynomial without unknowns, or null
+    private static BigFraction constantValue(RationalPolynomial[] a) {
+        for (int j = 1; j < a.length; j++) if (!a[j].isZero()) return null;
+        return a[0].getDegree() <= 0 ? a[0].getCoefficient(0) : null;
+    }
+
+    // Clears denominators: the same curve with integer coefficients, trimmed in y
+    private static BigInteger[][] integerCoefficients(RationalPolynomial[] a) {
+        BigInteger lcm = BigInteger.ONE;
+        for (RationalPolynomial c : a) {
+            for (int i = 0; i <= c.getDegree(); i++) {
+                BigInteger d = c.getCoefficient(i).getDenominator();
+                lcm = lcm.divide(lcm.gcd(d)).multiply(d);
+            }
+        }
+        int n = a.length;
+        while (n > 0 && a[n - 1].isZero()) n--;
+        BigInteger[][] r = new BigInteger[n][];
+        for (int j = 0; j < n; j++) {
+            r[j] = new BigInteger[a[j].getDegree() + 1];
+            for (int i = 0; i < r[j].length; i++) r[j][i] = a[j].getCoefficient(i).multiply(lcm).getNumerator();
+        }
+        return r;
+    }
+
+    private static int degreeY(BigInteger[][] a) {
+        return a.length - 1;
+    }
+
+    private static int degreeX(BigInteger[][] a) {
+        int d = 0;
+        for (BigInteger[] c : a) d = Math.max(d, c.length - 1);
+        return d;
+    }
+
+    // --- Modular resultant ---
+
+    // Res_y(p, q) as a polynomial in x with integer coefficients (empty when identically zero)
+    BigInteger[] resultant() {
+        int m = degreeY(p), n = degreeY(q);
+        long bound = (long) m * degreeX(q) + (long) n * degreeX(p);
+        if (bound > MAX_RESULTANT_DEGREE) throw new IllegalArgumentException("The eliminated equation would have degree " + bound);
+        int points = (int) bound + 1;
+        // Hadamard bound: each row of the Sylvester matrix contributes its 1-norm
+        BigInteger limit = oneNorm(p).pow(n).multiply(oneNorm(q).pow(m)).shiftLeft(1);
+        List<Long> primes = new ArrayList<>();
+        BigInteger modulus = BigInteger.ONE;
+        long prime = 2147483647L;
+        while (modulus.compareTo(limit) <= 0) {
+            prime = IntegerPolynomials.previousPrime(prime);
+            // Primes that kill a leading coefficient in y would change the degrees
+            if (IntegerPolynomials.reduce(p[m], prime).length == 0 || IntegerPolynomials.reduce(q[n], prime).length == 0) continue;
+            primes.add(prime);
+            modulus = modulus.multiply(BigInteger.valueOf(prime));
+        }
+        long[][] images = new long[primes.size()][];
+        IntStream.range(0, images.length).parallel().forEach(k -> images[k] = resultantModulo(primes.get(k), points));
+        // Chinese remaindering in prime order
+        BigInteger[] accumulated = new BigInteger[points];
+        Arrays.fill(accumulated, BigInteger.ZERO);
+        BigInteger product = BigInteger.ONE;
+        for (int k = 0; k < images.length; k++) {
+            long pk = primes.get(k);
+            BigInteger bp = BigInteger.valueOf(pk);
+            long inverse = product.mod(bp).modInverse(bp).longValue();
+            for (int i = 0; i < points; i++) {
+                long image = i < images[k].length ? images[k][i] : 0;
+                long t = IntegerPolynomials.mulMod(Math.floorMod(image - accumulated[i].mod(bp).longValue(), pk), inverse, pk);
+                accumulated[i] = accumulated[i].add(product.multiply(BigInteger.valueOf(t)));
+            }
+            product = product.multiply(bp);
+        }
+        return IntegerPolynomials.symmetric(accumulated, product);
+    }
+
+    private static BigInteger oneNorm(BigInteger[][] a) {
+        BigInteger s = BigInteger.ZERO;
+        for (BigInteger[] c : a) for (BigInteger v : c) s = s.add(v.abs());
+        return s;
+    }
+
+    // The resultant mod prime at `points` values of x where neither leading coefficient in
+    // y vanishes (so the resultant of the specializations is the specialization of the
+    // resultant), interpolated back to coefficients in x
+    private long[] resultantModulo(long prime, int points) {
+        long[][] pm = reduceRows(p, prime), qm = reduceRows(q, prime);
+        long[] xs = new long[points], values = new long[points];
+        int found = 0;
+        for (long a = 0; found < points; a++) {
+            long[] pa = substitute(pm, a, prime), qa = substitute(qm, a, prime);
+            if (pa[pa.length - 1] == 0 || qa[qa.length - 1] == 0) continue;
+            xs[found] = a;
+            values[found++] = resultantMod(pa, qa, prime);
+        }
+        return interpolate(xs, values, prime);
+    }
+
+    private static long[][] reduceRows(BigInteger[][] a, long prime) {
+        BigInteger bp = BigInteger.valueOf(prime);
+        long[][] r = new long[a.length][];
+        for (int j = 0; j < a.length; j++) {
+            r[j] = new long[a[j].length];
+            for (int i = 0; i < a[j].length; i++) r[j][i] = a[j][i].mod(bp).longValue();
+        }
+        return r;
+    }
+
+    // Coefficients in y at x = a (untrimmed, so the formal degree in y is kept)
+    private static long[] substitute(long[][] a, long x, long prime) {
+        long[] r = new long[a.length];
+        for (int j = 0; j < a.length; j++) {
+            long v = 0;
+            for (int i = a[j].length - 1; i >= 0; i--) v = (IntegerPolynomials.mulMod(v, x, prime) + a[j][i]) % prime;
+            r[j] = v;
+        }
+        return r;
+    }
+
+    // Res(a, b) in GF(p) for non-zero leading coefficients, by the Euclidean algorithm:
+    // Res(a, b) = (-1)^(deg a deg b) lc(b)^(deg a - deg r) Res(b, r) with r = a mod b
+    static long resultantMod(long[] a, long[] b, long prime) {
+        long result = 1;
+        while (b.length > 1) {
+            long[] r = IntegerPolynomials.remMod(a, b, prime);
+            if (r.length == 0) return 0;
+            int da = a.length - 1, db = b.length - 1, dr = r.length - 1;
+            if ((da & db & 1) != 0) result = prime - result;
+            result = IntegerPolynomials.mulMod(result, powMod(b[db], da - dr, prime), prime);
+            a = b;
+            b = r;
+        }
+        return IntegerPolynomials.mulMod(result, powMod(b[0], a.length - 1, prime), prime);
+    }
+
+    private static long powMod(long base, int exponent, long prime) {
+        long result = 1;
+        for (; exponent > 0; exponent >>= 1, base = IntegerPolynomials.mulMod(base, base, prime)) {
+            if ((exponent & 1) != 0) result = IntegerPolynomials.mulMod(result, base, prime);
+        }
+        return result;
+    }
+
+    // Newton's divided differences, then expansion into ascending coefficients
+    private static long[] interpolate(long[] xs, long[] values, long prime) {
+        int n = xs.length;
+        long[] c = values.clone();
+        for (int level = 1; level < n; level++) {
+            for (int i = n - 1; i >= level; i--) {
+                long difference = Math.floorMod(c[i] - c[i - 1], prime);
+                c[i] = IntegerPolynomials.mulMod(difference, IntegerPolynomials.invMod(Math.floorMod(xs[i] - xs[i - level], prime), prime), prime);
+            }
+        }
+        long[] r = new long[n];
+        for (int k = n - 1; k >= 0; k--) {
+            // r = r * (x - xs[k]) + c[k]
+            for (int i = n - 1; i > 0; i--) r[i] = Math.floorMod(r[i - 1] - IntegerPolynomials.mulMod(r[i], xs[k], prime), prime);
+            r[0] = Math.floorMod(c[k] - IntegerPolynomials.mulMod(r[0], xs[k], prime), prime);
+        }
+        return IntegerPolynomials.trimMod(r);
+    }
+
+    // --- Back-substitution ---
+
+    // Real y with p(x, y) = q(x, y) = 0 (up to rounding) for a root x of the resultant: the
+    // real roots in y of the lower-degree equation that nearly satisfy the other one
+    private double[] commonRoots(double x) {
+        double[] py = atX(p, x), qy = atX(q, x);
+        boolean pVanishes = isNegligible(py, p, x), qVanishes = isNegligible(qy, q, x);
+        if (pVanishes && qVanishes) return new double[0];
+        boolean useP = !pVanishes && (qVanishes || p.length <= q.length);
+        double[] candidates = useP ? py : qy;
+        BigInteger[][] other = useP ? q : p;
+        List<Double> ys = new ArrayList<>();
+        if (degreeOf(candidates) <= 0) return new double[0];
+        for (PolynomialRootFinder.Root root : new PolynomialRootFinder().findRoots(candidates)) {
+            double y = root.getReal();
+            if (Math.abs(root.getImaginary()) > 1e-6 * Math.max(1, Math.abs(y))) continue;
+            if (Math.abs(evaluate(other, x, y)) <= 1e-6 * Math.max(1, magnitude(other, x, y))) ys.add(y);
+        }
+        double[] r = new double[ys.size()];
+        for (int i = 0; i < r.length; i++) r[i] = ys.get(i);
+        return r;
+    }
+
+    // Newton's method on (p, q) = 0 from (x, y); keeps the start where the Jacobian is
+    // singular (multiple solutions), which the exact x already makes accurate
+    private double[] polish(double x, double y) {
+        for (int iteration = 0; iteration < 8; iteration++) {
+            double f = evaluate(p, x, y), g = evaluate(q, x, y);
+            double fx = partialX(p, x, y), fy = partialY(p, x, y);
+            double gx = partialX(q, x, y), gy = partialY(q, x, y);
+            double det = fx * gy - fy * gx;
+            if (det == 0 || Double.isNaN(det)) break;
+            double dx = (f * gy - fy * g) / det, dy = (fx * g - f * gx) / det;
+            if (!(Math.abs(dx) + Math.abs(dy) <= 1e-3 * (1 + Math.abs(x) + Math.abs(y)))) break; // diverging
+            x -= dx;
+            y -= dy;
+            if (Math.abs(dx) + Math.abs(dy) <= 1e-16 * (Math.abs(x) + Math.abs(y))) break;
+        }
+        return new double[]{x, y};
+    }
+
+    private static void addDistinct(List<double[]> points, double[] point) {
+        for (double[] other : points) {
+            double scale = SOLUTION_TOLERANCE * (1 + Math.abs(point[0]) + Math.abs(point[1]));
+            if (Math.abs(other[0] - point[0]) <= scale && Math.abs(other[1] - point[1]) <= scale) return;
+        }
+        points.add(point);
+    }
+
+    private static double[] atX(BigInteger[][] a, double x) {
+        double[] r = new double[a.length];
+        for (int j = 0; j < a.length; j++) r[j] = horner(a[j], x);
+        return r;
+    }
+
+    private static boolean isNegligible(double[] coefficients, BigInteger[][] a, double x) {
+        double size = 0;
+        for (BigInteger[] c : a) size = Math.max(size, absHorner(c, Math.abs(x)));
+        for (double c : coefficients) if (Math.abs(c) > 1e-9 * size) return false;
+        return true;
+    }
+
+    private static int degreeOf(double[] c) {
+        int d = c.length - 1;
+        while (d >= 0 && c[d] == 0) d--;
+        return d;
+    }
+
+    private static double evaluate(BigInteger[][] a, double x, double y) {
+        double s = 0;
+        for (int j = a.length - 1; j >= 0; j--) s = s * y + horner(a[j], x);
+        return s;
+    }
+
+    // Sum of |terms|, the scale against which a residual counts as zero
+    private static double magnitude(BigInteger[][] a, double x, double y) {
+        double s = 0;
+        for (int j = a.length - 1; j >= 0; j--) s = s * Math.abs(y) + absHorner(a[j], Math.abs(x));
+        return s;
+    }
+
+    private static double partialX(BigInteger[][] a, double x, double y) {
+        double s = 0;
+        for (int j = a.length - 1; j >= 0; j--) {
+            double c = 0;
+            for (int i = a[j].length - 1; i >= 1; i--) c = c * x + i * a[j][i].doubleValue();
+            s = s * y + c;
+        }
+        return s;
+    }
+
+    private static double partialY(BigInteger[][] a, double x, double y) {
+        double s = 0;
+        for (int j = a.length - 1; j >= 1; j--) s = s * y + j * horner(a[j], x);
+        return s;
+    }
+
+    private static double horner(BigInteger[] c, double x) {
+        double s = 0;
+        for (int i = c.length - 1; i >= 0; i--) s = s * x + c[i].doubleValue();
+        return s;
+    }
+
+    private static double absHorner(BigInteger[] c, double x) {
+        double s = 0;
+        for (int i = c.length - 1; i >= 0; i--) s = s * x + Math.abs(c[i].doubleValue());
+        return s;
+    }
+}
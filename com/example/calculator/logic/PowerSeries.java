@@ -0,0 +1,303 @@
+package com.example.calculator.logic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Truncated power series c[0] + c[1] t + c[2] t^2 + ... in a local variable t, known up
+// to t^(length - 1). Expressions are expanded by running them on series instead of
+// numbers: products cost O(n^2) and exp, ln, sin, cos and powers use the standard
+// first-order recurrences (w' = u' w for exp, and so on), so an order-n Taylor
+// polynomial costs O(n^2) operations instead of n symbolic derivatives.
+// Instances are immutable.
+public final class PowerSeries {
+    private final double[] c;
+
+    private PowerSeries(double[] coefficients) {
+        this.c = coefficients;
+    }
+
+    public static PowerSeries constant(double value, int order) {
+        double[] r = new double[order + 1];
+        r[0] = value;
+        return new PowerSeries(r);
+    }
+
+    // The series of a + t, i.e. the variable expanded around a
+    public static PowerSeries variable(double a, int order) {
+        double[] r = new double[order + 1];
+        r[0] = a;
+        if (order >= 1) r[1] = 1;
+        return new PowerSeries(r);
+    }
+
+    // Taylor expansion of a parsed expression around variable = point up to the given
+    // order (radians for trigonometric functions). Throws if the expression is not
+    // analytic there, e.g. ln(x) or 1/x at 0.
+    public static PowerSeries expand(ExpressionTree tree, String variable, double point, int order) {
+        if (order < 0) throw new IllegalArgumentException("Order must be non-negative: " + order);
+        // Division by a series that vanishes at the point costs orders, so work with a few
+        // extra and retry with more if they were not enough
+        for (int guard = 4; guard <= 4 * (order + 4); guard *= 2) {
+            PowerSeries s = new Expander(tree, variable, point, order + guard).expand(tree.root());
+            if (s.getOrder() >= order) return s.truncate(order);
+        }
+        throw new ArithmeticException("Cannot expand to order " + order + " at this point");
+    }
+
+    public int getOrder() {
+        return c.length - 1;
+    }
+
+    public double getCoefficient(int k) {
+        return k < c.length ? c[k] : 0.0;
+    }
+
+    public double[] getCoefficients() {
+        return c.clone();
+    }
+
+    // The Taylor polynomial in the given variable (the expansion variable t). Note that
+    // Polynomial drops coefficients below 1e-9, which includes the tail of e.g. exp(x).
+    public Polynomial toPolynomial(String variable) {
+        List<Term> terms = new ArrayList<>();
+        for (int k = 0; k < c.length; k++) {
+            if (c[k] != 0) terms.add(new Term(c[k], k == 0 ? "" : variable, k));
+        }
+        return new Polynomial(terms);
+    }
+
+    public PowerSeries truncate(int order) {
+        return order >= getOrder() ? this : new PowerSeries(Arrays.copyOf(c, order + 1));
+    }
+
+    // --- Arithmetic ---
+
+    public PowerSeries add(PowerSeries other) {
+        int n = Math.min(c.length, other.c.length);
+        double[] r = new double[n];
+        for (int k = 0; k < n; k++) r[k] = c[k] + other.c[k];
+        return new PowerSeries(r);
+    }
+
+    public PowerSeries subtract(PowerSeries other) {
+        int n = Math.min(c.length, other.c.length);
+        double[] r = new double[n];
+        for (int k = 0; k < n; k++) r[k] = c[k] - other.c[k];
+        return new PowerSeries(r);
+    }
+
+    public PowerSeries negate() {
+        double[] r = new double[c.length];
+        for (int k = 0; k < r.length; k++) r[k] = -c[k];
+        return new PowerSeries(r);
+    }
+
+    public PowerSeries scale(double factor) {
+        double[] r = new double[c.length];
+        for (int k = 0; k < r.length; k++) r[k] = c[k] * factor;
+        return new PowerSeries(r);
+    }
+
+    // Cauchy product, truncated
+    public PowerSeries multiply(PowerSeries other) {
+        int n = Math.min(c.length, other.c.length);
+        double[] r = new double[n];
+        for (int i = 0; i < n; i++) {
+            if (c[i] == 0) continue;
+            for (int j = 0; i + j < n; j++) r[i + j] += c[i] * other.c[j];
+        }
+        return new PowerSeries(r);
+    }
+
+    // Long division of series. A divisor vanishing to order m needs the dividend to vanish
+    // to order m too (sin(t)/t); both are shifted down, which costs m known orders.
+    public PowerSeries divide(PowerSeries other) {
+        int m = other.valuation();
+        if (m < 0) throw new ArithmeticException("Division by zero");
+        if (m > 0) {
+            if (valuation() >= 0 && valuation() < m) throw new ArithmeticException("Pole at the expansion point");
+            return shift(m).divide(other.shift(m));
+        }
+        int n = Math.min(c.length, other.c.length);
+        double[] r = new double[n];
+        for (int k = 0; k < n; k++) {
+            double s = c[k];
+            for (int j = 1; j <= k; j++) s -= other.c[j] * r[k - j];
+            r[k] = s / other.c[0];
+        }
+        return new PowerSeries(r);
+    }
+
+    public PowerSeries exp() {
+        double[] w = new double[c.length];
+        w[0] = Math.exp(c[0]);
+        for (int k = 1; k < w.length; k++) {
+            double s = 0;
+            for (int j = 1; j <= k; j++) s += j * c[j] * w[k - j];
+            w[k] = s / k;
+        }
+        return new PowerSeries(w);
+    }
+
+    public PowerSeries ln() {
+        if (c[0] <= 0) throw new ArithmeticException("ln is not analytic here (argument " + c[0] + ")");
+        double[] w = new double[c.length];
+        w[0] = Math.log(c[0]);
+        for (int k = 1; k < w.length; k++) {
+            double s = 0;
+            for (int j = 1; j < k; j++) s += j * w[j] * c[k - j];
+            w[k] = (c[k] - s / k) / c[0];
+        }
+        return new PowerSeries(w);
+    }
+
+    public PowerSeries sin() {
+        return sinCos()[0];
+    }
+
+    public PowerSeries cos() {
+        return sinCos()[1];
+    }
+
+    // sin and cos are computed together: each one's recurrence needs the other
+    private PowerSeries[] sinCos() {
+        double[] s = new double[c.length];
+        double[] co = new double[c.length];
+        s[0] = Math.sin(c[0]);
+        co[0] = Math.cos(c[0]);
+        for (int k = 1; k < s.length; k++) {
+            double ss = 0, cc = 0;
+            for (int j = 1; j <= k; j++) {
+                ss += j * c[j] * co[k - j];
+                cc += j * c[j] * s[k - j];
+            }
+            s[k] = ss / k;
+            co[k] = -cc / k;
+        }
+        return new PowerSeries[]{new PowerSeries(s), new PowerSeries(co)};
+    }
+
+    public PowerSeries sqrt() {
+        return pow(0.5);
+    }
+
+    // this^alpha for a constant alpha. A series vanishing to order m is written t^m v, so
+    // (t^2 + t^3)^0.5 = t (1 + t)^0.5 works as long as m * alpha is a non-negative integer.
+    public PowerSeries pow(double alpha) {
+        if (alpha == Math.rint(alpha) && alpha >= 0 && alpha <= 64) return powInteger((int) alpha);
+        int m = valuation();
+        if (m < 0) {
+            if (alpha > 0) return constant(0, getOrder());
+            throw new ArithmeticException("Division by zero");
+        }
+        if (m > 0) {
+            double shifted = m * alpha;
+            if (shifted != Math.rint(shifted) || shifted < 0) throw new ArithmeticException("Power is not analytic at the expansion point");
+            PowerSeries v = shift(m).pow(alpha);
+            double[] r = new double[Math.min(c.length, v.c.length + (int) shifted)];
+            for (int k = (int) shifted; k < r.length; k++) r[k] = v.c[k - (int) shifted];
+            return new PowerSeries(r);
+        }
+        if (c[0] < 0 && alpha != Math.rint(alpha)) throw new ArithmeticException("Power of a negative base is not real");
+        double[] w = new double[c.length];
+        w[0] = Math.pow(c[0], alpha);
+        for (int k = 1; k < w.length; k++) {
+            double s = 0;
+            for (int j = 1; j <= k; j++) s += (alpha * j - (k - j)) * c[j] * w[k - j];
+            w[k] = s / (k * c[0]);
+        }
+        return new PowerSeries(w);
+    }
+
+    private PowerSeries powInteger(int exponent) {
+        PowerSeries result = constant(1, getOrder());
+        PowerSeries base = this;
+        while (exponent > 0) {
+            if ((exponent & 1) != 0) result = result.multiply(base);
+            exponent >>= 1;
+            if (exponent > 0) base = base.multiply(base);
+        }
+        return result;
+    }
+
+    // Index of the first non-zero coefficient, or -1 if all known ones are zero
+    private int valuation() {
+        for (int k = 0; k < c.length; k++) if (c[k] != 0) return k;
+        return -1;
+    }
+
+    private PowerSeries shift(int m) {
+        return new PowerSeries(Arrays.copyOfRange(c, m, c.length));
+    }
+
+    private boolean isConstant() {
+        for (int k = 1; k < c.length; k++) if (c[k] != 0) return false;
+        return true;
+    }
+
+    private static final class Expander {
+        private final ExpressionTree tree;
+        private final String variable;
+        private final double point;
+        private final int order;
+
+        Expander(ExpressionTree tree, String variable, double point, int order) {
+            this.tree = tree;
+            this.variable = variable;
+            this.point = point;
+            this.order = order;
+        }
+
+        PowerSeries expand(int node) {
+            switch (tree.kind(node)) {
+                case ExpressionTree.NUMBER:
+                    return constant(tree.number(node), order);
+                case ExpressionTree.IDENTIFIER: {
+                    String name = tree.name(node);
+                    if (name.equals(variable)) return variable(point, order);
+                    if (name.equalsIgnoreCase("pi") || name.equals("π")) return constant(Math.PI, order);
+                    if (name.equalsIgnoreCase("e")) return constant(Math.E, order);
+                    throw tree.error(node, "Unknown variable '" + name + "'");
+                }
+                case ExpressionTree.NEGATE:
+                    return expand(tree.firstChild(node)).negate();
+                case ExpressionTree.ADD:
+                    return expand(tree.left(node)).add(expand(tree.right(node)));
+                case ExpressionTree.SUBTRACT:
+                    return expand(tree.left(node)).subtract(expand(tree.right(node)));
+                case ExpressionTree.MULTIPLY:
+                    return expand(tree.left(node)).multiply(expand(tree.right(node)));
+                case ExpressionTree.DIVIDE:
+                    return expand(tree.left(node)).divide(expand(tree.right(node)));
+                case ExpressionTree.POWER: {
+                    PowerSeries base = expand(tree.left(node));
+                    PowerSeries exponent = expand(tree.right(node));
+                    if (exponent.isConstant()) return base.pow(exponent.c[0]);
+                    return exponent.multiply(base.ln()).exp(); // u^v = exp(v ln u)
+                }
+                case ExpressionTree.CALL: {
+                    String name = tree.name(node);
+                    if (tree.childCount(node) != 1) throw tree.error(node, name + " expects 1 argument(s)");
+                    PowerSeries u = expand(tree.firstChild(node));
+                    switch (name) {
+                        case "sin": return u.sin();
+                        case "cos": return u.cos();
+                        case "tan": {
+                            PowerSeries[] sc = u.sinCos();
+                            return sc[0].divide(sc[1]);
+                        }
+                        case "ln": return u.ln();
+                        case "log": return u.ln().scale(1 / Math.log(10));
+                        case "sqrt": return u.sqrt();
+                        default: throw tree.error(node, "Unknown function: " + name);
+                    }
+                }
+                case ExpressionTree.LIST:
+                    throw tree.error(node, "Matrices have no power series");
+                default:
+                    throw tree.error(node, "Unexpected '=' in expression");
+            }
+        }
+    }
+}
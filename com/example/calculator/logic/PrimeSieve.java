@@ -0,0 +1,112 @@
+package com.example.calculator.logic;
+
+import java.util.Arrays;
+
+// Prime counting, π(n) = the number of primes <= n, behind primepi(n). Only odd numbers are
+// stored, one bit each. A sieve of Eratosthenes up to a cached limit is kept with the
+// number of primes before every 64-bit word, so a count below the limit is one table
+// lookup and one bit count; the cache grows on demand up to CACHE_MAX. Beyond it primes
+// are counted without listing them, by Lucy's O(n^(3/4)) variant of Meissel's method.
+final class PrimeSieve {
+    static final long MAX_COUNT = 1_000_000_000_000L; // primepi up to 10^12, ~1.7 s on one core
+    private static final long CACHE_MAX = 1L << 25;
+
+    private static volatile Table table = new Table(1 << 16);
+
+    private PrimeSieve() {
+    }
+
+    // The odd numbers below limit; bit i stands for 2i + 1
+    private static final class Table {
+        final long limit;
+        final long[] bits;
+        final int[] before; // primes among the odd numbers of the words before each word
+
+        Table(long limit) {
+            this.limit = limit;
+            int size = (int) (limit / 2);
+            bits = new long[(size + 63) / 64];
+            Arrays.fill(bits, -1L);
+            if ((size & 63) != 0) bits[bits.length - 1] = -1L >>> (64 - (size & 63));
+            bits[0] &= ~1L; // 1 is not prime
+            for (long p = 3; p * p < limit; p += 2) {
+                if ((bits[(int) (p >> 7)] & (1L << (p >> 1))) == 0) continue;
+                for (long m = p * p; m < limit; m += 2 * p) bits[(int) (m >> 7)] &= ~(1L << (m >> 1));
+            }
+            before = new int[bits.length + 1];
+            for (int w = 0; w < bits.length; w++) before[w + 1] = before[w] + Long.bitCount(bits[w]);
+        }
+
+        // Odd primes <= n, for n < limit
+        long countOdd(long n) {
+            if (n < 3) return 0;
+            long last = (n - 1) >> 1; // index of the largest odd number <= n
+            int word = (int) (last >> 6);
+            long mask = -1L >>> (63 - (last & 63));
+            return before[word] + Long.bitCount(bits[word] & mask);
+        }
+
+        boolean isOddPrime(long n) {
+            return (bits[(int) (n >> 7)] & (1L << (n >> 1))) != 0;
+        }
+    }
+
+    // A table covering n, grown by doubling so repeated queries do not rebuild it often
+    private static Table tableFor(long n) {
+        Table t = table;
+        if (n < t.limit) return t;
+        synchronized (PrimeSieve.class) {
+            t = table;
+            if (n >= t.limit) {
+                long limit = t.limit;
+                while (limit <= n) limit <<= 1;
+                table = t = new Table(limit);
+            }
+        }
+        return t;
+    }
+
+    static int[] primesBelow(int n) {
+        Table t = tableFor(n);
+        int[] primes = new int[(int) count(n - 1)];
+        int k = 0;
+        if (n > 2) primes[k++] = 2;
+        for (int p = 3; p < n; p += 2) if (t.isOddPrime(p)) primes[k++] = p;
+        return primes;
+    }
+
+    static long count(long n) {
+        if (n > MAX_COUNT) throw new ArithmeticException("primepi is limited to n <= 10^12");
+        if (n < 2) return 0;
+        if (n < CACHE_MAX) return 1 + tableFor(n).countOdd(n);
+        return lucy(n);
+    }
+
+    // Lucy's form of the Legendre-Meissel count. S(v) starts as the number of integers in
+    // [2, v] and after the step for prime p counts those with no prime factor below p
+    // beyond p itself: S(v) -= S(v / p) - S(p - 1) for v >= p^2. Only the values v = n / i
+    // matter, below sqrt(n) in small[v] and above it in large[i], and primes up to sqrt(n)
+    // come from the table, so the work is O(n^(3/4)) and the memory O(sqrt(n)).
+    private static long lucy(long n) {
+        int root = (int) Math.sqrt((double) n);
+        while ((long) root * root > n) root--;
+        while ((long) (root + 1) * (root + 1) <= n) root++;
+        long[] small = new long[root + 1];
+        long[] large = new long[root + 1];
+        for (int v = 1; v <= root; v++) {
+            small[v] = v - 1;
+            large[v] = n / v - 1;
+        }
+        for (int p : primesBelow(root + 1)) {
+            long below = small[p - 1];                    // primes < p
+            long square = (long) p * p;
+            int last = (int) Math.min(root, n / square);
+            for (int i = 1; i <= last; i++) {
+                long d = (long) i * p;
+                large[i] -= (d <= root ? large[(int) d] : small[(int) (n / d)]) - below;
+            }
+            for (int v = root; v >= square; v--) small[v] -= small[v / p] - below;
+        }
+        return large[1];
+    }
+}
@@ -0,0 +1,314 @@
+package com.example.calculator.logic;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Exact single-variable polynomial with BigFraction coefficients.
+// Coefficients are stored densely in ascending order of degree and the array is never
+// exposed or modified after construction, so instances are immutable.
+public final class RationalPolynomial {
+    private final BigFraction[] coefficients; // coefficients[i] is the coefficient of variable^i
+    private final String variable;
+
+    public RationalPolynomial(BigFraction[] coefficients, String variable) {
+        this(trim(coefficients.clone()), variable, true);
+    }
+
+    private RationalPolynomial(BigFraction[] trimmed, String variable, boolean unused) {
+        this.coefficients = trimmed;
+        this.variable = (variable == null || variable.isEmpty()) ? "x" : variable;
+    }
+
+    public static RationalPolynomial zero(String variable) {
+        return new RationalPolynomial(new BigFraction[0], variable, true);
+    }
+
+    public static RationalPolynomial constant(BigFraction value, String variable) {
+        return new RationalPolynomial(trim(new BigFraction[]{value}), variable, true);
+    }
+
+    // Builds the polynomial for a parsed subtree, or lhs - rhs for an equation, in exact
+    // arithmetic throughout: number literals are read from their source text, so 0.1 is
+    // exactly 1/10 and integers past 2^53 keep every digit. As in MultiPolynomial.fromTree,
+    // division is only by a non-zero constant and exponents must be non-negative integers;
+    // at most one variable may appear.
+    public static RationalPolynomial fromTree(ExpressionTree tree, int node) {
+        String variable = variableOf(tree, node, null);
+        if (tree.kind(node) == ExpressionTree.EQUATION) {
+            return build(tree, tree.left(node), variable).subtract(build(tree, tree.right(node), variable));
+        }
+        return build(tree, node, variable);
+    }
+
+    private static String variableOf(ExpressionTree tree, int node, String found) {
+        if (tree.kind(node) == ExpressionTree.IDENTIFIER) {
+            String name = tree.name(node);
+            if (found != null && !found.equals(name)) {
+                throw tree.error(node, "Expected a single variable, found " + found + " and " + name);
+            }
+            return name;
+        }
+        for (int c = tree.firstChild(node); c >= 0; c = tree.nextSibling(c)) found = variableOf(tree, c, found);
+        return found;
+    }
+
+    private static RationalPolynomial build(ExpressionTree tree, int node, String variable) {
+        switch (tree.kind(node)) {
+            case ExpressionTree.NUMBER: {
+                BigFraction value;
+                try {
+                    value = BigFraction.parse(tree.literal(node));
+                } catch (NumberFormatException e) {
+                    value = BigFraction.valueOf(tree.number(node));
+                }
+                return constant(value, variable);
+            }
+            case ExpressionTree.IDENTIFIER:
+                return new RationalPolynomial(new BigFraction[]{BigFraction.ZERO, BigFraction.ONE}, variable, true);
+            case ExpressionTree.NEGATE:
+                return build(tree, tree.firstChild(node), variable).negate();
+            case ExpressionTree.ADD:
+                return build(tree, tree.left(node), variable).add(build(tree, tree.right(node), variable));
+            case ExpressionTree.SUBTRACT:
+                return build(tree, tree.left(node), variable).subtract(build(tree, tree.right(node), variable));
+            case ExpressionTree.MULTIPLY:
+                return build(tree, tree.left(node), variable).multiply(build(tree, tree.right(node), variable));
+            case ExpressionTree.DIVIDE: {
+                RationalPolynomial divisor = build(tree, tree.right(node), variable);
+                if (divisor.getDegree() != 0) {
+                    throw tree.error(tree.right(node), "Can only divide a polynomial by a non-zero constant");
+                }
+                return build(tree, tree.left(node), variable).multiply(divisor.coefficients[0].reciprocal());
+            }
+            case ExpressionTree.POWER: {
+                RationalPolynomial exponent = build(tree, tree.right(node), variable);
+                BigFraction e = exponent.getCoefficient(0);
+                if (exponent.getDegree() > 0 || !e.isInteger() || e.signum() < 0 || e.getNumerator().bitLength() > 31) {
+                    throw tree.error(tree.right(node), "Exponent must be a non-negative integer");
+                }
+                return build(tree, tree.left(node), variable).pow(e.getNumerator().intValue());
+            }
+            case ExpressionTree.CALL:
+                throw tree.error(node, "Function " + tree.name(node) + " is not allowed in a polynomial");
+            case ExpressionTree.LIST:
+                throw tree.error(node, "Matrices are not allowed in a polynomial");
+            default:
+                throw tree.error(node, "Unexpected '=' in polynomial");
+        }
+    }
+
+    public RationalPolynomial pow(int exponent) {
+        RationalPolynomial result = constant(BigFraction.ONE, variable), square = this;
+        for (int e = exponent; e > 0; e >>= 1) {
+            if ((e & 1) != 0) result = result.multiply(square);
+            if (e > 1) square = square.multiply(square);
+        }
+        return result;
+    }
+
+    public Polynomial toPolynomial() {
+        List<Term> terms = new ArrayList<>();
+        for (int i = 0; i < coefficients.length; i++) {
+            if (!coefficients[i].isZero()) terms.add(new Term(coefficients[i].toDouble(), variable, i));
+        }
+        return new Polynomial(terms);
+    }
+
+    public String getVariable() {
+        return variable;
+    }
+
+    public int getDegree() {
+        return coefficients.length - 1; // -1 for the zero polynomial
+    }
+
+    public boolean isZero() {
+        return coefficients.length == 0;
+    }
+
+    public BigFraction getCoefficient(int exponent) {
+        return exponent < coefficients.length ? coefficients[exponent] : BigFraction.ZERO;
+    }
+
+    public BigFraction getLeadingCoefficient() {
+        return isZero() ? BigFraction.ZERO : coefficients[coefficients.length - 1];
+    }
+
+    public RationalPolynomial add(RationalPolynomial other) {
+        BigFraction[] r = new BigFraction[Math.max(coefficients.length, other.coefficients.length)];
+        for (int i = 0; i < r.length; i++) r[i] = getCoefficient(i).add(other.getCoefficient(i));
+        return new RationalPolynomial(trim(r), variable, true);
+    }
+
+    public RationalPolynomial negate() {
+        BigFraction[] r = new BigFraction[coefficients.length];
+        for (int i = 0; i < r.length; i++) r[i] = coefficients[i].negate();
+        return new RationalPolynomial(r, variable, true);
+    }
+
+    public RationalPolynomial subtract(RationalPolynomial other) {
+        return add(other.negate());
+    }
+
+    public RationalPolynomial multiply(RationalPolynomial other) {
+        if (isZero() || other.isZero()) return zero(variable);
+        BigFraction[] r = new BigFraction[coefficients.length + other.coefficients.length - 1];
+        Arrays.fill(r, BigFraction.ZERO);
+        for (int i = 0; i < coefficients.length; i++) {
+            if (coefficients[i].isZero()) continue;
+            for (int j = 0; j < other.coefficients.length; j++) {
+                r[i + j] = r[i + j].add(coefficients[i].multiply(other.coefficients[j]));
+            }
+        }
+        return new RationalPolynomial(trim(r), variable, true);
+    }
+
+    public RationalPolynomial multiply(BigFraction factor) {
+        if (factor.isZero()) return zero(variable);
+        BigFraction[] r = new BigFraction[coefficients.length];
+        for (int i = 0; i < r.length; i++) r[i] = coefficients[i].multiply(factor);
+        return new RationalPolynomial(r, variable, true);
+    }
+
+    // Long division. Returns {quotient, remainder}, like BigInteger.divideAndRemainder.
+    public RationalPolynomial[] divideAndRemainder(RationalPolynomial divisor) {
+        if (divisor.isZero()) throw new ArithmeticException("Polynomial division by zero");
+        if (divisor.getDegree() == 1) {
+            // x - r divisors (after normalizing) take the synthetic-division fast path
+            BigFraction lead = divisor.coefficients[1];
+            BigFraction root = divisor.coefficients[0].negate().divide(lead);
+            RationalPolynomial[] qr = syntheticDivide(root);
+            return new RationalPolynomial[]{qr[0].multiply(lead.reciprocal()), qr[1]};
+        }
+        if (getDegree() < divisor.getDegree()) return new RationalPolynomial[]{zero(variable), this};
+
+        BigFraction[] r = coefficients.clone();
+        int dd = divisor.getDegree();
+        BigFraction inv = divisor.getLeadingCoefficient().reciprocal();
+        BigFraction[] q = new BigFraction[getDegree() - dd + 1];
+        for (int k = q.length - 1; k >= 0; k--) {
+            q[k] = r[k + dd].multiply(inv);
+            if (q[k].isZero()) continue;
+            for (int i = 0; i <= dd; i++) r[k + i] = r[k + i].subtract(q[k].multiply(divisor.coefficients[i]));
+        }
+        return new RationalPolynomial[]{
+            new RationalPolynomial(trim(q), variable, true),
+            new RationalPolynomial(trim(Arrays.copyOf(r, dd)), variable, true)
+        };
+    }
+
+    // Division by (variable - root) with Horner's scheme. Returns {quotient, remainder};
+    // the remainder is the constant p(root).
+    public RationalPolynomial[] syntheticDivide(BigFraction root) {
+        if (isZero()) return new RationalPolynomial[]{this, this};
+        int n = getDegree();
+        if (n == 0) return new RationalPolynomial[]{zero(variable), this};
+        BigFraction[] q = new BigFraction[n];
+        BigFraction carry = BigFraction.ZERO;
+        for (int i = n; i >= 1; i--) {
+            carry = coefficients[i].add(carry.multiply(root));
+            q[i - 1] = carry;
+        }
+        BigFraction remainder = coefficients[0].add(carry.multiply(root));
+        return new RationalPolynomial[]{new RationalPolynomial(trim(q), variable, true), constant(remainder, variable)};
+    }
+
+    public RationalPolynomial divide(RationalPolynomial divisor) {
+        return divideAndRemainder(divisor)[0];
+    }
+
+    public RationalPolynomial mod(RationalPolynomial divisor) {
+        return divideAndRemainder(divisor)[1];
+    }
+
+    // Monic greatest common divisor. The work is done on the primitive integer
+    // associates with a modular algorithm, so coefficients do not blow up.
+    public RationalPolynomial gcd(RationalPolynomial other) {
+        if (isZero() && other.isZero()) return this;
+        BigInteger[] g = IntegerPolynomials.gcd(toPrimitiveIntegers(), other.toPrimitiveIntegers());
+        return fromIntegers(g, variable).monic();
+    }
+
+    public RationalPolynomial monic() {
+        if (isZero()) return this;
+        BigFraction lead = getLeadingCoefficient();
+        return lead.equals(BigFraction.ONE) ? this : multiply(lead.reciprocal());
+    }
+
+    public RationalPolynomial derivative() {
+        if (coefficients.length <= 1) return zero(variable);
+        BigFraction[] r = new BigFraction[coefficients.length - 1];
+        for (int i = 1; i < coefficients.length; i++) r[i - 1] = coefficients[i].multiply(BigInteger.valueOf(i));
+        return new RationalPolynomial(trim(r), variable, true);
+    }
+
+    public BigFraction evaluate(BigFraction x) {
+        BigFraction result = BigFraction.ZERO;
+        for (int i = coefficients.length - 1; i >= 0; i--) result = result.multiply(x).add(coefficients[i]);
+        return result;
+    }
+
+    // Primitive integer polynomial with the same roots (denominators cleared, content removed)
+    BigInteger[] toPrimitiveIntegers() {
+        BigInteger lcm = BigInteger.ONE;
+        for (BigFraction c : coefficients) {
+            BigInteger d = c.getDenominator();
+            lcm = lcm.divide(lcm.gcd(d)).multiply(d);
+        }
+        BigInteger[] r = new BigInteger[coefficients.length];
+        for (int i = 0; i < r.length; i++) {
+            r[i] = coefficients[i].getNumerator().multiply(lcm.divide(coefficients[i].getDenominator()));
+        }
+        return IntegerPolynomials.primitivePart(r);
+    }
+
+    static RationalPolynomial fromIntegers(BigInteger[] p, String variable) {
+        BigFraction[] r = new BigFraction[p.length];
+        for (int i = 0; i < p.length; i++) r[i] = new BigFraction(p[i]);
+        return new RationalPolynomial(trim(r), variable, true);
+    }
+
+    private static BigFraction[] trim(BigFraction[] c) {
+        int n = c.length;
+        while (n > 0 && c[n - 1].isZero()) n--;
+        return n == c.length ? c : Arrays.copyOf(c, n);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        RationalPolynomial that = (RationalPolynomial) o;
+        return variable.equals(that.variable) && Arrays.equals(coefficients, that.coefficients);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * variable.hashCode() + Arrays.hashCode(coefficients);
+    }
+
+    @Override
+    public String toString() {
+        if (isZero()) return "0";
+        StringBuilder sb = new StringBuilder();
+        for (int i = coefficients.length - 1; i >= 0; i--) {
+            BigFraction c = coefficients[i];
+            if (c.isZero()) continue;
+            if (sb.length() > 0) sb.append(c.signum() > 0 ? " + " : " - ");
+            else if (c.signum() < 0) sb.append("-");
+            BigFraction abs = c.abs();
+            boolean showCoefficient = i == 0 || !abs.equals(BigFraction.ONE);
+            if (showCoefficient) {
+                // Bracket fractional coefficients so "1/2x" is not read as 1/(2x)
+                sb.append(abs.isInteger() || i == 0 ? abs.toString() : "(" + abs + ")");
+            }
+            if (i > 0) {
+                sb.append(variable);
+                if (i > 1) sb.append("^").append(i);
+            }
+        }
+        return sb.toString();
+    }
+}
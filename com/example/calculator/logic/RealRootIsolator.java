@@ -0,0 +1,217 @@
+package com.example.calculator.logic;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Exact real-root isolation for rational polynomials (Vincent-Collins-Akritas bisection).
+// The polynomial is made square-free and scaled so all positive roots lie in (0, 1);
+// Descartes' rule of signs applied to (x+1)^n p(1/(x+1)) then bounds the number of roots
+// in a subinterval, which is bisected until every piece holds zero or one root.
+// All arithmetic is on BigInteger, so the resulting intervals are rigorous.
+public class RealRootIsolator {
+
+    // Open interval (lower, upper) containing exactly one real root, or the degenerate
+    // interval [r, r] when the root r is rational and was hit exactly.
+    public static final class RootInterval {
+        private final BigFraction lower;
+        private final BigFraction upper;
+        private final BigInteger[] squareFree; // integer polynomial with only simple roots
+        private final int lowerSign;
+
+        RootInterval(BigFraction lower, BigFraction upper, BigInteger[] squareFree) {
+            this.lower = lower;
+            this.upper = upper;
+            this.squareFree = squareFree;
+            this.lowerSign = lower.equals(upper) ? 0 : signAfter(squareFree, lower);
+        }
+
+        // Sign of p just above x. An end may itself be a root (0, or a neighbour's exact
+        // root), and as p is square-free, p' then gives the sign on the inside.
+        private static int signAfter(BigInteger[] p, BigFraction x) {
+            int s = sign(p, x);
+            return s != 0 ? s : sign(IntegerPolynomials.derivative(p), x);
+        }
+
+        public BigFraction getLower() { return lower; }
+        public BigFraction getUpper() { return upper; }
+
+        public boolean isExact() {
+            return lower.equals(upper);
+        }
+
+        public BigFraction getWidth() {
+            return upper.subtract(lower);
+        }
+
+        // Bisects with exact sign evaluation until the interval is no wider than maxWidth
+        public RootInterval refine(BigFraction maxWidth) {
+            if (maxWidth.signum() <= 0) throw new IllegalArgumentException("Width must be positive");
+            BigFraction lo = lower, hi = upper;
+            BigFraction two = BigFraction.valueOf(2);
+            while (hi.subtract(lo).compareTo(maxWidth) > 0) {
+                BigFraction mid = lo.add(hi).divide(two);
+                int s = sign(squareFree, mid);
+                if (s == 0) return new RootInterval(mid, mid, squareFree);
+                if (s == lowerSign) lo = mid;
+                else hi = mid;
+            }
+            return (lo == lower && hi == upper) ? this : new RootInterval(lo, hi, squareFree);
+        }
+
+        public double approximate() {
+            return lower.add(upper).toDouble() / 2;
+        }
+
+        @Override
+        public String toString() {
+            return isExact() ? lower.toString() : "(" + lower + ", " + upper + ")";
+        }
+    }
+
+    public List<RootInterval> isolate(RationalPolynomial poly) {
+        if (poly.isZero()) throw new IllegalArgumentException("The zero polynomial has no isolated roots");
+        BigInteger[] p = poly.toPrimitiveIntegers();
+        // Square-free part p / gcd(p, p')
+        BigInteger[] g = IntegerPolynomials.gcd(p, IntegerPolynomials.derivative(p));
+        if (g.length > 1) p = IntegerPolynomials.primitivePart(IntegerPolynomials.divideExact(p, IntegerPolynomials.primitivePart(g)));
+        BigInteger[] squareFree = p;
+
+        List<RootInterval> roots = new ArrayList<>();
+        if (p.length == 0 || IntegerPolynomials.degree(p) == 0) return roots;
+        boolean zeroRoot = p[0].signum() == 0;
+        if (zeroRoot) p = Arrays.copyOfRange(p, 1, p.length); // divide by x
+
+        int boundExponent = rootBoundExponent(p);
+        List<RootInterval> negative = new ArrayList<>();
+        isolatePositive(negateVariable(p), boundExponent, squareFree, negative, true);
+        for (int i = negative.size() - 1; i >= 0; i--) roots.add(negative.get(i));
+        if (zeroRoot) roots.add(new RootInterval(BigFraction.ZERO, BigFraction.ZERO, squareFree));
+        isolatePositive(p, boundExponent, squareFree, roots, false);
+        return roots;
+    }
+
+    // Every root satisfies |x| < 2^k, from Fujiwara's bound
+    // 2 * max |a_(n-i)/a_n|^(1/i), taken on bit lengths and rounded up to a power of 2
+    private static int rootBoundExponent(BigInteger[] p) {
+        int n = IntegerPolynomials.degree(p);
+        int lead = IntegerPolynomials.leadingCoefficient(p).abs().bitLength() - 1;
+        int max = 0;
+        for (int i = 1; i <= n; i++) {
+            if (p[n - i].signum() == 0) continue;
+            int bits = p[n - i].abs().bitLength() - lead;
+            max = Math.max(max, Math.floorDiv(bits + i - 1, i));
+        }
+        return max + 1;
+    }
+
+    private static BigInteger[] negateVariable(BigInteger[] p) {
+        BigInteger[] r = new BigInteger[p.length];
+        for (int i = 0; i < p.length; i++) r[i] = (i % 2 == 0) ? p[i] : p[i].negate();
+        return r;
+    }
+
+    // Isolates roots of p in (0, 2^k); results are appended in ascending order of |x|.
+    private void isolatePositive(BigInteger[] p, int k, BigInteger[] squareFree, List<RootInterval> out, boolean negated) {
+        int n = IntegerPolynomials.degree(p);
+        // q(x) = p(2^k x) has its positive roots in (0, 1)
+        BigInteger[] q = new BigInteger[n + 1];
+        for (int i = 0; i <= n; i++) q[i] = p[i].shiftLeft(k * i);
+        bisect(q, BigInteger.ZERO, 0, k, squareFree, out, negated);
+    }
+
+    // q's roots in (0,1) correspond to roots of p in (c/2^d, (c+1)/2^d) * 2^k
+    private void bisect(BigInteger[] q, BigInteger c, int d, int k, BigInteger[] squareFree,
+                        List<RootInterval> out, boolean negated) {
+        int variations = signVariations(taylorShiftOne(reverse(q)));
+        if (variations == 0) return;
+        if (variations == 1) {
+            out.add(interval(c, d, k, squareFree, negated));
+            return;
+        }
+        int n = IntegerPolynomials.degree(q);
+        // Left half: 2^n q(x/2); right half: the left half shifted by 1
+        BigInteger[] left = new BigInteger[n + 1];
+        for (int i = 0; i <= n; i++) left[i] = q[i].shiftLeft(n - i);
+        left = removePowerOfTwo(left);
+        BigInteger[] right = taylorShiftOne(left);
+        BigInteger c2 = c.shiftLeft(1);
+        bisect(left, c2, d + 1, k, squareFree, out, negated);
+        if (right[0].signum() == 0) {
+            // The midpoint is an exact rational root
+            BigFraction mid = scaled(c2.add(BigInteger.ONE), d + 1, k, negated);
+            out.add(new RootInterval(mid, mid, squareFree));
+            right = Arrays.copyOfRange(right, 1, right.length);
+        }
+        bisect(right, c2.add(BigInteger.ONE), d + 1, k, squareFree, out, negated);
+    }
+
+    private static RootInterval interval(BigInteger c, int d, int k, BigInteger[] squareFree, boolean negated) {
+        BigFraction a = scaled(c, d, k, negated);
+        BigFraction b = scaled(c.add(BigInteger.ONE), d, k, negated);
+        return negated ? new RootInterval(b, a, squareFree) : new RootInterval(a, b, squareFree);
+    }
+
+    private static BigFraction scaled(BigInteger c, int d, int k, boolean negated) {
+        BigFraction v = (k >= d)
+            ? new BigFraction(c.shiftLeft(k - d))
+            : new BigFraction(c, BigInteger.ONE.shiftLeft(d - k));
+        return negated ? v.negate() : v;
+    }
+
+    // Scaling by 2^n on every bisection would otherwise add n bits per level
+    private static BigInteger[] removePowerOfTwo(BigInteger[] p) {
+        int shift = Integer.MAX_VALUE;
+        for (BigInteger c : p) {
+            if (c.signum() != 0) shift = Math.min(shift, c.getLowestSetBit());
+        }
+        if (shift == 0 || shift == Integer.MAX_VALUE) return p;
+        for (int i = 0; i < p.length; i++) p[i] = p[i].shiftRight(shift);
+        return p;
+    }
+
+    private static BigInteger[] reverse(BigInteger[] p) {
+        BigInteger[] r = new BigInteger[p.length];
+        for (int i = 0; i < p.length; i++) r[i] = p[p.length - 1 - i];
+        return r;
+    }
+
+    // p(x + 1) by the addition-only Horner scheme: n(n+1)/2 BigInteger additions and no
+    // multiplications, which beats the asymptotically faster divide-and-conquer shift
+    // for the degrees this calculator handles.
+    static BigInteger[] taylorShiftOne(BigInteger[] p) {
+        BigInteger[] a = p.clone();
+        int n = a.length - 1;
+        for (int i = 0; i < n; i++) {
+            for (int j = n - 1; j >= i; j--) {
+                a[j] = a[j].add(a[j + 1]);
+            }
+        }
+        return a;
+    }
+
+    private static int signVariations(BigInteger[] p) {
+        int count = 0;
+        int last = 0;
+        for (BigInteger c : p) {
+            int s = c.signum();
+            if (s == 0) continue;
+            if (last != 0 && s != last) count++;
+            last = s;
+        }
+        return count;
+    }
+
+    // Sign of p(num/den), evaluated homogeneously: sum a_i num^i den^(n-i)
+    static int sign(BigInteger[] p, BigFraction x) {
+        BigInteger num = x.getNumerator(), den = x.getDenominator();
+        BigInteger acc = BigInteger.ZERO;
+        BigInteger denPower = BigInteger.ONE;
+        for (int i = p.length - 1; i >= 0; i--) {
+            acc = acc.multiply(num).add(p[i].multiply(denPower));
+            denPower = denPower.multiply(den);
+        }
+        return acc.signum();
+    }
+}
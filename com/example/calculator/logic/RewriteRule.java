@@ -0,0 +1,9 @@
+package com.example.calculator.logic;
+
+// A local rewrite applied by Simplifier to a canonical ExpressionDag node whose children
+// are already simplified. Returns the replacement node, or -1 when the rule does not
+// apply. Rules must only ever produce equivalent expressions.
+@FunctionalInterface
+public interface RewriteRule {
+    int rewrite(ExpressionDag dag, int node);
+}
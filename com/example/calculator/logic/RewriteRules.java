@@ -0,0 +1,151 @@
+package com.example.calculator.logic;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+// The identities Simplifier applies by default. Each rule looks at one canonical node
+// (see ExpressionDag) and matches on node ids, so comparing subexpressions is O(1).
+public final class RewriteRules {
+
+    private RewriteRules() {
+    }
+
+    // c sin(u)^2 + c cos(u)^2 = c
+    public static final RewriteRule PYTHAGOREAN = (dag, node) -> {
+        if (dag.kind(node) != ExpressionDag.SUM) return -1;
+        int n = dag.childCount(node);
+        for (int i = 0; i < n; i++) {
+            int u = squaredArgument(dag, dag.withoutCoefficient(dag.child(node, i)), "sin");
+            if (u < 0) continue;
+            double c = dag.coefficient(dag.child(node, i));
+            for (int j = 0; j < n; j++) {
+                int t = dag.child(node, j);
+                if (dag.coefficient(t) != c || squaredArgument(dag, dag.withoutCoefficient(t), "cos") != u) continue;
+                int[] terms = new int[n - 1];
+                int k = 0;
+                for (int m = 0; m < n; m++) if (m != i && m != j) terms[k++] = dag.child(node, m);
+                terms[k] = dag.constant(c);
+                return dag.sum(terms);
+            }
+        }
+        return -1;
+    };
+
+    // ln(e^u) = u, ln(e) = 1, log(10^u) = u
+    public static final RewriteRule LOG_OF_POWER = (dag, node) -> {
+        if (dag.kind(node) != ExpressionDag.CALL) return -1;
+        String base = dag.name(node).equals("ln") ? "e" : dag.name(node).equals("log") ? "10" : null;
+        if (base == null) return -1;
+        int argument = dag.child(node, 0);
+        if (isBase(dag, argument, base)) return dag.constant(1);
+        if (dag.kind(argument) == ExpressionDag.POWER && isBase(dag, dag.child(argument, 0), base)) return dag.child(argument, 1);
+        return -1;
+    };
+
+    // e^ln(u) = u and e^(c ln(u)) = u^c
+    public static final RewriteRule POWER_OF_LOG = (dag, node) -> {
+        if (dag.kind(node) != ExpressionDag.POWER || !isBase(dag, dag.child(node, 0), "e")) return -1;
+        int exponent = dag.child(node, 1);
+        int log = dag.withoutCoefficient(exponent);
+        if (dag.kind(log) != ExpressionDag.CALL || !dag.name(log).equals("ln")) return -1;
+        return dag.power(dag.child(log, 0), dag.constant(dag.coefficient(exponent)));
+    };
+
+    // sin(-u) = -sin(u), tan(-u) = -tan(u), cos(-u) = cos(u)
+    public static final RewriteRule TRIG_PARITY = (dag, node) -> {
+        if (dag.kind(node) != ExpressionDag.CALL) return -1;
+        String name = dag.name(node);
+        boolean odd = name.equals("sin") || name.equals("tan");
+        if (!odd && !name.equals("cos")) return -1;
+        int argument = dag.child(node, 0);
+        if (dag.coefficient(argument) >= 0) return -1;
+        int positive = dag.call(name, dag.negate(argument));
+        return odd ? dag.negate(positive) : positive;
+    };
+
+    // sin(k pi) = 0 and cos(k pi) = (-1)^k for integer k; sin(pi/2) = 1, cos(pi/2) = 0
+    public static final RewriteRule TRIG_OF_PI = (dag, node) -> {
+        if (dag.kind(node) != ExpressionDag.CALL) return -1;
+        int argument = dag.child(node, 0);
+        if (!isBase(dag, dag.withoutCoefficient(argument), "pi")) return -1;
+        double halfTurns = dag.coefficient(argument) * 2; // argument in units of pi/2
+        if (halfTurns != Math.rint(halfTurns)) return -1;
+        int quarter = (int) (((long) halfTurns % 4 + 4) % 4);
+        switch (dag.name(node)) {
+            case "sin": return dag.constant(quarter == 1 ? 1 : quarter == 3 ? -1 : 0);
+            case "cos": return dag.constant(quarter == 0 ? 1 : quarter == 2 ? -1 : 0);
+            case "tan": return quarter % 2 == 0 ? dag.constant(0) : -1;
+            default: return -1;
+        }
+    };
+
+    // sin(u) / cos(u) = tan(u)
+    public static final RewriteRule TANGENT = (dag, node) -> {
+        if (dag.kind(node) != ExpressionDag.PRODUCT) return -1;
+        int n = dag.childCount(node);
+        for (int i = 0; i < n; i++) {
+            int sin = dag.child(node, i);
+            if (!isCall(dag, sin, "sin")) continue;
+            for (int j = 0; j < n; j++) {
+                int f = dag.child(node, j);
+                if (dag.kind(f) != ExpressionDag.POWER || !dag.isConstant(dag.child(f, 1), -1)) continue;
+                int cos = dag.child(f, 0);
+                if (!isCall(dag, cos, "cos") || dag.child(cos, 0) != dag.child(sin, 0)) continue;
+                return replacePair(dag, node, i, j, dag.call("tan", dag.child(sin, 0)));
+            }
+        }
+        return -1;
+    };
+
+    // 2 sin(u) cos(u) = sin(2u)
+    public static final RewriteRule DOUBLE_ANGLE = (dag, node) -> {
+        if (dag.kind(node) != ExpressionDag.PRODUCT || Math.abs(dag.coefficient(node)) < 2) return -1;
+        int n = dag.childCount(node);
+        for (int i = 0; i < n; i++) {
+            int sin = dag.child(node, i);
+            if (!isCall(dag, sin, "sin")) continue;
+            for (int j = 0; j < n; j++) {
+                int cos = dag.child(node, j);
+                if (!isCall(dag, cos, "cos") || dag.child(cos, 0) != dag.child(sin, 0)) continue;
+                int doubled = dag.call("sin", dag.product(dag.constant(2), dag.child(sin, 0)));
+                return dag.product(dag.constant(0.5), replacePair(dag, node, i, j, doubled));
+            }
+        }
+        return -1;
+    };
+
+    private static final List<RewriteRule> STANDARD = Collections.unmodifiableList(Arrays.asList(
+        PYTHAGOREAN, LOG_OF_POWER, POWER_OF_LOG, TRIG_PARITY, TRIG_OF_PI, TANGENT, DOUBLE_ANGLE));
+
+    public static List<RewriteRule> standard() {
+        return STANDARD;
+    }
+
+    // u if node is f(u)^2, otherwise -1
+    private static int squaredArgument(ExpressionDag dag, int node, String function) {
+        if (dag.kind(node) != ExpressionDag.POWER || !dag.isConstant(dag.child(node, 1), 2)) return -1;
+        int call = dag.child(node, 0);
+        return isCall(dag, call, function) ? dag.child(call, 0) : -1;
+    }
+
+    private static boolean isCall(ExpressionDag dag, int node, String function) {
+        return dag.kind(node) == ExpressionDag.CALL && dag.name(node).equals(function);
+    }
+
+    // The named constant e or pi, or the number 10 for "10"
+    private static boolean isBase(ExpressionDag dag, int node, String base) {
+        if (base.equals("10")) return dag.isConstant(node, 10);
+        return dag.kind(node) == ExpressionDag.VARIABLE && dag.name(node).equals(base);
+    }
+
+    // The product with factors i and j replaced by one factor
+    private static int replacePair(ExpressionDag dag, int node, int i, int j, int replacement) {
+        int n = dag.childCount(node);
+        int[] factors = new int[n - 1];
+        int k = 0;
+        for (int m = 0; m < n; m++) if (m != i && m != j) factors[k++] = dag.child(node, m);
+        factors[k] = replacement;
+        return dag.product(factors);
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.calculator.logic;
+
+import java.util.List;
+
+// Runs RealRootIsolator on polynomials with known real roots, refines every interval and
+// checks that each one still holds its root:
+//
+//   java com.example.calculator.logic.RootIsolationBenchmark
+//
+// The exit status is 1 if any case misses. x^2 - 3x and x^3 - 3x have 0 as a root, so an
+// interval starting at 0 must not refine onto it.
+public final class RootIsolationBenchmark {
+    private static final BigFraction WIDTH = BigFraction.valueOf(1, 1L << 40);
+
+    private RootIsolationBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        boolean ok = true;
+        ok &= check("x^2 - 3x", 0, 3);
+        ok &= check("x^3 - 3x", -Math.sqrt(3), 0, Math.sqrt(3));
+        ok &= check("x^3 - x^2 - 2x", -1, 0, 2);
+        ok &= check("x^2 - 2", -Math.sqrt(2), Math.sqrt(2));
+        ok &= check("(x - 1)^3 (x + 1/2)", -0.5, 1);
+        ok &= check("x^5 - x", -1, 0, 1);
+        if (!ok) System.exit(1);
+    }
+
+    private static boolean check(String polynomial, double... expected) {
+        ExpressionTree tree = ExpressionParser.parse(polynomial);
+        long start = System.nanoTime();
+        List<RealRootIsolator.RootInterval> roots = new RealRootIsolator().isolate(RationalPolynomial.fromTree(tree, tree.root()));
+        boolean ok = roots.size() == expected.length;
+        StringBuilder found = new StringBuilder();
+        for (int i = 0; i < roots.size(); i++) {
+            RealRootIsolator.RootInterval r = roots.get(i).refine(WIDTH);
+            double lo = r.getLower().toDouble(), hi = r.getUpper().toDouble();
+            if (ok && !(lo - 1e-15 <= expected[i] && expected[i] <= hi + 1e-15)) ok = false;
+            found.append(i > 0 ? ", " : "").append(String.format("%.12g", r.approximate()));
+        }
+        double millis = (System.nanoTime() - start) / 1e6;
+        System.out.printf("%-4s %-22s %8.1f ms  roots %s%n", ok ? "ok" : "FAIL", polynomial, millis, found);
+        return ok;
+    }
+}
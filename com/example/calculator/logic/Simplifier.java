@@ -0,0 +1,93 @@
+package com.example.calculator.logic;
+
+import java.util.Arrays;
+import java.util.List;
+
+// Bottom-up simplification of ExpressionDag nodes. Each node is rebuilt from its
+// simplified children (which re-canonicalizes it) and then rewritten with the rules until
+// none applies. Results are memoized per node id, so a subexpression shared by many
+// parents is simplified once, and the total number of rewrites per call is capped by a
+// budget so rule sets that could loop or grow still terminate.
+public final class Simplifier {
+    public static final int DEFAULT_BUDGET = 10_000;
+
+    private final ExpressionDag dag;
+    private final List<RewriteRule> rules;
+    private final int budget;
+    private int[] memo = new int[64]; // simplified id + 1, or 0 when not computed yet
+    private int remaining;
+
+    public Simplifier(ExpressionDag dag) {
+        this(dag, RewriteRules.standard(), DEFAULT_BUDGET);
+    }
+
+    public Simplifier(ExpressionDag dag, List<RewriteRule> rules, int budget) {
+        this.dag = dag;
+        this.rules = rules;
+        this.budget = budget;
+    }
+
+    public ExpressionDag getDag() {
+        return dag;
+    }
+
+    public int simplify(int node) {
+        remaining = budget;
+        return simplifyNode(node);
+    }
+
+    private int simplifyNode(int node) {
+        if (node >= memo.length) memo = Arrays.copyOf(memo, Math.max(node + 1, dag.size()) * 2);
+        if (memo[node] != 0) return memo[node] - 1;
+        memo[node] = node + 1; // a rewrite cycle back to this node stops here
+        int result = rebuild(node);
+        while (remaining > 0) {
+            int rewritten = applyRules(result);
+            if (rewritten < 0) break;
+            remaining--;
+            result = rebuild(rewritten);
+        }
+        if (node >= memo.length || result >= memo.length) memo = Arrays.copyOf(memo, Math.max(Math.max(node, result) + 1, dag.size()) * 2);
+        memo[node] = result + 1;
+        if (remaining > 0) memo[result] = result + 1; // a fixpoint, unless the budget ran out
+        return result;
+    }
+
+    private int applyRules(int node) {
+        for (RewriteRule rule : rules) {
+            int rewritten = rule.rewrite(dag, node);
+            if (rewritten >= 0 && rewritten != node) return rewritten;
+        }
+        return -1;
+    }
+
+    // The same node with simplified children, through the canonicalizing constructors
+    private int rebuild(int node) {
+        switch (dag.kind(node)) {
+            case ExpressionDag.SUM:
+            case ExpressionDag.PRODUCT: {
+                int[] children = dag.childrenOf(node, 0);
+                boolean changed = false;
+                for (int k = 0; k < children.length; k++) {
+                    int c = simplifyNode(children[k]);
+                    changed |= c != children[k];
+                    children[k] = c;
+                }
+                if (!changed) return node;
+                return dag.kind(node) == ExpressionDag.SUM ? dag.sum(children) : dag.product(children);
+            }
+            case ExpressionDag.POWER: {
+                int base = simplifyNode(dag.child(node, 0));
+                int exponent = simplifyNode(dag.child(node, 1));
+                if (base == dag.child(node, 0) && exponent == dag.child(node, 1)) return node;
+                return dag.power(base, exponent);
+            }
+            case ExpressionDag.CALL: {
+                int argument = simplifyNode(dag.child(node, 0));
+                return argument == dag.child(node, 0) ? node : dag.call(dag.name(node), argument);
+            }
+            default:
+                return node;
+        }
+    }
+}
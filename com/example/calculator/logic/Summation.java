@@ -0,0 +1,255 @@
+package com.example.calculator.logic;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+// The numeric engine behind sum(body, k, a, b) and prod(body, k, a, b) in
+// ExpressionEvaluator, over the integers a <= k <= b. Three strategies, cheapest first:
+//   - a body that is a polynomial in k is summed in closed form: each power k^p becomes
+//     Faulhaber's polynomial in the bounds, in exact rational arithmetic, so a billion
+//     terms cost as much as one;
+//   - rational bodies (1/k^2) in fraction mode are summed exactly, term by term;
+//   - anything else runs over a compiled body on the common fork/join pool, in fixed
+//     chunks with one tape per thread. Sums are compensated (Neumaier) within a chunk and
+//     across chunks, products carry their binary exponent separately so long partial
+//     products neither overflow nor underflow. Chunks are combined in order, so results do
+//     not depend on the number of threads.
+// Bound variables of enclosing sums are passed in as constants.
+final class Summation {
+    static final long EXACT_TERM_LIMIT = 100_000;     // fraction mode sums exactly up to here
+    static final long COMPILED_TERM_LIMIT = 1L << 36;
+    private static final int CHUNK = 1 << 16;          // terms per parallel task
+    private static final int MAX_DEGREE = 64;          // closed forms for polynomials up to this degree
+    private static final int MAX_EXACT_EXPONENT = 1024;
+
+    private Summation() {
+    }
+
+    // The body as a polynomial in the index with exact coefficients, or null if it is not
+    // one. constants resolves other names (outer indices, pi in decimal mode) or gives null.
+    static RationalPolynomial toPolynomial(ExpressionTree tree, int node, String index, Function<String, BigFraction> constants) {
+        switch (tree.kind(node)) {
+            case ExpressionTree.NUMBER:
+                return RationalPolynomial.constant(BigFraction.valueOf(tree.number(node)), index);
+            case ExpressionTree.IDENTIFIER: {
+                String name = tree.name(node);
+                if (name.equals(index)) return new RationalPolynomial(new BigFraction[]{BigFraction.ZERO, BigFraction.ONE}, index);
+                BigFraction value = constants.apply(name);
+                return value == null ? null : RationalPolynomial.constant(value, index);
+            }
+            case ExpressionTree.NEGATE: {
+                RationalPolynomial p = toPolynomial(tree, tree.firstChild(node), index, constants);
+                return p == null ? null : p.negate();
+            }
+            case ExpressionTree.ADD:
+            case ExpressionTree.SUBTRACT:
+            case ExpressionTree.MULTIPLY:
+            case ExpressionTree.DIVIDE:
+            case ExpressionTree.POWER: {
+                RationalPolynomial p = toPolynomial(tree, tree.left(node), index, constants);
+                RationalPolynomial q = p == null ? null : toPolynomial(tree, tree.right(node), index, constants);
+                if (q == null) return null;
+                switch (tree.kind(node)) {
+                    case ExpressionTree.ADD: return p.add(q);
+                    case ExpressionTree.SUBTRACT: return p.subtract(q);
+                    case ExpressionTree.MULTIPLY:
+                        return p.getDegree() + q.getDegree() > MAX_DEGREE ? null : p.multiply(q);
+                    case ExpressionTree.DIVIDE:
+                        return q.getDegree() != 0 ? null : p.multiply(q.getCoefficient(0).reciprocal());
+                    default: {
+                        if (q.getDegree() > 0) return null;
+                        BigFraction exponent = q.getCoefficient(0);
+                        if (!exponent.isInteger() || exponent.signum() < 0 || exponent.getNumerator().bitLength() > 11) return null;
+                        int e = exponent.getNumerator().intValue();
+                        if (p.getDegree() <= 0) return RationalPolynomial.constant(pow(p.getCoefficient(0), e), index);
+                        if (e * p.getDegree() > MAX_DEGREE) return null;
+                        RationalPolynomial r = RationalPolynomial.constant(BigFraction.ONE, index);
+                        for (int i = 0; i < e; i++) r = r.multiply(p);
+                        return r;
+                    }
+                }
+            }
+            default:
+                return null; // functions, equations
+        }
+    }
+
+    // sum over a <= k <= b of p(k): sum_p c_p (S_p(b) - S_p(a - 1)), where S_p(n) =
+    // 1^p + ... + n^p is Faulhaber's polynomial. S_p(n) - S_p(n - 1) = n^p holds for every
+    // integer n, so negative bounds need no special case.
+    static BigFraction polynomialSum(RationalPolynomial p, long a, long b) {
+        int degree = Math.max(p.getDegree(), 0);
+        BigFraction[] bernoulli = bernoulliNumbers(degree);
+        BigFraction[] f = new BigFraction[degree + 2];
+        Arrays.fill(f, BigFraction.ZERO);
+        for (int q = 0; q <= p.getDegree(); q++) {
+            BigFraction c = p.getCoefficient(q);
+            if (c.isZero()) continue;
+            // S_q(n) = 1/(q+1) sum_j C(q+1, j) B_j n^(q+1-j), with B_1 = +1/2
+            BigFraction scale = c.divide(BigFraction.valueOf(q + 1));
+            BigInteger binomial = BigInteger.ONE;
+            for (int j = 0; j <= q; j++) {
+                BigFraction bj = j == 1 ? bernoulli[1].negate() : bernoulli[j];
+                f[q + 1 - j] = f[q + 1 - j].add(bj.multiply(binomial).multiply(scale));
+                binomial = binomial.multiply(BigInteger.valueOf(q + 1 - j)).divide(BigInteger.valueOf(j + 1));
+            }
+        }
+        RationalPolynomial faulhaber = new RationalPolynomial(f, p.getVariable());
+        return faulhaber.evaluate(BigFraction.valueOf(b)).subtract(faulhaber.evaluate(BigFraction.valueOf(a - 1)));
+    }
+
+    // B_0 .. B_n with B_1 = -1/2, from sum_{j<=m} C(m+1, j) B_j = 0
+    private static BigFraction[] bernoulliNumbers(int n) {
+        BigFraction[] b = new BigFraction[n + 1];
+        b[0] = BigFraction.ONE;
+        for (int m = 1; m <= n; m++) {
+            BigFraction s = BigFraction.ZERO;
+            BigInteger binomial = BigInteger.ONE; // C(m+1, j)
+            for (int j = 0; j < m; j++) {
+                s = s.add(b[j].multiply(binomial));
+                binomial = binomial.multiply(BigInteger.valueOf(m + 1 - j)).divide(BigInteger.valueOf(j + 1));
+            }
+            b[m] = s.negate().divide(BigFraction.valueOf(m + 1));
+        }
+        return b;
+    }
+
+    // Exact sum or product of a rational body, or null if some term is not rational (a
+    // function call, a fractional power). The terms are cheap; combining them is not, so
+    // that runs in parallel and pairwise, which keeps the intermediate denominators balanced.
+    static BigFraction exactReduce(ExpressionTree tree, int body, String index, long a, long b,
+                                   Function<String, BigFraction> constants, boolean product) {
+        int n = (int) (b - a + 1);
+        BigFraction[] terms = new BigFraction[n];
+        for (int i = 0; i < n; i++) {
+            terms[i] = exactValue(tree, body, index, BigFraction.valueOf(a + i), constants);
+            if (terms[i] == null) return null;
+        }
+        return IntStream.range(0, n).parallel().mapToObj(i -> terms[i])
+            .reduce(product ? BigFraction.ONE : BigFraction.ZERO, product ? BigFraction::multiply : BigFraction::add);
+    }
+
+    private static BigFraction exactValue(ExpressionTree tree, int node, String index, BigFraction k,
+                                          Function<String, BigFraction> constants) {
+        switch (tree.kind(node)) {
+            case ExpressionTree.NUMBER:
+                return BigFraction.valueOf(tree.number(node));
+            case ExpressionTree.IDENTIFIER:
+                return tree.name(node).equals(index) ? k : constants.apply(tree.name(node));
+            case ExpressionTree.NEGATE: {
+                BigFraction v = exactValue(tree, tree.firstChild(node), index, k, constants);
+                return v == null ? null : v.negate();
+            }
+            case ExpressionTree.ADD:
+            case ExpressionTree.SUBTRACT:
+            case ExpressionTree.MULTIPLY:
+            case ExpressionTree.DIVIDE:
+            case ExpressionTree.POWER: {
+                BigFraction u = exactValue(tree, tree.left(node), index, k, constants);
+                BigFraction v = u == null ? null : exactValue(tree, tree.right(node), index, k, constants);
+                if (v == null) return null;
+                switch (tree.kind(node)) {
+                    case ExpressionTree.ADD: return u.add(v);
+                    case ExpressionTree.SUBTRACT: return u.subtract(v);
+                    case ExpressionTree.MULTIPLY: return u.multiply(v);
+                    case ExpressionTree.DIVIDE:
+                        if (v.isZero()) throw new ArithmeticException("Division by zero at " + index + " = " + k);
+                        return u.divide(v);
+                    default: {
+                        if (!v.isInteger() || v.getNumerator().abs().bitLength() > 11) return null;
+                        int e = v.getNumerator().intValue();
+                        if (Math.abs(e) > MAX_EXACT_EXPONENT) return null;
+                        if (e < 0 && u.isZero()) throw new ArithmeticException("Division by zero at " + index + " = " + k);
+                        return e < 0 ? pow(u, -e).reciprocal() : pow(u, e);
+                    }
+                }
+            }
+            default:
+                return null;
+        }
+    }
+
+    private static BigFraction pow(BigFraction base, int exponent) {
+        return new BigFraction(base.getNumerator().pow(exponent), base.getDenominator().pow(exponent));
+    }
+
+    // Compensated sum of f over point[0] = a .. b; the other coordinates of point are the
+    // values of outer variables
+    static double parallelSum(CompiledExpression f, double[] point, long a, long b) {
+        int chunks = chunkCount(a, b);
+        double[] sums = new double[chunks];
+        double[] compensations = new double[chunks];
+        ThreadLocal<CompiledExpression> tapes = ThreadLocal.withInitial(f::copy);
+        IntStream range = IntStream.range(0, chunks);
+        (chunks > 1 ? range.parallel() : range).forEach(c -> {
+            CompiledExpression tape = tapes.get();
+            double[] p = point.clone();
+            long from = a + (long) c * CHUNK, to = Math.min(b, from + CHUNK - 1);
+            double sum = 0, compensation = 0;
+            for (long k = from; k <= to; k++) {
+                p[0] = k;
+                double v = tape.evaluate(p);
+                double t = sum + v;
+                compensation += Math.abs(sum) >= Math.abs(v) ? (sum - t) + v : (v - t) + sum;
+                sum = t;
+            }
+            sums[c] = sum;
+            compensations[c] = compensation;
+        });
+        double sum = 0, compensation = 0;
+        for (int c = 0; c < chunks; c++) {
+            double t = sum + sums[c];
+            compensation += Math.abs(sum) >= Math.abs(sums[c]) ? (sum - t) + sums[c] : (sums[c] - t) + sum;
+            compensation += compensations[c];
+            sum = t;
+        }
+        return sum + compensation;
+    }
+
+    // Product of f over point[0] = a .. b, as mantissa * 2^exponent until the very end
+    static double parallelProduct(CompiledExpression f, double[] point, long a, long b) {
+        int chunks = chunkCount(a, b);
+        double[] mantissas = new double[chunks];
+        long[] exponents = new long[chunks];
+        ThreadLocal<CompiledExpression> tapes = ThreadLocal.withInitial(f::copy);
+        IntStream range = IntStream.range(0, chunks);
+        (chunks > 1 ? range.parallel() : range).forEach(c -> {
+            CompiledExpression tape = tapes.get();
+            double[] p = point.clone();
+            long from = a + (long) c * CHUNK, to = Math.min(b, from + CHUNK - 1);
+            double m = 1;
+            long exponent = 0;
+            for (long k = from; k <= to; k++) {
+                p[0] = k;
+                m *= tape.evaluate(p);
+                if (m == 0 || Double.isNaN(m) || Double.isInfinite(m)) break;
+                int e = Math.getExponent(m);
+                if (e > 500 || e < -500) {
+                    m = Math.scalb(m, -e);
+                    exponent += e;
+                }
+            }
+            mantissas[c] = m;
+            exponents[c] = exponent;
+        });
+        double m = 1;
+        long exponent = 0;
+        for (int c = 0; c < chunks; c++) {
+            m *= mantissas[c];
+            exponent += exponents[c];
+            if (m == 0 || Double.isNaN(m) || Double.isInfinite(m)) return m;
+            int e = Math.getExponent(m);
+            m = Math.scalb(m, -e);
+            exponent += e;
+        }
+        return Math.scalb(m, (int) Math.max(-4096, Math.min(4096, exponent)));
+    }
+
+    private static int chunkCount(long a, long b) {
+        long terms = b - a + 1;
+        if (terms > COMPILED_TERM_LIMIT) throw new IllegalArgumentException("Too many terms: " + terms);
+        return (int) ((terms + CHUNK - 1) / CHUNK);
+    }
+}
@@ -1,100 +1,236 @@
 package com.example.calculator.logic;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-//import java.util.ArrayList;
-//import java.util.List;
 import java.util.Arrays;
+import java.util.List;
 
 public class SymbolicEvaluator {
+    // Search interval for equations that are not polynomial when the caller gives none
+    public static final double DEFAULT_SEARCH_LOWER = -10;
+    public static final double DEFAULT_SEARCH_UPPER = 10;
 
-    private static final Pattern FOIL_PATTERN = Pattern.compile(
-        "\\s*\\(([^()]+)\\)\\s*\\*?\\s*\\(([^()]+)\\)\\s*"
-    );
-    private static final Pattern SINGLE_TERM_BRACKET_PATTERN1 = Pattern.compile(
-        "\\s*([^()\\s+*-]+)\\s*\\*?\\s*\\(([^()]+)\\)\\s*" // Term cannot contain operators here
-    );
-    private static final Pattern SINGLE_TERM_BRACKET_PATTERN2 = Pattern.compile(
-        "\\s*\\(([^()]+)\\)\\s*\\*?\\s*([^()\\s+*-]+)\\s*"
-    );
-
-    // Pattern to detect an equation (contains one '=')
-    private static final Pattern EQUATION_PATTERN = Pattern.compile("(.+)\\s*=\\s*(.+)");
+    private final PolynomialRootFinder rootFinder = new PolynomialRootFinder();
+    private final RealRootIsolator realRootIsolator = new RealRootIsolator();
 
     public String evaluate(String expression) {
-        expression = expression.trim();
-        Matcher equationMatcher = EQUATION_PATTERN.matcher(expression);
+        if (isSystem(expression)) return solveSystem(expression);
+        return evaluate(ExpressionParser.parse(expression));
+    }
+
+    // Several equations separated by ';', e.g. "2x + 3y = 5; x - y = 1"
+    public static boolean isSystem(String text) {
+        return text.indexOf(';') >= 0;
+    }
 
-        if (equationMatcher.matches()) {
-            String lhsStr = equationMatcher.group(1).trim();
-            String rhsStr = equationMatcher.group(2).trim();
-            return solveEquation(lhsStr, rhsStr);
+    // Solves a system of linear equations (see LinearSystem). Exact solutions list each
+    // unknown as a fraction, with free unknowns as parameters when the system is
+    // underdetermined; large systems are solved iteratively and show the method used.
+    // Two polynomial equations in two unknowns are solved by elimination instead.
+    public String solveSystem(String text) {
+        if (!LinearSystem.isLinear(text)) return solvePolynomialSystem(text);
+        try {
+            LinearSystem system = LinearSystem.parse(text);
+            LinearSystem.Solution solution = system.solve();
+            String[] unknowns = solution.getUnknowns();
+            if (!solution.isConsistent()) {
+                return "No solution: inconsistent system (rank " + solution.getRank() + ", augmented rank " + (solution.getRank() + 1) + ")";
+            }
+            StringBuilder sb = new StringBuilder();
+            int shown = Math.min(unknowns.length, MAX_LISTED_ROOTS);
+            for (int k = 0; k < shown; k++) {
+                if (sb.length() > 0) sb.append(", ");
+                sb.append(unknowns[k]);
+                if (!solution.isExact()) sb.append(" = ").append(formatDouble(solution.getValue(k)));
+                else if (solution.isFree(k)) sb.append(" free");
+                else sb.append(" = ").append(solution.formatExact(k));
+            }
+            if (shown < unknowns.length) sb.append(", ...");
+            if (!solution.isExact()) {
+                return sb + " (" + unknowns.length + " unknowns; " + solution.getMethod() + ", " + solution.getIterations()
+                       + " iterations, residual " + String.format("%.1e", solution.getResidual()) + ")";
+            }
+            if (!solution.isUnique()) {
+                return "Infinitely many solutions (rank " + solution.getRank() + ", " + unknowns.length + " unknowns): " + sb;
+            }
+            return sb + " (rank " + solution.getRank() + ")";
+        } catch (IllegalArgumentException | ArithmeticException e) {
+            return "Error (System): " + e.getMessage();
         }
+    }
 
-        // Try FOIL and term*bracket expansion if not an equation
-        Matcher foilMatcher = FOIL_PATTERN.matcher(expression);
-        if (foilMatcher.matches()) {
-            String polyStr1 = foilMatcher.group(1);
-            String polyStr2 = foilMatcher.group(2);
+    // Dispatches on the parsed shape: lhs = rhs is solved (numerically in the default
+    // interval when it is not polynomial), (p)/(q) is reduced by the
+    // polynomial GCD and anything else in variables is expanded. Numerical input without
+    // variables is rejected so the caller can evaluate it numerically.
+    public String evaluate(ExpressionTree tree) {
+        int root = tree.root();
+        if (tree.kind(root) == ExpressionTree.EQUATION) {
+            if (!isPolynomialEquation(tree)) {
+                return solveNumerically(tree, DEFAULT_SEARCH_LOWER, DEFAULT_SEARCH_UPPER, SettingsManager.ANGLE_UNIT_RADIANS);
+            }
             try {
-                Polynomial p1 = Polynomial.parse(polyStr1);
-                Polynomial p2 = Polynomial.parse(polyStr2);
-                return p1.multiply(p2).toString();
+                VariableTable variables = new VariableTable();
+                MultiPolynomial difference = MultiPolynomial.fromTree(tree, tree.left(root), variables)
+                    .subtract(MultiPolynomial.fromTree(tree, tree.right(root), variables));
+                int[] used = difference.getUsedVariables();
+                if (used.length > 1) {
+                    return "Error (Solving): Equation has several variables (" + variables.nameOf(used[0]) + ", " + variables.nameOf(used[1])
+                           + (used.length > 2 ? ", ..." : "") + "); use the polynomial-system solver (equations separated by ';')";
+                }
+                return solveEquation(difference.toPolynomial());
             } catch (IllegalArgumentException e) {
-                return "Error (Expansion): " + e.getMessage();
+                return "Error (Solving): " + e.getMessage();
             }
         }
-
-        Matcher stbp1Matcher = SINGLE_TERM_BRACKET_PATTERN1.matcher(expression);
-        if(stbp1Matcher.matches()){
-            String termStr = stbp1Matcher.group(1);
-            String polyStr = stbp1Matcher.group(2);
+        if (!tree.containsIdentifierOtherThan(root)) {
+            // The GUI's fallback to numerical evaluator will handle it or show an error.
+            throw new IllegalArgumentException("Expression not recognized for symbolic operation.");
+        }
+        if (tree.kind(root) == ExpressionTree.DIVIDE && tree.containsIdentifierOtherThan(tree.right(root))) {
             try {
-                Polynomial pTerm = Polynomial.parse(termStr);
-                Polynomial pBracket = Polynomial.parse(polyStr);
-                return pTerm.multiply(pBracket).toString();
-            } catch (IllegalArgumentException e) {
-                return "Error (Expansion): " + e.getMessage();
+                return cancelCommonFactors(RationalPolynomial.fromTree(tree, tree.left(root)), RationalPolynomial.fromTree(tree, tree.right(root)));
+            } catch (IllegalArgumentException notPolynomial) {
+                return simplifyExpression(tree);
+            } catch (ArithmeticException e) {
+                return "Error (Cancel): " + e.getMessage();
             }
         }
+        // All factors share one variable table, so (x+y)(x-y) expands to x^2 - y^2
+        try {
+            return formatPolynomial(MultiPolynomial.fromTree(tree, root, new VariableTable()));
+        } catch (IllegalArgumentException notPolynomial) {
+            return simplifyExpression(tree);
+        } catch (ArithmeticException e) {
+            return "Error (Expansion): " + e.getMessage();
+        }
+    }
 
-        Matcher stbp2Matcher = SINGLE_TERM_BRACKET_PATTERN2.matcher(expression);
-         if(stbp2Matcher.matches()){
-            String polyStr = stbp2Matcher.group(1);
-            String termStr = stbp2Matcher.group(2);
-            try {
-                Polynomial pBracket = Polynomial.parse(polyStr);
-                Polynomial pTerm = Polynomial.parse(termStr);
-                return pBracket.multiply(pTerm).toString();
-            } catch (IllegalArgumentException e) {
-                return "Error (Expansion): " + e.getMessage();
+    // True for lhs = rhs with both sides polynomials, in any number of variables; evaluate
+    // solves those in one variable and rejects the others
+    public boolean isPolynomialEquation(ExpressionTree tree) {
+        int root = tree.root();
+        if (tree.kind(root) != ExpressionTree.EQUATION) return false;
+        try {
+            VariableTable variables = new VariableTable();
+            MultiPolynomial.fromTree(tree, tree.left(root), variables);
+            MultiPolynomial.fromTree(tree, tree.right(root), variables);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    // All real solutions of lhs = rhs (or of expression = 0) in [lower, upper], found by
+    // NumericSolver. Works for any equation in one variable, e.g. cos(x) = x.
+    public String solveNumerically(ExpressionTree tree, double lower, double upper, String angleUnit) {
+        try {
+            CompiledExpression f = CompiledExpression.compile(tree, angleUnit);
+            if (f.getVariableCount() != 1) {
+                return "Error (Solving): Numeric solving needs exactly one variable, found " + f.getVariableCount();
+            }
+            String variable = f.getVariables()[0];
+            double[] roots = new NumericSolver().findRoots(f, lower, upper);
+            String interval = "[" + formatDouble(Math.min(lower, upper)) + ", " + formatDouble(Math.max(lower, upper)) + "]";
+            if (roots.length == 0) return "No real solution in " + interval;
+            StringBuilder sb = new StringBuilder();
+            int shown = Math.min(roots.length, MAX_LISTED_ROOTS);
+            for (int k = 0; k < shown; k++) {
+                if (k > 0) sb.append(", ");
+                sb.append(variable);
+                if (roots.length > 1) sb.append(subscript(k + 1));
+                sb.append(" = ").append(formatDouble(roots[k]));
             }
+            if (shown < roots.length) sb.append(", ... (").append(roots.length).append(" solutions in ").append(interval).append(")");
+            return sb.toString();
+        } catch (IllegalArgumentException e) {
+            return "Error (Solving): " + e.getMessage();
         }
-        // If no specific symbolic pattern matches, it's not for this evaluator.
-        // The GUI's fallback to numerical evaluator will handle it or show an error.
-        throw new IllegalArgumentException("Expression not recognized for symbolic operation.");
     }
 
-    private String solveEquation(String lhsStr, String rhsStr) {
+    private static final int MAX_LISTED_ROOTS = 12;
+
+    // All real solutions of two polynomial equations in two unknowns (see PolynomialSystem),
+    // listed as x₁ = ..., y₁ = ...; x₂ = ..., y₂ = ...
+    private String solvePolynomialSystem(String text) {
         try {
-            Polynomial lhsPoly = Polynomial.parse(lhsStr);
-            Polynomial rhsPoly = Polynomial.parse(rhsStr);
-
-            // Rearrange to P(x) = 0  =>  lhsPoly - rhsPoly = 0
-            Polynomial equationPoly = lhsPoly.subtract(rhsPoly);
-            equationPoly.getTerms().removeIf(term -> Math.abs(term.coefficient) < 1e-9 && term.exponent !=0); // Clean up near-zero non-constant terms
-            if (equationPoly.getTerms().size() > 1) {
-                equationPoly.getTerms().removeIf(term -> Math.abs(term.coefficient) < 1e-9 && term.exponent == 0); // Clean zero constant if other terms exist
+            PolynomialSystem.Solution solution = PolynomialSystem.parse(text).solve();
+            if (solution.hasCommonFactor()) return "Infinitely many solutions: the equations share a common factor";
+            String[] unknowns = solution.getUnknowns();
+            if (solution.getCount() == 0) return "No real solution (eliminant " + solution.getResultant() + " = 0)";
+            StringBuilder sb = new StringBuilder();
+            int shown = Math.min(solution.getCount(), MAX_LISTED_ROOTS);
+            for (int k = 0; k < shown; k++) {
+                if (k > 0) sb.append("; ");
+                String index = solution.getCount() > 1 ? subscript(k + 1) : "";
+                sb.append(unknowns[0]).append(index).append(" = ").append(formatDouble(solution.getX(k))).append(", ")
+                  .append(unknowns[1]).append(index).append(" = ").append(formatDouble(solution.getY(k)));
             }
-             if (equationPoly.getTerms().isEmpty()){ // e.g. x = x
-                 equationPoly.addTerm(new Term(0.0)); // Represent as 0 = 0
-             }
+            if (shown < solution.getCount()) sb.append("; ... (").append(solution.getCount()).append(" real solutions)");
+            return sb.toString();
+        } catch (IllegalArgumentException | ArithmeticException e) {
+            return "Error (System): " + e.getMessage();
+        }
+    }
+
+    // Expressions that are not polynomials (functions, symbolic exponents, variable
+    // denominators) are simplified on a hash-consed DAG: like terms and powers are
+    // collected and identities such as sin(x)^2 + cos(x)^2 = 1 applied
+    private String simplifyExpression(ExpressionTree tree) {
+        try {
+            ExpressionDag dag = new ExpressionDag();
+            int simplified = new Simplifier(dag).simplify(dag.fromTree(tree, tree.root()));
+            return dag.toString(simplified);
+        } catch (IllegalArgumentException | ArithmeticException e) {
+            return "Error (Simplify): " + e.getMessage();
+        }
+    }
+
+    // Single-variable results keep the familiar Polynomial formatting
+    private String formatPolynomial(MultiPolynomial poly) {
+        return poly.getUsedVariables().length <= 1 ? poly.toPolynomial().toString() : poly.toString();
+    }
 
+    // Rigorous isolating intervals for the real roots of "lhs = rhs" (or of a bare
+    // polynomial, read as "= 0"). The polynomial is built from the parse tree in exact
+    // arithmetic, so decimal coefficients are taken exactly as typed and large integer
+    // coefficients are never rounded.
+    public List<RealRootIsolator.RootInterval> isolateRealRoots(String equation) {
+        ExpressionTree tree = ExpressionParser.parse(equation);
+        return realRootIsolator.isolate(RationalPolynomial.fromTree(tree, tree.root()));
+    }
+
+    // Reduces numerator/denominator by their exact GCD, e.g. (x^2-1)/(x-1) -> x + 1. Both
+    // sides come straight from the parse tree, so coefficients past 2^53 are not rounded.
+    private String cancelCommonFactors(RationalPolynomial num, RationalPolynomial den) {
+        if (num.getDegree() > 0 && !num.getVariable().equals(den.getVariable())) {
+            throw new IllegalArgumentException("Expected a single variable, found " + num.getVariable() + " and " + den.getVariable());
+        }
+        if (den.isZero()) throw new ArithmeticException("Division by zero polynomial");
+        RationalPolynomial common = num.gcd(den);
+        num = num.divide(common);
+        den = den.divide(common);
+        // Move the denominator's leading coefficient into the numerator so it prints monic
+        BigFraction lead = den.getLeadingCoefficient();
+        num = num.multiply(lead.reciprocal());
+        den = den.monic();
+        if (den.getDegree() == 0) return num.toString();
+        return bracketed(num) + "/" + bracketed(den);
+    }
 
+    // A sum, or a bare fraction such as 1/2, is bracketed in a quotient; x/x^2 needs no brackets
+    private static String bracketed(RationalPolynomial p) {
+        int terms = 0;
+        for (int i = 0; i <= p.getDegree(); i++) if (!p.getCoefficient(i).isZero()) terms++;
+        boolean fraction = p.getDegree() == 0 && !p.getCoefficient(0).isInteger();
+        return terms > 1 || fraction ? "(" + p + ")" : p.toString();
+    }
+
+    // Solves P(x) = 0, where the caller has already rearranged lhs = rhs to lhs - rhs
+    private String solveEquation(Polynomial equationPoly) {
+        try {
+            // Polynomial already drops near-zero terms, so x = x leaves the empty (zero) polynomial
             int degree = equationPoly.getDegree();
-            // Assuming single variable 'x' for now. A more robust system would identify the variable.
-            String variable = "x"; 
-            // Attempt to find the variable if not 'x' (simple heuristic)
+            // evaluate rejects equations in several variables, so the first one found is the only one
+            String variable = "x";
             for(Term t : equationPoly.getTerms()){
                 if(!t.variable.isEmpty()){
                     variable = t.variable;
@@ -102,7 +238,6 @@ public class SymbolicEvaluator {
                 }
             }
 
-
             if (degree == 1) { // Linear equation: ax + b = 0
                 double a = equationPoly.getCoefficient(1, variable);
                 double b = equationPoly.getConstantCoefficient();
@@ -124,7 +259,7 @@ public class SymbolicEvaluator {
                 if (Math.abs(a) < 1e-9) { // Not actually quadratic, should have been caught by degree 1
                      // Re-evaluate as linear if 'a' is zero
                     equationPoly = new Polynomial(Arrays.asList(new Term(b, variable, 1), new Term(c)));
-                    return solveEquation(equationPoly.toString(), "0"); // Recursive call for simplicity
+                    return solveEquation(equationPoly); // Recursive call for simplicity
                 }
 
                 double discriminant = b * b - 4 * a * c;
@@ -150,13 +285,10 @@ public class SymbolicEvaluator {
                  } else { // c = 0 where c != 0
                      return "Contradiction (No solution)";
                  }
-            }
-            else if (degree < 0 && equationPoly.getTerms().isEmpty()){ // 0 = 0 case after subtractions
+            } else if (degree < 0) { // 0 = 0 case after subtractions
                  return "Identity (Infinite solutions)";
             }
-
-            return "Solution for degree " + degree + " not implemented. Equation: " + equationPoly.toString() + " = 0";
-
+            return formatRoots(variable, rootFinder.findRoots(equationPoly.getCoefficientArray(variable)));
         } catch (IllegalArgumentException e) {
             return "Error (Solving): " + e.getMessage();
         } catch (Exception e) {
@@ -165,6 +297,31 @@ public class SymbolicEvaluator {
         }
     }
 
+    // Lists roots in ascending order as x₁ = ..., x₂ = ...; repeated roots are shown once
+    // with their multiplicity
+    private String formatRoots(String variable, List<PolynomialRootFinder.Root> roots) {
+        StringBuilder sb = new StringBuilder();
+        int index = 1;
+        for (PolynomialRootFinder.Root root : roots) {
+            if (sb.length() > 0) sb.append(", ");
+            sb.append(variable).append(subscript(index++)).append(" = ");
+            if (root.isReal() || formatDouble(root.getImaginary()).equals("0")) {
+                sb.append(formatDouble(root.getReal()));
+            } else {
+                double im = root.getImaginary();
+                sb.append(formatDouble(root.getReal())).append(im < 0 ? " - " : " + ").append(formatDouble(Math.abs(im))).append("i");
+            }
+            if (root.getMultiplicity() > 1) sb.append(" (multiplicity ").append(root.getMultiplicity()).append(")");
+        }
+        return sb.toString();
+    }
+
+    private static String subscript(int n) {
+        StringBuilder sb = new StringBuilder();
+        for (char c : String.valueOf(n).toCharArray()) sb.append((char) ('₀' + (c - '0')));
+        return sb.toString();
+    }
+
     private String formatDouble(double val) {
         if (Math.abs(val) < 1e-9) return "0"; // Treat very small numbers as 0
         if (val == (long) val) {
@@ -1,11 +1,13 @@
 package com.example.calculator.logic;
 
+import java.math.BigDecimal;
 import java.util.Objects;
 
-public class Term implements Comparable<Term> {
-    public double coefficient; // Made public for easier access from Polynomial, consider getters/setters for stricter encapsulation
-    public String variable;    // e.g., "x", or "" for constants
-    public int exponent;
+// Immutable: the fields are final, so Terms can be shared between polynomials.
+public final class Term implements Comparable<Term> {
+    public final double coefficient;
+    public final String variable;    // e.g., "x", or "" for constants
+    public final int exponent;
 
     public Term(double coefficient, String variable, int exponent) {
         if (coefficient == 0.0) {
@@ -51,11 +53,7 @@ public class Term implements Comparable<Term> {
         }
         // Append coefficient if it's not 1 or -1, OR if it's a constant term
         if (!coeffIsOne || expIsZero) {
-            if (Math.abs(coefficient) == Math.floor(Math.abs(coefficient))) { // Integer coefficient
-                sb.append((int) Math.abs(coefficient));
-            } else {
-                sb.append(String.format("%.2f", Math.abs(coefficient)).replaceAll("\\.?0+$", ""));
-            }
+            sb.append(formatMagnitude(Math.abs(coefficient)));
         } else if (coeffIsOne && variable.isEmpty()) { // Edge case for constant 1 or -1
              sb.append("1");
         }
@@ -93,6 +91,15 @@ public class Term implements Comparable<Term> {
         return sb.toString();
     }
 
+    // Shared coefficient format: integers as-is, otherwise up to two decimals
+    static String formatMagnitude(double value) {
+        if (value == Math.floor(value)) { // Integer coefficient
+            if (Math.abs(value) < 0x1p63) return String.valueOf((long) value);
+            return Double.isInfinite(value) ? String.valueOf(value) : BigDecimal.valueOf(value).toPlainString();
+        }
+        return String.format("%.2f", value).replaceAll("\\.?0+$", "");
+    }
+
     @Override
     public int compareTo(Term other) { // Sort by exponent (descending), then by variable
         if (this.exponent != other.exponent) {
@@ -0,0 +1,39 @@
+package com.example.calculator.logic;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Interns variable names into the small integer ids used by packed monomials.
+// Names are assigned ids in order of first appearance; a table only ever grows, so
+// polynomials built against an earlier state of the table stay valid.
+public final class VariableTable {
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+
+    public int intern(String name) {
+        Integer id = ids.get(name);
+        if (id != null) return id;
+        if (names.size() == Monomials.MAX_VARIABLES) {
+            throw new IllegalArgumentException("Too many variables (maximum " + Monomials.MAX_VARIABLES + ")");
+        }
+        ids.put(name, names.size());
+        names.add(name);
+        return names.size() - 1;
+    }
+
+    // Returns -1 if the name has not been interned
+    public int idOf(String name) {
+        Integer id = ids.get(name);
+        return id == null ? -1 : id;
+    }
+
+    public String nameOf(int id) {
+        return names.get(id);
+    }
+
+    public int size() {
+        return names.size();
+    }
+}
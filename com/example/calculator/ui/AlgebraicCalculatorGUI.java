@@ -10,6 +10,9 @@ import java.awt.event.WindowEvent;
 
 import com.example.calculator.logic.SymbolicEvaluator;
 import com.example.calculator.logic.ExpressionEvaluator; // Keep for potential fallback
+import com.example.calculator.logic.ExpressionParser;
+import com.example.calculator.logic.ExpressionTree;
+import com.example.calculator.logic.SettingsManager;
 
 public class AlgebraicCalculatorGUI extends JFrame implements ActionListener {
 
@@ -162,33 +165,34 @@ public class AlgebraicCalculatorGUI extends JFrame implements ActionListener {
         String expression = displayField.getText().trim();
         if (expression.isEmpty()) return;
         try {
-            // SymbolicEvaluator is expected to handle equations (if '=' is present)
-            // or expansions (if in (a)(b) format).
-            String result = symbolicEvaluator.evaluate(expression);
-            displayField.setText(result);
-        } catch (IllegalArgumentException ex) {
-            // If symbolic evaluation throws IllegalArgumentException (e.g., not recognized format)
-            // We could try numerical evaluation as a fallback if the expression looks numerical
-            // and does NOT contain an equals sign (which implies it was meant for symbolic solving).
-            if (!expression.contains("=") && !expression.matches(".*[a-zA-Z]+.*")) { // No equals, no letters, try numerical
-                try {
-                    Object numResult = numericalEvaluator.evaluate(expression);
-                    // Display numerical result (assuming a helper method or simple toString)
-                    if (numResult instanceof Double) {
-                        displayField.setText(formatNumericalResult((Double) numResult));
-                    } else {
-                        displayField.setText(numResult.toString());
-                    }
-                } catch (Exception numEx) {
-                     String err = ex.getMessage() != null ? ex.getMessage() : "Invalid Expression";
-                     if (err.length() > 35) err = err.substring(0,35) + "...";
-                     displayField.setText("Error: " + err);
+            if (SymbolicEvaluator.isSystem(expression)) {
+                displayField.setText(symbolicEvaluator.solveSystem(expression));
+                return;
+            }
+            // Parsed once: the symbolic evaluator and the numerical fallback share the tree
+            ExpressionTree tree = ExpressionParser.parse(expression);
+            if (tree.kind(tree.root()) == ExpressionTree.EQUATION && !symbolicEvaluator.isPolynomialEquation(tree)) {
+                solveNumerically(tree);
+                return;
+            }
+            try {
+                // SymbolicEvaluator handles equations (top-level '=') and expressions in variables
+                displayField.setText(symbolicEvaluator.evaluate(tree));
+            } catch (IllegalArgumentException ex) {
+                // Not symbolic: a plain numerical expression (no '=', no variables besides pi and e)
+                int root = tree.root();
+                if (tree.kind(root) == ExpressionTree.EQUATION || tree.containsIdentifierOtherThan(root, "pi", "e")) throw ex;
+                Object numResult = numericalEvaluator.evaluate(tree, false, SettingsManager.loadAngleUnit());
+                if (numResult instanceof Double) {
+                    displayField.setText(formatNumericalResult((Double) numResult));
+                } else {
+                    displayField.setText(numResult.toString());
                 }
-            } else { // It was likely intended for symbolic and failed, or other symbolic error
-                 String err = ex.getMessage() != null ? ex.getMessage() : "Invalid Format";
-                 if (err.length() > 35) err = err.substring(0,35) + "...";
-                 displayField.setText("Error: " + err);
             }
+        } catch (IllegalArgumentException | ArithmeticException ex) {
+            String err = ex.getMessage() != null ? ex.getMessage() : "Invalid Expression";
+            if (err.length() > 35) err = err.substring(0,35) + "...";
+            displayField.setText("Error: " + err);
         } catch (Exception ex) { // Catch any other unexpected error
             displayField.setText("Error: Calculation failed");
             // ex.printStackTrace(); // For debugging
@@ -197,6 +201,24 @@ public class AlgebraicCalculatorGUI extends JFrame implements ActionListener {
         displayField.requestFocusInWindow();
     }
     
+    // Equations such as cos(x) = x have no closed form here: ask for the interval to
+    // search and list every root found in it
+    private void solveNumerically(ExpressionTree tree) {
+        String defaultInterval = (int) SymbolicEvaluator.DEFAULT_SEARCH_LOWER + ", " + (int) SymbolicEvaluator.DEFAULT_SEARCH_UPPER;
+        String input = JOptionPane.showInputDialog(this, "Search interval (lower, upper):", defaultInterval);
+        if (input == null) return; // Cancelled
+        String[] parts = input.split(",");
+        if (parts.length != 2) {
+            displayField.setText("Error: Expected lower, upper");
+            return;
+        }
+        String angleUnit = SettingsManager.loadAngleUnit();
+        double lower = numericalEvaluator.evaluateNumber(parts[0], angleUnit);
+        double upper = numericalEvaluator.evaluateNumber(parts[1], angleUnit);
+        displayField.setText(symbolicEvaluator.solveNumerically(tree, lower, upper, angleUnit));
+        displayField.setCaretPosition(0);
+    }
+
     private String formatNumericalResult(double val) { // Helper for numerical fallback
         if (Double.isNaN(val) || Double.isInfinite(val)) return "Error";
         if (val == (long) val) return String.format("%d", (long) val);
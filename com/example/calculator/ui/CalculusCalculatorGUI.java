@@ -9,6 +9,8 @@ import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 
 import com.example.calculator.logic.CalculusEvaluator;
+import com.example.calculator.logic.ExpressionEvaluator;
+import com.example.calculator.logic.SettingsManager;
 // Assuming RoundedButton is in this package
 
 public class CalculusCalculatorGUI extends JFrame implements ActionListener {
@@ -24,6 +26,10 @@ public class CalculusCalculatorGUI extends JFrame implements ActionListener {
 
     private RoundedButton differentiateButton;
     private RoundedButton integrateButton;
+    private RoundedButton definiteIntegralButton;
+    private RoundedButton odeButton;
+    private RoundedButton taylorButton;
+    private RoundedButton limitButton, seriesButton, rangeButton;
     private RoundedButton clearButton, backspaceButton;
 
     private JPanel buttonPanel;
@@ -43,7 +49,7 @@ public class CalculusCalculatorGUI extends JFrame implements ActionListener {
         this.calculusEvaluator = new CalculusEvaluator();
 
         setTitle("Calculus Calculator (Polynomials)");
-        setSize(500, 600);
+        setSize(500, 680);
         setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
         setLocationRelativeTo(null);
         setResizable(false);
@@ -60,7 +66,7 @@ public class CalculusCalculatorGUI extends JFrame implements ActionListener {
 
         // Input Field
         expressionInputField = new JTextField();
-        expressionInputField.setToolTipText("Enter polynomial e.g., 3x^2 + 2x - 5");
+        expressionInputField.setToolTipText("Enter f(x) e.g., 3x^2 + 2x - 5 or sin(x^2)");
         expressionInputField.setHorizontalAlignment(JTextField.LEFT);
         expressionInputField.setFont(new Font("Arial", Font.PLAIN, 20));
         expressionInputField.setBackground(new Color(50, 50, 50));
@@ -98,7 +104,7 @@ public class CalculusCalculatorGUI extends JFrame implements ActionListener {
         initButtons();
 
         buttonPanel = new JPanel();
-        buttonPanel.setLayout(new GridLayout(5, 4, 5, 5)); // Adjust grid as needed
+        buttonPanel.setLayout(new GridLayout(7, 4, 5, 5)); // Adjust grid as needed
         buttonPanel.setOpaque(false);
         buttonPanel.setBorder(new EmptyBorder(10, 10, 10, 10));
 
@@ -119,6 +125,12 @@ public class CalculusCalculatorGUI extends JFrame implements ActionListener {
         // Row 5
         buttonPanel.add(clearButton); buttonPanel.add(backspaceButton);
         buttonPanel.add(differentiateButton); buttonPanel.add(integrateButton);
+        // Row 6
+        buttonPanel.add(closeParenButton); buttonPanel.add(taylorButton);
+        buttonPanel.add(definiteIntegralButton); buttonPanel.add(odeButton);
+        // Row 7
+        buttonPanel.add(limitButton); buttonPanel.add(seriesButton);
+        buttonPanel.add(rangeButton); buttonPanel.add(new JLabel(""));
 
 
         // Main layout for input, result, and buttons
@@ -149,6 +161,12 @@ public class CalculusCalculatorGUI extends JFrame implements ActionListener {
 
         differentiateButton = new RoundedButton("d/dx");
         integrateButton = new RoundedButton("∫dx");
+        taylorButton = new RoundedButton("Taylor");
+        definiteIntegralButton = new RoundedButton("∫ₐᵇ");
+        odeButton = new RoundedButton("ODE");
+        limitButton = new RoundedButton("lim");
+        seriesButton = new RoundedButton("Σ∞");
+        rangeButton = new RoundedButton("range");
         clearButton = new RoundedButton("C");
         backspaceButton = new RoundedButton("←");
 
@@ -166,6 +184,12 @@ public class CalculusCalculatorGUI extends JFrame implements ActionListener {
 
         differentiateButton.addActionListener(this); differentiateButton.setButtonColor(calcOpColor);
         integrateButton.addActionListener(this); integrateButton.setButtonColor(calcOpColor);
+        taylorButton.addActionListener(this); taylorButton.setButtonColor(calcOpColor);
+        definiteIntegralButton.addActionListener(this); definiteIntegralButton.setButtonColor(calcOpColor);
+        odeButton.addActionListener(this); odeButton.setButtonColor(calcOpColor);
+        limitButton.addActionListener(this); limitButton.setButtonColor(calcOpColor);
+        seriesButton.addActionListener(this); seriesButton.setButtonColor(calcOpColor);
+        rangeButton.addActionListener(this); rangeButton.setButtonColor(calcOpColor);
         clearButton.addActionListener(this); clearButton.setButtonColor(clearColor);
         backspaceButton.addActionListener(this); backspaceButton.setButtonColor(clearColor);
     }
@@ -179,6 +203,18 @@ public class CalculusCalculatorGUI extends JFrame implements ActionListener {
             performDifferentiate();
         } else if (source == integrateButton) {
             performIntegrate();
+        } else if (source == taylorButton) {
+            performTaylor();
+        } else if (source == definiteIntegralButton) {
+            performDefiniteIntegral();
+        } else if (source == odeButton) {
+            performOde();
+        } else if (source == limitButton) {
+            performLimit();
+        } else if (source == seriesButton) {
+            performSeries();
+        } else if (source == rangeButton) {
+            performRange();
         } else if (source == clearButton) {
             expressionInputField.setText("");
             resultDisplayField.setText("");
@@ -216,6 +252,113 @@ public class CalculusCalculatorGUI extends JFrame implements ActionListener {
         resultDisplayField.setText(result);
     }
 
+    // Asks for the order and the expansion point, e.g. "10" (around 0) or "10, 1"
+    private void performTaylor() {
+        String expression = expressionInputField.getText().trim();
+        if (expression.isEmpty()) {
+            resultDisplayField.setText("0");
+            return;
+        }
+        String input = JOptionPane.showInputDialog(this, "Order [, expansion point]:", "5, 0");
+        if (input == null) return; // Cancelled
+        try {
+            String[] parts = input.split(",");
+            int order = Integer.parseInt(parts[0].trim());
+            double point = parts.length > 1 ? Double.parseDouble(parts[1].trim()) : 0.0;
+            resultDisplayField.setText(calculusEvaluator.taylor(expression, order, point));
+            resultDisplayField.setCaretPosition(0);
+        } catch (NumberFormatException ex) {
+            resultDisplayField.setText("Error: Expected order[, point], e.g. 5, 0");
+        }
+    }
+
+    // Asks for the limits, e.g. "0, pi"; each limit may be any numeric expression
+    private void performDefiniteIntegral() {
+        String expression = expressionInputField.getText().trim();
+        if (expression.isEmpty()) {
+            resultDisplayField.setText("0");
+            return;
+        }
+        String input = JOptionPane.showInputDialog(this, "Lower, upper limit:", "0, 1");
+        if (input == null) return; // Cancelled
+        String[] parts = input.split(",");
+        if (parts.length != 2) {
+            resultDisplayField.setText("Error: Expected lower, upper, e.g. 0, pi");
+            return;
+        }
+        try {
+            ExpressionEvaluator numeric = new ExpressionEvaluator();
+            double lower = numeric.evaluateNumber(parts[0], SettingsManager.ANGLE_UNIT_RADIANS);
+            double upper = numeric.evaluateNumber(parts[1], SettingsManager.ANGLE_UNIT_RADIANS);
+            resultDisplayField.setText(calculusEvaluator.definiteIntegral(expression, lower, upper));
+            resultDisplayField.setCaretPosition(0);
+        } catch (RuntimeException ex) {
+            resultDisplayField.setText("Error: Invalid limit: " + ex.getMessage());
+        }
+    }
+
+    // The input holds y' = f(x, y), or several equations separated by ';'. Asks for the
+    // start, the initial values and the end, shows the final values in the result field
+    // and the solution table in a dialog.
+    private void performOde() {
+        String system = expressionInputField.getText().trim();
+        if (system.isEmpty()) {
+            resultDisplayField.setText("Error: Enter y' = f(x, y)");
+            return;
+        }
+        String input = JOptionPane.showInputDialog(this, "Start, initial value(s), end:", "0, 1, 5");
+        if (input == null) return; // Cancelled
+        String result = calculusEvaluator.solveOde(system, input, ODE_TABLE_ROWS);
+        int firstLineEnd = result.indexOf('\n');
+        resultDisplayField.setText(firstLineEnd < 0 ? result : result.substring(0, firstLineEnd));
+        resultDisplayField.setCaretPosition(0);
+        if (firstLineEnd < 0) return; // Error message only
+        JTextArea table = new JTextArea(result.substring(firstLineEnd + 1).trim());
+        table.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 13));
+        table.setEditable(false);
+        JScrollPane scrollPane = new JScrollPane(table);
+        scrollPane.setPreferredSize(new Dimension(420, 360));
+        JOptionPane.showMessageDialog(this, scrollPane, "Solution", JOptionPane.PLAIN_MESSAGE);
+    }
+
+    private static final int ODE_TABLE_ROWS = 20;
+
+    // Asks for the point, e.g. "0", "0+" (from above) or "inf"
+    private void performLimit() {
+        String expression = expressionInputField.getText().trim();
+        if (expression.isEmpty()) return;
+        String point = JOptionPane.showInputDialog(this, "Limit point (0, 0+, 0-, inf, -inf):", "0");
+        if (point == null) return; // Cancelled
+        resultDisplayField.setText(calculusEvaluator.limit(expression, point));
+        resultDisplayField.setCaretPosition(0);
+    }
+
+    // The input is the general term, e.g. 1/k^2; asks for the first index
+    private void performSeries() {
+        String term = expressionInputField.getText().trim();
+        if (term.isEmpty()) return;
+        String input = JOptionPane.showInputDialog(this, "Sum from index:", "1");
+        if (input == null) return; // Cancelled
+        try {
+            resultDisplayField.setText(calculusEvaluator.seriesSum(term, Long.parseLong(input.trim())));
+            resultDisplayField.setCaretPosition(0);
+        } catch (NumberFormatException ex) {
+            resultDisplayField.setText("Error: The first index must be an integer");
+        }
+    }
+
+    // Asks for the box, e.g. "x = 0..1" or "x = 0..1, y = -1..1"; shows guaranteed bounds
+    private void performRange() {
+        String expression = expressionInputField.getText().trim();
+        if (expression.isEmpty()) return;
+        String bounds = JOptionPane.showInputDialog(this, "Bounds for every variable:", "x = 0..1");
+        if (bounds == null) return; // Cancelled
+        String result = calculusEvaluator.range(expression, bounds, SettingsManager.loadAngleUnit());
+        int lineEnd = result.indexOf('\n');
+        resultDisplayField.setText(lineEnd < 0 ? result : result.substring(0, lineEnd));
+        resultDisplayField.setCaretPosition(0);
+    }
+
     private void insertIntoInputField(String text) {
         int cursorPos = expressionInputField.getCaretPosition();
         String currentText = expressionInputField.getText();
@@ -7,9 +7,13 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
+import java.math.BigInteger;
+import java.util.concurrent.ExecutionException;
 
+import com.example.calculator.logic.CalculusEvaluator;
 import com.example.calculator.logic.ExpressionEvaluator;
 import com.example.calculator.logic.Fraction;
+import com.example.calculator.logic.MonteCarloIntegrator;
 import com.example.calculator.logic.SettingsManager; // Import SettingsManager
 
 public class ScientificCalculatorGUI extends JFrame implements ActionListener {
@@ -27,10 +31,15 @@ public class ScientificCalculatorGUI extends JFrame implements ActionListener {
     private RoundedButton log10Button, lnButton, sqrtButton, squareButton;
     private RoundedButton percentButton;
     private RoundedButton piButton, eButton;
+    private RoundedButton minButton, maxButton;
+    private RoundedButton randButton, monteCarloButton, sumButton;
+    private RoundedButton imaginaryButton, factorialButton;
 
     private JPanel panel;
     private ExpressionEvaluator numericalEvaluator;
     private boolean preferFractionMode = false;
+    private boolean complexMode = false; // i is the imaginary unit; results may be complex
+    private SwingWorker<String, Void> calculation; // the evaluation in progress, if any
 
     // Colors remain the same
     private final Color numberColor = new Color(80, 80, 80);
@@ -98,16 +107,16 @@ public class ScientificCalculatorGUI extends JFrame implements ActionListener {
         panel.add(divButton); panel.add(percentButton);
         // Row 4
         panel.add(numberButtons[4]); panel.add(numberButtons[5]); panel.add(numberButtons[6]);
-        panel.add(mulButton); panel.add(new JLabel("")); // Placeholder
+        panel.add(mulButton); panel.add(imaginaryButton);
         // Row 5
         panel.add(numberButtons[1]); panel.add(numberButtons[2]); panel.add(numberButtons[3]);
-        panel.add(subButton); panel.add(new JLabel("")); // Placeholder
+        panel.add(subButton); panel.add(factorialButton);
         // Row 6
         panel.add(new JLabel("")); panel.add(numberButtons[0]); panel.add(decButton);
         panel.add(addButton); panel.add(equButton);
         // Row 7
-        panel.add(new JLabel(""));panel.add(new JLabel(""));panel.add(new JLabel(""));
-        panel.add(new JLabel(""));panel.add(new JLabel(""));
+        panel.add(minButton); panel.add(maxButton); panel.add(randButton);
+        panel.add(monteCarloButton); panel.add(sumButton);
 
 
         setLayout(new BorderLayout(10, 10));
@@ -150,6 +159,20 @@ public class ScientificCalculatorGUI extends JFrame implements ActionListener {
         percentButton = new RoundedButton("%", RoundedButton.ButtonSizeCategory.SCIENTIFIC);
         piButton = new RoundedButton("π", RoundedButton.ButtonSizeCategory.SCIENTIFIC);
         eButton = new RoundedButton("e", RoundedButton.ButtonSizeCategory.SCIENTIFIC);
+        minButton = new RoundedButton("min", RoundedButton.ButtonSizeCategory.SCIENTIFIC);
+        maxButton = new RoundedButton("max", RoundedButton.ButtonSizeCategory.SCIENTIFIC);
+        minButton.addActionListener(this); minButton.setButtonColor(specialFuncColor);
+        maxButton.addActionListener(this); maxButton.setButtonColor(specialFuncColor);
+        randButton = new RoundedButton("rand", RoundedButton.ButtonSizeCategory.SCIENTIFIC);
+        monteCarloButton = new RoundedButton("MC∫", RoundedButton.ButtonSizeCategory.SCIENTIFIC);
+        randButton.addActionListener(this); randButton.setButtonColor(funcColor);
+        sumButton = new RoundedButton("Σ", RoundedButton.ButtonSizeCategory.SCIENTIFIC);
+        sumButton.addActionListener(this); sumButton.setButtonColor(funcColor);
+        monteCarloButton.addActionListener(this); monteCarloButton.setButtonColor(specialFuncColor);
+        imaginaryButton = new RoundedButton("i", RoundedButton.ButtonSizeCategory.SCIENTIFIC);
+        imaginaryButton.addActionListener(this); imaginaryButton.setButtonColor(specialFuncColor);
+        factorialButton = new RoundedButton("x!", RoundedButton.ButtonSizeCategory.SCIENTIFIC);
+        factorialButton.addActionListener(this); factorialButton.setButtonColor(funcColor);
         RoundedButton[] sciOps = { sinButton, cosButton, tanButton, powYButton, log10Button, lnButton, sqrtButton, squareButton, percentButton, piButton, eButton };
         for (RoundedButton btn : sciOps) {
             btn.addActionListener(this);
@@ -160,7 +183,10 @@ public class ScientificCalculatorGUI extends JFrame implements ActionListener {
     }
 
     private void updateModeButtonTextAndTitle() {
-        if (preferFractionMode) {
+        if (complexMode) {
+            modeToggleButton.setText("Mode: Cplx");
+            setTitle("Scientific Calculator (Complex Mode)");
+        } else if (preferFractionMode) {
             modeToggleButton.setText("Mode: Frac");
             setTitle("Scientific Calculator (Fraction Mode)");
         } else {
@@ -174,8 +200,26 @@ public class ScientificCalculatorGUI extends JFrame implements ActionListener {
         Object source = e.getSource();
         String command = e.getActionCommand();
 
+        if (source == minButton || source == maxButton) {
+            optimizeExpression(source == maxButton);
+            displayField.requestFocusInWindow();
+            return;
+        }
+        if (source == monteCarloButton) {
+            monteCarloIntegrate();
+            displayField.requestFocusInWindow();
+            return;
+        }
         if (source == modeToggleButton) {
-            preferFractionMode = !preferFractionMode;
+            // Dec -> Frac -> Complex -> Dec
+            if (complexMode) {
+                complexMode = false;
+            } else if (preferFractionMode) {
+                preferFractionMode = false;
+                complexMode = true;
+            } else {
+                preferFractionMode = true;
+            }
             updateModeButtonTextAndTitle();
             displayField.requestFocusInWindow();
             return;
@@ -194,32 +238,106 @@ public class ScientificCalculatorGUI extends JFrame implements ActionListener {
             case "sin": case "cos": case "tan": case "log": case "ln": case "sqrt":
                 insertIntoDisplay(command + "("); break;
             case "x²": insertIntoDisplay("^(2)"); break;
+            case "x!": insertIntoDisplay("!"); break;
             case "π": insertIntoDisplay("pi"); break;
             case "e": insertIntoDisplay("e"); break;
+            case "rand": insertIntoDisplay("rand()"); break;
+            case "Σ": insertIntoDisplay("sum("); break; // sum(body, k, from, to)
             case "%": insertIntoDisplay("/100"); break;
             default: insertIntoDisplay(command); break;
         }
         displayField.requestFocusInWindow();
     }
 
+    // Evaluates and formats off the event thread, since results such as 200000! take a
+    // moment to compute and have a million digits; the display updates when done
     private void calculateExpression() {
+        String expression = displayField.getText().trim();
+        if (expression.isEmpty() || calculation != null) return;
+
+        // Get current angle unit from settings
+        String angleUnit = SettingsManager.loadAngleUnit();
+        boolean complex = complexMode, fraction = preferFractionMode;
+        equButton.setEnabled(false);
+        calculation = new SwingWorker<String, Void>() {
+            @Override
+            protected String doInBackground() {
+                Object result = complex
+                        ? numericalEvaluator.evaluateComplex(expression, angleUnit)
+                        : numericalEvaluator.evaluate(expression, fraction, angleUnit); // Pass angleUnit
+                return formatResult(result, fraction);
+            }
+
+            @Override
+            protected void done() {
+                calculation = null;
+                equButton.setEnabled(true);
+                try {
+                    displayField.setText(get());
+                } catch (ExecutionException ex) {
+                    Throwable cause = ex.getCause();
+                    if (cause instanceof IllegalArgumentException || cause instanceof ArithmeticException) {
+                        String errorMessage = cause.getMessage();
+                        if (errorMessage != null && errorMessage.length() > 30) errorMessage = errorMessage.substring(0, 30) + "...";
+                        displayField.setText("Error: " + (errorMessage != null ? errorMessage : "Invalid"));
+                    } else {
+                        displayField.setText("Error: Calc Failed");
+                    }
+                } catch (InterruptedException ex) {
+                    displayField.setText("Error: Calc Failed");
+                }
+                displayField.selectAll();
+                displayField.requestFocusInWindow();
+            }
+        };
+        calculation.execute();
+    }
+
+    // Minimum or maximum of the displayed expression over its variables, e.g. x^2 - 2x.
+    // Asks for optional bounds; the optimum replaces the expression and the method and its
+    // statistics are shown in a dialog.
+    private void optimizeExpression(boolean maximize) {
         String expression = displayField.getText().trim();
         if (expression.isEmpty()) return;
+        String bounds = JOptionPane.showInputDialog(this, "Bounds (optional), e.g. x = 0..pi, y = 0..", "");
+        if (bounds == null) return; // Cancelled
+        String result = new CalculusEvaluator().optimize(expression, bounds, maximize, SettingsManager.loadAngleUnit());
+        int lineEnd = result.indexOf('\n');
+        displayField.setText(lineEnd < 0 ? result : result.substring(0, lineEnd));
+        displayField.setCaretPosition(0);
+        if (lineEnd >= 0) {
+            JOptionPane.showMessageDialog(this, result, maximize ? "Maximum" : "Minimum", JOptionPane.INFORMATION_MESSAGE);
+        }
+    }
 
+    // Integral of the displayed expression over a box by Monte Carlo sampling, e.g. x*y*z
+    // with bounds x = 0..1, y = 0..1, z = 0..1. The same seed gives the same estimate.
+    private void monteCarloIntegrate() {
+        String expression = displayField.getText().trim();
+        if (expression.isEmpty()) return;
+        JTextField boundsField = new JTextField("x = 0..1");
+        JTextField samplesField = new JTextField(String.valueOf(MonteCarloIntegrator.DEFAULT_SAMPLES));
+        JTextField seedField = new JTextField("1");
+        JCheckBox sobolBox = new JCheckBox("Sobol points (quasi-Monte Carlo)", true);
+        Object[] message = { "Bounds for every variable:", boundsField, "Samples:", samplesField, "Seed:", seedField, sobolBox };
+        int option = JOptionPane.showConfirmDialog(this, message, "Monte Carlo Integral", JOptionPane.OK_CANCEL_OPTION);
+        if (option != JOptionPane.OK_OPTION) return;
+        long samples, seed;
         try {
-            // Get current angle unit from settings
-            String angleUnit = SettingsManager.loadAngleUnit();
-            Object result = numericalEvaluator.evaluate(expression, preferFractionMode, angleUnit); // Pass angleUnit
-            displayResult(result);
-        } catch (IllegalArgumentException | ArithmeticException ex) {
-            String errorMessage = ex.getMessage();
-            if (errorMessage != null && errorMessage.length() > 30) errorMessage = errorMessage.substring(0, 30) + "...";
-            displayField.setText("Error: " + (errorMessage != null ? errorMessage : "Invalid"));
-        } catch (Exception ex) {
-            displayField.setText("Error: Calc Failed");
+            samples = Long.parseLong(samplesField.getText().trim());
+            seed = Long.parseLong(seedField.getText().trim());
+        } catch (NumberFormatException ex) {
+            JOptionPane.showMessageDialog(this, "Samples and seed must be integers.", "Input Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        String result = new CalculusEvaluator().monteCarloIntegral(expression, boundsField.getText(), samples, seed,
+                                                                   sobolBox.isSelected(), SettingsManager.loadAngleUnit());
+        int lineEnd = result.indexOf('\n');
+        displayField.setText(lineEnd < 0 ? result : result.substring(0, lineEnd));
+        displayField.setCaretPosition(0);
+        if (lineEnd >= 0) {
+            JOptionPane.showMessageDialog(this, result, "Monte Carlo Integral", JOptionPane.INFORMATION_MESSAGE);
         }
-        displayField.selectAll();
-        displayField.requestFocusInWindow();
     }
 
     private void insertIntoDisplay(String text) {
@@ -230,28 +348,29 @@ public class ScientificCalculatorGUI extends JFrame implements ActionListener {
         displayField.requestFocusInWindow();
     }
 
-    private void displayResult(Object result) {
-        // ... (same as before, uses preferFractionMode)
+    // Display text for a result; integers too long for the display are abbreviated
+    private static String formatResult(Object result, boolean preferFractionMode) {
         if (result instanceof Fraction) {
             Fraction fracResult = (Fraction) result;
-            if (preferFractionMode || fracResult.getDenominator() != 1) { displayField.setText(fracResult.toString());
-            } else { displayField.setText(String.valueOf(fracResult.getNumerator())); }
+            if (preferFractionMode || fracResult.getDenominator() != 1) { return fracResult.toString();
+            } else { return String.valueOf(fracResult.getNumerator()); }
         } else if (result instanceof Double) {
             double doubleResult = (Double) result;
-            if (Double.isNaN(doubleResult) || Double.isInfinite(doubleResult)) { displayField.setText("Error");
-            } else if (!preferFractionMode && doubleResult == (long) doubleResult) { displayField.setText(String.format("%d", (long) doubleResult));
+            if (Double.isNaN(doubleResult) || Double.isInfinite(doubleResult)) { return "Error";
+            } else if (!preferFractionMode && doubleResult == (long) doubleResult) { return String.format("%d", (long) doubleResult);
             } else if (preferFractionMode) {
                 Fraction convertedFraction = ExpressionEvaluator.doubleToFraction(doubleResult, 1000000);
-                if (convertedFraction.getDenominator() == 1) displayField.setText(String.valueOf(convertedFraction.getNumerator()));
-                else displayField.setText(convertedFraction.toString());
+                if (convertedFraction.getDenominator() == 1) return String.valueOf(convertedFraction.getNumerator());
+                else return convertedFraction.toString();
             } else {
                 String formatted = String.format("%.10f", doubleResult).replaceAll("\\.?0+$", "");
                 if (formatted.isEmpty() && doubleResult == 0) formatted = "0"; else if (formatted.equals(".")) formatted = "0";
                 if (formatted.length() > 18 || (Math.abs(doubleResult)>1e12 || (Math.abs(doubleResult)<1e-6 && doubleResult!=0))) {
-                    displayField.setText(String.format("%.6E", doubleResult));
-                } else { displayField.setText(formatted); }
+                    return String.format("%.6E", doubleResult);
+                } else { return formatted; }
             }
-        } else if (result != null) { displayField.setText(result.toString());
-        } else { displayField.setText("Error"); }
+        } else if (result instanceof BigInteger) { return ExpressionEvaluator.formatInteger((BigInteger) result, 30);
+        } else if (result != null) { return result.toString();
+        } else { return "Error"; }
     }
 }